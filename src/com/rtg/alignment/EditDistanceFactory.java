@@ -45,6 +45,8 @@ public final class EditDistanceFactory {
   private static final boolean USE_GOTOH_ONLY = GlobalFlags.isSet(GlobalFlags.EDIT_DIST_GOTOH_ONLY_FLAG);
   // Only use the single-indel-seeded aligner (disable all others, has priority over USE_NOINDELS_ONLY)
   private static final boolean USE_SINGLE_INDEL_SEEDED_ONLY = GlobalFlags.isSet(GlobalFlags.EDIT_DIST_SINGLE_INDEL_SEEDED_ONLY_FLAG);
+  // Use the column vectorized implementation of the Gotoh aligner
+  private static final boolean USE_STRIPED_GOTOH = GlobalFlags.getBooleanValue(GlobalFlags.EDIT_DIST_STRIPED_GOTOH_FLAG);
   // Enable the heuristic aligners (faster, but some lower quality alignments are produced)
   private static final boolean ENABLE_HEURISTIC_ALIGNING = GlobalFlags.getBooleanValue(GlobalFlags.EDIT_DIST_HEURISTIC_ALIGNERS_FLAG);
   // Specify how many reads to log with -D option
@@ -130,7 +132,7 @@ public final class EditDistanceFactory {
       return new SoftClipperOmni(new RcEditDistance(new UnidirectionalPrioritisedEditDistance(ngsParams, new SingleIndelSeededEditDistance(ngsParams, maxReadLength))), ngsParams.softClipDistance());
     } else if (USE_GOTOH_ONLY) {
       Diagnostic.developerLog("Using Gotoh only");
-      return new SoftClipperOmni(new RcEditDistance(new GotohEditDistance(ngsParams)), ngsParams.softClipDistance());
+      return new SoftClipperOmni(new RcEditDistance(createGotohEditDistance(ngsParams)), ngsParams.softClipDistance());
     } else if (effectiveChain == AlignerMode.TABLE) {
       Diagnostic.developerLog("Using SingleIndelEditDistance (TABLE): maxReadLength=" + maxReadLength);
       return new SoftClipperOmni(new RcEditDistance(new UnidirectionalPrioritisedEditDistance(ngsParams, new SingleIndelEditDistance(ngsParams, maxReadLength))), ngsParams.softClipDistance());
@@ -170,9 +172,9 @@ public final class EditDistanceFactory {
       Diagnostic.developerLog("SeededAligner");
       fwd.add(new SeededAligner(ngsParams, !ENABLE_HEURISTIC_ALIGNING));
       rev.add(new SeededAligner(ngsParams, !ENABLE_HEURISTIC_ALIGNING));
-      Diagnostic.developerLog("GotohEditDistance");
-      fwd.add(new GotohEditDistance(ngsParams));
-      rev.add(new GotohEditDistance(ngsParams));
+      Diagnostic.developerLog(USE_STRIPED_GOTOH ? "StripedGotohEditDistance" : "GotohEditDistance");
+      fwd.add(createGotohEditDistance(ngsParams));
+      rev.add(createGotohEditDistance(ngsParams));
 
       return new SoftClipperOmni(new RcEditDistance(
           new UnidirectionalPrioritisedEditDistance(ngsParams, fwd.toArray(new UnidirectionalEditDistance[fwd.size()])),
@@ -181,7 +183,11 @@ public final class EditDistanceFactory {
 
     return new SoftClipperOmni(new RcEditDistance(new UnidirectionalPrioritisedEditDistance(ngsParams,
         new NoIndelsEditDistance(ngsParams),
-        new GotohEditDistance(ngsParams))), ngsParams.softClipDistance());
+        createGotohEditDistance(ngsParams))), ngsParams.softClipDistance());
+  }
+
+  private static UnidirectionalEditDistance createGotohEditDistance(NgsParams ngsParams) {
+    return USE_STRIPED_GOTOH ? new StripedGotohEditDistance(ngsParams) : new GotohEditDistance(ngsParams);
   }
 
   private static CgGotohEditDistance createCgGotohEditDistance(int unknownsPenalty) {
@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import com.rtg.mode.DNA;
+import com.rtg.mode.DnaUtils;
+import com.rtg.ngs.NgsParams;
+import com.rtg.util.StringUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Banded Gotoh alignment producing exactly the same alignments as {@link GotohEditDistance},
+ * but with the matrices laid out so that the inner loops are simple passes over primitive arrays.
+ * <ul>
+ *   <li>The insert, distance and delete scores are held in three separate column-major
+ *   <code>int</code> arrays rather than being packed into a <code>long</code> per cell.</li>
+ *   <li>The diagonal costs of the read against each possible template residue are computed once
+ *   per alignment (a query profile), so there is no per cell comparison of residues.</li>
+ *   <li>Each column is filled in two passes. The insert and distance scores depend only on the
+ *   previous column, so the first pass has no loop carried dependency and can be vectorized by the
+ *   JIT. The second pass carries the delete scores down the column, which is the only sequential
+ *   dependency.</li>
+ * </ul>
+ */
+public class StripedGotohEditDistance implements UnidirectionalEditDistance {
+
+  /** Number of distinct nucleotide codes, including unknown. */
+  private static final int NUM_RESIDUES = DNA.values().length;
+
+  /** We offset all scores by this amount, to allow negative scores. Same as <code>GotohEditDistance</code>. */
+  private static final int ZERO_SCORE = ((1 << 20) - 1) / 2;
+
+  /** This is a large (bad) score. */
+  private static final int LARGE_SCORE = ZERO_SCORE + (ZERO_SCORE / 2);
+
+  private final int mGapOpenPenalty;
+  private final int mGapExtendPenalty;
+  private final int mSubstitutionPenalty;
+  private final int mUnknownsPenalty;
+  private final boolean mStopWhenTemplateRunsOut;
+  private final boolean mSupportsEarlyTermination;
+
+  private int[] mWorkspace = new int[ActionsHelper.ACTIONS_START_INDEX];
+
+  private boolean mFixedStart;
+  private boolean mFixedEnd;
+  private int mReadStartPos;
+  private int mZeroBasedStart;
+
+  private int mMinScore;
+  private int mMinScoreTemplatePos;
+  private int mMinScoreReadPos;
+
+  /** Column 1 in the matrices corresponds to position <code>mZeroBasedStart - mTemplatePositionOffset</code> in the template. */
+  private int mTemplatePositionOffset;
+
+  private int mRows, mCols;
+
+  /** Column-major score matrices, the cell for <code>(refPos, readPos)</code> is at <code>refPos * mRows + readPos</code>. */
+  private int[] mInsert = new int[0];
+  private int[] mDistance = new int[0];
+  private int[] mDelete = new int[0];
+
+  /** Diagonal cost of each read position against each template residue, row <code>NUM_RESIDUES</code> is scratch space. */
+  private int[] mProfile = new int[0];
+
+  private final int[] mMaxOffsetHistogram = new int[100];
+  private int mOffsetTooBig = 0;
+
+  /**
+   * Create an edit distance object with given penalties.
+   * @param ngsParams {@link NgsParams} for current run
+   */
+  public StripedGotohEditDistance(NgsParams ngsParams) {
+    this(ngsParams.gapOpenPenalty(), ngsParams.gapExtendPenalty(), ngsParams.substitutionPenalty(), ngsParams.unknownsPenalty(), false);
+  }
+
+  /**
+   * Create an edit distance object with given penalties.
+   *
+   * @param openPenalty open open penalty.
+   * @param extendPenalty gap extend penalty.
+   * @param substitutionPenalty substitution penalty.
+   * @param unknownsPenalty unknowns (n nucleotides, off template alignment) penalty.
+   * @param stopWhenTemplateRunsOut stop aligning when either sequence runs out.
+   */
+  public StripedGotohEditDistance(int openPenalty, int extendPenalty, int substitutionPenalty, int unknownsPenalty, boolean stopWhenTemplateRunsOut) {
+    mGapOpenPenalty = openPenalty;
+    mGapExtendPenalty = extendPenalty;
+    mSubstitutionPenalty = substitutionPenalty;
+    mUnknownsPenalty = unknownsPenalty;
+    mStopWhenTemplateRunsOut = stopWhenTemplateRunsOut;
+    mSupportsEarlyTermination = !(mGapOpenPenalty < 0 || mGapExtendPenalty < 0 || mSubstitutionPenalty < 0 || mUnknownsPenalty < 0);
+  }
+
+  private int getInsert(int refpos, int readpos) {
+    return mInsert[refpos * mRows + readpos];
+  }
+
+  private int getDistance(int refpos, int readpos) {
+    return mDistance[refpos * mRows + readpos];
+  }
+
+  private int getDelete(int refpos, int readpos) {
+    return mDelete[refpos * mRows + readpos];
+  }
+
+  private void setScores(int refpos, int readpos, int insert, int distance, int delete) {
+    final int i = refpos * mRows + readpos;
+    mInsert[i] = insert;
+    mDistance[i] = distance;
+    mDelete[i] = delete;
+  }
+
+  private void setFixedStart(final boolean isFixed) {
+    if (mFixedStart != isFixed) {
+      mFixedStart = isFixed;
+      mRows = -1;
+      mCols = -1;
+    }
+  }
+
+  private void initMatrices(int rows, int cols, int maxShift, int grayWidth) {
+    final int size = rows * cols;
+    if (mInsert.length < size) {
+      mInsert = new int[size];
+      mDistance = new int[size];
+      mDelete = new int[size];
+    }
+    mRows = rows;
+    mCols = cols;
+    final int startScore = mFixedStart ? LARGE_SCORE : ZERO_SCORE;
+    final int endPenalty = Math.min(mTemplatePositionOffset + maxShift + grayWidth + 2, cols);
+    for (int c = 0; c < endPenalty; c++) {
+      setScores(c, 0, startScore, startScore, startScore + mGapOpenPenalty);
+    }
+    if (mFixedStart) {
+      setScores(mTemplatePositionOffset, 0, ZERO_SCORE + mGapOpenPenalty, ZERO_SCORE, ZERO_SCORE + mGapOpenPenalty);
+      for (int c = mTemplatePositionOffset + 1; c < cols; c++) {
+        mInsert[c * mRows] = mInsert[(c - 1) * mRows] + mGapExtendPenalty;
+      }
+    }
+    int delete = mDelete[0];
+    mInsert[0] += mGapOpenPenalty + mGapExtendPenalty;
+    for (int r = 1; r < Math.min(rows, maxShift + grayWidth * 2); r++) {
+      delete += mGapExtendPenalty;
+      setScores(0, r, LARGE_SCORE, LARGE_SCORE, delete);
+    }
+  }
+
+  private void initProfile(byte[] read, int readStartPos, int rlen) {
+    final int stride = rlen + 1;
+    final int size = (NUM_RESIDUES + 1) * stride;
+    if (mProfile.length < size) {
+      mProfile = new int[size];
+    }
+    for (int b = 0; b < NUM_RESIDUES; b++) {
+      final int row = b * stride;
+      for (int readPos = 1; readPos <= rlen; readPos++) {
+        mProfile[row + readPos] = diagonalCost(b, read[readStartPos + readPos - 1]);
+      }
+    }
+  }
+
+  /**
+   * @return the offset of the profile row to use for the given template residue
+   */
+  private int profileRow(byte[] read, int readStartPos, int rlen, byte templateResidue) {
+    final int stride = rlen + 1;
+    if (templateResidue >= 0 && templateResidue < NUM_RESIDUES) {
+      return templateResidue * stride;
+    }
+    final int row = NUM_RESIDUES * stride;
+    for (int readPos = 1; readPos <= rlen; readPos++) {
+      mProfile[row + readPos] = diagonalCost(templateResidue, read[readStartPos + readPos - 1]);
+    }
+    return row;
+  }
+
+  private int diagonalCost(int templateResidue, int readResidue) {
+    if (templateResidue == DnaUtils.UNKNOWN_RESIDUE || readResidue == DnaUtils.UNKNOWN_RESIDUE) {
+      return mUnknownsPenalty;
+    }
+    return templateResidue == readResidue ? 0 : mSubstitutionPenalty;
+  }
+
+  /**
+   * Fill the cells <code>minReadPos..maxReadPos</code> of a column.
+   * @return the minimum score in the column, if early termination is supported
+   */
+  private int fillColumn(int refPos, int minReadPos, int maxReadPos, int profileRow) {
+    final int[] ins = mInsert;
+    final int[] dist = mDistance;
+    final int[] del = mDelete;
+    final int[] profile = mProfile;
+    final int open = mGapOpenPenalty;
+    final int extend = mGapExtendPenalty;
+    final int cur = refPos * mRows;
+    final int profileOffset = profileRow - cur;
+
+    // Pass 1: insert (from the left) and distance (from the diagonal) only use the previous column.
+    for (int i = cur + minReadPos; i <= cur + maxReadPos; i++) {
+      final int left = i - mRows;
+      final int diag = left - 1;
+      ins[i] = extend + Math.min(ins[left], Math.min(dist[left], del[left]) + open);
+      dist[i] = profile[profileOffset + i] + Math.min(ins[diag], Math.min(dist[diag], del[diag]));
+    }
+
+    // Pass 2: delete (from above) runs down the column.
+    int colMinScore = Integer.MAX_VALUE;
+    int above = del[cur + minReadPos - 1];
+    for (int i = cur + minReadPos; i <= cur + maxReadPos; i++) {
+      final int delete = extend + Math.min(Math.min(ins[i - 1], dist[i - 1]) + open, above);
+      del[i] = delete;
+      above = delete;
+      if (mSupportsEarlyTermination) {
+        colMinScore = Math.min(colMinScore, Math.min(Math.min(ins[i], dist[i]), delete));
+      }
+    }
+    return colMinScore;
+  }
+
+  private int[] calculate(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStart, int templateEnd, int maxScore, int maxShift) {
+    assert mFixedEnd || templateEnd == templateStart;
+    final int rlen = readEndPos - readStartPos;
+    final int tlen = templateEnd - templateStart;
+    mReadStartPos = readStartPos;
+    mZeroBasedStart = templateStart;
+    int bLength = Math.max(rlen, tlen);
+    final int grayWidth = maxShift / 2 + 1;
+
+    if (mFixedStart) {
+      mTemplatePositionOffset = 0;
+      if (!mFixedEnd) {
+        bLength += maxShift + grayWidth;
+      } else if (Math.abs(tlen - rlen) > maxShift) {
+        failure();
+        return mWorkspace;
+      }
+    } else {
+      mTemplatePositionOffset = rlen == 0 ? 0 : Math.min((int) (rlen * 0.7), maxShift + grayWidth);
+      if (mFixedEnd) {
+        bLength += mTemplatePositionOffset;
+      } else {
+        bLength += mTemplatePositionOffset * 2;
+      }
+    }
+
+    final long dpmSize = (1 + (long) rlen) * (1 + bLength);
+    if (dpmSize < 1 || dpmSize > Integer.MAX_VALUE) {
+      Diagnostic.developerLog("Can not create DPM for parameters rlen=" + (rlen + 1) + " bLength=" + (bLength + 1) + " dpmLength=" + dpmSize);
+      failure();
+      return mWorkspace;
+    }
+
+    initMatrices(1 + rlen, 1 + bLength, maxShift, grayWidth);
+    initProfile(read, readStartPos, rlen);
+
+    mMinScore = Integer.MAX_VALUE / 2;
+    mMinScoreTemplatePos = Integer.MAX_VALUE / 2;
+    boolean earlyBailOut = false;
+    int refPos;
+    int terminationColumn = Integer.MAX_VALUE;
+    for (refPos = 1; refPos <= bLength; refPos++) {
+      final int origin = refPos - mTemplatePositionOffset;
+      final int templatePosition = origin - 1 + mZeroBasedStart;
+      final boolean isWithinTemplate = 0 <= templatePosition && templatePosition < template.length;
+      if (!isWithinTemplate && mStopWhenTemplateRunsOut && !mFixedEnd) {
+        earlyBailOut = true;
+        terminationColumn = refPos - 1;
+        break;
+      }
+      final byte bb = isWithinTemplate ? template[templatePosition] : DnaUtils.UNKNOWN_RESIDUE;
+
+      final int minReadPos = Math.max(1, origin - maxShift - grayWidth);
+      if (minReadPos > 1 && minReadPos <= rlen) {
+        setScores(refPos, minReadPos - 1, LARGE_SCORE, LARGE_SCORE, LARGE_SCORE);
+      }
+      final int maxReadPos = Math.min(rlen, origin + maxShift + grayWidth);
+      if (maxReadPos >= 0 && maxReadPos < rlen) {
+        setScores(refPos, maxReadPos + 1, LARGE_SCORE, LARGE_SCORE, LARGE_SCORE);
+      }
+
+      final int colMinScore = minReadPos <= maxReadPos ? fillColumn(refPos, minReadPos, maxReadPos, profileRow(read, readStartPos, rlen, bb)) : Integer.MAX_VALUE;
+
+      if (mSupportsEarlyTermination && colMinScore - ZERO_SCORE > maxScore && !mFixedEnd) {
+        terminationColumn = refPos;
+        break;
+      }
+    }
+    refPos--;
+    if (mFixedEnd) {
+      mMinScoreReadPos = rlen;
+      mMinScoreTemplatePos = tlen + mTemplatePositionOffset;
+      if (mMinScoreTemplatePos == 0 && rlen == 0) {
+        mMinScore = getDistance(0, 0);
+      } else if (mMinScoreTemplatePos == 0) {
+        mMinScore = getDelete(mMinScoreTemplatePos, rlen);
+      } else if (rlen == 0) {
+        mMinScore = getInsert(mMinScoreTemplatePos, rlen);
+      } else {
+        mMinScore = Math.min(getDistance(mMinScoreTemplatePos, rlen),
+                   Math.min(getInsert(mMinScoreTemplatePos, rlen),
+                            getDelete(mMinScoreTemplatePos, rlen)));
+      }
+    } else {
+      final int refDiagEndPos = findBestReadEnd(maxShift, rlen, grayWidth, bLength, terminationColumn);
+      if (earlyBailOut) {
+        findBestTemplateEnd(maxShift, rlen, grayWidth, refPos, refDiagEndPos);
+      }
+    }
+
+    mMinScore -= ZERO_SCORE;
+    boolean validAlignment = false;
+    if (mMinScore <= maxScore) {
+      validAlignment = goBackwards(read, template, mMinScoreReadPos, mMinScoreTemplatePos, maxShift);
+      mWorkspace[ActionsHelper.ALIGNMENT_SCORE_INDEX] = mMinScore;
+    }
+    if (!validAlignment) {
+      failure();
+    }
+    return mWorkspace;
+  }
+
+  private int findBestReadEnd(int maxShift, int rlen, int grayWidth, int bLength, int terminationColumn) {
+    mMinScoreReadPos = rlen;
+    final int refDiagEndPos = mTemplatePositionOffset + rlen;
+    final int startPos = Math.min(Math.min(bLength, refDiagEndPos + maxShift + grayWidth), terminationColumn);
+    for (int i = startPos; i >= refDiagEndPos - maxShift - grayWidth && i >= 0; i--) {
+      final boolean closerThanCurrentBest = Math.abs(mMinScoreTemplatePos - refDiagEndPos) > Math.abs(i - refDiagEndPos);
+      int cellScore = getDistance(i, rlen);
+      if (cellScore == LARGE_SCORE) {
+        if (i == 0) {
+          cellScore = getDelete(i, rlen);
+          evaluateCellScore(cellScore, rlen, i, closerThanCurrentBest);
+        }
+        break;
+      }
+      evaluateCellScore(cellScore, rlen, i, closerThanCurrentBest);
+      evaluateCellScore(getDelete(i, rlen), rlen, i, closerThanCurrentBest);
+      evaluateCellScore(getInsert(i, rlen), rlen, i, closerThanCurrentBest);
+    }
+    return refDiagEndPos;
+  }
+
+  private void findBestTemplateEnd(int maxShift, int rlen, int grayWidth, int refPos, int refDiagEndPos) {
+    int i = Math.min(rlen, refDiagEndPos + maxShift + grayWidth);
+    while (i >= 0) {
+      final boolean closerThanCurrentBest = Math.abs(mMinScoreReadPos - refDiagEndPos) > Math.abs(i - refDiagEndPos);
+      int cellScore = getDistance(refPos, i);
+      if (cellScore == LARGE_SCORE) {
+        if (i == 0) {
+          cellScore = getInsert(refPos, i);
+          evaluateCellScore(cellScore, i, refPos, closerThanCurrentBest);
+        }
+        break;
+      }
+      evaluateCellScore(cellScore, i, refPos, closerThanCurrentBest);
+      evaluateCellScore(getDelete(refPos, i), i, refPos, closerThanCurrentBest);
+      evaluateCellScore(getInsert(refPos, i), i, refPos, closerThanCurrentBest);
+      i--;
+    }
+  }
+
+  private void evaluateCellScore(int score, int readPos, int templatePos, boolean closerThanCurrentBest) {
+    if (score < mMinScore || score == mMinScore && closerThanCurrentBest) {
+      mMinScore = score;
+      mMinScoreReadPos = readPos;
+      mMinScoreTemplatePos = templatePos;
+    }
+  }
+
+  private void failure() {
+    mWorkspace[ActionsHelper.TEMPLATE_START_INDEX] = mZeroBasedStart;
+    mWorkspace[ActionsHelper.ALIGNMENT_SCORE_INDEX] = Integer.MAX_VALUE;
+    mWorkspace[ActionsHelper.ACTIONS_LENGTH_INDEX] = 0;
+  }
+
+  /**
+   * Go backwards through the matrices computing the actions, in the same way as <code>GotohEditDistance</code>.
+   * @return true if a valid path found (stays within <code>maxShift</code> offset)
+   */
+  private boolean goBackwards(byte[] read, byte[] template, int readEndPos, int templateEndPos, int maxShift) {
+    final int size = ActionsHelper.ACTIONS_START_INDEX + 1 + ((readEndPos + templateEndPos) >> ActionsHelper.ACTIONS_PER_INT_SHIFT);
+    if (mWorkspace.length < size) {
+      mWorkspace = new int[size];
+    }
+    boolean validResult = true;
+    int readPos = readEndPos;
+    int refPos = templateEndPos;
+    int totalActions = 0;
+    int buffer = 0;
+    int actionPoint = ActionsHelper.ACTIONS_START_INDEX;
+    int diagCost = getDistance(refPos, readPos);
+    int delCost = getDelete(refPos, readPos);
+    int insCost = getInsert(refPos, readPos);
+    int minCost = Math.min(diagCost, Math.min(delCost, insCost));
+    int mustIndel = 0;
+    int maxOffset = 0;
+    while (readPos > 0 || (mFixedStart && refPos != mTemplatePositionOffset)) {
+      if (readPos < 0 || refPos < 0) {
+        // fell off the edge of the matrix, the original implementation throws here
+        validResult = false;
+        break;
+      }
+      final int command;
+      final int realRefPos = refPos - 1 + mZeroBasedStart - mTemplatePositionOffset;
+      if (mStopWhenTemplateRunsOut && realRefPos < 0) {
+        mMinScore += ZERO_SCORE - Math.min(getDistance(refPos, readPos), Math.min(getInsert(refPos, readPos), getDelete(refPos, readPos)));
+        break;
+      }
+      if (minCost == diagCost && refPos > 0 && mustIndel == 0) {
+        final int realReadPos = readPos - 1 + mReadStartPos;
+        if (0 <= realRefPos && realRefPos < template.length && realReadPos < read.length && isSame(read[realReadPos], template[realRefPos])) {
+          command = ActionsHelper.SAME;
+        } else {
+          command = ActionsHelper.MISMATCH;
+        }
+        readPos--;
+        refPos--;
+        diagCost = getDistance(refPos, readPos);
+        delCost = getDelete(refPos, readPos);
+        insCost = getInsert(refPos, readPos);
+        minCost = Math.min(diagCost, Math.min(delCost, insCost));
+      } else if ((mustIndel == ActionsHelper.DELETION_FROM_REFERENCE
+          || minCost == insCost && mustIndel != ActionsHelper.INSERTION_INTO_REFERENCE)
+          && refPos > 0) {
+        command = ActionsHelper.DELETION_FROM_REFERENCE;
+        refPos--;
+        final int oldMinCost = minCost;
+        diagCost = getDistance(refPos, readPos);
+        delCost = getDelete(refPos, readPos);
+        insCost = getInsert(refPos, readPos);
+        minCost = Math.min(diagCost, Math.min(delCost, insCost));
+        if (oldMinCost == minCost + mGapOpenPenalty + mGapExtendPenalty) {
+          mustIndel = 0;
+        } else {
+          mustIndel = command;
+          minCost = insCost;
+        }
+      } else {
+        command = ActionsHelper.INSERTION_INTO_REFERENCE;
+        readPos--;
+        final int oldMinCost = minCost;
+        diagCost = getDistance(refPos, readPos);
+        delCost = getDelete(refPos, readPos);
+        insCost = getInsert(refPos, readPos);
+        minCost = Math.min(diagCost, Math.min(delCost, insCost));
+        if (oldMinCost == minCost + mGapOpenPenalty + mGapExtendPenalty) {
+          mustIndel = 0;
+        } else {
+          mustIndel = command;
+          minCost = delCost;
+        }
+      }
+      buffer <<= ActionsHelper.BITS_PER_ACTION;
+      buffer |= command;
+      if ((++totalActions & ActionsHelper.ACTIONS_COUNT_MASK) == 0) {
+        mWorkspace[actionPoint++] = buffer;
+        buffer = 0;
+      }
+
+      final int thisOffset = Math.abs(readPos + mTemplatePositionOffset - refPos);
+      if (thisOffset > maxShift) {
+        validResult = false;
+        break;
+      } else if (thisOffset > maxOffset) {
+        maxOffset = thisOffset;
+      }
+    }
+
+    if (!validResult) {
+      mOffsetTooBig++;
+    } else {
+      mMaxOffsetHistogram[Math.min(maxOffset, mMaxOffsetHistogram.length - 1)]++;
+    }
+    mWorkspace[actionPoint] = buffer << (32 - ActionsHelper.BITS_PER_ACTION * (totalActions & ActionsHelper.ACTIONS_COUNT_MASK));
+    mWorkspace[ActionsHelper.ACTIONS_LENGTH_INDEX] = totalActions;
+    mWorkspace[ActionsHelper.TEMPLATE_START_INDEX] = refPos + mZeroBasedStart - mTemplatePositionOffset;
+    return validResult;
+  }
+
+  private static boolean isSame(final int refNt, final int readNt) {
+    return !(refNt == DnaUtils.UNKNOWN_RESIDUE || readNt == DnaUtils.UNKNOWN_RESIDUE) && refNt == readNt;
+  }
+
+  @Override
+  public void logStats() {
+    Diagnostic.developerLog("StripedGotohEditDistance maxbytes=" + mInsert.length * 12L + ", currsize=" + mRows + "x" + mCols);
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Maximum offset Histogram").append(StringUtils.LS);
+    for (int i = mMaxOffsetHistogram.length - 1; i >= 0; i--) {
+      if (mMaxOffsetHistogram[i] > 0) {
+        sb.append(i).append(" = ").append(mMaxOffsetHistogram[i]).append(StringUtils.LS);
+      }
+    }
+    sb.append("Exceeded maxShift offset: ").append(mOffsetTooBig).append(StringUtils.LS);
+    Diagnostic.developerLog(sb.toString());
+  }
+
+  @Override
+  public int[] calculateEditDistance(byte[] read, int rlen, byte[] template, int zeroBasedStart, int maxScore, int maxShift, boolean cgLeft) {
+    setFixedStart(false);
+    mFixedEnd = false;
+    return calculate(read, 0, rlen, template, zeroBasedStart, zeroBasedStart, maxScore, maxShift);
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedBoth(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStart, int templateEnd, int maxScore, int maxShift) {
+    setFixedStart(true);
+    mFixedEnd = true;
+    return calculate(read, readStartPos, readEndPos, template, templateStart, templateEnd, maxScore, maxShift);
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedEnd(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateExpectedStartPos, int templateEndPos, int maxScore, int maxShift) {
+    setFixedStart(false);
+    mFixedEnd = true;
+    return calculate(read, readStartPos, readEndPos, template, templateExpectedStartPos, templateEndPos, maxScore, maxShift);
+  }
+
+  @Override
+  public int[] calculateEditDistanceFixedStart(byte[] read, int readStartPos, int readEndPos, byte[] template, int templateStartPos, int maxScore, int maxShift) {
+    setFixedStart(true);
+    mFixedEnd = false;
+    return calculate(read, readStartPos, readEndPos, template, templateStartPos, templateStartPos, maxScore, maxShift);
+  }
+}
@@ -90,6 +90,33 @@ public abstract class AbstractBitVector extends IntegralAbstract {
    */
   public abstract long bytes();
 
+  /**
+   * Gets the number of 32 bit words needed to hold the vector.
+   *
+   * @return number of words.
+   */
+  public long words() {
+    return (mLength + MASK) >> BITS_PER_ENTRY;
+  }
+
+  /**
+   * Gets a 32 bit word of the vector, the lowest order bit corresponding to index <code>word * 32</code>.
+   *
+   * @param word the index of the word.
+   * @return the bits of the word.
+   */
+  public int getWord(final long word) {
+    int v = 0;
+    final long base = word << BITS_PER_ENTRY;
+    final long end = Math.min(base + (1 << BITS_PER_ENTRY), mLength);
+    for (long i = base; i < end; i++) {
+      if (get(i)) {
+        v |= 1 << (int) (i & MASK);
+      }
+    }
+    return v;
+  }
+
 
   /**
    * Gets the length of the bit vector.
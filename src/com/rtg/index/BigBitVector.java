@@ -65,6 +65,10 @@ public final class BigBitVector extends AbstractBitVector {
     mArray.setInt(x, v);
   }
 
+  @Override
+  public int getWord(final long word) {
+    return mArray.getInt(word);
+  }
 
   @Override
   public long bytes() {
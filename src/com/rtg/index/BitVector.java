@@ -65,6 +65,10 @@ public final class BitVector extends AbstractBitVector {
     mArray[(int) x] ^= 1 << (int) (index & MASK);
   }
 
+  @Override
+  public int getWord(final long word) {
+    return mArray[(int) word];
+  }
 
   @Override
   public long bytes() {
@@ -169,14 +169,7 @@ public abstract class IndexBase extends IntegralAbstract implements Index {
     mState = mParams.compressHashes() ? IndexState.PRE_ADD : IndexState.ADD;
 
     mHashBits = mParams.hashBits();
-    if (threshold == null) {
-      mThreshold = Integer.MAX_VALUE;
-    } else {
-      if (!proportionalThreshold && threshold < 1) {
-        throw new RuntimeException("Threshold must be positive:" + threshold);
-      }
-      mThreshold = threshold;
-    }
+    mThreshold = threshold(threshold, proportionalThreshold);
     mMaxThreshold = maxThreshold;
     mMinThreshold = minThreshold;
     mNumberThreads = numberThreads;
@@ -198,11 +191,7 @@ public abstract class IndexBase extends IntegralAbstract implements Index {
       mValue = mParams.value().createUnsigned();
 
       assert mSRBits >= 0;
-      if (mHashBits == 64) {
-        mIncrement = -(Long.MIN_VALUE >> mSRBits);
-      } else {
-        mIncrement = 0;
-      }
+      mIncrement = increment(mHashBits, mSRBits);
 
       init.stopLog();
     } catch (final OutOfMemoryError e) {
@@ -213,6 +202,56 @@ public abstract class IndexBase extends IntegralAbstract implements Index {
     mUseProportionalThreshold = proportionalThreshold;
   }
 
+  /**
+   * Constructs a frozen index around previously built arrays (for example ones mapped from disk).
+   *
+   * @param indexParams holds all the values needed for constructing the index.
+   * @param threshold maximum repeat frequency threshold - default
+   *        <code>Integer.MAX_VALUE</code> if null.
+   * @param proportionalThreshold Whether the frequency threshold should be calculated from index data rather than as a parameter.
+   * @param maxThreshold when using proportional threshold don't exceed this repeat frequency
+   * @param minThreshold when using proportional threshold don't go below this repeat frequency
+   * @param numberThreads number of threads appropriate for parallel execution.
+   * @param initialPosition frozen initial position array.
+   * @param hash frozen hash array.
+   * @param value frozen value array.
+   * @param hashVector bit vector for fast rejection of hashes, may be null.
+   */
+  protected IndexBase(final CreateParams indexParams, final Integer threshold, final boolean proportionalThreshold, int maxThreshold, int minThreshold, final int numberThreads,
+      final CommonIndex initialPosition, final ExtensibleIndex hash, final ExtensibleIndex value, final HashBitVector hashVector) {
+    assert indexParams.integrity();
+    mParams = indexParams;
+    mState = IndexState.FROZEN;
+    mHashBits = mParams.hashBits();
+    mThreshold = threshold(threshold, proportionalThreshold);
+    mMaxThreshold = maxThreshold;
+    mMinThreshold = minThreshold;
+    mNumberThreads = numberThreads;
+    mInitialPointerBits = mParams.initialPointerBits();
+    mInitialPosition = initialPosition;
+    mInitialPositionLength = mInitialPosition.length();
+    mSRBits = mInitialPointerBits >= mHashBits ? 0 : mHashBits - mInitialPointerBits;
+    mHash = hash;
+    mHashVector = hashVector;
+    mValue = value;
+    mIncrement = increment(mHashBits, mSRBits);
+    mUseProportionalThreshold = proportionalThreshold;
+  }
+
+  private static int threshold(final Integer threshold, final boolean proportionalThreshold) {
+    if (threshold == null) {
+      return Integer.MAX_VALUE;
+    }
+    if (!proportionalThreshold && threshold < 1) {
+      throw new RuntimeException("Threshold must be positive:" + threshold);
+    }
+    return threshold;
+  }
+
+  private static long increment(final int hashBits, final int srBits) {
+    return hashBits == 64 ? -(Long.MIN_VALUE >> srBits) : 0;
+  }
+
   @Override
   public abstract void add(final long hash, final long value);
 
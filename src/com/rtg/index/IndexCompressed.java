@@ -11,7 +11,12 @@
  */
 package com.rtg.index;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 
@@ -20,9 +25,12 @@ import com.rtg.index.params.CreateParams;
 import com.rtg.util.IORunnable;
 import com.rtg.util.LongUtils;
 import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.array.CommonIndex;
+import com.rtg.util.array.MappedIndex;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.OneShotTimer;
 import com.rtg.util.integrity.Exam;
+import com.rtg.util.io.FileUtils;
 
 /**
  * Builds and searches a fast index. Two-pass indexes allow for hash compression
@@ -65,6 +73,169 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     //System.err.println("hashMask=" + Utils.toBits(mCompressHashMask, 64));
   }
 
+  private IndexCompressed(final CreateParams indexParams, final Integer threshold, boolean proportionalThreshold, int maxThreshold, int minThreshold, final int numberThreads,
+      final CommonIndex initialPosition, final MappedIndex hash, final MappedIndex value, final HashBitVector hashVector) {
+    super(indexParams, threshold, proportionalThreshold, maxThreshold, minThreshold, numberThreads, initialPosition, hash, value, hashVector);
+    mCompressHashMask = LongUtils.longMask(mSRBits);
+    mExcessBits = mHashBits > Long.SIZE ? mHashBits - Long.SIZE : 0;
+    mExcessBitsMask = LongUtils.longMask(mExcessBits);
+    mExcessShift = mInitialPointerBits -  mExcessBits;
+  }
+
+  /** Identifies a saved index file, followed by a format version. */
+  private static final long SAVE_MAGIC = 0x5254474958000000L; // "RTGIX"
+  private static final int SAVE_VERSION = 1;
+
+  /**
+   * Write a frozen index to a file so that it can later be memory mapped by
+   * {@link #load(File, CreateParams, Integer, boolean, int, int, int)} rather than rebuilt.
+   * @param file destination file.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void save(final File file) throws IOException {
+    if (mState != IndexState.FROZEN) {
+      throw new IllegalStateException("Only frozen indexes can be saved");
+    }
+    final OneShotTimer timer = new OneShotTimer("Index_save");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), FileUtils.BUFFERED_STREAM_SIZE))) {
+      out.writeLong(SAVE_MAGIC);
+      out.writeInt(SAVE_VERSION);
+      writeSignature(out, mParams, mThreshold, mUseProportionalThreshold, mMaxThreshold, mMinThreshold);
+      out.writeLong(mInitialHashes);
+      out.writeLong(mNumHashes);
+      out.writeLong(mNumValues);
+      out.writeLong(mMaxRawHashCount);
+      out.writeInt(mMaxHashCount);
+      for (final long bin : mMaxHashCountBins) {
+        out.writeLong(bin);
+      }
+      out.writeLong(mHashCount0);
+      out.writeLong(mHashCount1);
+      out.writeLong(mHashCount2);
+      out.writeLong(mBucketCount0);
+      out.writeLong(mBucketCount1);
+      out.writeLong(mBucketCount2);
+      writeArray(out, mInitialPosition);
+      writeArray(out, mHash);
+      writeArray(out, mValue);
+      out.writeBoolean(mHashVector != null);
+      if (mHashVector != null) {
+        final AbstractBitVector bits = mHashVector.bitVector();
+        out.writeInt(mHashVector.bits());
+        out.writeInt(mHashVector.vectorBits());
+        out.writeLong(bits.words());
+        for (long i = 0; i < bits.words(); i++) {
+          out.writeInt(bits.getWord(i));
+        }
+      }
+    }
+    timer.stopLog();
+  }
+
+  private static void writeSignature(final DataOutputStream out, final CreateParams params, final int threshold, final boolean proportional, final int maxThreshold, final int minThreshold) throws IOException {
+    out.writeLong(params.size());
+    out.writeInt(params.hashBits());
+    out.writeInt(params.windowBits());
+    out.writeInt(params.valueBits());
+    out.writeInt(params.initialPointerBits());
+    out.writeInt(threshold);
+    out.writeBoolean(proportional);
+    out.writeInt(maxThreshold);
+    out.writeInt(minThreshold);
+  }
+
+  private static void writeArray(final DataOutputStream out, final CommonIndex index) throws IOException {
+    final int entryBytes = MappedIndex.entryBytes(index);
+    out.writeLong(index.length());
+    out.writeInt(entryBytes);
+    MappedIndex.write(out, index, entryBytes);
+  }
+
+  private static MappedIndex mapArray(final RandomAccessFile raf) throws IOException {
+    final long length = raf.readLong();
+    final int entryBytes = raf.readInt();
+    final long position = raf.getFilePointer();
+    final MappedIndex index = new MappedIndex(raf.getChannel(), position, length, entryBytes);
+    raf.seek(position + length * entryBytes);
+    return index;
+  }
+
+  /**
+   * Memory map a frozen index previously written by {@link #save(File)}. The arrays of the returned index
+   * are not held on the heap and are shared through the page cache with any other process mapping the same file.
+   * The parameters must match those used to build the saved index.
+   * @param file file containing the saved index.
+   * @param indexParams holds all the values needed for constructing the index.
+   * @param threshold maximum repeat frequency threshold - default
+   *        <code>Integer.MAX_VALUE</code> if null.
+   * @param proportionalThreshold Whether the frequency threshold should be calculated from index data rather than as a parameter.
+   * @param maxThreshold when using proportional threshold don't exceed this repeat frequency
+   * @param minThreshold when using proportional threshold don't go below this repeat frequency
+   * @param numberThreads number of threads appropriate for parallel execution.
+   * @return the frozen index.
+   * @throws IOException if the file cannot be read or was built with different parameters.
+   */
+  public static IndexCompressed load(final File file, final CreateParams indexParams, final Integer threshold, boolean proportionalThreshold, int maxThreshold, int minThreshold, final int numberThreads) throws IOException {
+    final OneShotTimer timer = new OneShotTimer("Index_load");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      if (raf.readLong() != SAVE_MAGIC || raf.readInt() != SAVE_VERSION) {
+        throw new IOException("File " + file.getPath() + " is not a saved index or has an unsupported version");
+      }
+      final int thresh = threshold == null ? Integer.MAX_VALUE : threshold;
+      if (raf.readLong() != indexParams.size() || raf.readInt() != indexParams.hashBits() || raf.readInt() != indexParams.windowBits()
+          || raf.readInt() != indexParams.valueBits() || raf.readInt() != indexParams.initialPointerBits()
+          || raf.readInt() != thresh || raf.readBoolean() != proportionalThreshold || raf.readInt() != maxThreshold || raf.readInt() != minThreshold) {
+        throw new IOException("Saved index " + file.getPath() + " was built with different parameters");
+      }
+      final long initialHashes = raf.readLong();
+      final long numHashes = raf.readLong();
+      final long numValues = raf.readLong();
+      final long maxRawHashCount = raf.readLong();
+      final int maxHashCount = raf.readInt();
+      final long[] bins = new long[5];
+      for (int i = 0; i < bins.length; i++) {
+        bins[i] = raf.readLong();
+      }
+      final long[] counts = new long[6];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = raf.readLong();
+      }
+      final MappedIndex initialPosition = mapArray(raf);
+      final MappedIndex hash = mapArray(raf);
+      final MappedIndex value = mapArray(raf);
+      final HashBitVector hashVector;
+      if (raf.readBoolean()) {
+        final int bits = raf.readInt();
+        final int vectorBits = raf.readInt();
+        final long words = raf.readLong();
+        final MappedIndex wordIndex = new MappedIndex(raf.getChannel(), raf.getFilePointer(), words, 4);
+        hashVector = new HashBitVector(bits, vectorBits, new MappedBitVector(1L << vectorBits, wordIndex));
+      } else {
+        hashVector = null;
+      }
+      final IndexCompressed index = new IndexCompressed(indexParams, threshold, proportionalThreshold, maxThreshold, minThreshold, numberThreads, initialPosition, hash, value, hashVector);
+      index.mInitialHashes = initialHashes;
+      index.mNumHashes = numHashes;
+      index.mNumValues = numValues;
+      index.mMaxRawHashCount = maxRawHashCount;
+      index.mMaxHashCount = maxHashCount;
+      System.arraycopy(bins, 0, index.mMaxHashCountBins, 0, bins.length);
+      index.mHashCount0 = counts[0];
+      index.mHashCount1 = counts[1];
+      index.mHashCount2 = counts[2];
+      index.mBucketCount0 = counts[3];
+      index.mBucketCount1 = counts[4];
+      index.mBucketCount2 = counts[5];
+      timer.stopLog();
+      return index;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * Both passes only touch the entries for the initial position of the hash, so several threads may add
+   * at once provided each adds hashes from its own range of initial positions (see <code>IndexQueues</code>).
+   */
   @Override
   public final void add(final long hash, final long value) {
     //System.err.println(mState + " add(" + hash + ", " + value + ")");
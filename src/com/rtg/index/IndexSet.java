@@ -13,13 +13,16 @@ package com.rtg.index;
 
 import static com.rtg.util.StringUtils.LS;
 
+import java.io.File;
 import java.io.IOException;
 
 import com.rtg.index.params.CreateParams;
+import com.rtg.index.queue.IndexQueues;
 import com.rtg.ngs.NgsParams;
 import com.rtg.util.IORunnable;
 import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.io.FileUtils;
 
 /**
  * This class encapsulates a collection of Indexes and provides a way to create and freeze them.
@@ -56,6 +59,69 @@ public class IndexSet {
     pool.terminate();
   }
 
+  /**
+   * Memory map a collection of frozen indexes previously written by {@link #save(File, String)}.
+   * Check with {@link #isSaved(File, String, int)} before calling this.
+   * @param dir directory containing the saved indexes
+   * @param params mapping parameters
+   * @param indexParams relevant index creation params
+   * @param windows the number of windows used by your hash function
+   * @throws IOException if the saved indexes cannot be mapped
+   */
+  public IndexSet(final File dir, final NgsParams params, final CreateParams indexParams, int windows) throws IOException {
+    mIndexes = new Index[windows];
+    for (int i = 0; i < mIndexes.length; i++) {
+      mIndexes[i] = IndexCompressed.load(indexFile(dir, i), indexParams, params.hashCountThreshold(), params.useProportionalHashThreshold(), params.maxHashCountThreshold(), params.minHashCountThreshold(), params.numberThreads());
+    }
+    Diagnostic.userLog("Mapped " + mIndexes.length + " saved indexes from " + dir.getPath());
+  }
+
+  private static final String SUMMARY_FILE = "indexset.txt";
+
+  private static File indexFile(final File dir, final int i) {
+    return new File(dir, "index" + i + ".bin");
+  }
+
+  /**
+   * Check whether a directory contains a complete saved index set matching a signature.
+   * @param dir directory which may contain saved indexes
+   * @param signature description of the data the indexes were built from
+   * @param windows the number of windows used by your hash function
+   * @return true if the directory contains a usable saved index set
+   * @throws IOException if the summary cannot be read
+   */
+  public static boolean isSaved(final File dir, final String signature, int windows) throws IOException {
+    final File summary = new File(dir, SUMMARY_FILE);
+    return summary.isFile() && FileUtils.fileToString(summary).equals(summaryString(signature, windows));
+  }
+
+  private static String summaryString(final String signature, final int windows) {
+    return signature + LS + "windows=" + windows + LS;
+  }
+
+  /**
+   * Write all the (frozen) indexes in the set to a directory so they can be memory mapped by later runs.
+   * The summary file is written last so an interrupted save is never mistaken for a complete one.
+   * @param dir destination directory
+   * @param signature description of the data the indexes were built from
+   * @throws IOException if an I/O error occurs
+   */
+  public void save(final File dir, final String signature) throws IOException {
+    FileUtils.ensureOutputDirectory(dir);
+    final File summary = new File(dir, SUMMARY_FILE);
+    if (summary.exists() && !summary.delete()) {
+      throw new IOException("Could not delete existing index summary " + summary.getPath());
+    }
+    for (int i = 0; i < mIndexes.length; i++) {
+      if (!(mIndexes[i] instanceof IndexCompressed)) {
+        throw new UnsupportedOperationException("Only compressed indexes can be saved");
+      }
+      ((IndexCompressed) mIndexes[i]).save(indexFile(dir, i));
+    }
+    FileUtils.stringToFile(summaryString(signature, mIndexes.length), summary);
+    Diagnostic.userLog("Saved " + mIndexes.length + " indexes to " + dir.getPath());
+  }
+
   /**
    * @return the number of indexes encapsulated by this set
    */
@@ -85,6 +151,45 @@ public class IndexSet {
     pool.terminate();
   }
 
+  /**
+   * Create queues so that several threads can supply the hashes for every index in the set at once.
+   * Once filled, use {@link #freeze(IndexQueues[])} to transfer them to the indexes.
+   * @param numberThreads how many threads to use when transferring the queues.
+   * @param numberQueues how many queues to create for each index, one for each thread filling them.
+   * @param indexParams relevant index creation params
+   * @return one set of queues for each index.
+   */
+  public IndexQueues[] queues(int numberThreads, int numberQueues, CreateParams indexParams) {
+    final IndexQueues[] queues = new IndexQueues[mIndexes.length];
+    for (int i = 0; i < mIndexes.length; i++) {
+      queues[i] = new IndexQueues(numberThreads, numberQueues, indexParams.hashBits(), indexParams.size(), indexParams.valueBits(), indexParams.initialPointerBits());
+    }
+    return queues;
+  }
+
+  /**
+   * @param indexParams relevant index creation params
+   * @return estimated memory used by the queues of {@link #queues(int, int, CreateParams)} once they are filled.
+   */
+  public long queueBytes(CreateParams indexParams) {
+    return mIndexes.length * IndexQueues.bytes(indexParams.hashBits(), indexParams.size(), indexParams.valueBits(), indexParams.initialPointerBits());
+  }
+
+  /**
+   * Transfers the contents of filled queues into the (compressed) indexes of the set and freezes them.
+   * Both passes of the index build are multi-threaded, with each thread adding a disjoint range of hashes.
+   * @param queues one set of queues for each index, as created by {@link #queues(int, int, CreateParams)}.
+   */
+  public void freeze(IndexQueues[] queues) {
+    for (int i = 0; i < mIndexes.length; i++) {
+      Diagnostic.userLog("Start freeze job " + i);
+      queues[i].freeze(mIndexes[i]);
+      queues[i] = null;
+      Diagnostic.userLog("Finish freeze job " + i);
+      Diagnostic.userLog("Index[" + i + "] memory performance " + LS + mIndexes[i].infoString());
+    }
+  }
+
   private static class CreateRunnable implements IORunnable {
     private final Index[] mIndexes;
     private final int mId;
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.array.MappedIndex;
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Read only bit vector whose words are held in a memory mapped file.
+ */
+@TestClass(value = {"com.rtg.index.IndexCompressedTest"})
+public final class MappedBitVector extends AbstractBitVector {
+
+  private final MappedIndex mArray;
+
+  /**
+   * @param length the number of bits.
+   * @param words mapped 32 bit words as written from {@link AbstractBitVector#getWord(long)}.
+   */
+  public MappedBitVector(final long length, final MappedIndex words) {
+    super(length);
+    mArray = words;
+  }
+
+  @Override
+  public boolean get(final long index) {
+    if (index >= mLength || index < 0) {
+      throw new ArrayIndexOutOfBoundsException(index + ":" + mLength);
+    }
+    final long x = index >> BITS_PER_ENTRY;
+    final long v = mArray.get(x);
+    final long s = 1L << (int) (index & MASK);
+    return (v & s) != 0;
+  }
+
+  @Override
+  public void set(final long index) {
+    throw new UnsupportedOperationException("Mapped bit vector is read only");
+  }
+
+  @Override
+  public void reset(final long index) {
+    throw new UnsupportedOperationException("Mapped bit vector is read only");
+  }
+
+  @Override
+  public int getWord(final long word) {
+    return (int) mArray.get(word);
+  }
+
+  @Override
+  public long bytes() {
+    return mArray.bytes();
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertTrue(mArray.length() << BITS_PER_ENTRY >= mLength);
+    return true;
+  }
+}
@@ -130,6 +130,24 @@ public abstract class ImplementHashFunction extends IntegralAbstract implements
     }
   }
 
+  /**
+   * Create a copy for hashing a range of reads in a separate thread.
+   * The copy shares the stored read sequences but sends its read windows to a different call.
+   * @param readCall where the copy sends the windows of each read.
+   * @return the copy.
+   */
+  public ImplementHashFunction readThreadClone(final ReadCall readCall) {
+    try {
+      final ImplementHashFunction clone = (ImplementHashFunction) clone();
+      clone.mReadCall = readCall;
+      clone.mTemplateCall = this.mTemplateCall.clone();
+      clone.setHashFunction();
+      return clone;
+    } catch (final CloneNotSupportedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   /**
    */
   @Override
@@ -12,6 +12,7 @@
 package com.rtg.index.hash.ngs;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.rtg.launcher.HashingRegion;
 import com.rtg.launcher.ISequenceParams;
@@ -21,6 +22,7 @@ import com.rtg.reader.SequencesReader;
 import com.rtg.util.IORunnable;
 import com.rtg.util.ProgramState;
 import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.SizeSplit;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.SlimException;
 import com.rtg.util.diagnostic.WarningType;
@@ -44,8 +46,6 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
   private final long mReadProgressMask;
   private final long mTemplateProgressMask;
   private long mThreadPadding;
-  /** Value to use for the generation of a valid base when an N is seen. */
-  private int mUnknownVictim = 0;
 
   protected long mMinChunkSize = HashingRegion.DEFAULT_MIN_CHUNK_SIZE;
 
@@ -80,73 +80,147 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
 
   @Override
   public long readLoop(final ISequenceParams params, final ReadHashFunction hashFunction, final ReadEncoder encoder, final boolean reverse) throws IOException {
-    final SequenceMode mode = SequenceMode.UNIDIRECTIONAL;
-    final UnidirectionalFrame frame = UnidirectionalFrame.FORWARD;
-
     final SequencesReader reader = params.reader();
-    final long start = 0;
-    final long end = reader.numberSequences();
+    final AtomicInteger badLengthCount = new AtomicInteger();
+    final ReadRange range = new ReadRange(this, reader, 0, reader.numberSequences(), hashFunction, encoder, reverse, badLengthCount);
+    range.run();
+    if (badLengthCount.get() >= WRONG_LENGTH_REPORT_LIMIT) {
+      Diagnostic.warning(WarningType.NUMBER_OF_INCORRECT_LENGTH, String.valueOf(badLengthCount.get()));
+    }
 
-    assert mode.codeType().firstValid() == 1;
-    final byte[] byteBuffer = makeBuffer(reader);
-    reader.seek(start);
-    int badLengthCount = 0;
+    mReadSequencesDefined = true;
+    assert Exam.globalIntegrity(hashFunction);
+    return range.mTotalLength;
+  }
+
+  /**
+   * Scans the reads in parallel, splitting them into one contiguous range of reads for each hash function.
+   * The hash functions must share their stored read sequences (see {@link ImplementHashFunction#readThreadClone(ReadCall)}),
+   * and each must make its read calls to a destination no other thread uses.
+   * @param params specifies reader.
+   * @param hashFunctions one hash function for each range of reads, each is run in its own thread.
+   * @param encoder the read id encoder.
+   * @param reverse if true then store the sequence as reverse complement.
+   * @return the total number of nucleotides read.
+   * @throws IOException if an I/O error occurs.
+   */
+  public long readLoopMultiCore(final ISequenceParams params, final ReadHashFunction[] hashFunctions, final ReadEncoder encoder, final boolean reverse) throws IOException {
+    final SequencesReader reader0 = params.reader();
+    final int numberReads = (int) reader0.numberSequences();
+    final SizeSplit ss = new SizeSplit(numberReads, hashFunctions.length);
+    final AtomicInteger badLengthCount = new AtomicInteger();
+    final ReadRange[] ranges = new ReadRange[hashFunctions.length];
+    final SimpleThreadPool pool = new SimpleThreadPool(hashFunctions.length, "ReadHash", true);
+    pool.enableBasicProgress(ranges.length);
+    for (int i = 0; i < ranges.length; i++) {
+      ranges[i] = new ReadRange(this, reader0.copy(), ss.start(i), ss.start(i + 1), hashFunctions[i], encoder, reverse, badLengthCount);
+      pool.execute(ranges[i]);
+    }
+    try {
+      pool.terminate();
+    } finally {
+      for (final ReadRange range : ranges) {
+        if (range != null) {
+          range.mReader.close();
+        }
+      }
+    }
+    if (badLengthCount.get() >= WRONG_LENGTH_REPORT_LIMIT) {
+      Diagnostic.warning(WarningType.NUMBER_OF_INCORRECT_LENGTH, String.valueOf(badLengthCount.get()));
+    }
+
+    mReadSequencesDefined = true;
     long totalLength = 0;
-    for (int seq = (int) start; seq < end; seq++, reader.nextSequence()) {
-      mUnknownVictim = -1;
-      final int readId = encoder.encode(seq);
-      final int id2 = encoder.encode((int) (seq - start));
-      //System.err.println("id2=" + id2);
-      if ((id2 & mReadProgressMask) == 0) {
-        ProgramState.checkAbort();
+    for (final ReadRange range : ranges) {
+      totalLength += range.mTotalLength;
+    }
+    return totalLength;
+  }
+
+  /** Hashes a contiguous range of reads. */
+  private static final class ReadRange implements IORunnable {
+    private final NgsHashLoopImpl mParent;
+    private final SequencesReader mReader;
+    private final long mStart;
+    private final long mEnd;
+    private final ReadHashFunction mHashFunction;
+    private final ReadEncoder mEncoder;
+    private final boolean mReverse;
+    private final AtomicInteger mBadLengthCount;
+    private long mTotalLength = 0;
+
+    ReadRange(final NgsHashLoopImpl parent, final SequencesReader reader, final long start, final long end, final ReadHashFunction hashFunction, final ReadEncoder encoder, final boolean reverse, final AtomicInteger badLengthCount) {
+      mParent = parent;
+      mReader = reader;
+      mStart = start;
+      mEnd = end;
+      mHashFunction = hashFunction;
+      mEncoder = encoder;
+      mReverse = reverse;
+      mBadLengthCount = badLengthCount;
+    }
+
+    @Override
+    public void run() throws IOException {
+      final SequenceMode mode = SequenceMode.UNIDIRECTIONAL;
+      final UnidirectionalFrame frame = UnidirectionalFrame.FORWARD;
+      final SequencesReader reader = mReader;
+      final ReadHashFunction hashFunction = mHashFunction;
+
+      assert mode.codeType().firstValid() == 1;
+      if (mStart >= mEnd) {
+        return;
       }
-      //System.err.println("seq=" + seq);
-      final int currentLength = reader.currentLength();
-      if (currentLength != hashFunction.readLength()) {
-        if (badLengthCount++ < WRONG_LENGTH_REPORT_LIMIT) {
-          Diagnostic.warning(WarningType.INCORRECT_LENGTH, reader.hasNames() ? reader.currentName() : ("" + reader.currentSequenceId()), reader.currentLength() + "", hashFunction.readLength() + "");
+      final byte[] byteBuffer = makeBuffer(reader);
+      reader.seek(mStart);
+      for (int seq = (int) mStart; seq < mEnd; seq++, reader.nextSequence()) {
+        /* Value to use for the generation of a valid base when an N is seen. */
+        int unknownVictim = -1;
+        final int id2 = mEncoder.encode(seq);
+        //System.err.println("id2=" + id2);
+        if ((id2 & mParent.mReadProgressMask) == 0) {
+          ProgramState.checkAbort();
         }
-        hashFunction.setValues(id2, false);
-        continue;
-      }
-      final int length = reader.readCurrent(byteBuffer);
-      totalLength += length;
-      //System.err.println(Arrays.toString(byteBuffer));
-      hashFunction.reset();
-      int prev = 0;
-      for (int j = 0; j < currentLength; j++) {
-        //System.err.println("j=" + j);
-        final byte b = frame.code(byteBuffer, length, j);
-        final int c = b - 1;
-        //System.err.println("b=" + b + " c=" + c);
-        //System.err.println("c=" + c);
-        final byte v;
-        if (c < 0) {
-          if (DAVE_N_HACK || mUnknownVictim == -1) {
-            mUnknownVictim = prev;
+        //System.err.println("seq=" + seq);
+        final int currentLength = reader.currentLength();
+        if (currentLength != hashFunction.readLength()) {
+          if (mBadLengthCount.getAndIncrement() < WRONG_LENGTH_REPORT_LIMIT) {
+            Diagnostic.warning(WarningType.INCORRECT_LENGTH, reader.hasNames() ? reader.currentName() : ("" + reader.currentSequenceId()), reader.currentLength() + "", hashFunction.readLength() + "");
           }
-          v = (byte) mUnknownVictim;
-          if (!DAVE_N_HACK) {
-            mUnknownVictim++;
-            mUnknownVictim &= 3;
+          hashFunction.setValues(id2, false);
+          continue;
+        }
+        final int length = reader.readCurrent(byteBuffer);
+        mTotalLength += length;
+        //System.err.println(Arrays.toString(byteBuffer));
+        hashFunction.reset();
+        int prev = 0;
+        for (int j = 0; j < currentLength; j++) {
+          //System.err.println("j=" + j);
+          final byte b = frame.code(byteBuffer, length, j);
+          final int c = b - 1;
+          //System.err.println("b=" + b + " c=" + c);
+          final byte v;
+          if (c < 0) {
+            if (DAVE_N_HACK || unknownVictim == -1) {
+              unknownVictim = prev;
+            }
+            v = (byte) unknownVictim;
+            if (!DAVE_N_HACK) {
+              unknownVictim++;
+              unknownVictim &= 3;
+            }
+          } else {
+            v = (byte) c;
+            prev = c;
           }
-        } else {
-          v = (byte) c;
-          prev = c;
+          hashFunction.hashStep(v);
         }
-        hashFunction.hashStep(v);
+        hashFunction.readAll(id2, mReverse);
+        hashFunction.setValues(id2, mReverse);
+        hashFunction.reset();
       }
-      hashFunction.readAll(readId, reverse);
-      hashFunction.setValues(id2, reverse);
-      hashFunction.reset();
-    }
-    if (badLengthCount >= WRONG_LENGTH_REPORT_LIMIT) {
-      Diagnostic.warning(WarningType.NUMBER_OF_INCORRECT_LENGTH, String.valueOf(badLengthCount));
     }
-
-    mReadSequencesDefined = true;
-    assert Exam.globalIntegrity(hashFunction);
-    return totalLength;
   }
 
   /**
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.hash.ngs;
+
+import com.rtg.index.queue.IndexQueue;
+import com.rtg.index.queue.IndexQueues;
+
+/**
+ * Does the actions for each window when scanning reads, by queueing the windows
+ * so that indexes can be filled from several threads at once.
+ */
+public class ReadCallQueues implements ReadCall {
+  private final IndexQueue[] mQueues;
+
+  /**
+   * @param queues queues for each index selected by the hash function.
+   * @param q which queue of each index this call adds to, no other thread may use the same one.
+   */
+  public ReadCallQueues(final IndexQueues[] queues, final int q) {
+    mQueues = new IndexQueue[queues.length];
+    for (int i = 0; i < queues.length; i++) {
+      mQueues[i] = queues[i].queue(q);
+    }
+  }
+
+  @Override
+  public void readCall(final int id, final long hash, final int index) {
+    mQueues[index].add(hash, id);
+  }
+}
@@ -47,12 +47,29 @@ public class IndexQueues extends IntegralAbstract {
    * @param ipBits number of bits used to generate length of initial pointer table.
    */
   public IndexQueues(final int numberThreads, final int hashBits, final long size, final int valueBits, final int ipBits) {
+    this(numberThreads, numberThreads, hashBits, size, valueBits, ipBits);
+  }
+
+  /**
+   * When there are more queues than threads, the queues are transferred into the index in queue order
+   * (within each radix), so hashes can be given to queues in the order they should be added.
+   * @param numberThreads number of threads available for parallel execution.
+   * @param numberQueues number of queues to create, each filled by at most one thread at a time.
+   * @param hashBits number of bits in a hash word.
+   * @param size estimated total size of all queues.
+   * @param valueBits the number of bits needed to represent a value.
+   * @param ipBits number of bits used to generate length of initial pointer table.
+   */
+  public IndexQueues(final int numberThreads, final int numberQueues, final int hashBits, final long size, final int valueBits, final int ipBits) {
     if (numberThreads < 1) {
       throw new IllegalArgumentException("" + numberThreads);
     }
+    if (numberQueues < 1) {
+      throw new IllegalArgumentException("" + numberQueues);
+    }
     mNumberThreads = numberThreads;
-    mRadixSize = (size + numberThreads - 1) / numberThreads;
-    mQueues = new IndexQueue[mNumberThreads];
+    mRadixSize = (size + numberQueues - 1) / numberQueues;
+    mQueues = new IndexQueue[numberQueues];
     mRadixBits = radixBits(hashBits, ipBits);
     mLowerBits = hashBits - mRadixBits;
     Diagnostic.developerLog("Lower bits=" + mLowerBits + " radixBits=" + mRadixBits);
@@ -61,13 +78,27 @@ public class IndexQueues extends IntegralAbstract {
     }
   }
 
-  int radixBits(final int hashBits, final int ipBits) {
+  static int radixBits(final int hashBits, final int ipBits) {
     return Math.min(hashBits, Math.min(ipBits, DEFAULT_RADIX_BITS));
   }
 
+  /**
+   * Estimate the memory used by queues while they hold all their entries.
+   * @param hashBits number of bits in a hash word.
+   * @param size total number of entries to be queued.
+   * @param valueBits the number of bits needed to represent a value.
+   * @param ipBits number of bits used to generate length of initial pointer table.
+   * @return estimated number of bytes.
+   */
+  public static long bytes(final int hashBits, final long size, final int valueBits, final int ipBits) {
+    // Each entry is the lower bits of the hash followed by the value, in int or long chunks as in IndexQueue
+    final int lowerBits = hashBits - radixBits(hashBits, ipBits);
+    return 2 * size * (Math.max(lowerBits, valueBits) <= 32 ? 4 : 8);
+  }
+
   /**
    * Get the queue for use by thread q.
-   * @param q the thread index.
+   * @param q the thread (or queue) index.
    * @return the queue.
    */
   public IndexQueue queue(final int q) {
@@ -114,8 +145,8 @@ public class IndexQueues extends IntegralAbstract {
    */
   public void freeze(final Index index) {
     final OneShotTimer freezeCloseTimer = new OneShotTimer("LR_BS_freeze_close");
-    for (int i = 0; i < mNumberThreads; i++) {
-      mQueues[i].close();
+    for (final IndexQueue queue : mQueues) {
+      queue.close();
     }
     freezeCloseTimer.stopLog();
     final OneShotTimer freezeTimer1 = new OneShotTimer("LR_BS_freeze1");
@@ -155,7 +186,7 @@ public class IndexQueues extends IntegralAbstract {
   public boolean integrity() {
     Exam.assertTrue(mNumberThreads >= 1);
     Exam.assertTrue(mRadixBits >= 1);
-    Exam.assertEquals(mQueues.length, mNumberThreads);
+    Exam.assertTrue(mQueues.length >= 1);
     return true;
   }
 
@@ -16,12 +16,14 @@ import java.io.IOException;
 import com.rtg.index.Finder;
 import com.rtg.index.IndexCompressed;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.IORunnable;
+import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.diagnostic.Diagnostic;
 
 /**
  */
 public final class IndexSimilarity extends IndexCompressed {
 
-  private SimilaritySorter mSimilaritySorter;
   private final boolean mSingleton;
 
   /**
@@ -55,40 +57,94 @@ public final class IndexSimilarity extends IndexCompressed {
    * @throws IllegalStateException if index has not been frozen.
    */
   public SimilarityMatrix similarity(long numSequences) {
+    return similarity(numSequences, 1, 0);
+  }
+
+  /**
+   * Create a self-similarity matrix for the sequences in the index. The hash buckets are divided
+   * between threads, each accumulating into its own matrix, and the matrices are summed at the end.
+   * @param numSequences total number of sequences
+   * @param threads number of threads to use
+   * @param maxSequences if greater than 0, hashes occurring in more than this many distinct sequences are ignored
+   * @return the similarity matrix.
+   * @throws IllegalStateException if index has not been frozen.
+   */
+  public SimilarityMatrix similarity(long numSequences, int threads, int maxSequences) {
     if (mState != IndexState.FROZEN) {
       throw new IllegalStateException();
     }
-    if (mSimilaritySorter == null) {
-      mSimilaritySorter = new SimilaritySorter(maxHashCount(), mSingleton);
+    final long buckets = mInitialPositionLength - 2;
+    final int parts = (int) Math.max(1, Math.min(Math.min(threads, maxMatrices(numSequences)), buckets));
+    final SimilarityMatrix[] matrices = new SimilarityMatrix[parts];
+    final SimilarityThread[] jobs = new SimilarityThread[parts];
+    for (int i = 0; i < parts; i++) {
+      matrices[i] = new SimilarityMatrix(numSequences);
+      jobs[i] = new SimilarityThread(buckets * i / parts, buckets * (i + 1) / parts, matrices[i], maxSequences);
     }
-    final SimilarityMatrix matrix = new SimilarityMatrix(numSequences);
-    long lo = 0;
-    for (long p = 0; p < mInitialPositionLength - 2; p++) {
-      final long hi = mInitialPosition.get(p + 1);
-      for (long i = lo; i < hi;) {
-      final long hash = mHash.get(i);
-      final int seq = (int) mValue.get(i);
-      //System.err.println(" i=" + i + " seq=" + seq + " hash=" + hash);
-      mSimilaritySorter.add(seq);
-      i++;
-      if (i >= mNumValues) {
-        mSimilaritySorter.similarity(matrix);
-        //System.err.println(mSimilaritySorter.toString());
-        mSimilaritySorter.reset();
-        break;
+    if (parts == 1) {
+      jobs[0].run();
+    } else {
+      final SimpleThreadPool sp = new SimpleThreadPool(parts, "Similarity", true);
+      for (final SimilarityThread job : jobs) {
+        sp.execute(job);
       }
-      if (hash != mHash.get(i)) {
-        mSimilaritySorter.similarity(matrix);
-        //System.err.println(mSimilaritySorter.toString());
-        mSimilaritySorter.reset();
-        continue;
+      try {
+        sp.terminate();
+      } catch (final IOException e) {
+        throw new IllegalStateException("Similarity should not throw IOException", e);
+      }
+    }
+    long ignored = 0;
+    for (int i = 0; i < parts; i++) {
+      if (i > 0) {
+        matrices[0].add(matrices[i]);
       }
+      ignored += jobs[i].mIgnored;
     }
-      mSimilaritySorter.similarity(matrix);
-      //System.err.println(mSimilaritySorter.toString());
-      mSimilaritySorter.reset();
-      lo = hi;
+    if (maxSequences > 0) {
+      Diagnostic.userLog("Similarity ignored " + ignored + " hashes occurring in more than " + maxSequences + " sequences");
+    }
+    return matrices[0];
+  }
+
+  // Number of matrices that can be held at once, allowing for the index and the tree built afterwards
+  private static long maxMatrices(final long numSequences) {
+    final long bytes = 8 * numSequences * (numSequences + 1) / 2 + 16 * numSequences;
+    final Runtime rt = Runtime.getRuntime();
+    final long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+    return Math.max(1, free / 4 / Math.max(1, bytes));
+  }
+
+  private final class SimilarityThread implements IORunnable {
+    private final long mStart;
+    private final long mEnd;
+    private final SimilarityMatrix mMatrix;
+    private final SimilaritySorter mSorter;
+    private long mIgnored = 0;
+
+    SimilarityThread(final long start, final long end, final SimilarityMatrix matrix, final int maxSequences) {
+      mStart = start;
+      mEnd = end;
+      mMatrix = matrix;
+      mSorter = new SimilaritySorter(maxHashCount(), mSingleton, maxSequences);
+    }
+
+    @Override
+    public void run() {
+      for (long p = mStart; p < mEnd; p++) {
+        final long lo = mInitialPosition.get(p);
+        final long hi = Math.min(mInitialPosition.get(p + 1), mNumValues);
+        for (long i = lo; i < hi; i++) {
+          final long hash = mHash.get(i);
+          mSorter.add((int) mValue.get(i));
+          if (i + 1 == hi || hash != mHash.get(i + 1)) {
+            if (!mSorter.similarity(mMatrix)) {
+              mIgnored++;
+            }
+            mSorter.reset();
+          }
+        }
+      }
     }
-    return matrix;
   }
 }
@@ -12,20 +12,40 @@
 package com.rtg.index.similarity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.rtg.util.PortableRandom;
+import com.rtg.util.QuickSort;
 import com.rtg.util.diagnostic.Diagnostic;
 
 
 /**
  * An implementation of the Neighbor-joining algorithm of Saitou and Nei.
  * This implementation is based on the description in Wikipedia.
- *
+ * <p>
+ * The minimum of the Q matrix is found as in RapidNJ (Simonsen, Mailund and Pedersen): the distances of
+ * each node to earlier nodes are kept sorted, so that only the start of each row need be examined before
+ * a lower bound on the remaining Q values exceeds the best seen. The pairs that could be a running minimum
+ * of the full scan are then replayed in scan order, so that ties are broken exactly as by a full scan.
  */
 public class NeighborJoining {
 
+  /** Rows below which the minimum search is not worth splitting across threads */
+  private static final int MIN_PARALLEL_ROWS = 256;
+
+  /** Number of bins into which nodes are divided by row sum */
+  private static final int BINS = 16;
+
   private final PortableRandom mRandom;
 
+  private final int mThreads;
+
   /**
    * Creates a new Neighbor Joining object.
    */
@@ -38,21 +58,17 @@ public class NeighborJoining {
    * @param seed random number generator seed
    */
   public NeighborJoining(final long seed) {
-    mRandom = new PortableRandom(seed);
-  }
-
-  /* Retrieve the distance between two taxa. */
-  private static double distance(final int i, final int j, final ArrayList<ArrayList<Double>> d) {
-    return i == j ? 0 : (i > j ? d.get(i).get(j) : d.get(j).get(i));
+    this(seed, 1);
   }
 
-  /* Remove a given item from the distance matrix. */
-  private static void remove(final int f, final ArrayList<BinaryTree> s, final ArrayList<ArrayList<Double>> d) {
-    for (int k = f + 1; k < d.size(); k++) {
-      d.get(k).remove(f);
-    }
-    s.remove(f);
-    d.remove(f);
+  /**
+   * Creates a new Neighbor Joining object.
+   * @param seed random number generator seed
+   * @param threads number of threads used to sort rows and search for the pair to join
+   */
+  public NeighborJoining(final long seed, final int threads) {
+    mRandom = new PortableRandom(seed);
+    mThreads = threads;
   }
 
   /**
@@ -65,8 +81,7 @@ public class NeighborJoining {
    * @return the resulting tree
    */
   public BinaryTree neighborJoin(final ArrayList<String> nodeNames, final SimilarityMatrix matrix) {
-    final ArrayList<ArrayList<Double>> d = makeArray(matrix);
-    return neighborJoin(nodeNames, d);
+    return neighborJoin(nodeNames, makeArray(matrix));
   }
 
   /**
@@ -75,8 +90,7 @@ public class NeighborJoining {
    * @param matrix with the original counts.
    * @return the lower triangular array.
    */
-  static ArrayList<ArrayList<Double>> makeArray(final SimilarityMatrix matrix) {
-    final ArrayList<ArrayList<Double>> d;
+  static double[][] makeArray(final SimilarityMatrix matrix) {
     final int length = matrix.length();
     //compute normalization factors
     final double[] norm = new double[length];
@@ -86,17 +100,17 @@ public class NeighborJoining {
       assert n >= 0;
       norm[i] = Math.sqrt(n == 0 ? 1 : n);
     }
-    d = new ArrayList<>();
+    final double[][] d = new double[length][];
     for (int i = 0; i < length; i++) {
-      final ArrayList<Double> row = new ArrayList<>();
+      final double[] row = new double[i];
       for (int j = 0; j < i; j++) {
         final double v = matrix.get(i, j) / (norm[i] * norm[j]);
         assert v >= 0.0 && !Double.isInfinite(v) && !Double.isNaN(v) : v;
         final double w = 1.0 / (1.0 + v);
         assert w >= 0.0 && !Double.isInfinite(w) && !Double.isNaN(w) : w;
-        row.add(w);
+        row[j] = w;
       }
-      d.add(row);
+      d[i] = row;
     }
     return d;
   }
@@ -107,85 +121,532 @@ public class NeighborJoining {
    * using the neighbor-joining algorithm.
    *
    * @param nodeNames the node names
-   * @param d distance matrices
+   * @param d distance matrix, row <code>i</code> holding the distances to nodes <code>0</code> to <code>i - 1</code>.
+   * This is used as working storage and is overwritten.
    * @return the resulting tree
    */
-  BinaryTree neighborJoin(final ArrayList<String> nodeNames, final ArrayList<ArrayList<Double>> d) {
-    final ArrayList<BinaryTree> s = new ArrayList<>();
-    for (final String name : nodeNames) {
-      s.add(new BinaryTree(null, null, 0, 0, name));
-    }
-    while (s.size() > 1) {
-      assert d.size() == s.size();
-      // Precompute column sums
-      final double[] colSum = new double[d.size()];
-      for (int j = 0; j < d.size(); j++) {
+  BinaryTree neighborJoin(final ArrayList<String> nodeNames, final double[][] d) {
+    assert d.length == nodeNames.size();
+    final ExecutorService executor = mThreads > 1 && d.length >= MIN_PARALLEL_ROWS ? Executors.newFixedThreadPool(mThreads) : null;
+    try {
+      return new Joiner(nodeNames, d, executor).join();
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  // Orders the nodes of a row by their distance from the row's node
+  private static final class RowSortProxy implements QuickSort.SortProxy {
+    private final int[] mNodes;
+    private final double[] mDistances;
+    private final int mLength;
+
+    RowSortProxy(final int[] nodes, final double[] distances, final int length) {
+      mNodes = nodes;
+      mDistances = distances;
+      mLength = length;
+    }
+
+    @Override
+    public int compare(final long index1, final long index2) {
+      return Double.compare(mDistances[(int) index1], mDistances[(int) index2]);
+    }
+
+    @Override
+    public void swap(final long index1, final long index2) {
+      final int i1 = (int) index1;
+      final int i2 = (int) index2;
+      final int n = mNodes[i1];
+      mNodes[i1] = mNodes[i2];
+      mNodes[i2] = n;
+      final double d = mDistances[i1];
+      mDistances[i1] = mDistances[i2];
+      mDistances[i2] = d;
+    }
+
+    @Override
+    public long length() {
+      return mLength;
+    }
+  }
+
+  // Pairs which may be a running minimum of a full scan, in scan order
+  private static final class Candidates {
+    private int mSize = 0;
+    private int[] mRows = new int[16];
+    private int[] mColumns = new int[16];
+    private double[] mQ = new double[16];
+
+    void add(final int row, final int column, final double q) {
+      if (mSize == mRows.length) {
+        final int size = 2 * mSize;
+        mRows = Arrays.copyOf(mRows, size);
+        mColumns = Arrays.copyOf(mColumns, size);
+        mQ = Arrays.copyOf(mQ, size);
+      }
+      mRows[mSize] = row;
+      mColumns[mSize] = column;
+      mQ[mSize] = q;
+      mSize++;
+    }
+  }
+
+  /**
+   * State of one run of the algorithm. Nodes are numbered in order of creation, which is also the order
+   * in which rows and columns are scanned, and the distances of a node are held in the triangular matrix
+   * slot of one of the nodes it replaced.
+   * <p>
+   * To tighten the bound, nodes are divided into bins by row sum, and each row is kept sorted by distance
+   * within each bin, so the bound for a bin only needs the largest row sum in that bin. The bins and sorted
+   * rows are rebuilt each time the number of nodes has fallen by a quarter.
+   * <p>
+   * Q values are computed from row sums taken in scan order, so that they are identical to those of a full
+   * scan, even when distinct pairs have the same Q value in exact arithmetic. As these cost time linear in
+   * the number of nodes, they are only computed for pairs which pass a filter based on row sums that are
+   * updated after each join.
+   */
+  private final class Joiner {
+    private final ExecutorService mExecutor;
+    private final int mParts;
+    private final double[][] mD;
+    private final BinaryTree[] mTree;
+    private final int[] mSlot;
+    private final boolean[] mAlive;
+    private final int[] mBin;
+    // Live nodes in order of creation
+    private final int[] mOrder;
+    private int mLive;
+    private int mNextNode;
+    private int mIteration = 0;
+    // Row sums by slot, held as an unevaluated sum of two doubles so that updates lose almost nothing
+    private final double[] mSumHi;
+    private final double[] mSumLo;
+    // At least the sums of the absolute values of rows, bounding the rounding error of a row sum taken in scan order
+    private final double[] mAbs;
+    private final double[] mSum;
+    private final double[] mSlack;
+    // Row sums in scan order for each part of a search, computed when first needed in an iteration
+    private final int[][] mScanSumIteration;
+    private final double[][] mScanSum;
+    // Lower limits of row sums for each bin after the first, and the largest row sum in each bin
+    private final double[] mThresholds = new double[BINS - 1];
+    private final double[] mBinMax = new double[BINS];
+    private int mRebuildLive;
+    // For the node in each slot, the earlier nodes grouped by bin, in increasing order of distance in each bin
+    private final int[][] mSorted;
+    private final int[][] mBinStart;
+    private final int[][] mBinFirst;
+
+    Joiner(final ArrayList<String> nodeNames, final double[][] d, final ExecutorService executor) {
+      mExecutor = executor;
+      mParts = executor == null ? 1 : mThreads;
+      mD = d;
+      final int n = nodeNames.size();
+      mTree = new BinaryTree[Math.max(1, 2 * n - 1)];
+      mSlot = new int[mTree.length];
+      mAlive = new boolean[mTree.length];
+      mBin = new int[mTree.length];
+      mOrder = new int[n];
+      mSumHi = new double[n];
+      mSumLo = new double[n];
+      mAbs = new double[n];
+      mSum = new double[n];
+      mSlack = new double[n];
+      mScanSumIteration = new int[mParts][n];
+      mScanSum = new double[mParts][n];
+      mSorted = new int[n][];
+      mBinStart = new int[n][];
+      mBinFirst = new int[n][];
+      for (int i = 0; i < n; i++) {
+        mTree[i] = new BinaryTree(null, null, 0, 0, nodeNames.get(i));
+        mSlot[i] = i;
+        mAlive[i] = true;
+        mOrder[i] = i;
+        for (int j = 0; j < i; j++) {
+          addToSum(i, d[i][j]);
+          addToSum(j, d[i][j]);
+        }
+      }
+      mLive = n;
+      mNextNode = n;
+      rebuild();
+    }
+
+    // Exact addition of v to the high part, the rounding error is accumulated in the low part
+    private void addToSum(final int slot, final double v) {
+      final double a = mSumHi[slot];
+      final double s = a + v;
+      final double bv = s - a;
+      final double err = (a - (s - bv)) + (v - bv);
+      mSumHi[slot] = s;
+      mSumLo[slot] += err;
+      mAbs[slot] += Math.abs(v);
+    }
+
+    private double distance(final int nodeA, final int nodeB) {
+      final int a = mSlot[nodeA];
+      final int b = mSlot[nodeB];
+      return a == b ? 0 : (a > b ? mD[a][b] : mD[b][a]);
+    }
+
+    private int bin(final int node) {
+      final int slot = mSlot[node];
+      final double sum = mSumHi[slot] + mSumLo[slot];
+      int b = 0;
+      while (b < mThresholds.length && sum >= mThresholds[b]) {
+        b++;
+      }
+      return b;
+    }
+
+    // Sort the row of the node at position p
+    private void buildRow(final int p) {
+      final int k = mOrder[p];
+      final int slot = mSlot[k];
+      final int[] start = new int[BINS + 1];
+      for (int q = 0; q < p; q++) {
+        start[mBin[mOrder[q]] + 1]++;
+      }
+      for (int b = 0; b < BINS; b++) {
+        start[b + 1] += start[b];
+      }
+      final int[] fill = Arrays.copyOf(start, BINS);
+      final int[] nodes = new int[p];
+      final double[] distances = new double[p];
+      for (int q = 0; q < p; q++) {
+        final int j = mOrder[q];
+        final int i = fill[mBin[j]]++;
+        nodes[i] = j;
+        distances[i] = distance(k, j);
+      }
+      final RowSortProxy proxy = new RowSortProxy(nodes, distances, p);
+      for (int b = 0; b < BINS; b++) {
+        QuickSort.sort(proxy, start[b], start[b + 1] - start[b]);
+      }
+      mSorted[slot] = nodes;
+      mBinStart[slot] = start;
+      mBinFirst[slot] = Arrays.copyOf(start, BINS);
+    }
+
+    private final class BuildTask implements Callable<Void> {
+      private final int mStart;
+      private final int mEnd;
+
+      BuildTask(final int start, final int end) {
+        mStart = start;
+        mEnd = end;
+      }
+
+      @Override
+      public Void call() {
+        for (int p = mStart; p < mEnd; p++) {
+          buildRow(p);
+        }
+        return null;
+      }
+    }
+
+    // Divide the nodes into bins of similar size by row sum, and sort all rows
+    private void rebuild() {
+      mRebuildLive = mLive;
+      final double[] sums = new double[mLive];
+      for (int p = 0; p < mLive; p++) {
+        final int slot = mSlot[mOrder[p]];
+        sums[p] = mSumHi[slot] + mSumLo[slot];
+      }
+      Arrays.sort(sums);
+      for (int b = 0; b < mThresholds.length; b++) {
+        mThresholds[b] = sums[(int) ((long) (b + 1) * mLive / BINS)];
+      }
+      for (int p = 0; p < mLive; p++) {
+        mBin[mOrder[p]] = bin(mOrder[p]);
+      }
+      final List<Callable<Void>> tasks = new ArrayList<>();
+      final int[] bounds = partition();
+      for (int part = 0; part + 1 < bounds.length; part++) {
+        tasks.add(new BuildTask(bounds[part], bounds[part + 1]));
+      }
+      run(tasks);
+    }
+
+    // Row p has p entries, so divide the rows into parts with similar numbers of entries
+    private int[] partition() {
+      final int parts = mLive < MIN_PARALLEL_ROWS ? 1 : mParts;
+      final int[] bounds = new int[parts + 1];
+      for (int part = 1; part < parts; part++) {
+        bounds[part] = (int) (mLive * Math.sqrt((double) part / parts));
+      }
+      bounds[parts] = mLive;
+      return bounds;
+    }
+
+    private <T> List<T> run(final List<? extends Callable<T>> tasks) {
+      final List<T> results = new ArrayList<>();
+      if (tasks.size() == 1) {
+        try {
+          results.add(tasks.get(0).call());
+        } catch (final RuntimeException e) {
+          throw e;
+        } catch (final Exception e) {
+          throw new RuntimeException(e);
+        }
+        return results;
+      }
+      final List<Future<T>> futures = new ArrayList<>();
+      for (final Callable<T> task : tasks) {
+        futures.add(mExecutor.submit(task));
+      }
+      for (final Future<T> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (final InterruptedException e) {
+          throw new RuntimeException("Interrupted while joining neighbors", e);
+        } catch (final ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          } else if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+          }
+          throw new RuntimeException(e.getCause());
+        }
+      }
+      return results;
+    }
+
+    // Sum of the distances of a node to all live nodes taken in scan order
+    private double scanSum(final int node, final int part) {
+      final int slot = mSlot[node];
+      if (mScanSumIteration[part][slot] != mIteration) {
         double sum = 0;
-        for (int k = 0; k < d.size(); k++) {
-          sum += distance(j, k, d);
+        for (int p = 0; p < mLive; p++) {
+          sum += distance(node, mOrder[p]);
         }
-        colSum[j] = sum;
+        mScanSum[part][slot] = sum;
+        mScanSumIteration[part][slot] = mIteration;
       }
+      return mScanSum[part][slot];
+    }
 
-      // Compute minimal entry in (implicit) Q matrix
-      final int r = d.size() - 2;
+    BinaryTree join() {
+      while (mLive > 1) {
+        mIteration++;
+        // Allow for the rounding of a sum in scan order
+        final double error = 2.0 * (mLive + 2) * Math.ulp(1.0);
+        Arrays.fill(mBinMax, Double.NEGATIVE_INFINITY);
+        for (int p = 0; p < mLive; p++) {
+          final int node = mOrder[p];
+          final int slot = mSlot[node];
+          mSum[slot] = mSumHi[slot] + mSumLo[slot];
+          mSlack[slot] = error * mAbs[slot];
+          mBinMax[mBin[node]] = Math.max(mBinMax[mBin[node]], mSum[slot] + mSlack[slot]);
+        }
+        final int[] pair = findPair();
+        merge(pair[0], pair[1]);
+        if (mLive > 1 && 4 * mLive < 3 * mRebuildLive) {
+          rebuild();
+        }
+      }
+      return mTree[mOrder[0]];
+    }
+
+    // Search rows from positions start to end, collecting the pairs which could be a running minimum of a full scan
+    private Candidates search(final int start, final int end, final int part) {
+      final Candidates candidates = new Candidates();
+      final double r = mLive - 2;
+      // Allow for the rounding of the bounds themselves
+      final double eps = 4 * Math.ulp(1.0);
+      double best = Double.POSITIVE_INFINITY;
+      int[] rowNodes = new int[16];
+      double[] rowQ = new double[16];
+      for (int p = start; p < end; p++) {
+        final int k = mOrder[p];
+        final int slot = mSlot[k];
+        final double sumK = mSum[slot];
+        final double slackK = mSlack[slot];
+        final int[] sorted = mSorted[slot];
+        final int[] binStart = mBinStart[slot];
+        final int[] binFirst = mBinFirst[slot];
+        int n = 0;
+        for (int b = 0; b < BINS; b++) {
+          final double binMax = mBinMax[b];
+          final int binEnd = binStart[b + 1];
+          // The nearest nodes are joined first, so drop dead nodes from the start of the bin
+          int i = binFirst[b];
+          while (i < binEnd && !mAlive[sorted[i]]) {
+            i++;
+          }
+          binFirst[b] = i;
+          for (; i < binEnd; i++) {
+            final int j = sorted[i];
+            if (!mAlive[j]) {
+              continue;
+            }
+            final double rd = r * distance(k, j);
+            if (rd - sumK - slackK - binMax - eps * (Math.abs(rd) + Math.abs(sumK) + slackK + Math.abs(binMax)) > best) {
+              break;
+            }
+            final int slotJ = mSlot[j];
+            final double sumJ = mSum[slotJ];
+            if (rd - sumK - sumJ - slackK - mSlack[slotJ] - eps * (Math.abs(rd) + Math.abs(sumK) + Math.abs(sumJ)) > best) {
+              continue;
+            }
+            final double q = rd - scanSum(k, part) - scanSum(j, part);
+            if (q <= best) {
+              if (n == rowNodes.length) {
+                rowNodes = Arrays.copyOf(rowNodes, 2 * n);
+                rowQ = Arrays.copyOf(rowQ, 2 * n);
+              }
+              rowNodes[n] = j;
+              rowQ[n] = q;
+              n++;
+            }
+          }
+        }
+        // Into scan order
+        for (int a = 1; a < n; a++) {
+          final int node = rowNodes[a];
+          final double q = rowQ[a];
+          int b = a - 1;
+          while (b >= 0 && rowNodes[b] > node) {
+            rowNodes[b + 1] = rowNodes[b];
+            rowQ[b + 1] = rowQ[b];
+            b--;
+          }
+          rowNodes[b + 1] = node;
+          rowQ[b + 1] = q;
+        }
+        for (int a = 0; a < n; a++) {
+          if (rowQ[a] <= best) {
+            candidates.add(k, rowNodes[a], rowQ[a]);
+            best = rowQ[a];
+          }
+        }
+      }
+      return candidates;
+    }
+
+    private final class SearchTask implements Callable<Candidates> {
+      private final int mStart;
+      private final int mEnd;
+      private final int mPart;
+
+      SearchTask(final int start, final int end, final int part) {
+        mStart = start;
+        mEnd = end;
+        mPart = part;
+      }
+
+      @Override
+      public Candidates call() {
+        return search(mStart, mEnd, mPart);
+      }
+    }
+
+    /*
+     * Each part of the rows is searched with its own running minimum, which is never less than that of a full
+     * scan at the same point, so every pair which a full scan would compare equal to or less than its running
+     * minimum is a candidate. Replaying the candidates in scan order then makes the same choices as a full scan.
+     */
+    private int[] findPair() {
+      final List<SearchTask> tasks = new ArrayList<>();
+      final int[] bounds = partition();
+      for (int part = 0; part + 1 < bounds.length; part++) {
+        tasks.add(new SearchTask(bounds[part], bounds[part + 1], part));
+      }
       double best = Double.POSITIVE_INFINITY;
       int c = 0;
       int f = -1;
       int g = -1;
-      for (int k = 1; k < d.size(); k++) {
-        for (int j = 0; j < k; j++) {
-          final double q = r * distance(k, j, d) - colSum[k] - colSum[j];
+      for (final Candidates candidates : run(tasks)) {
+        for (int i = 0; i < candidates.mSize; i++) {
+          final double q = candidates.mQ[i];
           if (Double.doubleToRawLongBits(q) == Double.doubleToRawLongBits(best) && mRandom.nextInt(++c) == 0) {
             // Break ties fairly
-            f = k;
-            g = j;
+            f = candidates.mRows[i];
+            g = candidates.mColumns[i];
           } else if (q < best) {
             c = 1;
-            f = k;
-            g = j;
+            f = candidates.mRows[i];
+            g = candidates.mColumns[i];
             best = q;
           }
         }
       }
       assert f >= 0 && g >= 0 : "f=" + f + " g=" + g;
+      return new int[] {f, g};
+    }
 
+    private void merge(final int f, final int g) {
+      final int slotF = mSlot[f];
+      final int slotG = mSlot[g];
+      final double sumF = scanSum(f, 0);
+      final double sumG = scanSum(g, 0);
       // Compute distance of merged node to new node
-      final double dfu, dgu, dfg = 0.5 * distance(f, g, d);
-      if (d.size() > 2) {
-        dfu = dfg + 0.5 * (colSum[f] - colSum[g]) / (d.size() - 2);
-        dgu = dfg + 0.5 * (colSum[g] - colSum[f]) / (d.size() - 2);
+      final double dfu, dgu, dfg = 0.5 * distance(f, g);
+      if (mLive > 2) {
+        dfu = dfg + 0.5 * (sumF - sumG) / (mLive - 2);
+        dgu = dfg + 0.5 * (sumG - sumF) / (mLive - 2);
       } else {
-        assert Math.abs(colSum[f] - colSum[g]) < 0.0000000001;
+        assert Math.abs(sumF - sumG) < 0.0000000001;
         dfu = dfg;
         dgu = dfg;
       }
 
       // Compute distance of merged node to all other nodes
-      final ArrayList<Double> newRow = new ArrayList<>();
-      for (int i = 0; i < d.size(); i++) {
+      final int others = mLive - 2;
+      final int[] nodes = new int[others];
+      final double[] distances = new double[others];
+      int n = 0;
+      for (int p = 0; p < mLive; p++) {
+        final int i = mOrder[p];
         if (i != f && i != g) {
-          newRow.add(0.5 * (distance(f, i, d) - dfu + distance(g, i, d) - dgu));
+          nodes[n] = i;
+          distances[n] = 0.5 * (distance(f, i) - dfu + distance(g, i) - dgu);
+          n++;
         }
       }
-      final BinaryTree newNode = new BinaryTree(s.get(f), s.get(g), dfu, dgu, String.valueOf(d.size()));
-      Diagnostic.userLog("NeighborJoining: " + s.get(f).getLabel() + " + " + s.get(g).getLabel() + " -> " + newNode.getLabel());
+      final int u = mNextNode++;
+      final BinaryTree newNode = new BinaryTree(mTree[f], mTree[g], dfu, dgu, String.valueOf(mLive));
+      Diagnostic.userLog("NeighborJoining: " + mTree[f].getLabel() + " + " + mTree[g].getLabel() + " -> " + newNode.getLabel());
 
-      // Remove merged nodes starting with the larger one
-      if (f > g) {
-        remove(f, s, d);
-        remove(g, s, d);
-      } else {
-        remove(g, s, d);
-        remove(f, s, d);
-      }
+      // Remove merged nodes and add combined node at the end
+      System.arraycopy(nodes, 0, mOrder, 0, others);
+      mOrder[others] = u;
+      mLive = others + 1;
+      mAlive[f] = false;
+      mAlive[g] = false;
+      mTree[f] = null;
+      mTree[g] = null;
+      mTree[u] = newNode;
+      mAlive[u] = true;
+      final int slot = Math.min(slotF, slotG);
+      mSlot[u] = slot;
 
-      // Add combined node at end of name list and matrix
-      assert newRow.size() == d.size();
-      d.add(newRow);
-      s.add(newNode);
+      // Update row sums of other nodes, and store the new distances
+      mSumHi[slot] = 0;
+      mSumLo[slot] = 0;
+      mAbs[slot] = 0;
+      for (int i = 0; i < others; i++) {
+        final int s = mSlot[nodes[i]];
+        addToSum(s, -(s > slotF ? mD[s][slotF] : mD[slotF][s]));
+        addToSum(s, -(s > slotG ? mD[s][slotG] : mD[slotG][s]));
+        addToSum(s, distances[i]);
+        addToSum(slot, distances[i]);
+        if (s > slot) {
+          mD[s][slot] = distances[i];
+        } else {
+          mD[slot][s] = distances[i];
+        }
+      }
+      final int other = Math.max(slotF, slotG);
+      mD[other] = null;
+      mSorted[other] = null;
+      mBinStart[other] = null;
+      mBinFirst[other] = null;
+      mBin[u] = bin(u);
+      buildRow(others);
     }
-    return s.get(0);
   }
 }
-
@@ -81,6 +81,23 @@ public class SimilarityMatrix extends IntegralAbstract {
     }
   }
 
+  /**
+   * Add the counts of another matrix of the same size to this one.
+   * @param other matrix to be added.
+   */
+  public void add(final SimilarityMatrix other) {
+    if (other.mLength != mLength) {
+      throw new IllegalArgumentException(other.mLength + " != " + mLength);
+    }
+    for (int i = 0; i < mLength; i++) {
+      final double[] row = mCounts[i];
+      final double[] otherRow = other.mCounts[i];
+      for (int j = 0; j <= i; j++) {
+        row[j] += otherRow[j];
+      }
+    }
+  }
+
   /**
    * Get count taking into account commutativity of matrix.
    * @param a first index.
@@ -29,6 +29,8 @@ public final class SimilaritySorter extends IntegralAbstract {
 
   private final boolean mSingleton;
 
+  private final int mMaxDistinct;
+
   private int mCurr;
 
   private final int[] mSortedIds;
@@ -91,8 +93,18 @@ public final class SimilaritySorter extends IntegralAbstract {
    * @param singleton if true then count each hash only once ( as opposed to the product of the number of times it occurs in each genome).
    */
   public SimilaritySorter(final int length, final boolean singleton) {
+    this(length, singleton, 0);
+  }
+
+  /**
+   * @param length maximum number of sequence ids that can be recorded.
+   * @param singleton if true then count each hash only once ( as opposed to the product of the number of times it occurs in each genome).
+   * @param maxDistinct if greater than 0, the matrix is not updated when there are more than this many distinct sequence ids.
+   */
+  public SimilaritySorter(final int length, final boolean singleton, final int maxDistinct) {
     mLength = length;
     mSingleton = singleton;
+    mMaxDistinct = maxDistinct;
     mSortedIds = new int[mLength];
     mCounts = new long[mLength];
     mNoDupl = new int[mLength];
@@ -122,8 +134,9 @@ public final class SimilaritySorter extends IntegralAbstract {
   /**
    * Increment the matrix using accumulated values.
    * @param matrix to be updated.
+   * @return false if the matrix was not updated because there were too many distinct sequence ids.
    */
-  public void similarity(final SimilarityMatrix matrix) {
+  public boolean similarity(final SimilarityMatrix matrix) {
     Arrays.sort(mSortedIds, 0, mCurr);
 //    System.err.print("[");
 //    for (int i = 0; i < mCurr; i++) {
@@ -145,6 +158,10 @@ public final class SimilaritySorter extends IntegralAbstract {
       last = fromV;
     }
     mNumNoDupl = to + 1;
+    mSorted = true;
+    if (mMaxDistinct > 0 && mNumNoDupl > mMaxDistinct) {
+      return false;
+    }
 
     //put counts into similarity matrix
     for (int j = 0; j < mNumNoDupl; j++) {
@@ -156,7 +173,7 @@ public final class SimilaritySorter extends IntegralAbstract {
         }
       }
     }
-    mSorted = true;
+    return true;
   }
 
   @Override
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 
+import com.rtg.sam.BgzfInputStream;
 import com.rtg.usage.UsageMetric;
 import com.rtg.usage.UsageTracking;
 import com.rtg.util.Constants;
@@ -31,6 +32,7 @@ import com.rtg.util.diagnostic.SlimException;
 import com.rtg.util.diagnostic.Talkback;
 import com.rtg.util.io.FileUtils;
 import com.rtg.util.io.LogFile;
+import com.rtg.util.io.ParallelBlockCompressedOutputStream;
 
 import net.sf.samtools.SAMException;
 import net.sf.samtools.util.RuntimeEOFException;
@@ -178,6 +180,7 @@ public abstract class AbstractCli {
         mUsageTracker = usage;
         setLastUsageTracking(usage);
         if (handleFlags(args, outPs, err)) {
+          setCompressionThreads();
           usage.recordBeginning();
           try {
             final int code = mainExec(out, err);
@@ -229,6 +232,14 @@ public abstract class AbstractCli {
     }
   }
 
+  // Compression of block compressed output and inflation of block compressed input share the thread budget given to the command
+  private void setCompressionThreads() {
+    final Integer threads = mFlags.getFlag(CommonFlags.THREADS_FLAG) == null ? null : (Integer) mFlags.getValue(CommonFlags.THREADS_FLAG);
+    final int compressionThreads = Math.max(1, CommonFlags.parseThreads(threads));
+    ParallelBlockCompressedOutputStream.setThreads(compressionThreads);
+    BgzfInputStream.setThreads(compressionThreads);
+  }
+
   private String getChainedErrorMessage(Throwable e) {
     final StringBuilder message = new StringBuilder();
     message.append(e.getMessage());
@@ -53,6 +53,8 @@ public final class GlobalFlags {
   public static final String EDIT_DIST_HEURISTIC_ALIGNERS_FLAG = "com.rtg.alignment.EditDistanceFactory.heuristic-aligners";
   /** Only use the Gotoh aligner (disable all others) */
   public static final String EDIT_DIST_GOTOH_ONLY_FLAG = "com.rtg.alignment.EditDistanceFactory.gotoh-only";
+  /** Use the column vectorized implementation of the Gotoh aligner */
+  public static final String EDIT_DIST_STRIPED_GOTOH_FLAG = "com.rtg.alignment.EditDistanceFactory.striped-gotoh";
   /** Only use the SingleIndelEditDistance aligner (disable all others) */
   public static final String EDIT_DIST_SINGLE_INDEL_ONLY_FLAG = "com.rtg.alignment.EditDistanceFactory.single-indel-only";
   /** Only use the SingleIndelSeededEditDistance aligner (disable all others) */
@@ -98,6 +100,9 @@ public final class GlobalFlags {
   /** Variant caller min depth for call-at-N triggering */
   public static final String CALLER_N_MIN_DEPTH = "com.rtg.variant.n-min-depth";
 
+  /** Adapt variant caller chunk sizes to the cost of calling recent chunks */
+  public static final String CALLER_ADAPTIVE_CHUNKS = "com.rtg.variant.adaptive-chunks";
+
   /** Prior for random hypothesis when using random hypotheses. */
   public static final String ENTROPY_RANDOM_PRIOR_FLAG = "com.rtg.variant.bayes.EntropyRandom.random-prior";
 
@@ -107,6 +112,9 @@ public final class GlobalFlags {
   /** Number of deviations to apply to insert distributions. */
   public static final String ASSEMBLER_INSERT_DEVIATIONS_FLAG = "com.rtg.assembler.insertdeviations";
 
+  /** In similarity, ignore hashes occurring in more than this many sequences (0 for no limit). */
+  public static final String SIMILARITY_MAX_HASH_SEQUENCES_FLAG = "com.rtg.similarity.max-hash-sequences";
+
   /** Should the random tree builder push missing values down during the build process. */
   public static final String TRAIN_ON_MISSING_VALUES = "com.rtg.ml.train-on-missing";
 
@@ -133,6 +141,7 @@ public final class GlobalFlags {
     registerFlag(EDIT_DIST_LOGGING_AMOUNT_FLAG, Integer.class, 0);
     registerFlag(EDIT_DIST_HEURISTIC_ALIGNERS_FLAG, Boolean.class, true);
     registerFlag(EDIT_DIST_GOTOH_ONLY_FLAG);
+    registerFlag(EDIT_DIST_STRIPED_GOTOH_FLAG, Boolean.class, true);
     registerFlag(EDIT_DIST_SINGLE_INDEL_ONLY_FLAG);
     registerFlag(EDIT_DIST_SINGLE_INDEL_SEEDED_ONLY_FLAG);
     registerFlag(EDIT_DIST_INDEL_TABLE_FLAG, String.class, "");
@@ -159,8 +168,11 @@ public final class GlobalFlags {
     // Misc calling
     registerFlag(CALLER_N_MIN_DEPTH, Integer.class, 5);
     registerFlag(FAMILY_CALLER_FALLBACK_FLAG, Boolean.class, false);
+    registerFlag(CALLER_ADAPTIVE_CHUNKS, Boolean.class, false);
     registerFlag(ENTROPY_RANDOM_PRIOR_FLAG, Double.class, 0.0);
 
+    registerFlag(SIMILARITY_MAX_HASH_SEQUENCES_FLAG, Integer.class, 0);
+
     // AVR, training on missing instances increases time and experience indicates is a bad idea
     // when there are lots of missing values.
     registerFlag(TRAIN_ON_MISSING_VALUES, Boolean.class, false);
@@ -78,14 +78,30 @@ public class Frag extends IntegralAbstract {
    * @param gens list of genomes contained in this fragment.
    */
   public Frag(final List<Integer> gens) {
-    final int gn = gens.size();
+    this(toArray(gens), gens.size());
+  }
+
+  private static int[] toArray(final List<Integer> gens) {
+    final int[] res = new int[gens.size()];
+    int i = 0;
+    for (final int g : gens) {
+      res[i++] = g;
+    }
+    return res;
+  }
+
+  /**
+   * @param gens genomes contained in this fragment, with any repeats of a genome adjacent.
+   * @param length number of entries of <code>gens</code> to use.
+   */
+  Frag(final int[] gens, final int length) {
     int last = -1;
     int n = 0;
-    for (final int g : gens) {
-      if (last != g) {
+    for (int i = 0; i < length; i++) {
+      if (last != gens[i]) {
         n++;
       }
-      last = g;
+      last = gens[i];
     }
     mGenomes = new int[n];
     mCounts = new int[n];
@@ -93,10 +109,10 @@ public class Frag extends IntegralAbstract {
     assert n > 0;
 
     int c = 1;
-    int l = gens.get(0);
+    int l = gens[0];
     int j = 0;
     for (int i = 1; ; i++) {
-      if (i == gn || l != gens.get(i)) {
+      if (i == length || l != gens[i]) {
         //another one
         assert c > 0;
         mGenomes[j] = l;
@@ -104,13 +120,13 @@ public class Frag extends IntegralAbstract {
         j++;
         c = 0;
       }
-      if (i == gn) {
+      if (i == length) {
         break;
       }
-      l = gens.get(i);
+      l = gens[i];
       c++;
     }
-    mTotalCount = gens.size();
+    mTotalCount = length;
     assert j == n; // : "j=" + j + " n=" + n;
   }
 
@@ -345,6 +361,21 @@ public class Frag extends IntegralAbstract {
     return Utils.pairHash(Arrays.hashCode(mGenomes), Arrays.hashCode(mCounts));
   }
 
+  /**
+   * @return the number of distinct genomes in this fragment.
+   */
+  int size() {
+    return mN;
+  }
+
+  /**
+   * @param i index of a genome in this fragment (<code>0 &le; i &lt; size()</code>).
+   * @return the genome.
+   */
+  int genome(final int i) {
+    return mGenomes[i];
+  }
+
   int multiplicity() {
     return mMultiplicity;
   }
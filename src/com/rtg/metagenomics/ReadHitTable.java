@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import com.rtg.util.QuickSort;
+import com.rtg.util.array.intindex.IntChunks;
+import com.rtg.util.array.intindex.IntCreate;
+import com.rtg.util.array.longindex.LongChunks;
+import com.rtg.util.array.longindex.LongCreate;
+
+/**
+ * Records the species hit by each read. Rather than keeping read names, each hit is stored as a
+ * 64 bit hash of the read name together with the species identifier, in primitive arrays of 12
+ * bytes per hit. Once all hits are added the table is sorted so that the hits of a read are
+ * adjacent, and then each read is returned as a fragment.
+ */
+final class ReadHitTable {
+
+  // FNV-1a parameters
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  /**
+   * Hash a read name into 64 bits. With well mixed hashes the chance of any two distinct names
+   * of a set of <code>n</code> colliding is about <code>n * n / 2^65</code>.
+   * @param name read name
+   * @return the hash
+   */
+  static long hash(final String name) {
+    long h = OFFSET_BASIS;
+    for (int i = 0; i < name.length(); i++) {
+      h = (h ^ name.charAt(i)) * PRIME;
+    }
+    // Finalizing mix, so that names differing only near the end also differ in the high bits
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return h ^ (h >>> 33);
+  }
+
+  private static final class HitSortProxy implements QuickSort.SortProxy {
+    private final LongChunks mReads;
+    private final IntChunks mSpecies;
+
+    HitSortProxy(final LongChunks reads, final IntChunks species) {
+      mReads = reads;
+      mSpecies = species;
+    }
+
+    @Override
+    public int compare(final long index1, final long index2) {
+      final int c = Long.compare(mReads.get(index1), mReads.get(index2));
+      return c != 0 ? c : Integer.compare(mSpecies.getInt(index1), mSpecies.getInt(index2));
+    }
+
+    @Override
+    public void swap(final long index1, final long index2) {
+      mReads.swap(index1, index2);
+      mSpecies.swap(index1, index2);
+    }
+
+    @Override
+    public long length() {
+      return mReads.length();
+    }
+  }
+
+  private final LongChunks mReads = LongCreate.createExtensibleIndex();
+  private final IntChunks mSpecies = IntCreate.createExtensibleIndex();
+  private boolean mSorted = false;
+  private long mNext = 0;
+  private int[] mBuffer = new int[16];
+
+  /**
+   * Record a hit.
+   * @param readName name of the read
+   * @param species identifier of the species hit
+   */
+  void add(final String readName, final int species) {
+    if (mSorted) {
+      throw new IllegalStateException();
+    }
+    mReads.append(hash(readName));
+    mSpecies.append(species);
+  }
+
+  /**
+   * @return the number of hits recorded
+   */
+  long hits() {
+    return mReads.length();
+  }
+
+  /**
+   * Get the fragment for the next read, the species of a fragment are in increasing order.
+   * The first call sorts the hits, after which no more hits may be added.
+   * @return the fragment, or null if all reads have been returned
+   */
+  Frag nextFrag() {
+    if (!mSorted) {
+      QuickSort.sort(new HitSortProxy(mReads, mSpecies));
+      mSorted = true;
+    }
+    final long length = mReads.length();
+    if (mNext >= length) {
+      return null;
+    }
+    final long read = mReads.get(mNext);
+    int n = 0;
+    do {
+      if (n == mBuffer.length) {
+        final int[] buffer = new int[2 * n];
+        System.arraycopy(mBuffer, 0, buffer, 0, n);
+        mBuffer = buffer;
+      }
+      mBuffer[n++] = mSpecies.getInt(mNext++);
+    } while (mNext < length && mReads.get(mNext) == read);
+    return new Frag(mBuffer, n);
+  }
+}
@@ -12,9 +12,18 @@
 package com.rtg.metagenomics;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import com.rtg.launcher.GlobalFlags;
-import com.rtg.metagenomics.matrix.Matrix;
-import com.rtg.metagenomics.matrix.MatrixSymmetric;
+import com.rtg.metagenomics.matrix.MatrixSparseSymmetric;
 import com.rtg.metagenomics.matrix.MatrixUtils;
 import com.rtg.metagenomics.matrix.Vector;
 import com.rtg.metagenomics.matrix.VectorSimple;
@@ -24,8 +33,6 @@ import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.integrity.Exam;
 import com.rtg.util.integrity.IntegralAbstract;
 
-import Jama.EigenvalueDecomposition;
-
 /**
  * Generates a list of estimates of the frequency of each species.
  */
@@ -38,6 +45,12 @@ public class Species extends IntegralAbstract {
 
   private static final int[] EMPTY = new int[0];
 
+  /** Relative residual at which the conjugate gradient solve for a variance is considered converged */
+  private static final double CG_TOLERANCE = 1e-10;
+
+  /** Number of taxa whose variance is computed in one task */
+  private static final int VARIANCE_CHUNK = 64;
+
   private final BlockInfo mBlockInfo;
 
   private final int[][] mMembersOf;
@@ -77,6 +90,15 @@ public class Species extends IntegralAbstract {
    * @return result of species calculation
    */
   public SubBlockResult solve(final int minIter) {
+    return solve(minIter, null);
+  }
+
+  /**
+   * @param minIter minimum number of iterations
+   * @param executor executor used to compute variances in parallel, or null to compute them on the calling thread
+   * @return result of species calculation
+   */
+  public SubBlockResult solve(final int minIter, final ExecutorService executor) {
     final int numSpecies = mBlockInfo.getN();
     final Vector m = new VectorSimple(numSpecies);
     for (final Frag frag : mBlockInfo.getFrags()) {
@@ -95,15 +117,13 @@ public class Species extends IntegralAbstract {
       initialR.set(i, rv);
     }
     solve(initialR, EMPTY, minIter, mSimpleTerminator);
-    final Matrix hessian = hessian(mLastR);
-    //System.err.println("Hessian:");
-    //Extract eigenvectors and eigenvalues.
+    final MatrixSparseSymmetric hessian = hessian(mLastR);
     final long startTime = System.currentTimeMillis();
-    final EigenvalueDecomposition ed = hessian.toJama().eig();
+    final Vector variance = variance(mMembersOf, mBlockInfo, mLastR, hessian, executor);
     final long endTime = System.currentTimeMillis();
-    Diagnostic.developerLog("B:" + mBlockInfo.id() + " EigenValue Decomp took: " + ((endTime - startTime) / 1000) + "s" + " Hessian dimensions: " + hessian.dimension());
+    Diagnostic.developerLog("B:" + mBlockInfo.id() + " Variance took: " + ((endTime - startTime) / 1000) + "s" + " Hessian dimensions: " + hessian.dimension() + " entries: " + hessian.entries());
     final int totalGenomes =  mBlockInfo.getGlobalSpeciesMap() == null ? mBlockInfo.getSpeciesMap().size() : mBlockInfo.getGlobalSpeciesMap().size();
-    return new SubBlockResult(mLastR, variance(mMembersOf, mBlockInfo, mLastR, ed), new VectorSimple(totalGenomes), mLastL);
+    return new SubBlockResult(mLastR, variance, new VectorSimple(totalGenomes), mLastL);
 
   }
 
@@ -270,51 +290,169 @@ public class Species extends IntegralAbstract {
     }
   }
 
-  static Vector variance(int[][] membersOf, BlockInfo info, Vector r, EigenvalueDecomposition ed) {
-    final Jama.Matrix eig = ed.getV();
-    final double[] realEigenvalues = ed.getRealEigenvalues();
-    final boolean isGlobal = info.getGlobalSpeciesMap() == null;
-    final int blockSize = realEigenvalues.length;
-    final int totalGenomes =  isGlobal ? blockSize : info.getGlobalSpeciesMap().size();
-    //System.err.println("Eigen matrix:");
-    //System.err.println(IntegralAbstract.toString(eig.getArray()));
-    //System.err.println("Eigen values:");
-    //System.err.println(IntegralAbstract.toString(realEigenvalues));
+  // Computes the variances of some of the taxa
+  private static final class VarianceTask implements Callable<Void> {
+    private final int[][] mMembersOf;
+    private final Vector mR;
+    private final MatrixSparseSymmetric mHessian;
+    private final double[] mPreconditioner;
+    private final List<Integer> mTaxa;
+    private final Vector mVariance;
+
+    VarianceTask(int[][] membersOf, Vector r, MatrixSparseSymmetric hessian, double[] preconditioner, List<Integer> taxa, Vector variance) {
+      mMembersOf = membersOf;
+      mR = r;
+      mHessian = hessian;
+      mPreconditioner = preconditioner;
+      mTaxa = taxa;
+      mVariance = variance;
+    }
 
-    final Vector v = new VectorSimple(totalGenomes);
-    for (int j = 0; j < totalGenomes; j++) { // This guy should iterate over all members of the taxonomy (i.e. including clades), using global ids
-      double sum = 0.0;
-      for (int i = 0; i < blockSize; i++) {
-        //final double viold = eig.get(j, i);
-        final double la = realEigenvalues[i];
-        if (la < 0.0) { //protect against errors in eigenvector code
-          sum = Double.POSITIVE_INFINITY;
-          continue;
+    @Override
+    public Void call() {
+      final Vector w = new VectorSimple(mHessian.dimension());
+      for (final int j : mTaxa) {
+        for (int i = 0; i < w.dimension(); i++) {
+          w.set(i, 0.0);
         }
-        double vi = 0;
-        for (int k = 0; k < membersOf[j].length; k++) { // This guy iterates over the species in the block, using local ids
-          final int j2 = membersOf[j][k];
-          vi += eig.get(j2, i) * r.get(j2);
+        for (final int j2 : mMembersOf[j]) {
+          w.set(j2, mR.get(j2));
         }
+        mVariance.set(j, inverseQuadratic(mHessian, mPreconditioner, w));
+      }
+      return null;
+    }
+  }
 
-        final double vi2 = Math.pow(vi, 2);
-        if (vi2 > 0.0) { //ignore cases where dot product is zero - because it is a square cant be negative
-          final double t = vi2 / la;
-
-          if (Double.isInfinite(t) || Double.isNaN(t)) {
-            Diagnostic.developerLog("i=" + i + " j=" + j + " vi=" + vi + " vi^2=" + vi2 + " lamb_i=" + la + " t=" + t);
+  /**
+   * Compute the variance of the frequency of each taxon. With <code>w</code> the frequencies <code>r</code>
+   * restricted to the members of a taxon in this block and <code>H</code> the Hessian in log space, the variance
+   * is <code>w' H^-1 w</code>. Rather than decomposing the Hessian, each of these is found by a conjugate gradient
+   * solve against the sparse Hessian, and taxa with the same members are only solved once.
+   * @param membersOf local genome ids of the members of each taxon
+   * @param info information about the block
+   * @param r frequency estimates (NOT in log space)
+   * @param hessian the Hessian in log space
+   * @param executor executor used to compute variances in parallel, or null to compute them on the calling thread
+   * @return the variance of each taxon, infinite where the Hessian is not positive definite along <code>w</code>
+   */
+  static Vector variance(final int[][] membersOf, final BlockInfo info, final Vector r, final MatrixSparseSymmetric hessian, final ExecutorService executor) {
+    final int blockSize = hessian.dimension();
+    final int totalGenomes =  info.getGlobalSpeciesMap() == null ? blockSize : info.getGlobalSpeciesMap().size();
+    final double[] preconditioner = new double[blockSize];
+    for (int i = 0; i < blockSize; i++) {
+      final double d = hessian.get(i, i);
+      preconditioner[i] = d > 0.0 ? 1.0 / d : 1.0;
+    }
+    // Taxa whose members are all the same share a variance
+    final Map<IdSet, Integer> first = new HashMap<>();
+    final int[] same = new int[totalGenomes];
+    final List<Integer> solve = new ArrayList<>();
+    for (int j = 0; j < totalGenomes; j++) {
+      final Integer k = first.get(new IdSet(membersOf[j]));
+      if (k == null) {
+        first.put(new IdSet(membersOf[j]), j);
+        same[j] = j;
+        solve.add(j);
+      } else {
+        same[j] = k;
+      }
+    }
+    final Vector v = new VectorSimple(totalGenomes);
+    final List<VarianceTask> tasks = new ArrayList<>();
+    for (int start = 0; start < solve.size(); start += VARIANCE_CHUNK) {
+      tasks.add(new VarianceTask(membersOf, r, hessian, preconditioner, solve.subList(start, Math.min(start + VARIANCE_CHUNK, solve.size())), v));
+    }
+    if (executor == null) {
+      for (final VarianceTask task : tasks) {
+        task.call();
+      }
+    } else {
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (final VarianceTask task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (final Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          } else if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
           }
-          //If sum ever ends up as +infinity or NaN then the lower and higher bounds are set to 0.0 and 1.0
-          //System.err.println("t=" + t + " vi2=" + vi2 + " la=" + la);
-          sum += t;
+          throw new RuntimeException(e.getCause());
+        } catch (final InterruptedException e) {
+          throw new RuntimeException("Interrupted while calculating variances.", e);
         }
       }
-      //System.err.println("sum=" + sum);
-      v.set(j, sum);
+    }
+    for (int j = 0; j < totalGenomes; j++) {
+      if (same[j] != j) {
+        v.set(j, v.get(same[j]));
+      }
     }
     return v;
   }
 
+  /**
+   * Compute <code>w' A^-1 w</code> by Jacobi preconditioned conjugate gradient.
+   * @param a symmetric matrix
+   * @param preconditioner inverse of the diagonal of <code>a</code> (or 1 where that is not positive)
+   * @param w vector
+   * @return the value, infinite if <code>a</code> is not positive definite along the search or the solve does not converge
+   */
+  static double inverseQuadratic(final MatrixSparseSymmetric a, final double[] preconditioner, final Vector w) {
+    final int n = a.dimension();
+    final double wNorm2 = MatrixUtils.multiply(w, w);
+    if (wNorm2 == 0.0) {
+      return 0.0;
+    }
+    final Vector x = new VectorSimple(n);
+    final Vector res = new VectorSimple(w);
+    final Vector z = new VectorSimple(n);
+    final Vector p = new VectorSimple(n);
+    final Vector ap = new VectorSimple(n);
+    double rz = 0.0;
+    for (int i = 0; i < n; i++) {
+      final double zi = preconditioner[i] * res.get(i);
+      z.set(i, zi);
+      p.set(i, zi);
+      rz += res.get(i) * zi;
+    }
+    final double threshold = CG_TOLERANCE * CG_TOLERANCE * wNorm2;
+    final int maxIter = 2 * n + 20;
+    for (int iter = 0; iter < maxIter; iter++) {
+      a.multiply(p, ap);
+      final double pap = MatrixUtils.multiply(p, ap);
+      if (!(pap > 0.0)) {
+        return Double.POSITIVE_INFINITY;
+      }
+      final double alpha = rz / pap;
+      double resNorm2 = 0.0;
+      for (int i = 0; i < n; i++) {
+        x.incr(i, alpha * p.get(i));
+        res.incr(i, -alpha * ap.get(i));
+        resNorm2 += res.get(i) * res.get(i);
+      }
+      if (resNorm2 <= threshold) {
+        return MatrixUtils.multiply(w, x);
+      }
+      double rzNew = 0.0;
+      for (int i = 0; i < n; i++) {
+        final double zi = preconditioner[i] * res.get(i);
+        z.set(i, zi);
+        rzNew += res.get(i) * zi;
+      }
+      final double beta = rzNew / rz;
+      rz = rzNew;
+      for (int i = 0; i < n; i++) {
+        p.set(i, z.get(i) + beta * p.get(i));
+      }
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
   /* Make a default membership matrix corresponding to a flat taxonomy */
   static int[][] makeFlatMembership(final int totalGenomes) {
     final int[][] membersOf = new int[totalGenomes][];
@@ -408,13 +546,66 @@ public class Species extends IntegralAbstract {
     return ll;
   }
 
+  /**
+   * Make an empty Hessian with the entries that can be non-zero, which are those of pairs of genomes
+   * that occur together in some fragment.
+   * @return the Hessian with all entries zero.
+   */
+  MatrixSparseSymmetric hessianPattern() {
+    final int n = mBlockInfo.getN();
+    final Frag[] frags = mBlockInfo.getFrags();
+    // Index the fragments containing each genome
+    final int[] starts = new int[n + 1];
+    for (final Frag frag : frags) {
+      for (int k = 0; k < frag.size(); k++) {
+        starts[frag.genome(k) + 1]++;
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      starts[i + 1] += starts[i];
+    }
+    final int[] fill = Arrays.copyOf(starts, n);
+    final int[] fragsOf = new int[starts[n]];
+    for (int f = 0; f < frags.length; f++) {
+      final Frag frag = frags[f];
+      for (int k = 0; k < frag.size(); k++) {
+        fragsOf[fill[frag.genome(k)]++] = f;
+      }
+    }
+    final int[][] columns = new int[n][];
+    final int[] seen = new int[n];
+    Arrays.fill(seen, -1);
+    int[] row = new int[16];
+    for (int i = 0; i < n; i++) {
+      int size = 0;
+      row[size++] = i;
+      seen[i] = i;
+      for (int f = starts[i]; f < starts[i + 1]; f++) {
+        final Frag frag = frags[fragsOf[f]];
+        for (int k = 0; k < frag.size(); k++) {
+          final int j = frag.genome(k);
+          if (j < i && seen[j] != i) {
+            seen[j] = i;
+            if (size == row.length) {
+              row = Arrays.copyOf(row, 2 * size);
+            }
+            row[size++] = j;
+          }
+        }
+      }
+      columns[i] = Arrays.copyOf(row, size);
+      Arrays.sort(columns[i]);
+    }
+    return new MatrixSparseSymmetric(columns);
+  }
+
   /**
    * Compute Hessian in frequency space.
    * @param r current position (in frequency space).
-   * @return the Jacobian in frequency space.
+   * @return the Hessian in frequency space.
    */
-  Matrix hessianR(final Vector r) {
-    final Matrix hessian = new MatrixSymmetric(mBlockInfo.getN());
+  MatrixSparseSymmetric hessianR(final Vector r) {
+    final MatrixSparseSymmetric hessian = hessianPattern();
     for (final Frag frag : mBlockInfo.getFrags()) {
       frag.incrementR(r, hessian);
     }
@@ -422,12 +613,12 @@ public class Species extends IntegralAbstract {
   }
 
   /**
-   * Compute Jacobian and Hessian in frequency space.
+   * Compute Hessian in log space.
    * @param r current position (in frequency space).
-   * @return the Jacobian in frequency space.
+   * @return the Hessian in log space.
    */
-  Matrix hessian(final Vector r) {
-    final Matrix hessian = new MatrixSymmetric(mBlockInfo.getN());
+  MatrixSparseSymmetric hessian(final Vector r) {
+    final MatrixSparseSymmetric hessian = hessianPattern();
     final Vector jacobian = new VectorSimple(mBlockInfo.getN());
     for (int i = 0; i < mBlockInfo.getN(); i++) {
       final long length = mBlockInfo.getGenomeLength(i);
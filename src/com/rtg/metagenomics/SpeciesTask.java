@@ -21,13 +21,13 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -112,8 +112,8 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   private static final String NUM_FORMAT_CONFIDENCE = "%1.2g";
 
   protected final Map<String, Integer> mSequenceMap = new HashMap<>();
-  private final Map<String, ArrayList<Integer>> mHits = new HashMap<>();
-  private final Set<Integer> mSpeciesWithHits = new HashSet<>();
+  private final ReadHitTable mHits = new ReadHitTable();
+  private final BitSet mSpeciesWithHits = new BitSet();
 
   //TODO get rid of these protected declarations - this is not a civilized way to test things
   //or to initialize them. Maybe they should be pulled out into a separate class
@@ -319,9 +319,10 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     final Frag[] frags;
     // Collapse identical frags
     final HashMap<Frag, SpeciesTask.MyInteger> uniq = new HashMap<>();
-    for (final ArrayList<Integer> g : mHits.values()) {
-      Collections.sort(g); // needed for frag construction?
-      final Frag f = new Frag(g);
+    long reads = 0;
+    Frag f;
+    while ((f = mHits.nextFrag()) != null) {
+      reads++;
       if (uniq.containsKey(f)) {
         uniq.get(f).mValue++;
       } else {
@@ -332,11 +333,11 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     // convergence and confidence evaluation later on.
     for (final Integer taxonId : new HashSet<>(mSequenceMap.values())) {
       final int species = mSpeciesMap.id(taxonId);
-      if (!mSpeciesWithHits.contains(species)) {
+      if (!mSpeciesWithHits.get(species)) {
         continue;
       }
       //System.err.println("taxonId=" + taxonId + " species=" + species);
-      final Frag f = new Frag(Collections.singletonList(species));
+      f = new Frag(Collections.singletonList(species));
       if (uniq.containsKey(f)) {
         uniq.get(f).mValue++;
       } else {
@@ -346,11 +347,11 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     frags = new Frag[uniq.size()];
     int k = 0;
     for (final Map.Entry<Frag, SpeciesTask.MyInteger> e : uniq.entrySet()) {
-      final Frag f = e.getKey();
-      f.setMultiplicity(e.getValue().mValue);
-      frags[k++] = f;
+      final Frag frag = e.getKey();
+      frag.setMultiplicity(e.getValue().mValue);
+      frags[k++] = frag;
     }
-    Diagnostic.developerLog("Frag collapsed count = " + frags.length + ", original count = " + mHits.size());
+    Diagnostic.developerLog("Frag collapsed count = " + frags.length + ", original count = " + reads + ", hits = " + mHits.hits());
     Diagnostic.progress("Pre-processing Finished");
     return frags;
   }
@@ -366,6 +367,10 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     double mappedSpec = 0.0;
     double mappedReads = 0.0;
     double unmappedReads = 0.0;
+    // Records are grouped by sequence, so remember the identifiers for the last sequence looked up
+    String lookupSequenceName = null;
+    Integer lookupTaxonId = null;
+    int lookupSpeciesId = -1;
     try (RecordIterator<SAMRecord> it = new ThreadedMultifileIterator<>(mParams.mapped(), new SingletonPopulatorFactory<>(new SamRecordPopulator()))) {
       while (it.hasNext()) {
         usageStats++;
@@ -380,7 +385,12 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
         if (DefaultSamFilter.acceptRecord(mParams.filterParams(), rec)) {
           final String readId = rec.getReadName();
           final String sequenceName = rec.getReferenceName();
-          final Integer taxonId = mSequenceMap.get(sequenceName);
+          if (!sequenceName.equals(lookupSequenceName)) {
+            lookupSequenceName = sequenceName;
+            lookupTaxonId = mSequenceMap.get(sequenceName);
+            lookupSpeciesId = lookupTaxonId == null ? -1 : mSpeciesMap.id(lookupTaxonId);
+          }
+          final Integer taxonId = lookupTaxonId;
           if (taxonId == null) {
             // something wrong - maybe mappings against different reference ?
             Diagnostic.warning("Could not find taxon ID for sequence: " + sequenceName);
@@ -405,14 +415,8 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
               lastSequenceName = sequenceName;
               Diagnostic.developerLog("Starting: " + sequenceName);
             }
-            final Integer speciesId = mSpeciesMap.id(taxonId);
-            ArrayList<Integer> hitList = mHits.get(readId);
-            if (hitList == null) {
-              hitList = new ArrayList<>();
-              mHits.put(readId, hitList);
-            }
-            hitList.add(speciesId);
-            mSpeciesWithHits.add(speciesId);
+            mHits.add(readId, lookupSpeciesId);
+            mSpeciesWithHits.set(lookupSpeciesId);
             final int len = rec.getReadLength();
             cov += len * mappedIncr;
             final int pos = rec.getAlignmentStart();
@@ -456,7 +460,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     final SubBlockResult[] subResults = new SubBlockResult[subBlocks.length];
     final SimpleThreadPool stp = new SimpleThreadPool(mParams.execThreads(), "SolveBlocks", true); // Block-level parallelism
     stp.enableBasicProgress(subBlocks.length);
-    final ExecutorService pvalueExecutor = Executors.newFixedThreadPool(mParams.execThreads()); // Gives parallism to p-value calculation
+    final ExecutorService pvalueExecutor = Executors.newFixedThreadPool(mParams.execThreads()); // Gives parallism to variance and p-value calculation
     try {
       for (final BlockInfo subBlockInfo : subBlocks) {
         final IORunnable run = new IORunnable() {
@@ -501,7 +505,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
 
           private SubBlockResult runBlock() throws IOException {
             final Species sp = new Species(mMembersOf, mCurrentBlock);
-            final SubBlockResult subBlockResults = sp.solve(mCurrentBlock.getN() * mParams.minIter());
+            final SubBlockResult subBlockResults = sp.solve(mCurrentBlock.getN() * mParams.minIter(), pvalueExecutor);
 
             // Calculate P values, for every global taxon id that could be affected:
             final Vector initialR = subBlockResults.getR();
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics.matrix;
+
+import java.util.Arrays;
+
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Symmetric matrix where only a fixed pattern of entries may be non-zero.
+ * For each row the columns on or below the diagonal that may be non-zero are held in increasing order.
+ */
+public class MatrixSparseSymmetric extends Matrix {
+
+  private final int mSize;
+
+  private final int[][] mColumns;
+
+  private final double[][] mValues;
+
+  /**
+   * @param columns for each row <code>i</code>, the distinct columns <code>j &le; i</code> that may be non-zero, in increasing order.
+   */
+  public MatrixSparseSymmetric(final int[][] columns) {
+    mSize = columns.length;
+    mColumns = columns;
+    mValues = new double[mSize][];
+    for (int i = 0; i < mSize; i++) {
+      mValues[i] = new double[columns[i].length];
+    }
+  }
+
+  private int index(final int i, final int j) {
+    return j > i ? Arrays.binarySearch(mColumns[j], i) : Arrays.binarySearch(mColumns[i], j);
+  }
+
+  private int indexInPattern(final int i, final int j) {
+    final int k = index(i, j);
+    if (k < 0) {
+      throw new IllegalArgumentException("(" + i + ", " + j + ") is not in the sparsity pattern");
+    }
+    return k;
+  }
+
+  @Override
+  public double get(final int i, final int j) {
+    final int k = index(i, j);
+    if (k < 0) {
+      return 0.0;
+    }
+    return j > i ? mValues[j][k] : mValues[i][k];
+  }
+
+  @Override
+  public void set(final int i, final int j, final double v) {
+    final int k = indexInPattern(i, j);
+    if (j > i) {
+      mValues[j][k] = v;
+    } else {
+      mValues[i][k] = v;
+    }
+  }
+
+  @Override
+  public void incr(final int i, final int j, final double v) {
+    final int k = indexInPattern(i, j);
+    if (j > i) {
+      mValues[j][k] += v;
+    } else {
+      mValues[i][k] += v;
+    }
+  }
+
+  /**
+   * Compute the product of this matrix and a vector.
+   * @param x vector to be multiplied.
+   * @param y set to the product.
+   */
+  public void multiply(final Vector x, final Vector y) {
+    assert x.dimension() == mSize && y.dimension() == mSize;
+    for (int i = 0; i < mSize; i++) {
+      y.set(i, 0.0);
+    }
+    for (int i = 0; i < mSize; i++) {
+      final int[] columns = mColumns[i];
+      final double[] values = mValues[i];
+      final double xi = x.get(i);
+      double yi = 0.0;
+      for (int k = 0; k < columns.length; k++) {
+        final int j = columns[k];
+        final double v = values[k];
+        yi += v * x.get(j);
+        if (j != i) {
+          y.incr(j, v * xi);
+        }
+      }
+      y.incr(i, yi);
+    }
+  }
+
+  /**
+   * @return the number of entries on or below the diagonal that may be non-zero.
+   */
+  public long entries() {
+    long entries = 0;
+    for (final int[] columns : mColumns) {
+      entries += columns.length;
+    }
+    return entries;
+  }
+
+  @Override
+  public int dimension() {
+    return mSize;
+  }
+
+  @Override
+  public boolean globalIntegrity() {
+    integrity();
+    for (int i = 0; i < mSize; i++) {
+      Exam.assertEquals(mColumns[i].length, mValues[i].length);
+      for (int k = 0; k < mColumns[i].length; k++) {
+        Exam.assertTrue(mColumns[i][k] >= 0 && mColumns[i][k] <= i);
+        Exam.assertTrue(k == 0 || mColumns[i][k - 1] < mColumns[i][k]);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertTrue(mSize >= 0);
+    Exam.assertEquals(mSize, mValues.length);
+    Exam.assertTrue(isSymmetric());
+    return true;
+  }
+
+  @Override
+  public boolean isSymmetric() {
+    return true;
+  }
+
+  @Override
+  public Jama.Matrix toJama() {
+    final Jama.Matrix m = new Jama.Matrix(dimension(), dimension());
+    for (int i = 0; i < mSize; i++) {
+      for (int k = 0; k < mColumns[i].length; k++) {
+        final int j = mColumns[i][k];
+        m.set(i, j, mValues[i][k]);
+        m.set(j, i, mValues[i][k]);
+      }
+    }
+    return m;
+  }
+}
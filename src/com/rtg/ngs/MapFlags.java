@@ -61,6 +61,7 @@ public final class MapFlags {
   static final String TEMPLATE_FLAG = "template";
   //private static final String INSERT_SIZE_FLAG = "insert-size";
   static final String THREAD_MULTIPLIER = "Xthread-multiplier";
+  static final String READ_INDEX_FLAG = "Xread-index";
   static final String X_LONG_READ = "Xlong-read";
   static final String OUTPUT_UNFILTERED = "all-hits";
   static final String OUTPUT_NULLFILTERED = "Xnull-filter";
@@ -112,6 +113,7 @@ public final class MapFlags {
 
 
     flags.registerOptional(THREAD_MULTIPLIER, Integer.class, CommonFlags.INT, "number of work chunks per thread", HashingRegion.DEFAULT_THREAD_MULTIPLIER).setCategory(CommonFlagCategories.UTILITY);
+    flags.registerOptional(READ_INDEX_FLAG, File.class, CommonFlags.DIR, "directory in which to save the read index, a matching index saved by an earlier run is memory mapped instead of rebuilt").setCategory(CommonFlagCategories.UTILITY);
     //flags.registerOptional(INSERT_SIZE_FLAG, Integer.class, INT, "expected insert size for pairs");
     flags.registerOptional(CommonFlags.TEMP_FILES_COMPRESSED, Boolean.class, "BOOL", "gzip temporary SAM files", true).setCategory(CommonFlagCategories.UTILITY);
     flags.registerOptional(NO_INMEMORY_TEMPLATE, "do not load the template in memory").setCategory(CommonFlagCategories.UTILITY);
@@ -90,6 +90,10 @@ public final class MapParamsHelper {
     if (alignerChain != null) {
       ngsParamsBuilder.alignerMode((AlignerMode) alignerChain.getValue());
     }
+    final Flag readIndex = flags.getFlag(MapFlags.READ_INDEX_FLAG);
+    if (readIndex != null && readIndex.isSet()) {
+      ngsParamsBuilder.readIndexDirectory((File) readIndex.getValue());
+    }
     final Flag singleIndelPenalties = flags.getFlag(MapFlags.SINGLE_INDEL_PENALTIES_FLAG);
     if (singleIndelPenalties != null) {
       ngsParamsBuilder.singleIndelPenalties((String) singleIndelPenalties.getValue());
@@ -79,6 +79,7 @@ public class NgsParams extends ModuleParams implements Integrity {
   private final MaxShiftFactor mAlignerBandWidthFactor;
   private final AlignerMode mAlignerMode;
   private final String mSingleIndelPenalties;
+  private final File mReadIndexDirectory;
 
   /**
    * Creates a NgsParams builder.
@@ -131,6 +132,7 @@ public class NgsParams extends ModuleParams implements Integrity {
     mAlignerBandWidthFactor = builder.mAlignerBandWidthFactor;
     mAlignerMode = builder.mAlignerMode;
     mSingleIndelPenalties = builder.mSingleIndelPenalties;
+    mReadIndexDirectory = builder.mReadIndexDirectory;
   }
 
   //  /**
@@ -391,6 +393,11 @@ public class NgsParams extends ModuleParams implements Integrity {
     return mParallelUnmatedProcessing;
   }
 
+  /** @return directory in which the read index is saved for reuse by later runs, or null */
+  public File readIndexDirectory() {
+    return mReadIndexDirectory;
+  }
+
   /** @return the size at which meta chunks are created */
   public int mapXMetaChunkSize() {
     return mMapXMetaChunkSize;
@@ -661,7 +668,8 @@ public class NgsParams extends ModuleParams implements Integrity {
     .softClipDistance(softClipDistance())
     .alignerBandWidthFactor(alignerBandWidthFactor())
     .alignerMode(alignerMode())
-    .singleIndelPenalties(singleIndelPenalties());
+    .singleIndelPenalties(singleIndelPenalties())
+    .readIndexDirectory(readIndexDirectory());
     return npb;
   }
 }
@@ -11,6 +11,7 @@
  */
 package com.rtg.ngs;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -72,6 +73,7 @@ public class NgsParamsBuilder extends ModuleParamsBuilder<NgsParamsBuilder> {
   MaxShiftFactor mAlignerBandWidthFactor = new MaxShiftFactor(0.5);
   AlignerMode mAlignerMode = AlignerMode.AUTO;
   String mSingleIndelPenalties = EditDistanceFactory.DEFAULT_SINGLE_INDEL_TABLE;
+  File mReadIndexDirectory = null;
 
 
   @Override
@@ -428,6 +430,15 @@ public class NgsParamsBuilder extends ModuleParamsBuilder<NgsParamsBuilder> {
     return self();
   }
 
+  /**
+   * @param dir directory in which the read index is saved, and from which a matching saved index is reused
+   * @return this builder, so calls can be chained.
+   */
+  public NgsParamsBuilder readIndexDirectory(File dir) {
+    mReadIndexDirectory = dir;
+    return self();
+  }
+
   /**
    * @param value the penalty for a gap open during alignment
    * @return this builder, so calls can be chained
@@ -31,15 +31,19 @@ import com.rtg.calibrate.Recalibrate;
 import com.rtg.index.Index;
 import com.rtg.index.IndexSet;
 import com.rtg.index.hash.ngs.HashFunctionFactory;
+import com.rtg.index.hash.ngs.ImplementHashFunction;
 import com.rtg.index.hash.ngs.NgsHashFunction;
 import com.rtg.index.hash.ngs.NgsHashLoop;
 import com.rtg.index.hash.ngs.NgsHashLoopImpl;
 import com.rtg.index.hash.ngs.OutputProcessor;
+import com.rtg.index.hash.ngs.ReadCall;
 import com.rtg.index.hash.ngs.ReadCallImplementation;
+import com.rtg.index.hash.ngs.ReadCallQueues;
 import com.rtg.index.hash.ngs.ReadEncoder;
 import com.rtg.index.hash.ngs.TemplateCall;
 import com.rtg.index.hash.ngs.TemplateCallImplementation;
 import com.rtg.index.params.CreateParams;
+import com.rtg.index.queue.IndexQueues;
 import com.rtg.launcher.ISequenceParams;
 import com.rtg.launcher.ParamsTask;
 import com.rtg.ngs.longread.LongReadTask;
@@ -57,6 +61,7 @@ import com.rtg.util.StringUtils;
 import com.rtg.util.cli.CommandLine;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.OneShotTimer;
+import com.rtg.util.intervals.LongRange;
 import com.rtg.util.intervals.RegionRestriction;
 import com.rtg.calibrate.CalibratedPerSequenceExpectedCoverage;
 
@@ -254,11 +259,27 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
   static long indexThenSearchShortReads(final NgsParams params, final NgsHashLoop shl, final MapStatistics statistics, final CreateParams indexParams) throws IOException {
     Diagnostic.developerLog("index params: " + indexParams.toString());
     final HashFunctionFactory hashFunctionFactory = params.maskParams().maskFactory((int) params.getMaxReadLength());
-    final IndexSet indexes = new IndexSet(params, indexParams, hashFunctionFactory.numberWindows());
+    File savedIndexDir = indexParams.compressHashes() ? params.readIndexDirectory() : null;
+    if (params.readIndexDirectory() != null && savedIndexDir == null) {
+      Diagnostic.warning("Read index can only be saved when hashes are compressed, it will be rebuilt.");
+    }
+    if (savedIndexDir != null && !hasSdfIds(params)) {
+      Diagnostic.warning("Read index can only be saved when the reads have an SDF-ID, it will be rebuilt.");
+      savedIndexDir = null;
+    }
+    final String signature = savedIndexDir == null ? null : readIndexSignature(params, indexParams);
+    final boolean useSaved = savedIndexDir != null && IndexSet.isSaved(savedIndexDir, signature, hashFunctionFactory.numberWindows());
+    final IndexSet indexes;
+    if (useSaved) {
+      indexes = new IndexSet(savedIndexDir, params, indexParams, hashFunctionFactory.numberWindows());
+    } else {
+      indexes = new IndexSet(params, indexParams, hashFunctionFactory.numberWindows());
+    }
     if (indexes.size() > INDEX_USAGE_REPORTING_THRESHOLD) {
       Diagnostic.warning("Selected parameters produce " + indexes.size() + " indexes (this is high and could be slow to run).");
     }
-    final ReadCallImplementation rci = new ReadCallImplementation(indexes);
+    // A mapped index is already frozen, the read pass is then only needed to record the read sequences in the hash function
+    final ReadCall rci = useSaved ? NULL_READ_CALL : new ReadCallImplementation(indexes);
     final TemplateCallImplementation tci = new TemplateCallImplementation(params, indexParams.size(), indexes, null);
 
     final NgsHashFunction hf = hashFunctionFactory.create(rci, tci);
@@ -266,7 +287,15 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     final long numberReads = params.buildFirstParams().numberSequences() + (params.paired() ? params.buildSecondParams().numberSequences() : 0);
     hf.setReadSequences(numberReads);
 
-    final long totalLength = index(params, shl, indexParams, indexes, hf);
+    final long totalLength;
+    if (useSaved) {
+      totalLength = readPass(params, shl, hf);
+    } else {
+      totalLength = index(params, shl, indexParams, indexes, hf);
+      if (savedIndexDir != null) {
+        indexes.save(savedIndexDir, signature);
+      }
+    }
     final OutputFilter filter = params.outputParams().outFilter();
     try (OutputProcessor outProcessor = filter.makeProcessor(params, statistics)) {
       tci.setOutputProcessor(outProcessor);
@@ -277,24 +306,99 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     return totalLength;
   }
 
+  private static final ReadCall NULL_READ_CALL = new ReadCall() {
+    @Override
+    public void readCall(int id, long hash, int index) {
+    }
+  };
+
+  private static boolean hasSdfIds(NgsParams params) {
+    return params.buildFirstParams().reader().getSdfId().available()
+      && (!params.paired() || params.buildSecondParams().reader().getSdfId().available());
+  }
+
+  /**
+   * Describes everything the contents of a read index depend on, so that a saved index is only reused
+   * when it was built from the same reads with the same parameters.
+   */
+  private static String readIndexSignature(NgsParams params, CreateParams indexParams) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("first=").append(readsSignature(params.buildFirstParams())).append(LS);
+    if (params.paired()) {
+      sb.append("second=").append(readsSignature(params.buildSecondParams())).append(LS);
+    }
+    sb.append("mask=").append(params.maskParams()).append(LS);
+    sb.append("index=").append(indexParams).append(LS);
+    sb.append("threshold=").append(params.hashCountThreshold()).append(" ").append(params.useProportionalHashThreshold())
+      .append(" ").append(params.maxHashCountThreshold()).append(" ").append(params.minHashCountThreshold());
+    return sb.toString();
+  }
+
+  private static String readsSignature(ISequenceParams reads) {
+    final LongRange restriction = reads.readerRestriction();
+    return reads.reader().getSdfId() + " " + reads.numberSequences() + " " + restriction.getStart() + " " + restriction.getEnd();
+  }
+
+  /** Build compressed read indexes from several threads, at the cost of queueing all the read hashes in memory. */
+  private static final boolean PARALLEL_INDEX_BUILD = true; //Boolean.valueOf(System.getProperty("rtg.parallel-index-build", "true"));
+
   private static long index(NgsParams params, NgsHashLoop shl, CreateParams indexParams, IndexSet indexes, NgsHashFunction hf) throws IOException {
     Diagnostic.developerLog("index start");
+    if (PARALLEL_INDEX_BUILD && params.numberThreads() > 1 && indexParams.compressHashes() && shl instanceof NgsHashLoopImpl && hf instanceof ImplementHashFunction) {
+      // The indexes are already allocated, so the queues only need to fit in what remains
+      final long queueBytes = indexes.queueBytes(indexParams);
+      final Runtime rt = Runtime.getRuntime();
+      final long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+      if (queueBytes < free) {
+        return indexMultiCore(params, (NgsHashLoopImpl) shl, indexParams, indexes, (ImplementHashFunction) hf);
+      }
+      Diagnostic.userLog("Read hash queues need " + StringUtils.commas(queueBytes) + " bytes but only " + StringUtils.commas(free) + " are free, building indexes in two passes");
+    }
     long totalLength = 0;
     for (int pass = 1; pass <= (indexParams.compressHashes() ? 2 : 1); pass++) {
-      totalLength = 0; //only count for one pass
-      if (params.paired()) {
-        final long l1 = shl.readLoop(params.buildFirstParams(), hf, ReadEncoder.PAIRED_FIRST, false);
-        final long l2 = shl.readLoop(params.buildSecondParams(), hf, ReadEncoder.PAIRED_SECOND, params.buildFirstParams().reader().getPrereadType() == PrereadType.CG);
-        totalLength += l1 + l2;
-
-      } else {
-        totalLength += shl.readLoop(params.buildFirstParams(), hf, ReadEncoder.SINGLE_END, false);
-      }
+      totalLength = readPass(params, shl, hf); //only count for one pass
       indexes.freeze(params.numberThreads());
     }
     return totalLength;
   }
 
+  /**
+   * Each thread hashes a range of the reads into its own queues, which are then transferred to the
+   * indexes with each thread owning a disjoint range of hash buckets. Queues are used in the same order
+   * as the reads, so the indexes are identical to those from the single threaded build.
+   */
+  private static long indexMultiCore(NgsParams params, NgsHashLoopImpl shl, CreateParams indexParams, IndexSet indexes, ImplementHashFunction hf) throws IOException {
+    final int numberThreads = params.numberThreads();
+    final IndexQueues[] queues = indexes.queues(numberThreads, params.paired() ? 2 * numberThreads : numberThreads, indexParams);
+    final long totalLength;
+    if (params.paired()) {
+      final long l1 = shl.readLoopMultiCore(params.buildFirstParams(), readThreadClones(hf, queues, 0, numberThreads), ReadEncoder.PAIRED_FIRST, false);
+      final long l2 = shl.readLoopMultiCore(params.buildSecondParams(), readThreadClones(hf, queues, numberThreads, numberThreads), ReadEncoder.PAIRED_SECOND, params.buildFirstParams().reader().getPrereadType() == PrereadType.CG);
+      totalLength = l1 + l2;
+    } else {
+      totalLength = shl.readLoopMultiCore(params.buildFirstParams(), readThreadClones(hf, queues, 0, numberThreads), ReadEncoder.SINGLE_END, false);
+    }
+    indexes.freeze(queues);
+    return totalLength;
+  }
+
+  private static ImplementHashFunction[] readThreadClones(ImplementHashFunction hf, IndexQueues[] queues, int firstQueue, int numberThreads) {
+    final ImplementHashFunction[] res = new ImplementHashFunction[numberThreads];
+    for (int i = 0; i < numberThreads; i++) {
+      res[i] = hf.readThreadClone(new ReadCallQueues(queues, firstQueue + i));
+    }
+    return res;
+  }
+
+  private static long readPass(NgsParams params, NgsHashLoop shl, NgsHashFunction hf) throws IOException {
+    if (params.paired()) {
+      final long l1 = shl.readLoop(params.buildFirstParams(), hf, ReadEncoder.PAIRED_FIRST, false);
+      final long l2 = shl.readLoop(params.buildSecondParams(), hf, ReadEncoder.PAIRED_SECOND, params.buildFirstParams().reader().getPrereadType() == PrereadType.CG);
+      return l1 + l2;
+    }
+    return shl.readLoop(params.buildFirstParams(), hf, ReadEncoder.SINGLE_END, false);
+  }
+
   /**
    * Runs a search on the supplied template and indexes
    * @param params search parameters
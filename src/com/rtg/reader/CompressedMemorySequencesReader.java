@@ -45,6 +45,9 @@ public class CompressedMemorySequencesReader extends AbstractSequencesReader imp
 
   private static final boolean DIRECT_SDF_LOAD = true; //Boolean.valueOf(System.getProperty("direct.sdf.load", "true"));
 
+  /** Memory map sequence and quality data rather than loading it onto the heap */
+  private static final boolean MAPPED_SDF_LOAD = Boolean.valueOf(System.getProperty("rtg.mapped-sdf", "false"));
+
   /**
    * Creates a sequences reader from specified dir.
    * @param dir directory containing sequence data
@@ -55,6 +58,20 @@ public class CompressedMemorySequencesReader extends AbstractSequencesReader imp
    * @throws IOException if an I/O error occurs
    */
   public static SequencesReader createSequencesReader(final File dir, final boolean loadNames, boolean loadFullNames, LongRange region) throws IOException {
+    return createSequencesReader(dir, loadNames, loadFullNames, region, MAPPED_SDF_LOAD);
+  }
+
+  /**
+   * Creates a sequences reader from specified dir.
+   * @param dir directory containing sequence data
+   * @param loadNames whether to load names from disk or not
+   * @param loadFullNames whether to load full names from disk or not
+   * @param region subset of the SDF to load
+   * @param mapped true to memory map sequence and quality data when the SDF encoding permits it
+   * @return Sequence reader for data
+   * @throws IOException if an I/O error occurs
+   */
+  public static SequencesReader createSequencesReader(final File dir, final boolean loadNames, boolean loadFullNames, LongRange region, boolean mapped) throws IOException {
     final IndexFile index = new IndexFile(dir);
     if (index.getSequenceType() < 0 || index.getSequenceType() > SequenceType.values().length) {
       throw new CorruptSdfException(dir);
@@ -62,7 +79,7 @@ public class CompressedMemorySequencesReader extends AbstractSequencesReader imp
     final SequenceType type = SequenceType.values()[index.getSequenceType()];
     final int range = type.numberKnownCodes() + type.firstValid();
     if (DIRECT_SDF_LOAD && index.getSequenceEncoding() == IndexFile.SEQUENCE_ENCODING_COMPRESSED) {
-      return new CompressedMemorySequencesReader2(region, dir, index, loadNames, loadFullNames);
+      return new CompressedMemorySequencesReader2(region, dir, index, loadNames, loadFullNames, mapped);
     } else {
       return new CompressedMemorySequencesReader(dir, index, range, loadNames, loadFullNames, region);
     }
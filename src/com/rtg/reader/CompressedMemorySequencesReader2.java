@@ -44,12 +44,27 @@ public class CompressedMemorySequencesReader2 extends AbstractSequencesReader {
    * @throws IOException IO exception occurs
    */
   CompressedMemorySequencesReader2(LongRange region, File directory, IndexFile indexFile, boolean loadNames, boolean loadFullNames) throws IOException {
+    this(region, directory, indexFile, loadNames, loadFullNames, false);
+  }
+
+  /**
+   * Alternative to other one with similar name
+   * @param region region to restrict to
+   * @param directory directory containing SDF
+   * @param indexFile index file
+   * @param loadNames should we load names
+   * @param loadFullNames should we load full names
+   * @param mapped true to memory map sequence and quality data rather than loading onto the heap
+   * @throws IOException IO exception occurs
+   */
+  CompressedMemorySequencesReader2(LongRange region, File directory, IndexFile indexFile, boolean loadNames, boolean loadFullNames, boolean mapped) throws IOException {
     mIndexFile = indexFile;
     mRegion = SequencesReaderFactory.resolveRange(indexFile, region);
     mStart = mRegion.getStart();
     mEnd = mRegion.getEnd();
     mNumberSequences = mEnd - mStart;
-    mData = DataInMemory.loadDelayQuality(directory, indexFile, DataFileIndex.loadSequenceDataFileIndex(indexFile.dataIndexVersion(), directory), mStart, mEnd);
+    final DataFileIndex seqIndex = DataFileIndex.loadSequenceDataFileIndex(indexFile.dataIndexVersion(), directory);
+    mData = mapped ? DataInMemory.mapDelayQuality(directory, indexFile, seqIndex, mStart, mEnd) : DataInMemory.loadDelayQuality(directory, indexFile, seqIndex, mStart, mEnd);
     if (mNumberSequences > Integer.MAX_VALUE) {
       throw new IllegalArgumentException("Too many sequences in region: " + region + ", maximum is: " + Integer.MAX_VALUE);
     }
@@ -20,19 +20,22 @@ import java.nio.channels.FileChannel;
 
 import com.rtg.mode.SequenceType;
 import com.rtg.util.bytecompression.BitwiseByteArray;
+import com.rtg.util.bytecompression.ByteArray;
 import com.rtg.util.bytecompression.CompressedByteArray;
+import com.rtg.util.bytecompression.MappedBitwiseByteArray;
 
 /**
  * Helper for <code>CompressedMemorySequencesReader2</code> does most of the heavy lifting.
  * Loads compressed versions of SDF directly from disk into memory without having to decompress and recompress.
+ * Alternatively the sequence and quality data can be memory mapped, leaving only the pointers on the heap.
  *
  */
 public final class DataInMemory {
   private final int[][] mPointers;
   private final byte[][] mSequenceChecksums;
   private final byte[][] mQualityChecksums;
-  private final BitwiseByteArray[] mSequenceData;
-  private CompressedByteArray[] mQualityData;
+  private final ByteArray[] mSequenceData;
+  private ByteArray[] mQualityData;
   private final PointerFileLookup mFileNoLookup;
 
   private final QualityLoader mQualLoader;
@@ -43,7 +46,7 @@ public final class DataInMemory {
   private int mStartIndex;
   private int mSeqLength;
 
-  private DataInMemory(int[][] pointers, byte[][] sequenceChecksums, byte[][] qualityChecksums, BitwiseByteArray[] sequenceData, QualityLoader loader) {
+  private DataInMemory(int[][] pointers, byte[][] sequenceChecksums, byte[][] qualityChecksums, ByteArray[] sequenceData, QualityLoader loader) {
     mPointers = pointers;
     mSequenceChecksums = sequenceChecksums;
     mQualityChecksums = qualityChecksums;
@@ -259,17 +262,35 @@ public final class DataInMemory {
    * @throws IOException IO error occurs
    */
   public static DataInMemory loadDelayQuality(File directory, IndexFile index, DataFileIndex seqIndex, long start, long end) throws IOException {
+    return create(directory, index, seqIndex, start, end, false);
+  }
+
+  /**
+   * create data helper with sequence and quality data memory mapped rather than loaded onto the heap
+   * @param directory directory of SDF
+   * @param index index file
+   * @param seqIndex sequence index
+   * @param start sequence id (inclusive)
+   * @param end sequence id (exclusive)
+   * @return the data helper
+   * @throws IOException IO error occurs
+   */
+  public static DataInMemory mapDelayQuality(File directory, IndexFile index, DataFileIndex seqIndex, long start, long end) throws IOException {
+    return create(directory, index, seqIndex, start, end, true);
+  }
+
+  private static DataInMemory create(File directory, IndexFile index, DataFileIndex seqIndex, long start, long end, boolean mapped) throws IOException {
     final PointerLoader point = new PointerLoader(directory, index, seqIndex, start, end);
     final SequenceLoader seq;
     final QualityLoader qual;
     if (start < end) {
       point.loadPointers();
-      seq = new SequenceLoader(point);
-      qual = new QualityLoader(point);
+      seq = new SequenceLoader(point, mapped);
+      qual = new QualityLoader(point, mapped);
       seq.loadSequenceData();
     } else {
-      seq = new SequenceLoader(point);
-      qual = new QualityLoader(point);
+      seq = new SequenceLoader(point, mapped);
+      qual = new QualityLoader(point, mapped);
     }
     return new DataInMemory(point.mPointers, point.mSequenceChecksums, point.mQualityChecksums, seq.mSequenceData, qual);
   }
@@ -390,8 +411,9 @@ public final class DataInMemory {
     final long mStart;
     final long mEnd;
     final File mDir;
+    final boolean mMapped;
 
-    DataLoader(PointerLoader pointers) {
+    DataLoader(PointerLoader pointers, boolean mapped) {
       mPointers = pointers.mPointers;
       mNumberEntries = pointers.mNumberEntries;
       mIndexFile = pointers.mIndexFile;
@@ -400,20 +422,21 @@ public final class DataInMemory {
       mStart = pointers.mStart;
       mEnd = pointers.mEnd;
       mDir = pointers.mDir;
+      mMapped = mapped;
     }
   }
 
 
   static final class QualityLoader extends  DataLoader {
-    private CompressedByteArray[] mQualityData;
+    private ByteArray[] mQualityData;
 
-    QualityLoader(PointerLoader loader) {
-      super(loader);
+    QualityLoader(PointerLoader loader, boolean mapped) {
+      super(loader, mapped);
     }
 
-    public synchronized CompressedByteArray[] loadQualityData() throws IOException {
+    public synchronized ByteArray[] loadQualityData() throws IOException {
       if (mIndexFile.hasQuality() && mQualityData == null) {
-        final CompressedByteArray[] ret = new CompressedByteArray[mNumberEntries];
+        final ByteArray[] ret = new ByteArray[mNumberEntries];
         long fileStart = 0;
         long fileEnd = 0;
         int i = 0;
@@ -429,7 +452,12 @@ public final class DataInMemory {
               startVal = 0;
               endVal = mPointers[i][mPointers[i].length - 1] + mFirstFilePointerAdjust;
             }
-            ret[i] = CompressedByteArray.loadCompressed(SdfFileUtils.qualityDataFile(mDir, fn), startVal, endVal, CompressedMemorySequencesReader.MAX_QUAL_VALUE);
+            final File qualityFile = SdfFileUtils.qualityDataFile(mDir, fn);
+            if (mMapped) {
+              ret[i] = CompressedByteArray.mapCompressed(qualityFile, startVal, endVal, CompressedMemorySequencesReader.MAX_QUAL_VALUE);
+            } else {
+              ret[i] = CompressedByteArray.loadCompressed(qualityFile, startVal, endVal, CompressedMemorySequencesReader.MAX_QUAL_VALUE);
+            }
             i++;
           }
           fileStart = fileEnd;
@@ -441,10 +469,10 @@ public final class DataInMemory {
   }
 
   static final class SequenceLoader extends DataLoader {
-    final BitwiseByteArray[] mSequenceData;
-    SequenceLoader(PointerLoader loader) {
-      super(loader);
-      mSequenceData = new BitwiseByteArray[mNumberEntries];
+    final ByteArray[] mSequenceData;
+    SequenceLoader(PointerLoader loader, boolean mapped) {
+      super(loader, mapped);
+      mSequenceData = new ByteArray[mNumberEntries];
     }
 
     public void loadSequenceData() throws IOException {
@@ -465,7 +493,12 @@ public final class DataInMemory {
               startVal = 0;
               endVal = mPointers[i][mPointers[i].length - 1] + mFirstFilePointerAdjust;
             }
-          mSequenceData[i] = BitwiseByteArray.loadBitwise(SdfFileUtils.sequenceDataFile(mDir, fn), startVal, endVal, range);
+          final File sequenceFile = SdfFileUtils.sequenceDataFile(mDir, fn);
+          if (mMapped) {
+            mSequenceData[i] = MappedBitwiseByteArray.map(sequenceFile, startVal, endVal, range);
+          } else {
+            mSequenceData[i] = BitwiseByteArray.loadBitwise(sequenceFile, startVal, endVal, range);
+          }
           i++;
         }
         fileStart = fileEnd;
@@ -39,6 +39,7 @@ public class FileBitwiseOutputStream extends OutputStream {
 
   //private final byte[] mRawBuffer;
   private final long[] mBuffer;
+  private final byte[] mBytes;
   private long mBufferStartPos;
   private int mBufferInUse;
   //private final long mSize;
@@ -54,6 +55,7 @@ public class FileBitwiseOutputStream extends OutputStream {
     mBits = bits;
     //mRawBuffer = new byte[1024 * 1024];
     mBuffer = new long[1024 * 1024 / 8];
+    mBytes = new byte[mBuffer.length * 8];
   }
 
   /**
@@ -67,12 +69,26 @@ public class FileBitwiseOutputStream extends OutputStream {
     return pos - mBufferStartPos < mBuffer.length;
   }
 
+  // Write the first longs of the buffer in big endian order, as a single write
+  private void writeBuffer(final int longs) throws IOException {
+    for (int i = 0, j = 0; i < longs; i++, j += 8) {
+      final long v = mBuffer[i];
+      mBytes[j] = (byte) (v >>> 56);
+      mBytes[j + 1] = (byte) (v >>> 48);
+      mBytes[j + 2] = (byte) (v >>> 40);
+      mBytes[j + 3] = (byte) (v >>> 32);
+      mBytes[j + 4] = (byte) (v >>> 24);
+      mBytes[j + 5] = (byte) (v >>> 16);
+      mBytes[j + 6] = (byte) (v >>> 8);
+      mBytes[j + 7] = (byte) v;
+    }
+    mStream.write(mBytes, 0, longs * 8);
+  }
+
   private void flushCurrent() throws IOException {
     final int toWrite = mBufferInUse - mBits; //can only be sure those mBits behind are ready to be written
     if (toWrite > 0) {
-      for (int i = 0; i < toWrite; i++) {
-        mStream.writeLong(mBuffer[i]);
-      }
+      writeBuffer(toWrite);
       final int newInUse = mBufferInUse - toWrite;
       System.arraycopy(mBuffer, toWrite, mBuffer, 0, newInUse);
       Arrays.fill(mBuffer, newInUse, mBufferInUse, 0);
@@ -97,9 +113,7 @@ public class FileBitwiseOutputStream extends OutputStream {
   @Override
   public void close() throws IOException {
     try {
-      for (int i = 0; i < mBufferInUse; i++) {
-        mStream.writeLong(mBuffer[i]);
-      }
+      writeBuffer(mBufferInUse);
       mBufferInUse = 0;
     } finally {
       mStream.close();
@@ -136,16 +150,22 @@ public class FileBitwiseOutputStream extends OutputStream {
   private void set(final long offset, final byte[] data, final int bOffset, final int length) throws IOException {
     long whichLong = (offset >>> WHICH_LONG) * mBits;
     int whichBit = (int) (offset & WITHIN_LONG);
-    for (int pos = bOffset; pos < bOffset + length; pos++) {
-      int value = data[pos];
-      for (int b = mBits - 1; b >= 0; b--) {
-        //final long old = mData[b].get(whichLong);
-        //mData[b].set(whichLong, old | ((value & 1L) << whichBit));
-        dataBitwiseOrSet(whichLong + b, (value & 1L) << whichBit);
-        value = value >>> 1;
+    final int end = bOffset + length;
+    int pos = bOffset;
+    while (pos < end) {
+      // Gather the bits of the values falling in the current group of longs, then store each long once
+      final int count = Math.min(end - pos, BITS_PER_LONG - whichBit);
+      for (int b = 0; b < mBits; b++) {
+        final int shift = mBits - 1 - b;
+        long plane = 0;
+        for (int i = 0; i < count; i++) {
+          plane |= (long) ((data[pos + i] >>> shift) & 1) << (whichBit + i);
+        }
+        dataBitwiseOrSet(whichLong + b, plane);
       }
-      // now move along to the next bit
-      whichBit++;
+      pos += count;
+      // now move along to the next group
+      whichBit += count;
       if (whichBit == BITS_PER_LONG) {
         whichBit = 0;
         whichLong += mBits;
@@ -151,6 +151,7 @@ public final class FormatCli extends LoggedCli {
       mFlags.registerOptional(NO_NAMES, "do not include name data in the SDF output").setCategory(UTILITY);
       mFlags.registerOptional(COMPRESS_FLAG, Boolean.class, "BOOL", "compress sdf", Boolean.TRUE).setCategory(UTILITY);
       mFlags.registerOptional(DISABLE_DUPLICATE_DETECTOR, "disable checking for duplicate sequence names").setCategory(UTILITY);
+      CommonFlags.initThreadsFlag(mFlags);
       SamCommandHelper.initSamRg(mFlags, "ILLUMINA", UTILITY);
       final Flag inFlag = mFlags.registerRequired(File.class, CommonFlags.FILE, RESOURCE.getString("INPUT_DESC"));
       inFlag.setMinCount(0);
@@ -245,6 +246,9 @@ public final class FormatCli extends LoggedCli {
         flags.setParseMessage("--" + SELECT_READ_GROUP + " can only be used when formatting SAM/BAM");
         return false;
       }
+      if (!CommonFlags.validateThreads(flags)) {
+        return false;
+      }
       return true;
     }
   };
@@ -319,6 +323,7 @@ public final class FormatCli extends LoggedCli {
     private final String mSamReadGroup;
     private final SAMReadGroupRecord mReadGroupRecord;
     private Integer mReadTrimQualityThreshold = null;
+    private int mThreads = 1;
     private long mNumSequences = 0;
     private final boolean mDedupSecondary;
 
@@ -359,6 +364,30 @@ public final class FormatCli extends LoggedCli {
       mReadTrimQualityThreshold = threshold;
     }
 
+    /**
+     * When there are enough threads, input is parsed on a separate thread to the one writing the SDF.
+     * @param threads number of threads available
+     */
+    void setThreads(int threads) {
+      mThreads = threads;
+    }
+
+    /**
+     * Reading ahead needs a thread for each source in addition to the one writing it. It is not
+     * done for FASTA, where a single long sequence would be held in several copies.
+     * @param threads number of threads available
+     * @param sources number of sources being written at once
+     * @param format format of the input
+     * @return true if the sources should be read ahead
+     */
+    static boolean readAhead(int threads, int sources, InputFormat format) {
+      return format != InputFormat.FASTA && threads >= 2 * sources;
+    }
+
+    private SequenceDataSource readAhead(SequenceDataSource ds, int sources) {
+      return readAhead(mThreads, sources, mInputFormat) ? new ReadAheadSequenceDataSource(ds) : ds;
+    }
+
     private void formattingMessage(boolean paired) {
       Diagnostic.info(InformationType.INFO_USER, true, formattingMessage(paired, mInputFormat));
     }
@@ -399,12 +428,14 @@ public final class FormatCli extends LoggedCli {
         if (mInputFormat != InputFormat.FASTA) {
           throw new BadFormatCombinationException("Incompatible sequence type and file format. format=" + mInputFormat + " protein=" + mProtein);
         }
-        ds = new FastaSequenceDataSource(files, new ProteinFastaSymbolTable(), true, null);
-        ds.setDusting(mDusting);
+        final FastaSequenceDataSource fastaDs = new FastaSequenceDataSource(files, new ProteinFastaSymbolTable(), true, null);
+        fastaDs.setDusting(mDusting);
+        ds = readAhead(fastaDs, 1);
         writer = new SequencesWriter(ds, mOutDir, Constants.MAX_FILE_SIZE, mNamesToExclude, IndexFile.typeFromFormat(mInputFormat), mCompressed, mReadTrimQualityThreshold);
       } else {
-        ds = getDnaDataSource(files, mInputFormat, null, mMappedSam, false, mSamReadGroup, mDedupSecondary);
-        ds.setDusting(mDusting);
+        final SequenceDataSource dnaDs = getDnaDataSource(files, mInputFormat, null, mMappedSam, false, mSamReadGroup, mDedupSecondary);
+        dnaDs.setDusting(mDusting);
+        ds = readAhead(dnaDs, 1);
         if (mInputFormat == InputFormat.SAM_PE) {
           writer = new AlternatingSequencesWriter(ds, mOutDir, Constants.MAX_FILE_SIZE, mNamesToExclude, IndexFile.typeFromFormat(mInputFormat), mCompressed, mReadTrimQualityThreshold);
         } else {
@@ -430,10 +461,12 @@ public final class FormatCli extends LoggedCli {
     public void performPreread(File leftFile, File rightFile) throws IOException {
 
       formattingMessage(true);
-      final SequenceDataSource leftds = getDnaDataSource(Arrays.asList(leftFile), mInputFormat, PrereadArm.LEFT, mMappedSam, false, mSamReadGroup, mDedupSecondary);
-      final SequenceDataSource rightds = getDnaDataSource(Arrays.asList(rightFile), mInputFormat, PrereadArm.RIGHT, mMappedSam, false, mSamReadGroup, mDedupSecondary);
-      leftds.setDusting(mDusting);
-      rightds.setDusting(mDusting);
+      final SequenceDataSource leftSource = getDnaDataSource(Arrays.asList(leftFile), mInputFormat, PrereadArm.LEFT, mMappedSam, false, mSamReadGroup, mDedupSecondary);
+      final SequenceDataSource rightSource = getDnaDataSource(Arrays.asList(rightFile), mInputFormat, PrereadArm.RIGHT, mMappedSam, false, mSamReadGroup, mDedupSecondary);
+      leftSource.setDusting(mDusting);
+      rightSource.setDusting(mDusting);
+      final SequenceDataSource leftds = readAhead(leftSource, 2);
+      final SequenceDataSource rightds = readAhead(rightSource, 2);
 
       final SdfId sdfId = new SdfId();
       final PrereadType prereadType = IndexFile.typeFromFormat(mInputFormat);
@@ -675,6 +708,7 @@ public final class FormatCli extends LoggedCli {
             }
             pre.setReadTrimQualityThreshold((Integer) mFlags.getValue(READ_TRIM_FLAG));
           }
+          pre.setThreads(CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG)));
 
           if (files.size() == 0) {
             final File left = (File) mFlags.getValue(LEFT_FILE_FLAG);
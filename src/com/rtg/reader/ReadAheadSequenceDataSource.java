@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.reader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.rtg.mode.SequenceType;
+
+/**
+ * Reads the sequences of another source in batches. The next batch is parsed on another thread
+ * while the current batch is consumed, so that parsing overlaps with writing the sequences.
+ * Sequences are returned in the same order and with the same content as by the underlying source.
+ */
+final class ReadAheadSequenceDataSource implements SequenceDataSource {
+
+  /** Maximum number of sequences read at once */
+  static final int BATCH_SIZE = 1024;
+
+  /** Number of residues after which a batch is ended early, to bound memory with long sequences */
+  static final long BATCH_RESIDUES = 4 * 1024 * 1024;
+
+  private static final class Batch {
+    private final String[] mNames = new String[BATCH_SIZE];
+    private final byte[][] mData = new byte[BATCH_SIZE][];
+    private final byte[][] mQuality = new byte[BATCH_SIZE][];
+    private final int[] mLengths = new int[BATCH_SIZE];
+    private int mSize = 0;
+  }
+
+  private final SequenceDataSource mSource;
+  private final boolean mHasQuality;
+  private final ExecutorService mExecutor;
+
+  private Future<Batch> mPending = null;
+  private boolean mStarted = false;
+  private boolean mDone = false;
+  private Batch mBatch = null;
+  private int mPosition = -1;
+
+  /**
+   * @param source source to read sequences from, which should not be used directly after this
+   */
+  ReadAheadSequenceDataSource(SequenceDataSource source) {
+    mSource = source;
+    mHasQuality = source.hasQualityData();
+    mExecutor = Executors.newSingleThreadExecutor();
+  }
+
+  private final class BatchReader implements Callable<Batch> {
+    @Override
+    public Batch call() throws IOException {
+      return read();
+    }
+  }
+
+  // Read the next batch of sequences, an empty batch marks the end of the source
+  private Batch read() throws IOException {
+    final Batch batch = new Batch();
+    long residues = 0;
+    while (batch.mSize < BATCH_SIZE && residues < BATCH_RESIDUES && mSource.nextSequence()) {
+      final int i = batch.mSize++;
+      final int length = mSource.currentLength();
+      batch.mNames[i] = mSource.name();
+      batch.mLengths[i] = length;
+      batch.mData[i] = Arrays.copyOf(mSource.sequenceData(), length);
+      if (mHasQuality) {
+        // Keep the first quality value even of an empty sequence, as writers check it
+        final byte[] quality = mSource.qualityData();
+        batch.mQuality[i] = quality == null ? null : Arrays.copyOf(quality, Math.min(quality.length, Math.max(length, 1)));
+      }
+      residues += length;
+    }
+    return batch;
+  }
+
+  private Batch nextBatch() throws IOException {
+    final Batch batch;
+    try {
+      batch = mPending.get();
+    } catch (final InterruptedException e) {
+      throw new IOException("Interrupted while reading sequences", e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Error reading sequences", cause);
+    } finally {
+      mPending = null;
+    }
+    if (batch.mSize > 0) {
+      mPending = mExecutor.submit(new BatchReader());
+    }
+    return batch;
+  }
+
+  @Override
+  public boolean nextSequence() throws IOException {
+    if (!mStarted) {
+      // Not done on construction, so that the source can still be configured
+      mStarted = true;
+      mPending = mExecutor.submit(new BatchReader());
+    }
+    if (mDone) {
+      return false;
+    }
+    mPosition++;
+    if (mBatch == null || mPosition >= mBatch.mSize) {
+      mBatch = nextBatch();
+      mPosition = 0;
+      if (mBatch.mSize == 0) {
+        mBatch = null;
+        mDone = true;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void checkCurrent() {
+    if (mBatch == null) {
+      throw new IllegalStateException("No current sequence");
+    }
+  }
+
+  @Override
+  public int currentLength() {
+    checkCurrent();
+    return mBatch.mLengths[mPosition];
+  }
+
+  @Override
+  public String name() {
+    checkCurrent();
+    return mBatch.mNames[mPosition];
+  }
+
+  @Override
+  public byte[] sequenceData() {
+    checkCurrent();
+    return mBatch.mData[mPosition];
+  }
+
+  @Override
+  public byte[] qualityData() {
+    checkCurrent();
+    return mBatch.mQuality[mPosition];
+  }
+
+  @Override
+  public SequenceType type() {
+    return mSource.type();
+  }
+
+  @Override
+  public boolean hasQualityData() {
+    return mHasQuality;
+  }
+
+  @Override
+  public void setDusting(boolean val) {
+    if (mStarted) {
+      throw new IllegalStateException("Reading has already started");
+    }
+    mSource.setDusting(val);
+  }
+
+  // The remaining statistics are complete once all sequences have been read
+
+  @Override
+  public long getDusted() {
+    return mSource.getDusted();
+  }
+
+  @Override
+  public long getMaxLength() {
+    return mSource.getMaxLength();
+  }
+
+  @Override
+  public long getMinLength() {
+    return mSource.getMinLength();
+  }
+
+  @Override
+  public long getWarningCount() {
+    return mSource.getWarningCount();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (mPending != null) {
+        // Wait for any batch being read, so the source is not closed underneath it
+        try {
+          mPending.get();
+        } catch (final InterruptedException | ExecutionException e) {
+          // Unread sequences are not wanted
+        }
+        mPending = null;
+      }
+      mSource.close();
+    } finally {
+      mExecutor.shutdownNow();
+    }
+  }
+}
@@ -82,6 +82,24 @@ public final class SequencesReaderFactory {
     return CompressedMemorySequencesReader.createSequencesReader(dir, loadNames, loadFullNames, region);
   }
 
+  /**
+   * Constructs a reader which memory maps the sequence and quality data of the SDF rather than
+   * holding it on the heap. SDFs without compressed encoding are loaded into memory instead.
+   *
+   * @param dir the SDF directory
+   * @param loadNames whether to load names from disk or not
+   * @param loadFullNames whether to load full names from disk or not
+   * @param region range of sequences to load
+   * @return a <code>SequencesReader</code>
+   * @throws IOException if another I/O related error occurs
+   */
+  public static SequencesReader createMappedSequencesReader(final File dir, final boolean loadNames, boolean loadFullNames, LongRange region) throws IOException {
+    if (dir == null) {
+      return null;
+    }
+    return CompressedMemorySequencesReader.createSequencesReader(dir, loadNames, loadFullNames, region, true);
+  }
+
   /**
    * Constructs a <code>DefaultSequencesReader</code>.
    * Checks if the resulting reader has no sequences.
@@ -48,19 +48,20 @@ public final class BamIndexer {
 
   /**
    * Creates a BAM index from given BAM stream
-   * @param bam BAM stream to index
+   * @param bam BAM stream to index, closed on return
    * @return the BAM index
    * @throws IOException If an IO error occurs
    * @throws UnindexableDataException If data cannot be indexed because of properties of the data
    */
   public static SequenceIndexContainer createBamIndex(final InputStream bam) throws IOException, UnindexableDataException {
-    final BamReader input = new BamReader(bam);
-    return createBamIndexInternal(input, input.numReferences(), true);
+    try (BamReader input = new BamReader(bam)) {
+      return createBamIndexInternal(input, input.numReferences(), true);
+    }
   }
 
   /**
    * Creates a BAM index from given BAM stream
-   * @param bam BAM stream to index
+   * @param bam BAM stream to index, closed on return
    * @param expectHeader whether BAM file being read contains a header
    * @param numReferences number of reference sequences
    * @return the BAM index
@@ -68,8 +69,9 @@ public final class BamIndexer {
    * @throws UnindexableDataException If data cannot be indexed because of properties of the data
    */
   public static SequenceIndexContainer createBamIndexNoHeader(final InputStream bam, boolean expectHeader, int numReferences) throws IOException, UnindexableDataException {
-    final BamReader input = new BamReader(new BgzfInputStream(bam), expectHeader);
-    return createBamIndexInternal(input, numReferences, false);
+    try (BamReader input = new BamReader(new BgzfInputStream(bam, BgzfInputStream.threads()), expectHeader)) {
+      return createBamIndexInternal(input, numReferences, false);
+    }
   }
 
   private static SequenceIndexContainer createBamIndex(File bamFile) throws IOException, UnindexableDataException {
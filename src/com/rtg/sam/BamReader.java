@@ -113,7 +113,7 @@ public class BamReader extends SamBamReader {
    * @throws IOException If an IO error occurs
    */
   public BamReader(final File input) throws IOException {
-    this(new BgzfInputStream(input), true);
+    this(new BgzfInputStream(input, BgzfInputStream.threads()), true);
   }
 
   /**
@@ -122,7 +122,7 @@ public class BamReader extends SamBamReader {
    * @throws IOException If an IO error occurs
    */
   public BamReader(final InputStream input) throws IOException {
-    this(new BgzfInputStream(input), true);
+    this(new BgzfInputStream(input, BgzfInputStream.threads()), true);
   }
 
   /**
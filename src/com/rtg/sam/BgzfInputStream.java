@@ -17,54 +17,160 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import com.rtg.util.Environment;
 import com.rtg.util.io.ByteArrayIOUtils;
 
 /**
- * Simple BAM reader
+ * Simple BAM reader. Since <code>BGZF</code> blocks are compressed independently, blocks can
+ * optionally be read ahead and inflated on a pool of threads shared by all streams, they are
+ * still delivered in file order and the block offsets are unaffected.
  */
 public class BgzfInputStream extends InputStream {
   private static final int MAX_BGZF_BLOCK = 65535;
 
+  /** Number of compressed blocks to keep queued for each inflating thread */
+  private static final int READ_AHEAD_PER_THREAD = 4;
+
+  /** Maximum number of compressed blocks one stream keeps queued */
+  private static final int MAX_READ_AHEAD = 16;
+
+  private static int sThreads = Environment.defaultThreads();
+
+  private static ThreadPoolExecutor sExecutor = null;
+
+  /**
+   * Set the number of threads shared by all streams for inflating blocks, normally the
+   * number of threads the user has allowed for the command.
+   * @param threads number of inflating threads
+   */
+  public static synchronized void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads: " + threads);
+    }
+    sThreads = threads;
+    if (sExecutor != null) {
+      // Keep the core size no larger than the maximum while resizing
+      if (threads > sExecutor.getMaximumPoolSize()) {
+        sExecutor.setMaximumPoolSize(threads);
+        sExecutor.setCorePoolSize(threads);
+      } else {
+        sExecutor.setCorePoolSize(threads);
+        sExecutor.setMaximumPoolSize(threads);
+      }
+    }
+  }
+
+  /**
+   * @return the number of threads shared by all streams for inflating blocks
+   */
+  public static synchronized int threads() {
+    return sThreads;
+  }
+
+  private static synchronized ThreadPoolExecutor executor() {
+    if (sExecutor == null) {
+      sExecutor = new ThreadPoolExecutor(sThreads, sThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          final Thread t = new Thread(r, "BgzfInflate");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return sExecutor;
+  }
+
   private final byte[] mIOBuf;
-  private byte[] mUncompressBuf;
   private final InputStream mInputStream;
 
   private long mBlockStartPos;
   private long mBlockEndPos;
   private BgzfBlock mCurrentBlock;
-  private Inflater mInflater;
-  private final CRC32 mCrc;
+  private byte[] mUncompressBuf;
+
+  private final ExecutorService mExecutor;
+  private final int mReadAhead;
+  private final ArrayDeque<Future<BgzfBlock>> mPending;
+  private final ArrayDeque<BgzfBlock> mFree;
+  private final List<BgzfBlock> mBlocks = new ArrayList<>();
+  private long mNextBlockPos;
+  private boolean mInputDone;
 
   private int mDataPosition;
   private int mDataLength;
 
   /**
-   * Constructs from stream
+   * Constructs from stream, inflating on the calling thread
    * @param input the stream to read from
    */
   public BgzfInputStream(InputStream input) {
+    this(input, 1);
+  }
+
+  /**
+   * Constructs from stream
+   * @param input the stream to read from
+   * @param threads number of the shared inflating threads to keep busy with blocks read ahead, if 1 or less blocks are inflated on the calling thread
+   */
+  public BgzfInputStream(InputStream input, int threads) {
     mInputStream = input;
-    mCurrentBlock = new BgzfBlock();
-    mCurrentBlock.mData = new byte[MAX_BGZF_BLOCK];
-    mInflater = new Inflater(true);
+    mCurrentBlock = newBlock();
     mIOBuf = new byte[4096];
-    mUncompressBuf = new byte[MAX_BGZF_BLOCK * 2];
+    mUncompressBuf = mCurrentBlock.mUncompressed;
     mBlockEndPos = 0;
     mBlockStartPos = 0;
-    mCrc = new CRC32();
+    if (threads > 1) {
+      mExecutor = executor();
+      mReadAhead = Math.min(MAX_READ_AHEAD, threads * READ_AHEAD_PER_THREAD);
+      mPending = new ArrayDeque<>(mReadAhead);
+      mFree = new ArrayDeque<>(mReadAhead);
+    } else {
+      mExecutor = null;
+      mReadAhead = 0;
+      mPending = null;
+      mFree = null;
+    }
   }
 
   /**
-   * Constructs from file
+   * Constructs from file, inflating on the calling thread
    * @param bamFile file to read from
    * @throws FileNotFoundException if file not found
    */
   public BgzfInputStream(File bamFile) throws FileNotFoundException {
-    this(new FileInputStream(bamFile));
+    this(bamFile, 1);
+  }
+
+  /**
+   * Constructs from file
+   * @param bamFile file to read from
+   * @param threads number of the shared inflating threads to keep busy with blocks read ahead, if 1 or less blocks are inflated on the calling thread
+   * @throws FileNotFoundException if file not found
+   */
+  public BgzfInputStream(File bamFile, int threads) throws FileNotFoundException {
+    this(new FileInputStream(bamFile), threads);
+  }
+
+  private BgzfBlock newBlock() {
+    final BgzfBlock block = new BgzfBlock();
+    mBlocks.add(block);
+    return block;
   }
 
   /**
@@ -91,8 +197,7 @@ public class BgzfInputStream extends InputStream {
 
   @Override
   public int read() throws IOException {
-    final int remaining = mDataLength - mDataPosition;
-    if (remaining == 0) {
+    while (mDataPosition == mDataLength) {
       if (!readBlock()) {
         return -1;
       }
@@ -130,8 +235,11 @@ public class BgzfInputStream extends InputStream {
   }
 
   private boolean readBlock() throws IOException {
-    mBlockStartPos = mBlockEndPos;
     mDataPosition = 0;
+    if (mExecutor != null) {
+      return nextInflatedBlock();
+    }
+    mBlockStartPos = mBlockEndPos;
     final int len = readBgzfBlock(mInputStream, mIOBuf, mCurrentBlock);
     if (len == -1) {
       mBlockEndPos = mBlockStartPos;
@@ -139,16 +247,59 @@ public class BgzfInputStream extends InputStream {
       return false;
     }
     mBlockEndPos += len;
-    mUncompressBuf = inflate(mInflater, mCurrentBlock.mData, mUncompressBuf, mCurrentBlock.mInputSize);
-    mCrc.reset();
-    mCrc.update(mUncompressBuf, 0, mCurrentBlock.mInputSize);
-    if (((long) mCurrentBlock.mCrc & 0xFFFFFFFFL) != mCrc.getValue()) {
-      throw new IOException("Crc doesn't match block");
+    mCurrentBlock.inflate();
+    mUncompressBuf = mCurrentBlock.mUncompressed;
+    mDataLength = mCurrentBlock.mInputSize;
+    return true;
+  }
+
+  // Take the next block from the read ahead queue, topping the queue up first so the
+  // inflating threads stay busy while this block is consumed
+  private boolean nextInflatedBlock() throws IOException {
+    if (mCurrentBlock != null) {
+      mFree.push(mCurrentBlock);
+      mCurrentBlock = null;
     }
+    fillReadAhead();
+    final Future<BgzfBlock> next = mPending.poll();
+    if (next == null) {
+      mBlockStartPos = mBlockEndPos;
+      mDataLength = 0;
+      return false;
+    }
+    try {
+      mCurrentBlock = next.get();
+    } catch (final InterruptedException e) {
+      throw new IOException("Interrupted while inflating BGZF block", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Invalid BGZF file", e.getCause());
+    }
+    mBlockStartPos = mCurrentBlock.mStartPos;
+    mBlockEndPos = mCurrentBlock.mEndPos;
+    mUncompressBuf = mCurrentBlock.mUncompressed;
     mDataLength = mCurrentBlock.mInputSize;
     return true;
   }
 
+  private void fillReadAhead() throws IOException {
+    while (!mInputDone && mPending.size() < mReadAhead) {
+      final BgzfBlock block = mFree.isEmpty() ? newBlock() : mFree.pop();
+      final int len = readBgzfBlock(mInputStream, mIOBuf, block);
+      if (len == -1) {
+        mInputDone = true;
+        mFree.push(block);
+        break;
+      }
+      block.mStartPos = mNextBlockPos;
+      mNextBlockPos += len;
+      block.mEndPos = mNextBlockPos;
+      mPending.add(mExecutor.submit(block));
+    }
+  }
+
   private static byte[] inflate(Inflater inf, byte[] input, byte[] dest, int size) throws IOException {
     inf.reset();
     inf.setInput(input);
@@ -228,10 +379,39 @@ public class BgzfInputStream extends InputStream {
    */
   @Override
   public void close() throws IOException {
-    mInputStream.close();
+    try {
+      mInputStream.close();
+    } finally {
+      // Blocks still queued are dropped, those being inflated must finish before their inflaters can be released
+      boolean interrupted = false;
+      if (mPending != null) {
+        for (final Future<BgzfBlock> f : mPending) {
+          if (!f.cancel(false)) {
+            while (true) {
+              try {
+                f.get();
+                break;
+              } catch (final InterruptedException e) {
+                interrupted = true;
+              } catch (final ExecutionException e) {
+                break;
+              }
+            }
+          }
+        }
+        mPending.clear();
+      }
+      for (final BgzfBlock b : mBlocks) {
+        b.end();
+      }
+      mBlocks.clear();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
-  private static class BgzfBlock {
+  private static class BgzfBlock implements Callable<BgzfBlock> {
     //section 1, 12 bytes long
     //byte mGzId1;
     //byte mGzId2;
@@ -252,5 +432,36 @@ public class BgzfInputStream extends InputStream {
     //8 long
     int mCrc;
     int mInputSize;
+
+    //position of the block in the compressed stream
+    long mStartPos;
+    long mEndPos;
+
+    final Inflater mInflater = new Inflater(true);
+    final CRC32 mCrc32 = new CRC32();
+    byte[] mUncompressed = new byte[MAX_BGZF_BLOCK * 2];
+
+    BgzfBlock() {
+      mData = new byte[MAX_BGZF_BLOCK];
+    }
+
+    void inflate() throws IOException {
+      mUncompressed = BgzfInputStream.inflate(mInflater, mData, mUncompressed, mInputSize);
+      mCrc32.reset();
+      mCrc32.update(mUncompressed, 0, mInputSize);
+      if (((long) mCrc & 0xFFFFFFFFL) != mCrc32.getValue()) {
+        throw new IOException("Crc doesn't match block");
+      }
+    }
+
+    @Override
+    public BgzfBlock call() throws IOException {
+      inflate();
+      return this;
+    }
+
+    void end() {
+      mInflater.end();
+    }
   }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import com.rtg.util.io.ByteArrayIOUtils;
+
+import net.sf.samtools.BAMRecord;
+import net.sf.samtools.SAMReadGroupRecord;
+import net.sf.samtools.SAMRecord;
+
+/**
+ * Field level access to the undecoded variable length data of a record read from a BAM file.
+ * Picard decodes the bases, qualities, CIGAR and attributes of a BAM record lazily into
+ * separate objects, this lets record populators build their own representation straight
+ * from the binary data instead. Values are the same as those returned by the corresponding
+ * <code>SAMRecord</code> methods.
+ */
+public final class RawBamRecord {
+
+  private static final boolean DIRECT_DECODE = true; //Boolean.valueOf(System.getProperty("rtg.direct-bam-decode", "true"));
+
+  private static final byte[] BASE_CODES = "=ACMGRSVTWYHKDBN".getBytes();
+  private static final char[] CIGAR_CODES = SamUtils.getCigarCodes();
+  private static final byte[] EMPTY = {};
+
+  /**
+   * Get direct access to the binary data of a record.
+   * @param record the record
+   * @return the raw view, or null if the record did not come from a BAM file or has been modified
+   */
+  public static RawBamRecord wrap(final SAMRecord record) {
+    if (DIRECT_DECODE && record instanceof BAMRecord) {
+      final byte[] data = ((BAMRecord) record).getVariableBinaryRepresentation();
+      if (data != null) {
+        return new RawBamRecord(record, data);
+      }
+    }
+    return null;
+  }
+
+  private final SAMRecord mRecord;
+  private final byte[] mData;
+  private final int mReadLength;
+  private final int mCigarLength;
+  private final int mCigarOffset;
+  private final int mBasesOffset;
+  private final int mQualitiesOffset;
+  private final int mAttributesOffset;
+
+  private RawBamRecord(final SAMRecord record, final byte[] data) {
+    mRecord = record;
+    mData = data;
+    mReadLength = record.getReadLength();
+    mCigarLength = record.getCigarLength();
+    mCigarOffset = record.getReadNameLength() + 1;
+    mBasesOffset = mCigarOffset + mCigarLength * 4;
+    mQualitiesOffset = mBasesOffset + (mReadLength + 1) / 2;
+    mAttributesOffset = mQualitiesOffset + mReadLength;
+  }
+
+  /**
+   * @return the underlying record, for the fixed length fields
+   */
+  public SAMRecord getRecord() {
+    return mRecord;
+  }
+
+  /**
+   * @return the read bases as upper case ASCII
+   */
+  public byte[] getReadBases() {
+    if (mReadLength == 0) {
+      return EMPTY;
+    }
+    final byte[] res = new byte[mReadLength];
+    for (int i = 0; i < mReadLength; i++) {
+      final int b = mData[mBasesOffset + (i >> 1)];
+      res[i] = BASE_CODES[(i & 1) == 0 ? (b >> 4) & 0xF : b & 0xF];
+    }
+    return res;
+  }
+
+  /**
+   * Get the base qualities with an offset added to each, for example to produce ASCII phred values.
+   * @param offset value added to each quality
+   * @return the qualities, or an empty array if the record has no qualities
+   */
+  public byte[] getBaseQualities(final int offset) {
+    if (mReadLength == 0 || mData[mQualitiesOffset] == (byte) 0xFF) {
+      return EMPTY;
+    }
+    final byte[] res = new byte[mReadLength];
+    for (int i = 0; i < mReadLength; i++) {
+      res[i] = (byte) (mData[mQualitiesOffset + i] + offset);
+    }
+    return res;
+  }
+
+  /**
+   * @return number of operations in the CIGAR
+   */
+  public int getCigarLength() {
+    return mCigarLength;
+  }
+
+  /**
+   * @param index operation index
+   * @return the SAM character for the operation
+   */
+  public char getCigarOperation(final int index) {
+    return CIGAR_CODES[ByteArrayIOUtils.bytesToIntLittleEndian(mData, mCigarOffset + index * 4) & 0xF];
+  }
+
+  /**
+   * @param index operation index
+   * @return the length of the operation
+   */
+  public int getCigarOperationLength(final int index) {
+    return ByteArrayIOUtils.bytesToIntLittleEndian(mData, mCigarOffset + index * 4) >>> 4;
+  }
+
+  /**
+   * @return the CIGAR as a string, <code>*</code> if empty
+   */
+  public String getCigarString() {
+    if (mCigarLength == 0) {
+      return "*";
+    }
+    final StringBuilder sb = new StringBuilder(mCigarLength * 4);
+    for (int i = 0; i < mCigarLength; i++) {
+      sb.append(getCigarOperationLength(i)).append(getCigarOperation(i));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the 1-based inclusive alignment end, 0 if the read is unmapped
+   */
+  public int getAlignmentEnd() {
+    if (mRecord.getReadUnmappedFlag()) {
+      return SAMRecord.NO_ALIGNMENT_START;
+    }
+    int refLength = 0;
+    for (int i = 0; i < mCigarLength; i++) {
+      switch (getCigarOperation(i)) {
+        case SamUtils.CIGAR_SAME_OR_MISMATCH:
+        case SamUtils.CIGAR_DELETION_FROM_REF:
+        case SamUtils.CIGAR_GAP_IN_READ:
+        case SamUtils.CIGAR_SAME:
+        case SamUtils.CIGAR_MISMATCH:
+          refLength += getCigarOperationLength(i);
+          break;
+        default:
+          break;
+      }
+    }
+    return mRecord.getAlignmentStart() + refLength - 1;
+  }
+
+  // Position of the type code of the attribute with the given tag, or -1 if not present
+  private int findAttribute(final String tag) {
+    final byte t1 = (byte) tag.charAt(0);
+    final byte t2 = (byte) tag.charAt(1);
+    int pos = mAttributesOffset;
+    while (pos < mData.length) {
+      final boolean found = mData[pos] == t1 && mData[pos + 1] == t2;
+      pos += 2;
+      if (found) {
+        return pos;
+      }
+      pos = skipValue(pos);
+    }
+    return -1;
+  }
+
+  private int skipValue(final int typePos) {
+    final char type = (char) mData[typePos];
+    switch (type) {
+      case 'A':
+      case 'c':
+      case 'C':
+        return typePos + 2;
+      case 's':
+      case 'S':
+        return typePos + 3;
+      case 'i':
+      case 'I':
+      case 'f':
+        return typePos + 5;
+      case 'Z':
+      case 'H':
+        int pos = typePos + 1;
+        while (mData[pos] != 0) {
+          pos++;
+        }
+        return pos + 1;
+      case 'B':
+        final int count = ByteArrayIOUtils.bytesToIntLittleEndian(mData, typePos + 2);
+        return typePos + 6 + count * elementSize((char) mData[typePos + 1]);
+      default:
+        throw new SamRecordException("Invalid BAM attribute field type: " + type);
+    }
+  }
+
+  private static int elementSize(final char type) {
+    switch (type) {
+      case 'c':
+      case 'C':
+        return 1;
+      case 's':
+      case 'S':
+        return 2;
+      case 'i':
+      case 'I':
+      case 'f':
+        return 4;
+      default:
+        throw new SamRecordException("Invalid BAM array attribute type: " + type);
+    }
+  }
+
+  /**
+   * @param tag two character attribute tag
+   * @return the string value of the attribute, or null if not present
+   */
+  public String getStringAttribute(final String tag) {
+    final int pos = findAttribute(tag);
+    if (pos == -1) {
+      return null;
+    }
+    if (mData[pos] != 'Z') {
+      return mRecord.getStringAttribute(tag); // let picard handle (or reject) other types
+    }
+    int end = pos + 1;
+    while (mData[end] != 0) {
+      end++;
+    }
+    return new String(mData, pos + 1, end - pos - 1);
+  }
+
+  /**
+   * @param tag two character attribute tag
+   * @return the integer value of the attribute, or null if not present
+   */
+  public Integer getIntegerAttribute(final String tag) {
+    final int pos = findAttribute(tag);
+    if (pos == -1) {
+      return null;
+    }
+    switch ((char) mData[pos]) {
+      case 'c':
+        return (int) mData[pos + 1];
+      case 'C':
+        return mData[pos + 1] & 0xFF;
+      case 's':
+        return (int) (short) ByteArrayIOUtils.bytesToShortLittleEndian(mData, pos + 1);
+      case 'S':
+        return ByteArrayIOUtils.bytesToShortLittleEndian(mData, pos + 1);
+      case 'i':
+        return ByteArrayIOUtils.bytesToIntLittleEndian(mData, pos + 1);
+      case 'I':
+        final int u = ByteArrayIOUtils.bytesToIntLittleEndian(mData, pos + 1);
+        if (u >= 0) {
+          return u;
+        }
+        return mRecord.getIntegerAttribute(tag); // out of range
+      default:
+        return mRecord.getIntegerAttribute(tag); // let picard handle (or reject) other types
+    }
+  }
+
+  /**
+   * @return the value of the <code>NH</code> attribute if present, otherwise the value of <code>IH</code>
+   */
+  public Integer getNHOrIH() {
+    final Integer nh = getIntegerAttribute(SamUtils.ATTRIBUTE_NH);
+    if (nh != null) {
+      return nh;
+    }
+    return getIntegerAttribute(SamUtils.ATTRIBUTE_IH);
+  }
+
+  /**
+   * @return the read group from the header corresponding to the <code>RG</code> attribute, or null
+   */
+  public SAMReadGroupRecord getReadGroup() {
+    final String id = getStringAttribute(ReadGroupUtils.RG_ATTRIBUTE);
+    return id == null ? null : mRecord.getHeader().getReadGroup(id);
+  }
+}
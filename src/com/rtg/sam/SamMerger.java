@@ -26,13 +26,13 @@ import com.rtg.tabix.TabixIndexer;
 import com.rtg.util.SingletonPopulatorFactory;
 import com.rtg.util.StringUtils;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.io.ParallelBlockCompressedOutputStream;
 import com.rtg.variant.SamRecordPopulator;
 
 import net.sf.samtools.SAMFileHeader;
 import net.sf.samtools.SAMFileWriter;
 import net.sf.samtools.SAMFileWriterFactory;
 import net.sf.samtools.SAMRecord;
-import net.sf.samtools.util.BlockCompressedOutputStream;
 
 /**
  */
@@ -165,7 +165,7 @@ public class SamMerger {
     final OutputStream intStream = streamHandler.createStreamsAndStartThreads(header != null ? header.getSequenceDictionary().size() : -1, writeHeader, terminateBlockGzip);
     final SAMFileWriter writer;
     if (outputBam) {
-      writer = new SAMFileWriterFactory().makeBAMWriter(header, true, new BlockCompressedOutputStream(intStream, null, GZIP_LEVEL, terminateBlockGzip), writeHeader, false /* ignored */, true);
+      writer = new SAMFileWriterFactory().makeBAMWriter(header, true, new ParallelBlockCompressedOutputStream(intStream, GZIP_LEVEL, terminateBlockGzip), writeHeader, false /* ignored */, true);
     } else {
       writer = new SAMFileWriterFactory().makeSAMWriter(header, true, intStream, writeHeader);
     }
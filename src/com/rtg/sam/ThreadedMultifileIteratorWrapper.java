@@ -15,6 +15,7 @@ package com.rtg.sam;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.NoSuchElementException;
 
 import com.rtg.util.PopulatorFactory;
 import com.rtg.util.intervals.RangeList;
@@ -68,7 +69,7 @@ public class ThreadedMultifileIteratorWrapper<T extends ReaderRecord<T> & MateIn
    * Set the current reference sequence index
    * @param index reference sequence index
    */
-  public void setSequenceId(int index) {
+  public synchronized void setSequenceId(int index) {
     assert index > mSequenceId : index + " > " + mSequenceId; //incoming index should always be greater than previous index
     mSequenceId = index;
     while (mNext != null && index != mNext.getSequenceId() && index > mNext.getSequenceId()) { //update mNext until we get to next sequence
@@ -82,7 +83,7 @@ public class ThreadedMultifileIteratorWrapper<T extends ReaderRecord<T> & MateIn
   }
 
   @Override
-  public boolean hasNext() {
+  public synchronized boolean hasNext() {
     if (mSequenceId < 0) {
       throw new IllegalStateException("reference is not set");
     }
@@ -90,7 +91,7 @@ public class ThreadedMultifileIteratorWrapper<T extends ReaderRecord<T> & MateIn
   }
 
   @Override
-  public T next() {
+  public synchronized T next() {
     final T res = mNext;
     if (mIterator.hasNext()) {
       mNext = mIterator.next();
@@ -156,8 +157,96 @@ public class ThreadedMultifileIteratorWrapper<T extends ReaderRecord<T> & MateIn
    * Get the ranges applying to the current region
    * @return the ranges.
    */
-  public RangeList<String> getCurrentRangeList() {
+  public synchronized RangeList<String> getCurrentRangeList() {
     return mCurrentRangeList;
   }
 
+  /**
+   * Get a view of the records for a single reference sequence. The view only returns records while this
+   * wrapper is positioned on that sequence, so a reader still finishing one sequence cannot take records
+   * from the following sequence once it has been selected with <code>setSequenceId</code>.
+   * Closing the view does not close this wrapper.
+   * @param index reference sequence index
+   * @return records of the sequence
+   */
+  public RecordIterator<T> sequenceIterator(final int index) {
+    return new SequenceIterator(index);
+  }
+
+  private class SequenceIterator implements RecordIterator<T> {
+    private final int mIndex;
+    private T mPending = null;
+
+    SequenceIterator(final int index) {
+      mIndex = index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (mPending == null) {
+        // Check and take under the one lock so the wrapper cannot move on to another sequence in between
+        synchronized (ThreadedMultifileIteratorWrapper.this) {
+          if (mSequenceId == mIndex && ThreadedMultifileIteratorWrapper.this.hasNext()) {
+            mPending = ThreadedMultifileIteratorWrapper.this.next();
+          }
+        }
+      }
+      return mPending != null;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final T res = mPending;
+      mPending = null;
+      return res;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public SAMFileHeader header() {
+      return ThreadedMultifileIteratorWrapper.this.header();
+    }
+
+    @Override
+    public long getInvalidRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getInvalidRecordsCount();
+    }
+
+    @Override
+    public long getFilteredRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getFilteredRecordsCount();
+    }
+
+    @Override
+    public long getDuplicateRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getDuplicateRecordsCount();
+    }
+
+    @Override
+    public long getOutputRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getOutputRecordsCount();
+    }
+
+    @Override
+    public long getTotalRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getTotalRecordsCount();
+    }
+
+    @Override
+    public long getTotalNucleotides() {
+      return ThreadedMultifileIteratorWrapper.this.getTotalNucleotides();
+    }
+  }
+
 }
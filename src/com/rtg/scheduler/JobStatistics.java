@@ -25,4 +25,10 @@ public interface JobStatistics<J extends JobId<? extends JobId<?>>> {
    */
   void increment(J id, long nanoTime);
 
+  /**
+   * Record time spent by a worker waiting to acquire the scheduler lock.
+   * @param nanoTime time in nanoseconds spent waiting.
+   */
+  void lockWait(long nanoTime);
+
 }
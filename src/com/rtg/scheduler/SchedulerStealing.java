@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.scheduler;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Scheduler that hands out runnable jobs in batches to per thread queues.
+ * The bookkeeping of dependencies, results and look ahead is done by an underlying
+ * <code>SchedulerSynchronized</code> and needs its lock. However, when a thread acquires the lock
+ * with nothing queued it takes several runnable jobs at once, and requests for additional work
+ * are satisfied from the thread's own queue, or by stealing from the queue of another thread,
+ * without taking the lock at all. Jobs taken from the underlying scheduler count as active
+ * for look ahead purposes while they are queued, so the look ahead limits are unchanged.
+ * @param <J> the type of the job identifiers.
+ */
+public class SchedulerStealing<J extends JobId<J>> implements Scheduler<J> {
+
+  /** Default number of jobs handed to a thread at once */
+  public static final int DEFAULT_BATCH = 2;
+
+  private final SchedulerSynchronized<J> mScheduler;
+
+  private final JobStatistics<J> mStatistics;
+
+  private final int mBatch;
+
+  private final List<ConcurrentLinkedDeque<Job<J>>> mQueues = new CopyOnWriteArrayList<>();
+
+  private final ThreadLocal<ConcurrentLinkedDeque<Job<J>>> mLocal = new ThreadLocal<ConcurrentLinkedDeque<Job<J>>>() {
+    @Override
+    protected ConcurrentLinkedDeque<Job<J>> initialValue() {
+      final ConcurrentLinkedDeque<Job<J>> queue = new ConcurrentLinkedDeque<>();
+      mQueues.add(queue);
+      return queue;
+    }
+  };
+
+  /**
+   * @param dependencies computes the dependencies between job identifiers and converts them to
+   * @param factory converts {@link JobId}s to runnable jobs.
+   * @param eventList event list to use for scheduling jobs that have their parameters available (will be tailored to the particular job types).
+   * @param trace if non-null then trace the job identifiers of each job as they are started and finished.
+   * @param statistics record statistics about execution of jobs (if non-null).
+   * @param lookAhead number of chunks ahead of the earliest time that chunks can be scheduled.
+   * @param batch maximum number of jobs handed to a thread at once.
+   */
+  public SchedulerStealing(final Dependencies<J> dependencies, final JobFactory<J> factory, final EventList<J> eventList, final PrintStream trace, final JobStatistics<J> statistics, final int lookAhead, final int batch) {
+    if (batch < 1) {
+      throw new IllegalArgumentException("Invalid batch size: " + batch);
+    }
+    mScheduler = new SchedulerSynchronized<>(dependencies, factory, eventList, trace, statistics, lookAhead);
+    mStatistics = statistics;
+    mBatch = batch;
+  }
+
+  @Override
+  public LookAhead lookAhead() {
+    return mScheduler.lookAhead();
+  }
+
+  @Override
+  public boolean checkEmpty() {
+    for (final ConcurrentLinkedDeque<Job<J>> queue : mQueues) {
+      Exam.assertTrue(queue.isEmpty());
+    }
+    synchronized (mScheduler) {
+      return mScheduler.checkEmpty();
+    }
+  }
+
+  @Override
+  public Job<J> doneNext(J id, Result result, long nanoTime) {
+    final ConcurrentLinkedDeque<Job<J>> queue = mLocal.get();
+    if (id == null) {
+      final Job<J> job = poll(queue);
+      if (job != null) {
+        return job;
+      }
+    }
+    final long t0 = System.nanoTime();
+    synchronized (mScheduler) {
+      if (mStatistics != null) {
+        mStatistics.lockWait(System.nanoTime() - t0);
+      }
+      mScheduler.done(id, result, nanoTime);
+      if (queue.isEmpty()) {
+        for (int i = 0; i < mBatch; i++) {
+          final Job<J> job = mScheduler.next();
+          if (job == null) {
+            break;
+          }
+          queue.addLast(job);
+        }
+      }
+    }
+    return poll(queue);
+  }
+
+  // Oldest job from own queue, otherwise steal the newest job from another thread's queue
+  private Job<J> poll(final ConcurrentLinkedDeque<Job<J>> queue) {
+    final Job<J> job = queue.pollFirst();
+    if (job != null) {
+      return job;
+    }
+    for (final ConcurrentLinkedDeque<Job<J>> other : mQueues) {
+      if (other != queue) {
+        final Job<J> stolen = other.pollLast();
+        if (stolen != null) {
+          return stolen;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -142,7 +142,25 @@ public class SchedulerSynchronized<J extends JobId<J>> implements Scheduler<J>,
   }
 
   @Override
-  public synchronized Job<J> doneNext(J id, Result result, long nanoTime) {
+  public Job<J> doneNext(J id, Result result, long nanoTime) {
+    final long t0 = System.nanoTime();
+    synchronized (this) {
+      if (mStatistics != null) {
+        mStatistics.lockWait(System.nanoTime() - t0);
+      }
+      done(id, result, nanoTime);
+      return next();
+    }
+  }
+
+  /**
+   * Record the completion of a job. Caller must hold the lock on this scheduler.
+   * @param id the unique identifier of the job that has just completed (or if null a request for additional work).
+   * @param result the result of executing the job uniquely identified by <code>id</code>.
+   * @param nanoTime number of nanoseconds taken to run the job.
+   */
+  void done(J id, Result result, long nanoTime) {
+    assert Thread.holdsLock(this);
     if (mStatistics != null && id != null) {
       mStatistics.increment(id, nanoTime);
     }
@@ -165,6 +183,14 @@ public class SchedulerSynchronized<J extends JobId<J>> implements Scheduler<J>,
       }
       mLookAhead.decrement(id.time());
     }
+  }
+
+  /**
+   * Get another job to be executed. Caller must hold the lock on this scheduler.
+   * @return a new job to be executed (or null if none are available).
+   */
+  Job<J> next() {
+    assert Thread.holdsLock(this);
     final Job<J> runnableJob = getRunnableJob();
     if (runnableJob != null) {
       mRunning.add(runnableJob.id());
@@ -57,6 +57,10 @@ public class BuildSearchParams extends ModuleParams implements Integrity {
 
     protected boolean mUniqueWords;
 
+    protected int mNumberThreads = 1;
+
+    protected int mMaxHashSequences = 0;
+
     /**
      * Sets the program mode.
      * @param mode program mode.
@@ -77,6 +81,26 @@ public class BuildSearchParams extends ModuleParams implements Integrity {
       return this;
     }
 
+    /**
+     * Sets the number of threads.
+     * @param numberThreads number of threads to use in processing
+     * @return this builder, so calls can be chained.
+     */
+    public BuildSearchParamsBuilder numberThreads(int numberThreads) {
+      mNumberThreads = numberThreads;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of sequences a hash may occur in before it is ignored.
+     * @param maxHashSequences the maximum number of sequences, or 0 for no limit.
+     * @return this builder, so calls can be chained.
+     */
+    public BuildSearchParamsBuilder maxHashSequences(int maxHashSequences) {
+      mMaxHashSequences = maxHashSequences;
+      return this;
+    }
+
     /**
      * Sets the parameters for doing create and build.
      * @param build the build parameters.
@@ -137,6 +161,10 @@ public class BuildSearchParams extends ModuleParams implements Integrity {
 
   private final boolean mUniqueWords;
 
+  private final int mNumberThreads;
+
+  private final int mMaxHashSequences;
+
   /**
    * Create a set of parameters to use from the builder.
    * @param builder the builder object.
@@ -148,6 +176,8 @@ public class BuildSearchParams extends ModuleParams implements Integrity {
     mSequenceParams = builder.mSequenceParams;
     mCountParams = builder.mCountParams;
     mUniqueWords = builder.mUniqueWords;
+    mNumberThreads = builder.mNumberThreads;
+    mMaxHashSequences = builder.mMaxHashSequences;
   }
 
   /**
@@ -291,5 +321,19 @@ public class BuildSearchParams extends ModuleParams implements Integrity {
     return mUniqueWords;
   }
 
+  /**
+   * @return number of threads to use in processing
+   */
+  public int numberThreads() {
+    return mNumberThreads;
+  }
+
+  /**
+   * @return the maximum number of sequences a hash may occur in before it is ignored, or 0 for no limit
+   */
+  public int maxHashSequences() {
+    return mMaxHashSequences;
+  }
+
 }
 
@@ -43,6 +43,7 @@ import com.rtg.index.similarity.NeighborJoining;
 import com.rtg.index.similarity.SimilarityMatrix;
 import com.rtg.launcher.BuildParams;
 import com.rtg.launcher.CommonFlags;
+import com.rtg.launcher.GlobalFlags;
 import com.rtg.launcher.HashingRegion;
 import com.rtg.launcher.ISequenceParams;
 import com.rtg.launcher.NoStatistics;
@@ -149,6 +150,9 @@ public final class SimilarityCli extends ParamsCli<BuildSearchParams> {
       if (!CommonFlags.validateStepAndWordSize(flags)) {
         return false;
       }
+      if (!CommonFlags.validateThreads(flags)) {
+        return false;
+      }
       return true;
     }
   }
@@ -329,13 +333,13 @@ public final class SimilarityCli extends ParamsCli<BuildSearchParams> {
 
   static void similarity(final IndexSimilarity index, final long numSequences, final BuildSearchParams params, final String outDir, final Appendable simiOut, final Appendable pcaOut, final Appendable treeOut, final Appendable xmlOut) throws IOException {
     final OneShotTimer matrixTimer = new OneShotTimer("Ph_similarity_matrix");
-    final SimilarityMatrix matrix = index.similarity(numSequences);
+    final SimilarityMatrix matrix = index.similarity(numSequences, params.numberThreads(), params.maxHashSequences());
     //System.err.println(matrix);
     matrixTimer.stopLog();
 
     final OneShotTimer neighTimer = new OneShotTimer("Ph_similarity_neighbor");
     //42 so reproduces the old versions behavior for regression
-    final NeighborJoining neigh = new NeighborJoining(42);
+    final NeighborJoining neigh = new NeighborJoining(42, params.numberThreads());
     final BinaryTree tree;
     final ArrayList<String> names;
     if (params.build().sequences().directory() != null) {
@@ -432,7 +436,8 @@ public final class SimilarityCli extends ParamsCli<BuildSearchParams> {
     final CountParams countParams = new CountParams(output, 1/*topn*/, 1/*min*/, false);
 
     final BuildSearchParamsBuilder builder = BuildSearchParams.builder()
-        .mode(pm).count(countParams).uniqueWords(mFlags.isSet(UNIQUE_WORDS));
+        .mode(pm).count(countParams).uniqueWords(mFlags.isSet(UNIQUE_WORDS))
+        .numberThreads(CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG)));
 
     if (mFlags.isSet(INPUT_FLAG)) {
       final File subject = (File) mFlags.getValue(INPUT_FLAG);
@@ -548,7 +553,7 @@ public final class SimilarityCli extends ParamsCli<BuildSearchParams> {
         builder.build(buildParams);
       }
     }
-
+    builder.maxHashSequences(GlobalFlags.getIntegerValue(GlobalFlags.SIMILARITY_MAX_HASH_SEQUENCES_FLAG));
     return builder.create();
   }
 
@@ -587,6 +592,7 @@ public final class SimilarityCli extends ParamsCli<BuildSearchParams> {
     CommonFlags.initStepSize(flags, "step size (Default is " + DEFAULT_STEP_SIZE + ")");
     flags.registerOptional(UNIQUE_WORDS, "count only unique words").setCategory(CommonFlagCategories.SENSITIVITY_TUNING);
     flags.registerOptional(MAX_READS_FLAG, Integer.class, "INT", "maximum number of reads to use from each input SDF").setCategory(CommonFlagCategories.UTILITY);
+    CommonFlags.initThreadsFlag(flags);
     flags.addRequiredSet(inFlag);
     flags.addRequiredSet(listFlag);
   }
@@ -38,7 +38,8 @@ public abstract class AbstractIndexReader implements LocusIndex {
 
   private static final int NUM_BINS = MAX_BIN + 1;
 
-  private static final int LINEAR_INDEX_SHIFT = 14;
+  /** Each entry of the linear index covers a window of <code>2^LINEAR_INDEX_SHIFT</code> bases */
+  public static final int LINEAR_INDEX_SHIFT = 14;
 
 
   protected final File mIndexFile;
@@ -97,6 +98,31 @@ public abstract class AbstractIndexReader implements LocusIndex {
   }
 
 
+  /**
+   * Retrieve the linear index of a sequence, giving the virtual offset of the first record overlapping each
+   * window of the sequence.
+   * @param seqName the sequence name
+   * @return the linear index, empty if there is no data for the sequence
+   * @throws IOException if an IO exception occurs
+   */
+  public long[] linearIndex(String seqName) throws IOException {
+    final Integer seqId = mSequenceLookup.get(seqName);
+    if (seqId == null) {
+      return new long[0];
+    }
+    try (InputStream is = openIndexFile()) {
+      FileUtils.skip(is, mLinearIndexPositions[seqId]);
+      final byte[] tinyBuf = new byte[4];
+      IOUtils.readFully(is, tinyBuf, 0, 4);
+      final int linearIndexSize = ByteArrayIOUtils.bytesToIntLittleEndian(tinyBuf, 0);
+      final byte[] linIndexBuf = new byte[linearIndexSize * 8];
+      IOUtils.readFully(is, linIndexBuf, 0, linIndexBuf.length);
+      final long[] linearIndex = new long[linearIndexSize];
+      ByteArrayIOUtils.convertToLongArrayLittleEndian(linIndexBuf, linearIndex);
+      return linearIndex;
+    }
+  }
+
   /**
    * Retrieve the file pointers associated with region specified on a specific chromosome
    *
@@ -28,6 +28,7 @@ import com.rtg.util.cli.CommonFlagCategories;
 import com.rtg.util.cli.Validator;
 import com.rtg.util.diagnostic.NoTalkbackSlimException;
 import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.ParallelBlockCompressedOutputStream;
 
 import net.sf.samtools.util.BlockCompressedOutputStream;
 
@@ -121,8 +122,8 @@ public class BgZip extends AbstractCli {
         } else {
           final File file = new File(f.getPath() + FileUtils.GZ_SUFFIX);
           os = stdout
-            ? new BlockCompressedOutputStream(out, null, (Integer) mFlags.getValue(LEVEL_FLAG), !mFlags.isSet(NO_TERMINATE_FLAG))
-            : new BlockCompressedOutputStream(new FileOutputStream(file), file, (Integer) mFlags.getValue(LEVEL_FLAG), !mFlags.isSet(NO_TERMINATE_FLAG));
+            ? new ParallelBlockCompressedOutputStream(out, (Integer) mFlags.getValue(LEVEL_FLAG), !mFlags.isSet(NO_TERMINATE_FLAG))
+            : new ParallelBlockCompressedOutputStream(new FileOutputStream(file), (Integer) mFlags.getValue(LEVEL_FLAG), !mFlags.isSet(NO_TERMINATE_FLAG));
         }
         final byte[] buf = new byte[FileUtils.BUFFER_SIZE];
         int bytesRead;
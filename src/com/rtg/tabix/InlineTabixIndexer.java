@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.tabix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.rtg.util.io.BufferedOutputStreamFix;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.GzipAsynchOutputStream;
+
+import net.sf.samtools.util.BlockCompressedOutputStream;
+
+/**
+ * Writes a block compressed file and builds its <code>TABIX</code> index at the same time.
+ * The writer reports the position of each record as it is written, and the record is added
+ * to the index once the compressed block holding it has been produced. This avoids reading
+ * back and decompressing the whole file to index it afterwards.
+ */
+public final class InlineTabixIndexer {
+
+  // Offsets of the fields used from each BGZF block header
+  private static final int BLOCK_SIZE_OFFSET = 16;
+  private static final int BLOCK_HEADER_LENGTH = 18;
+  private static final int BLOCK_FOOTER_LENGTH = 4;
+
+  private static final class Record {
+    final long mOffset;
+    final int mRefId;
+    final int mStart;
+    final int mLength;
+
+    Record(long offset, int refId, int start, int length) {
+      mOffset = offset;
+      mRefId = refId;
+      mStart = start;
+      mLength = length;
+    }
+  }
+
+  private final File mFile;
+  private final TabixIndexer.IndexerFactory mFactory;
+  private final UncompressedCountingStream mOut;
+
+  private final HashMap<String, Integer> mSequenceIds = new HashMap<>();
+  private final List<String> mSequenceNames = new ArrayList<>();
+  private String mLastSequenceName = null;
+  private int mLastSequenceId = -1;
+
+  // Guarded by this, records are added by the writer and resolved by the compression thread
+  private final ArrayDeque<Record> mPending = new ArrayDeque<>();
+  private final List<SequenceIndex> mIndexes = new ArrayList<>();
+  private final TabixIndexer.IndexBuilder mBuilder = new TabixIndexer.IndexBuilder(mIndexes, false);
+  private long mCompressedEnd = 0;
+  private UnindexableDataException mUnindexable = null;
+
+  /**
+   * @param file the block compressed file to write, the index is written alongside it.
+   * @param factory settings for the format of the file.
+   * @throws IOException if the file cannot be created.
+   */
+  public InlineTabixIndexer(File file, TabixIndexer.IndexerFactory factory) throws IOException {
+    mFile = file;
+    mFactory = factory;
+    final OutputStream fileOut = new BufferedOutputStreamFix(new FileOutputStream(file), FileUtils.BUFFERED_STREAM_SIZE);
+    mOut = new UncompressedCountingStream(new GzipAsynchOutputStream(new BlockObservingStream(fileOut), true));
+  }
+
+  /**
+   * @return the block compressed file being written.
+   */
+  public File getFile() {
+    return mFile;
+  }
+
+  /**
+   * @return the stream that uncompressed file contents should be written to.
+   */
+  public OutputStream getOutputStream() {
+    return mOut;
+  }
+
+  /**
+   * Declare that the next byte written to the output stream is the start of a record.
+   * @param sequenceName name of the reference sequence the record is on.
+   * @param start 0-based start position of the record.
+   * @param length length of the record on the reference.
+   */
+  public void record(String sequenceName, int start, int length) {
+    if (!sequenceName.equals(mLastSequenceName)) {
+      final Integer id = mSequenceIds.get(sequenceName);
+      if (id != null) {
+        mLastSequenceId = id;
+      } else {
+        mLastSequenceId = mSequenceNames.size();
+        mSequenceIds.put(sequenceName, mLastSequenceId);
+        mSequenceNames.add(sequenceName);
+      }
+      mLastSequenceName = sequenceName;
+    }
+    final Record rec = new Record(mOut.mCount, mLastSequenceId, start, length);
+    synchronized (this) {
+      mPending.add(rec);
+    }
+  }
+
+  // Called as each compressed block is written, resolve the records starting within it
+  private synchronized void blockWritten(long compressedStart, int compressedLength, long uncompressedStart, int uncompressedLength) {
+    final long uncompressedEnd = uncompressedStart + uncompressedLength;
+    while (!mPending.isEmpty() && mPending.peek().mOffset < uncompressedEnd) {
+      final Record rec = mPending.remove();
+      if (mUnindexable == null) {
+        final long virtualOffset = (compressedStart << 16) | (rec.mOffset - uncompressedStart);
+        try {
+          mBuilder.add(false, true, true, rec.mRefId, rec.mStart, rec.mLength, TabixIndexer.reg2bin(rec.mStart, rec.mStart + rec.mLength), virtualOffset);
+        } catch (final UnindexableDataException e) {
+          mUnindexable = e;
+        }
+      }
+    }
+    if (uncompressedLength > 0) {
+      mCompressedEnd = compressedStart + compressedLength;
+    }
+  }
+
+  /**
+   * Write the index for the file. The output stream must have been closed first.
+   * @throws IOException if an IO error occurs.
+   * @throws UnindexableDataException if the records written could not be indexed.
+   */
+  public synchronized void saveIndex() throws IOException, UnindexableDataException {
+    if (!mPending.isEmpty()) {
+      throw new IllegalStateException("Output stream has not been closed");
+    }
+    if (mUnindexable != null) {
+      throw mUnindexable;
+    }
+    mBuilder.finish(mCompressedEnd << 16);
+    TabixIndexer.mergeChunks(mIndexes);
+    try (BlockCompressedOutputStream indexOut = new BlockCompressedOutputStream(FileUtils.createOutputStream(TabixIndexer.indexFileName(mFile), false), null)) {
+      TabixIndexer.writeIndex(mIndexes, mFactory.getOptions(), mSequenceNames, indexOut);
+    }
+  }
+
+  /** Counts the uncompressed bytes written so far. */
+  private static final class UncompressedCountingStream extends FilterOutputStream {
+    private long mCount = 0;
+
+    UncompressedCountingStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      mCount++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      mCount += len;
+    }
+  }
+
+  /** Sits below the block compressor, tracking where each compressed block starts and how much data it holds. */
+  private final class BlockObservingStream extends FilterOutputStream {
+    private final byte[] mHeader = new byte[BLOCK_HEADER_LENGTH];
+    private final byte[] mFooter = new byte[BLOCK_FOOTER_LENGTH];
+    private long mBlockStart = 0;
+    private long mUncompressedStart = 0;
+    private int mBlockLength = -1;
+    private int mBlockUsed = 0;
+
+    BlockObservingStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      observe(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      observe(b, off, len);
+    }
+
+    private void observe(byte[] b, int off, int len) throws IOException {
+      int pos = off;
+      final int end = off + len;
+      while (pos < end) {
+        if (mBlockUsed < BLOCK_HEADER_LENGTH) {
+          final int n = Math.min(BLOCK_HEADER_LENGTH - mBlockUsed, end - pos);
+          System.arraycopy(b, pos, mHeader, mBlockUsed, n);
+          mBlockUsed += n;
+          pos += n;
+          if (mBlockUsed == BLOCK_HEADER_LENGTH) {
+            if (mHeader[0] != (byte) 31 || mHeader[1] != (byte) 139) {
+              throw new IOException("Unexpected block compressed output");
+            }
+            mBlockLength = ((mHeader[BLOCK_SIZE_OFFSET] & 0xFF) | ((mHeader[BLOCK_SIZE_OFFSET + 1] & 0xFF) << 8)) + 1;
+          }
+        } else {
+          final int footerStart = mBlockLength - BLOCK_FOOTER_LENGTH;
+          if (mBlockUsed < footerStart) {
+            final int n = Math.min(footerStart - mBlockUsed, end - pos);
+            mBlockUsed += n;
+            pos += n;
+          } else {
+            final int n = Math.min(mBlockLength - mBlockUsed, end - pos);
+            System.arraycopy(b, pos, mFooter, mBlockUsed - footerStart, n);
+            mBlockUsed += n;
+            pos += n;
+          }
+          if (mBlockUsed == mBlockLength) {
+            final int uncompressedLength = (mFooter[0] & 0xFF) | ((mFooter[1] & 0xFF) << 8) | ((mFooter[2] & 0xFF) << 16) | ((mFooter[3] & 0xFF) << 24);
+            blockWritten(mBlockStart, mBlockLength, mUncompressedStart, uncompressedLength);
+            mBlockStart += mBlockLength;
+            mUncompressedStart += uncompressedLength;
+            mBlockUsed = 0;
+            mBlockLength = -1;
+          }
+        }
+      }
+    }
+  }
+}
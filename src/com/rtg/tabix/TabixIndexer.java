@@ -193,102 +193,146 @@ public final class TabixIndexer {
    * @throws UnindexableDataException if the data wasn't able to be indexed (unsorted, sequence too long)
    */
   public static long populateIndex(final List<SequenceIndex> indexes, final BlockCompressedPositionReader input, boolean addExtraFields) throws IOException, UnindexableDataException {
-    long chunkBegin = -1;
-    int lastRefId = -2; //-2 for beginning since -1 -> record with no reference
-    int lastBin = -1;
-    boolean first = true;
-    int minBin = -1;
-    int lastPos = -1; //for sorting test
-    long totalUnmapped = 0;
-    long refUnmapped = 0;
-    long refMapped = 0;
-    long refBegin = -1;
+    final IndexBuilder builder = new IndexBuilder(indexes, addExtraFields);
     while (input.hasNext()) {
       input.next();
       if (DEBUG) {
         debugRecord(input);
       }
-      final boolean unmapped = input.isUnmapped();
+      builder.add(input.isUnmapped(), input.hasReference(), input.hasCoordinates(), input.getReferenceId(), input.getStartPosition(), input.getLengthOnReference(), input.getBinNum(), input.getVirtualOffset());
+    }
+    builder.finish(input.getNextVirtualOffset());
+    return builder.totalUnmapped();
+  }
+
+  /**
+   * Accumulates bins and linear index entries for records presented one at a time in file order.
+   */
+  static final class IndexBuilder {
+    private final List<SequenceIndex> mIndexes;
+    private final boolean mAddExtraFields;
+    private long mChunkBegin = -1;
+    private int mLastRefId = -2; //-2 for beginning since -1 -> record with no reference
+    private int mLastBin = -1;
+    private boolean mFirst = true;
+    private int mMinBin = -1;
+    private int mLastPos = -1; //for sorting test
+    private long mTotalUnmapped = 0;
+    private long mRefUnmapped = 0;
+    private long mRefMapped = 0;
+    private long mRefBegin = -1;
+
+    /**
+     * @param indexes sequence index list to add to
+     * @param addExtraFields true to add meta bin chunks
+     */
+    IndexBuilder(final List<SequenceIndex> indexes, boolean addExtraFields) {
+      mIndexes = indexes;
+      mAddExtraFields = addExtraFields;
+    }
+
+    /**
+     * Add the next record of the file.
+     * @param unmapped true if the record is unmapped
+     * @param hasReference true if the record has a reference sequence
+     * @param hasCoordinates true if the record has coordinates
+     * @param refId index of the reference sequence
+     * @param pos 0-based start position on the reference
+     * @param len length on the reference
+     * @param bin bin number of the record
+     * @param virtualOffset virtual offset of the start of the record
+     * @throws UnindexableDataException if the data cannot be indexed (unsorted, sequence too long)
+     */
+    void add(boolean unmapped, boolean hasReference, boolean hasCoordinates, int refId, int pos, int len, int bin, long virtualOffset) throws UnindexableDataException {
       if (unmapped) {
-        totalUnmapped++;
+        mTotalUnmapped++;
       }
-      if (!unmapped || input.hasReference()) {
-        final int refId = input.getReferenceId();
-        if (lastRefId != refId) {
-          if (lastRefId != -2) {
-            if ((lastRefId > refId && refId != -1) || (lastRefId == -1 && refId >= 0)) {
+      if (!unmapped || hasReference) {
+        if (mLastRefId != refId) {
+          if (mLastRefId != -2) {
+            if ((mLastRefId > refId && refId != -1) || (mLastRefId == -1 && refId >= 0)) {
               //-1 is > other id's for the purposes of indexing
               throw new UnindexableDataException("File is not sorted");
             }
-            final long chunkEnd = input.getVirtualOffset();
-            indexes.get(lastRefId).addChunk(lastBin, chunkBegin, chunkEnd);
-            if (addExtraFields) {
-              indexes.get(lastRefId).addChunk(META_BIN, refBegin, chunkEnd);
-              indexes.get(lastRefId).addChunk(META_BIN, refMapped, refUnmapped);
+            final long chunkEnd = virtualOffset;
+            mIndexes.get(mLastRefId).addChunk(mLastBin, mChunkBegin, chunkEnd);
+            if (mAddExtraFields) {
+              mIndexes.get(mLastRefId).addChunk(META_BIN, mRefBegin, chunkEnd);
+              mIndexes.get(mLastRefId).addChunk(META_BIN, mRefMapped, mRefUnmapped);
             }
           }
-          refBegin = input.getVirtualOffset();
-          refMapped = 0;
-          refUnmapped = 0;
-          lastPos = -1;
-          lastBin = -1;
-          lastRefId = refId;
-          while (indexes.size() <= lastRefId) {
-            indexes.add(new SequenceIndex());
+          mRefBegin = virtualOffset;
+          mRefMapped = 0;
+          mRefUnmapped = 0;
+          mLastPos = -1;
+          mLastBin = -1;
+          mLastRefId = refId;
+          while (mIndexes.size() <= mLastRefId) {
+            mIndexes.add(new SequenceIndex());
           }
-          minBin = -1;
+          mMinBin = -1;
         }
         if (unmapped) {
-          refUnmapped++;
+          mRefUnmapped++;
         } else {
-          refMapped++;
+          mRefMapped++;
         }
       } else {
-        if (lastRefId >= 0) {
+        if (mLastRefId >= 0) {
           //no reference available, must be in unmapped territory
-          final long chunkEnd = input.getVirtualOffset();
-          indexes.get(lastRefId).addChunk(lastBin, chunkBegin, chunkEnd);
-          if (addExtraFields) {
-            indexes.get(lastRefId).addChunk(META_BIN, refBegin, chunkEnd);
-            indexes.get(lastRefId).addChunk(META_BIN, refMapped, refUnmapped);
+          final long chunkEnd = virtualOffset;
+          mIndexes.get(mLastRefId).addChunk(mLastBin, mChunkBegin, chunkEnd);
+          if (mAddExtraFields) {
+            mIndexes.get(mLastRefId).addChunk(META_BIN, mRefBegin, chunkEnd);
+            mIndexes.get(mLastRefId).addChunk(META_BIN, mRefMapped, mRefUnmapped);
           }
-          lastRefId = -1;
+          mLastRefId = -1;
         }
       }
-      if (!unmapped || input.hasCoordinates()) {
-        final int bin = input.getBinNum();
-        final int pos = input.getStartPosition();
-        final int len = input.getLengthOnReference();
-        if (lastPos > pos) {
+      if (!unmapped || hasCoordinates) {
+        if (mLastPos > pos) {
           throw new UnindexableDataException("File is not sorted");
         }
-        lastPos = pos;
+        mLastPos = pos;
         if (pos > MAXIMUM_REFERENCE_LENGTH || pos + len > MAXIMUM_REFERENCE_LENGTH) {
           throw new UnindexableDataException("maximum reference sequence length is exceeded");
         }
-        final int linearLastBin = setLinearIndex(indexes.get(lastRefId), pos, len, input.getVirtualOffset(), minBin);
-        if (first) {
-          minBin = linearLastBin;
+        final int linearLastBin = setLinearIndex(mIndexes.get(mLastRefId), pos, len, virtualOffset, mMinBin);
+        if (mFirst) {
+          mMinBin = linearLastBin;
         }
-        if (lastBin != bin) {
-          final long chunkEnd = input.getVirtualOffset();
-          if (lastBin != -1) {
-            indexes.get(lastRefId).addChunk(lastBin, chunkBegin, chunkEnd);
+        if (mLastBin != bin) {
+          final long chunkEnd = virtualOffset;
+          if (mLastBin != -1) {
+            mIndexes.get(mLastRefId).addChunk(mLastBin, mChunkBegin, chunkEnd);
           }
-          lastBin = bin;
-          chunkBegin = chunkEnd;
+          mLastBin = bin;
+          mChunkBegin = chunkEnd;
         }
       }
-      first = false;
+      mFirst = false;
     }
-    if (lastRefId >= 0) {
-      indexes.get(lastRefId).addChunk(lastBin, chunkBegin, input.getNextVirtualOffset());
-      if (addExtraFields) {
-        indexes.get(lastRefId).addChunk(META_BIN, refBegin, input.getNextVirtualOffset());
-        indexes.get(lastRefId).addChunk(META_BIN, refMapped, refUnmapped);
+
+    /**
+     * Complete the index after the last record.
+     * @param nextVirtualOffset virtual offset just past the end of the last record
+     */
+    void finish(long nextVirtualOffset) {
+      if (mLastRefId >= 0) {
+        mIndexes.get(mLastRefId).addChunk(mLastBin, mChunkBegin, nextVirtualOffset);
+        if (mAddExtraFields) {
+          mIndexes.get(mLastRefId).addChunk(META_BIN, mRefBegin, nextVirtualOffset);
+          mIndexes.get(mLastRefId).addChunk(META_BIN, mRefMapped, mRefUnmapped);
+        }
       }
     }
-    return totalUnmapped;
+
+    /**
+     * @return the total number of unmapped records added
+     */
+    long totalUnmapped() {
+      return mTotalUnmapped;
+    }
   }
 
   private static final int LINEAR_SHIFT = 14;
@@ -538,8 +582,12 @@ public final class TabixIndexer {
     abstract BlockCompressedPositionReader getReader(InputStream is) throws IOException;
   }
 
-  static class BedIndexerFactory extends IndexerFactory {
+  /** Indexer settings for BED files */
+  public static class BedIndexerFactory extends IndexerFactory {
 
+    /**
+     * @param skip number of header lines at the start of the file
+     */
     public BedIndexerFactory(int skip) {
       super(skip);
     }
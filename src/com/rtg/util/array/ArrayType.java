@@ -53,6 +53,9 @@ public abstract class ArrayType {
   public static final ArrayType LONG = new ArrayType("LONG", 8) {
     @Override
     public ExtensibleIndex createUnsigned(final long length) {
+      if (DirectChunks.useOffHeap(length * 8)) {
+        return new com.rtg.util.array.longindex.LongDirect(length);
+      }
       return new com.rtg.util.array.longindex.LongChunks(length);
     }
   };
@@ -61,6 +64,9 @@ public abstract class ArrayType {
   public static final ArrayType INTEGER = new ArrayType("INTEGER", 4) {
     @Override
     public ExtensibleIndex createUnsigned(final long length) {
+      if (DirectChunks.useOffHeap(length * 4)) {
+        return new com.rtg.util.array.intindex.IntDirect(length);
+      }
       return new com.rtg.util.array.intindex.IntChunks(length);
     }
   };
@@ -77,6 +83,9 @@ public abstract class ArrayType {
   public static final ArrayType BYTE = new ArrayType("BYTE", 1) {
     @Override
     public ExtensibleIndex createUnsigned(final long length) {
+      if (DirectChunks.useOffHeap(length)) {
+        return new com.rtg.util.array.byteindex.ByteDirect(length);
+      }
       return new com.rtg.util.array.byteindex.ByteChunks(length);
     }
   };
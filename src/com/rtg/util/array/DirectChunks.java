@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Storage for the off heap index implementations. Entries are held in chunks of direct
+ * buffers allocated outside the Java heap, so large indexes do not count towards the heap
+ * size and are never copied or scanned by the garbage collector. The memory is released
+ * when the buffers become unreachable. The amount that can be allocated is limited by
+ * the <code>-XX:MaxDirectMemorySize</code> JVM option rather than <code>-Xmx</code>.
+ * <br>
+ * WARNING: this code is NOT thread-safe when calling extend and trim.
+ */
+public final class DirectChunks {
+
+  /** True if large unsigned indexes should be allocated off heap. */
+  public static final boolean OFF_HEAP = Boolean.valueOf(System.getProperty("rtg.offheap-arrays", "false"));
+
+  /** Indexes smaller than this many bytes stay on the heap even when off heap allocation is enabled. */
+  private static final long MIN_OFF_HEAP_BYTES = 1L << 20;
+
+  /**
+   * @param bytes size of the index to be created.
+   * @return true if an index of the given size should be allocated off heap.
+   */
+  public static boolean useOffHeap(final long bytes) {
+    return OFF_HEAP && bytes >= MIN_OFF_HEAP_BYTES;
+  }
+
+  private final int mEntryShift;
+  private final int mChunkBits;
+  private final int mChunkSize;
+  private final long mChunkMask;
+  private ByteBuffer[] mChunks;
+  private long mCapacity;
+
+  /**
+   * @param length number of entries to allocate.
+   * @param entryShift log base 2 of the number of bytes per entry.
+   * @param chunkBits log base 2 of the number of entries per chunk.
+   */
+  public DirectChunks(final long length, final int entryShift, final int chunkBits) {
+    if (length < 0) {
+      throw new NegativeArraySizeException("Negative length=" + length);
+    }
+    if (chunkBits + entryShift > 30 || chunkBits <= 0) {
+      throw new IllegalArgumentException("chunkBits=" + chunkBits + " entryShift=" + entryShift);
+    }
+    mEntryShift = entryShift;
+    mChunkBits = chunkBits;
+    mChunkSize = 1 << chunkBits;
+    mChunkMask = mChunkSize - 1;
+    final long chunks = (length + mChunkMask) >>> mChunkBits;
+    if (chunks > Integer.MAX_VALUE) {
+      throw new RuntimeException("length requested too long length=" + length + " mChunkSize=" + mChunkSize);
+    }
+    mChunks = new ByteBuffer[(int) chunks];
+    long left = length;
+    for (int i = 0; i < mChunks.length; i++) {
+      final int assignedLength = (int) Math.min(left, mChunkSize);
+      mChunks[i] = allocate(assignedLength);
+      left -= assignedLength;
+    }
+    mCapacity = length;
+    assert integrity();
+  }
+
+  private ByteBuffer allocate(final int entries) {
+    return ByteBuffer.allocateDirect(entries << mEntryShift).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @param index entry index.
+   * @return the buffer holding the entry.
+   */
+  public ByteBuffer chunk(final long index) {
+    return mChunks[(int) (index >>> mChunkBits)];
+  }
+
+  /**
+   * @param index entry index.
+   * @return the byte position of the entry within its buffer.
+   */
+  public int position(final long index) {
+    return (int) (index & mChunkMask) << mEntryShift;
+  }
+
+  /**
+   * @return the number of entries allocated.
+   */
+  public long capacity() {
+    return mCapacity;
+  }
+
+  /**
+   * @return the number of entries in each full chunk.
+   */
+  public int chunkSize() {
+    return mChunkSize;
+  }
+
+  /**
+   * Ensure at least the given number of entries are allocated. A partially filled last
+   * chunk grows by half again each time to avoid repeated copying of small indexes.
+   * New entries are zero.
+   * @param length number of entries required.
+   */
+  public void ensureCapacity(final long length) {
+    while (mCapacity < length) {
+      final long i = mCapacity >>> mChunkBits;
+      if (i >= mChunks.length) {
+        final long newSize = (mChunks.length + 1) * 2L;
+        if (newSize > Integer.MAX_VALUE) {
+          throw new RuntimeException("Attempting to allocate too large a chunk array. newSize=" + newSize);
+        }
+        mChunks = Arrays.copyOf(mChunks, (int) newSize);
+      }
+      final int ii = (int) i;
+      if (mChunks[ii] == null) {
+        final int size = (int) Math.min(mChunkSize, length - mCapacity);
+        mChunks[ii] = allocate(size);
+        mCapacity += size;
+      } else {
+        final int oldEntries = mChunks[ii].capacity() >>> mEntryShift;
+        final long threeOverTwo = oldEntries * 3L / 2;
+        final int newEntries = (int) Math.min(mChunkSize, Math.max(threeOverTwo, length - ((long) ii << mChunkBits)));
+        mChunks[ii] = copy(mChunks[ii], newEntries);
+        mCapacity += newEntries - oldEntries;
+      }
+    }
+    assert integrity();
+  }
+
+  /**
+   * Release entries past the given length.
+   * @param length number of entries to retain.
+   */
+  public void trim(final long length) {
+    if (length > mCapacity) {
+      throw new IllegalArgumentException("" + length);
+    }
+    final long newArraySize = (length + mChunkMask) >>> mChunkBits;
+    if (newArraySize < mChunks.length) {
+      mChunks = Arrays.copyOf(mChunks, (int) newArraySize);
+    }
+    if (newArraySize > 0) {
+      final int last = (int) (newArraySize - 1);
+      final int entries = (int) (length - ((long) last << mChunkBits));
+      if (mChunks[last].capacity() >>> mEntryShift != entries) {
+        mChunks[last] = copy(mChunks[last], entries);
+      }
+    }
+    mCapacity = length;
+    assert integrity();
+  }
+
+  private ByteBuffer copy(final ByteBuffer src, final int entries) {
+    final ByteBuffer res = allocate(entries);
+    final ByteBuffer from = src.duplicate();
+    from.clear();
+    from.limit(Math.min(from.capacity(), res.capacity()));
+    res.put(from);
+    res.clear();
+    return res;
+  }
+
+  /**
+   * Check internal consistency.
+   * @return true if consistent.
+   */
+  public boolean integrity() {
+    long total = 0;
+    for (int i = 0; i < mChunks.length; i++) {
+      if (total == mCapacity) {
+        Exam.assertTrue(mChunks[i] == null);
+      } else {
+        Exam.assertNotNull(mChunks[i]);
+        final int entries = mChunks[i].capacity() >>> mEntryShift;
+        Exam.assertTrue(entries <= mChunkSize);
+        Exam.assertTrue(entries == mChunkSize || total + entries == mCapacity);
+        total += entries;
+      }
+    }
+    Exam.assertEquals(mCapacity, total);
+    return true;
+  }
+}
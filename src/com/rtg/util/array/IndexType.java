@@ -18,5 +18,7 @@ public enum IndexType {
   /** Type backed by single array, can only hold up to Integer.MAX_VALUE entries */
   ARRAY,
   /** Type backed by multiple arrays, number of entries possible depends on parameters */
-  CHUNKS
+  CHUNKS,
+  /** Type backed by multiple direct buffers outside the heap */
+  DIRECT
 }
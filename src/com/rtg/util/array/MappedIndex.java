@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.format.FormatInteger;
+
+/**
+ * Read only index whose values are held in a memory mapped region of a file rather than on the heap.
+ * Values are stored big-endian in a fixed number of bytes (1, 2, 4 or 8) per entry, as written by
+ * {@link #write(DataOutput, CommonIndex, int)}. Because the data lives in the operating system page cache it
+ * can be shared between several processes mapping the same file.
+ */
+@TestClass("com.rtg.util.array.MappedIndexTest")
+public final class MappedIndex extends AbstractIndex implements ExtensibleIndex {
+
+  /** Each mapped region covers this many bytes, a multiple of every supported entry size. */
+  static final int CHUNK_BITS = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+  private static final FormatInteger FORMAT_VALUE = new FormatInteger(20);
+
+  private final MappedByteBuffer[] mChunks;
+  private final int mEntryBytes;
+  private final int mEntryShift;
+
+  /**
+   * Map a region of a file previously written by {@link #write(DataOutput, CommonIndex, int)}.
+   * The mapping remains valid after the channel is closed.
+   * @param channel channel open for reading on the file.
+   * @param position byte offset in the file of the first entry.
+   * @param length number of entries.
+   * @param entryBytes number of bytes per entry (1, 2, 4 or 8).
+   * @throws IOException if the region cannot be mapped.
+   */
+  public MappedIndex(final FileChannel channel, final long position, final long length, final int entryBytes) throws IOException {
+    super(length);
+    mEntryBytes = entryBytes;
+    mEntryShift = entryShift(entryBytes);
+    final long totalBytes = length << mEntryShift;
+    if (position + totalBytes > channel.size()) {
+      throw new IOException("Mapped index extends past end of file: " + (position + totalBytes) + " > " + channel.size());
+    }
+    final int numChunks = (int) ((totalBytes + CHUNK_MASK) >>> CHUNK_BITS);
+    mChunks = new MappedByteBuffer[numChunks];
+    for (int i = 0; i < numChunks; i++) {
+      final long start = (long) i << CHUNK_BITS;
+      final long size = Math.min(1L << CHUNK_BITS, totalBytes - start);
+      mChunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, size);
+    }
+  }
+
+  private static int entryShift(final int entryBytes) {
+    switch (entryBytes) {
+      case 1:
+        return 0;
+      case 2:
+        return 1;
+      case 4:
+        return 2;
+      case 8:
+        return 3;
+      default:
+        throw new IllegalArgumentException("Unsupported entry size: " + entryBytes);
+    }
+  }
+
+  /**
+   * Get the smallest supported entry size which can hold every value in an index.
+   * @param index the index to be examined.
+   * @return number of bytes per entry (1, 2, 4 or 8).
+   */
+  public static int entryBytes(final CommonIndex index) {
+    long bits = 0;
+    for (long i = 0; i < index.length(); i++) {
+      bits |= index.get(i);
+    }
+    if ((bits & ~0xFFL) == 0) {
+      return 1;
+    } else if ((bits & ~0xFFFFL) == 0) {
+      return 2;
+    } else if ((bits & ~0xFFFFFFFFL) == 0) {
+      return 4;
+    }
+    return 8;
+  }
+
+  /**
+   * Write the contents of an index in the format expected by the mapping constructor.
+   * @param out destination for the values.
+   * @param index index to be written.
+   * @param entryBytes number of bytes per entry, must be large enough to hold every value.
+   * @return number of bytes written.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static long write(final DataOutput out, final CommonIndex index, final int entryBytes) throws IOException {
+    final int shift = entryShift(entryBytes);
+    for (long i = 0; i < index.length(); i++) {
+      final long v = index.get(i);
+      switch (entryBytes) {
+        case 1:
+          out.writeByte((int) v);
+          break;
+        case 2:
+          out.writeShort((int) v);
+          break;
+        case 4:
+          out.writeInt((int) v);
+          break;
+        default:
+          out.writeLong(v);
+          break;
+      }
+    }
+    return index.length() << shift;
+  }
+
+  @Override
+  public long get(final long offset) {
+    check(offset);
+    final long byteOffset = offset << mEntryShift;
+    final MappedByteBuffer chunk = mChunks[(int) (byteOffset >>> CHUNK_BITS)];
+    final int pos = (int) (byteOffset & CHUNK_MASK);
+    switch (mEntryBytes) {
+      case 1:
+        return chunk.get(pos) & 0xFFL;
+      case 2:
+        return chunk.getShort(pos) & 0xFFFFL;
+      case 4:
+        return chunk.getInt(pos) & 0xFFFFFFFFL;
+      default:
+        return chunk.getLong(pos);
+    }
+  }
+
+  @Override
+  public long getSigned(final long offset) {
+    final long v = get(offset);
+    final int shift = Long.SIZE - (mEntryBytes << 3);
+    return (v << shift) >> shift;
+  }
+
+  @Override
+  public void set(final long offset, final long value) {
+    throw new UnsupportedOperationException("Mapped index is read only");
+  }
+
+  @Override
+  public void setSigned(final long offset, final long value) {
+    throw new UnsupportedOperationException("Mapped index is read only");
+  }
+
+  @Override
+  public void swap(final long index1, final long index2) {
+    throw new UnsupportedOperationException("Mapped index is read only");
+  }
+
+  @Override
+  public long bytes() {
+    // Mapped data is not held on the heap
+    return 0;
+  }
+
+  @Override
+  public boolean safeFromWordTearing() {
+    return true;
+  }
+
+  @Override
+  protected FormatInteger formatValue() {
+    return FORMAT_VALUE;
+  }
+
+  @Override
+  public boolean integrity() {
+    super.integrity();
+    assert mChunks.length == (((mLength << mEntryShift) + CHUNK_MASK) >>> CHUNK_BITS);
+    return true;
+  }
+}
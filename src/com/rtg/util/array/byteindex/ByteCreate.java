@@ -11,6 +11,8 @@
  */
 package com.rtg.util.array.byteindex;
 
+import com.rtg.util.array.DirectChunks;
+
 /**
  * Contains the only public ways of constructing a ShortIndex.
  */
@@ -29,6 +31,9 @@ public final class ByteCreate {
     if (length < 0) {
       throw new NegativeArraySizeException("Negative length=" + length);
     }
+    if (DirectChunks.useOffHeap(length * ByteIndex.BYTE_SIZE)) {
+      return new ByteDirect(length);
+    }
     if (length <= ByteIndex.MAX_LENGTH) {
       return new ByteArray(length);
     } else {
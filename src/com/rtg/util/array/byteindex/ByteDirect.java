@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array.byteindex;
+
+import com.rtg.util.array.DirectChunks;
+import com.rtg.util.array.ExtensibleIndex;
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Byte index held outside the Java heap in direct buffers.
+ * WARNING: this code is NOT thread-safe when calling set and extend.
+ * It is safe for multiple threads to share get operations (but not to mix
+ * get and set).
+ */
+public final class ByteDirect extends ByteIndex implements ExtensibleIndex {
+
+  private static final int ENTRY_SHIFT = 0;
+
+  private final DirectChunks mChunks;
+
+  /**
+   * @param length of the index being created.
+   */
+  public ByteDirect(final long length) {
+    this(length, CHUNK_BITS);
+  }
+
+  /**
+   * This version sets the size of the chunks - it should only be used for testing.
+   * @param length of the index being created.
+   * @param chunkBits number of bits used for an entry in a chunk.
+   */
+  ByteDirect(final long length, final int chunkBits) {
+    super(length);
+    mChunks = new DirectChunks(length, ENTRY_SHIFT, chunkBits);
+    assert integrity();
+  }
+
+  @Override
+  public long extendBy(final long length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("" + length);
+    }
+    final long res = mLength;
+    mChunks.ensureCapacity(mLength + length);
+    mLength += length;
+    return res;
+  }
+
+  @Override
+  public void trim(final long length) {
+    if (length > mLength) {
+      throw new IllegalArgumentException("" + length);
+    }
+    mChunks.trim(length);
+    mLength = length;
+  }
+
+  @Override
+  public byte getByte(final long index) {
+    return mChunks.chunk(index).get(mChunks.position(index));
+  }
+
+  @Override
+  public void setByte(final long index, final byte value) {
+    mChunks.chunk(index).put(mChunks.position(index), value);
+  }
+
+  @Override
+  public long getSigned(final long offset) {
+    return getByte(offset);
+  }
+
+  @Override
+  public void setSigned(final long index, final long value) {
+    //High order bits must be zero
+    assert  ((value >= 0 ? value : -value) & HIGH_MASK) == 0L : value;
+    setByte(index, (byte) value);
+  }
+
+  @Override
+  public boolean integrity() {
+    super.integrity();
+    Exam.assertTrue(mLength <= mChunks.capacity());
+    return true;
+  }
+
+  @Override
+  public boolean safeFromWordTearing() {
+    return true;
+  }
+}
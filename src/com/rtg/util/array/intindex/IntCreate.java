@@ -14,6 +14,7 @@ package com.rtg.util.array.intindex;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 
+import com.rtg.util.array.DirectChunks;
 import com.rtg.util.array.IndexType;
 
 /**
@@ -34,6 +35,9 @@ public final class IntCreate {
     if (length < 0) {
       throw new NegativeArraySizeException("Negative length=" + length);
     }
+    if (DirectChunks.useOffHeap(length * IntIndex.INT_SIZE)) {
+      return new IntDirect(length);
+    }
     if (length <= IntIndex.MAX_LENGTH) {
       return new IntArray(length);
     } else {
@@ -41,6 +45,14 @@ public final class IntCreate {
     }
   }
 
+  /**
+   * Create extensible int array
+   * @return the array
+   */
+  public static IntChunks createExtensibleIndex() {
+    return new IntChunks(0, 20); //4MiB per chunk
+  }
+
   /**
    * loads an index saved by {@link IntIndex#save(java.io.ObjectOutputStream)}
    * @param stream stream to load from
@@ -54,6 +66,8 @@ public final class IntCreate {
         return IntArray.loadIndex(stream);
       case CHUNKS:
         return IntChunks.loadIndex(stream);
+      case DIRECT:
+        return IntDirect.loadIndex(stream);
       default:
         throw new IOException("Unrecognized type");
     }
@@ -14,6 +14,7 @@ package com.rtg.util.array.longindex;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 
+import com.rtg.util.array.DirectChunks;
 import com.rtg.util.array.IndexType;
 
 /**
@@ -34,6 +35,9 @@ public final class LongCreate {
     if (length < 0) {
       throw new NegativeArraySizeException("Negative length=" + length);
     }
+    if (DirectChunks.useOffHeap(length * LongIndex.LONG_SIZE)) {
+      return new LongDirect(length);
+    }
     // SAI: It seems it is not always possible to get exactly Integer.MAX_VALUE
     // array entries.  Perhaps the JVM uses some slots for housekeeping.
     if (length <= Integer.MAX_VALUE - 5) {
@@ -64,6 +68,8 @@ public final class LongCreate {
         return LongArray.loadIndex(stream);
       case CHUNKS:
         return LongChunks.loadIndex(stream);
+      case DIRECT:
+        return LongDirect.loadIndex(stream);
       default:
         throw new IOException("Unrecognized type");
     }
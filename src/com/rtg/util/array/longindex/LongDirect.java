@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array.longindex;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.rtg.util.array.DirectChunks;
+import com.rtg.util.array.ExtensibleIndex;
+import com.rtg.util.array.IndexType;
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Long index held outside the Java heap in direct buffers.
+ * WARNING: this code is NOT thread-safe when calling set and extend.
+ * It is safe for multiple threads to share get operations (but not to mix
+ * get and set).
+ */
+public final class LongDirect extends LongIndex implements ExtensibleIndex {
+
+  private static final int ENTRY_SHIFT = 3;
+
+  private final DirectChunks mChunks;
+
+  /**
+   * @param length of the index being created.
+   */
+  public LongDirect(final long length) {
+    this(length, CHUNK_BITS);
+  }
+
+  /**
+   * This version sets the size of the chunks - it should only be used for testing.
+   * @param length of the index being created.
+   * @param chunkBits number of bits used for an entry in a chunk.
+   */
+  LongDirect(final long length, final int chunkBits) {
+    super(length);
+    mChunks = new DirectChunks(length, ENTRY_SHIFT, chunkBits);
+    assert integrity();
+  }
+
+  @Override
+  public long extendBy(final long length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("" + length);
+    }
+    final long res = mLength;
+    mChunks.ensureCapacity(mLength + length);
+    mLength += length;
+    return res;
+  }
+
+  @Override
+  public void trim(final long length) {
+    if (length > mLength) {
+      throw new IllegalArgumentException("" + length);
+    }
+    mChunks.trim(length);
+    mLength = length;
+  }
+
+  @Override
+  public long get(final long index) {
+    return mChunks.chunk(index).getLong(mChunks.position(index));
+  }
+
+  @Override
+  public void set(final long index, final long value) {
+    mChunks.chunk(index).putLong(mChunks.position(index), value);
+  }
+
+  @Override
+  public long getSigned(final long offset) {
+    return get(offset);
+  }
+
+  @Override
+  public void setSigned(final long offset, final long value) {
+    set(offset, value);
+  }
+
+  @Override
+  public boolean integrity() {
+    super.integrity();
+    Exam.assertTrue(mLength <= mChunks.capacity());
+    return true;
+  }
+
+  @Override
+  public boolean safeFromWordTearing() {
+    return true;
+  }
+
+  @Override
+  public void save(ObjectOutputStream dos) throws IOException {
+    dos.writeInt(IndexType.DIRECT.ordinal());
+    dos.writeLong(mLength);
+    for (long i = 0; i < mLength; i++) {
+      dos.writeLong(get(i));
+    }
+  }
+
+  /**
+   * Should only be called from {@link LongCreate#loadIndex(java.io.ObjectInputStream)}
+   * @param ois stream to load from
+   * @return index loaded from stream
+   * @throws IOException if an IO error occurs
+   */
+  public static LongDirect loadIndex(ObjectInputStream ois) throws IOException {
+    final long length = ois.readLong();
+    final LongDirect res = new LongDirect(length);
+    for (long i = 0; i < length; i++) {
+      res.set(i, ois.readLong());
+    }
+    return res;
+  }
+}
@@ -175,6 +175,7 @@ public final class BitwiseByteArray extends ByteArray implements Integrity {
    * @param destOffset offset within destination array
    * @param length number of values to read
    */
+  @Override
   public void get(final byte[] dest, final long srcOffset, int destOffset, final int length) {
     assert srcOffset + length <= mValuesSet; // only read values that have been set
     if (length == 0) {
@@ -32,6 +32,19 @@ public abstract class ByteArray {
    */
   public abstract void get(final byte[] dest, final long offset, final int count);
 
+  /**
+   * Reads <code>length</code> bytes, starting at <code>srcOffset</code>.
+   * @param dest the array to copy into.
+   * @param srcOffset the position to start reading from.
+   * @param destOffset the position in <code>dest</code> to start copying into.
+   * @param length how many bytes to cover.
+   */
+  public void get(final byte[] dest, final long srcOffset, final int destOffset, final int length) {
+    for (int i = 0; i < length; i++) {
+      dest[destOffset + i] = get(srcOffset + i);
+    }
+  }
+
   /**
    * Set a single byte.
    * If multiple bytes must be set, the array version of set should be used
@@ -21,6 +21,7 @@ import java.nio.channels.FileChannel;
 
 import com.rtg.util.array.CommonIndex;
 import com.rtg.util.array.ExtensibleIndex;
+import com.rtg.util.array.MappedIndex;
 import com.rtg.util.array.longindex.LongCreate;
 import com.rtg.util.integrity.Exam;
 import com.rtg.util.integrity.Integrity;
@@ -209,6 +210,7 @@ public final class CompressedByteArray extends ByteArray implements Integrity {
    * @param destOffset offset within destination array
    * @param length number of values to read
    */
+  @Override
   public void get(byte[] dest, long srcOffset, int destOffset, int length) {
     assert srcOffset <= mValuesSet;  // only read values that have been set
     final long adjOffset = mOffset + srcOffset;
@@ -231,7 +233,8 @@ public final class CompressedByteArray extends ByteArray implements Integrity {
         whichBitfield++;
         longValue = longValue >>> mBits;
         bitField = (int) (longValue & mMask);
-        if (whichBitfield == mNumBitfields) {
+        if (whichBitfield == mNumBitfields && i < destOffset + length - 1) {
+          // only move to the next long when more values are wanted, it may be beyond the end of a mapped file
           whichBitfield = 0;
           whichLong++;
           longValue = mData.get(whichLong);
@@ -368,6 +371,33 @@ public final class CompressedByteArray extends ByteArray implements Integrity {
 
 
 
+  /**
+   * Map directly from disk instead of loading onto the heap. The returned array is read only.
+   * @param file file containing compressed values
+   * @param startVal first value to map
+   * @param endVal last value to map
+   * @param range number of possible unique values
+   * @return array backed by the mapped file
+   * @throws IOException if an IO error occurs
+   */
+  public static CompressedByteArray mapCompressed(File file, long startVal, long endVal, int range) throws IOException {
+    // grow avoids allocating a heap array which is replaced by the mapping
+    final CompressedByteArray ret = new CompressedByteArray(0, range, true);
+    final long perLong = ret.mPerLong;
+    final long adjStartVal = startVal / perLong * perLong;
+    final long adjEndVal = endVal % perLong == 0 ? endVal : (endVal / perLong + 1) * perLong;
+    ret.mOffset = startVal - adjStartVal;
+    ret.mSize = endVal - startVal;
+    ret.mValuesSet = adjEndVal - adjStartVal;
+    final long startSeekPos = adjStartVal / perLong * 8;
+    try (FileInputStream stream = new FileInputStream(file)) {
+      final FileChannel channel = stream.getChannel();
+      final long numLongs = Math.min(adjEndVal / perLong * 8, channel.size()) / 8 - startSeekPos / 8;
+      ret.mData = new MappedIndex(channel, startSeekPos, Math.max(0, numLongs), 8);
+    }
+    return ret;
+  }
+
   /**
    * This method dumps the contents for testing purposes
    * @param dos output stream
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.bytecompression;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.util.array.MappedIndex;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.Integrity;
+
+/**
+ * Read only view of values written by a {@link BitwiseByteArray}, held in a memory mapped file
+ * rather than on the heap. Uses the same layout as the bitwise array, each group of 64 values
+ * occupies <code>bits</code> consecutive longs, with one long per bit of the value.
+ */
+@TestClass("com.rtg.util.bytecompression.MappedBitwiseByteArrayTest")
+public final class MappedBitwiseByteArray extends ByteArray implements Integrity {
+
+  private static final int BITS_PER_LONG = 64;
+
+  private static final int WHICH_LONG = 6;
+
+  private static final long WITHIN_LONG = (1L << WHICH_LONG) - 1;
+
+  private final MappedIndex mData;
+  private final int mBits;
+  private final long mOffset;
+  private final long mSize;
+
+  private MappedBitwiseByteArray(MappedIndex data, int bits, long offset, long size) {
+    assert 1 <= bits && bits <= 7;
+    mData = data;
+    mBits = bits;
+    mOffset = offset;
+    mSize = size;
+  }
+
+  /**
+   * Map directly from disk instead of loading onto the heap.
+   * @param file file containing values written by a bitwise array
+   * @param startVal first value to map
+   * @param endVal last value to map
+   * @param range number of possible unique values
+   * @return array backed by the mapped file
+   * @throws IOException if an IO error occurs
+   */
+  public static MappedBitwiseByteArray map(File file, long startVal, long endVal, int range) throws IOException {
+    final int bits = CompressedByteArray.minBits(range);
+    final long adjStartVal = startVal / BITS_PER_LONG * BITS_PER_LONG;
+    final long adjEndVal = endVal % BITS_PER_LONG == 0 ? endVal : (endVal / BITS_PER_LONG + 1) * BITS_PER_LONG;
+    final long startSeekPos = adjStartVal / BITS_PER_LONG * bits * 8;
+    final long endSeekPos = adjEndVal / BITS_PER_LONG * bits * 8;
+    try (FileInputStream stream = new FileInputStream(file)) {
+      final FileChannel channel = stream.getChannel();
+      final long numLongs = (Math.min(endSeekPos, channel.size()) - startSeekPos) / 8;
+      return new MappedBitwiseByteArray(new MappedIndex(channel, startSeekPos, Math.max(0, numLongs), 8), bits, startVal - adjStartVal, endVal - startVal);
+    }
+  }
+
+  @Override
+  public byte get(final long offset) {
+    assert offset < mSize : "offset: " + offset + " mSize: " + mSize;
+    final long adjOffset = mOffset + offset;
+    final long whichLong = (adjOffset >>> WHICH_LONG) * mBits;
+    final int whichBit = (int) (adjOffset & WITHIN_LONG);
+    int result = 0;
+    for (int b = 0; b < mBits; b++) {
+      final long longValue = mData.get(whichLong + b);
+      result = (result << 1) | (int) ((longValue >> whichBit) & 1);
+    }
+    return (byte) result;
+  }
+
+  @Override
+  public void get(final byte[] dest, final long offset, final int count) {
+    get(dest, offset, 0, count);
+  }
+
+  @Override
+  public void get(final byte[] dest, final long srcOffset, final int destOffset, final int length) {
+    assert srcOffset + length <= mSize;
+    if (length == 0) {
+      return;
+    }
+    // the longs for the current group of 64 values are fetched once and reused for each value in the group
+    final long[] group = new long[mBits];
+    final long adjOffset = mOffset + srcOffset;
+    long whichLong = (adjOffset >>> WHICH_LONG) * mBits;
+    int whichBit = (int) (adjOffset & WITHIN_LONG);
+    for (int b = 0; b < mBits; b++) {
+      group[b] = mData.get(whichLong + b);
+    }
+    for (int pos = destOffset; pos < destOffset + length; pos++) {
+      int result = 0;
+      for (int b = 0; b < mBits; b++) {
+        result = (result << 1) | (int) ((group[b] >>> whichBit) & 1);
+      }
+      dest[pos] = (byte) result;
+      whichBit++;
+      if (whichBit == BITS_PER_LONG && pos < destOffset + length - 1) {
+        whichBit = 0;
+        whichLong += mBits;
+        for (int b = 0; b < mBits; b++) {
+          group[b] = mData.get(whichLong + b);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void set(final long offset, final byte value) {
+    throw new UnsupportedOperationException("Mapped array is read only");
+  }
+
+  @Override
+  public void set(final long offset, final byte[] buffer, final int count) {
+    throw new UnsupportedOperationException("Mapped array is read only");
+  }
+
+  @Override
+  public void set(final long offset, final byte[] buffer, final int bOffset, final int count) {
+    throw new UnsupportedOperationException("Mapped array is read only");
+  }
+
+  @Override
+  public long length() {
+    return mSize;
+  }
+
+  @Override
+  public long bytes() {
+    // Mapped data is not held on the heap
+    return 0;
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertTrue(0 <= mSize);
+    Exam.assertTrue(0 <= mOffset && mOffset < BITS_PER_LONG);
+    Exam.assertNotNull(mData);
+    return true;
+  }
+
+  @Override
+  public boolean globalIntegrity() {
+    return integrity();
+  }
+}
@@ -16,8 +16,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import net.sf.samtools.util.BlockCompressedOutputStream;
-
 /**
  * An output stream that does the GZIP compression in a separate thread.
  * It also does buffering, before and after the GZIP compression and
@@ -46,7 +44,7 @@ public final class GzipAsynchOutputStream extends AsynchOutputStream {
       return new BufferedOutputStreamFix(new AdjustableGZIPOutputStream(FileUtils.createOutputStream(file, false, false), gzipSize, DEFAULT_GZIP_LEVEL));
     } else {
     // Use BlockCompressedOutputStream so that the file is tabix compatible.
-      return new BufferedOutputStreamFix(new BlockCompressedOutputStream(FileUtils.createOutputStream(file, false, false), null, DEFAULT_GZIP_LEVEL, false));
+      return new BufferedOutputStreamFix(new ParallelBlockCompressedOutputStream(FileUtils.createOutputStream(file, false, false), DEFAULT_GZIP_LEVEL, false));
     }
   }
 
@@ -97,7 +95,7 @@ public final class GzipAsynchOutputStream extends AsynchOutputStream {
   * @throws IOException on IO error.
   */
   public GzipAsynchOutputStream(OutputStream stream, int pipeSize, int gzipSize, boolean terminated) throws IOException {
-    super(BGZIP ? new BlockCompressedOutputStream(stream, null, DEFAULT_GZIP_LEVEL, terminated) : new AdjustableGZIPOutputStream(stream), pipeSize);
+    super(BGZIP ? new ParallelBlockCompressedOutputStream(stream, DEFAULT_GZIP_LEVEL, terminated) : new AdjustableGZIPOutputStream(stream), pipeSize);
     // Use BlockCompressedOutputStream so that the file is tabix compatible.
     //    super(new BlockCompressedOutputStream(stream, DEFAULT_GZIP_LEVEL), pipeSize, gzipSize);
   }
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.rtg.util.Environment;
+
+import net.sf.samtools.util.BlockCompressedStreamConstants;
+
+/**
+ * Block compressed (<code>BGZF</code>) output stream that deflates blocks on a shared pool of
+ * threads. Blocks are cut and compressed exactly as picard's <code>BlockCompressedOutputStream</code>
+ * does and are written to the underlying stream in order, so the output is byte for byte the same
+ * and consumers observing the compressed blocks (such as on the fly indexers) are unaffected.
+ * <br>
+ * Not thread-safe, only one thread should write to a stream.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream {
+
+  private static final int UNCOMPRESSED_BLOCK_SIZE = BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+  private static final int COMPRESSED_BLOCK_SIZE = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH;
+
+  private static int sThreads = Environment.defaultThreads();
+
+  private static ThreadPoolExecutor sExecutor = null;
+
+  /**
+   * Set the number of threads shared by all streams for compressing blocks, normally the
+   * number of threads the user has allowed for the command.
+   * @param threads number of compression threads
+   */
+  public static synchronized void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads: " + threads);
+    }
+    sThreads = threads;
+    if (sExecutor != null) {
+      // Keep the core size no larger than the maximum while resizing
+      if (threads > sExecutor.getMaximumPoolSize()) {
+        sExecutor.setMaximumPoolSize(threads);
+        sExecutor.setCorePoolSize(threads);
+      } else {
+        sExecutor.setCorePoolSize(threads);
+        sExecutor.setMaximumPoolSize(threads);
+      }
+    }
+  }
+
+  static synchronized int threads() {
+    return sThreads;
+  }
+
+  private static synchronized ThreadPoolExecutor executor() {
+    if (sExecutor == null) {
+      sExecutor = new ThreadPoolExecutor(sThreads, sThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          final Thread t = new Thread(r, "BgzfDeflate");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return sExecutor;
+  }
+
+  private final OutputStream mOut;
+  private final int mLevel;
+  private final boolean mTerminate;
+  private final ThreadPoolExecutor mExecutor;
+  /** Maximum number of blocks this stream can have waiting to be written */
+  private final int mMaxInFlight;
+  private final ArrayDeque<Future<Block>> mInFlight = new ArrayDeque<>();
+  private final ArrayDeque<Block> mFree = new ArrayDeque<>();
+  private final List<Block> mBlocks = new ArrayList<>();
+  private final byte[] mSingleByte = new byte[1];
+  private Block mCurrent;
+  private boolean mClosed = false;
+
+  /**
+   * @param out stream to write compressed blocks to
+   * @param level deflate compression level
+   * @param terminate true if an empty terminating block should be written on close
+   */
+  public ParallelBlockCompressedOutputStream(OutputStream out, int level, boolean terminate) {
+    if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    mOut = out;
+    mLevel = level;
+    mTerminate = terminate;
+    mExecutor = executor();
+    mMaxInFlight = Math.max(2, Math.min(16, 2 * threads()));
+    mCurrent = newBlock();
+  }
+
+  private Block newBlock() {
+    final Block block = new Block(mLevel);
+    mBlocks.add(block);
+    return block;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    mSingleByte[0] = (byte) b;
+    write(mSingleByte, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    int pos = off;
+    int remaining = len;
+    while (remaining > 0) {
+      final int n = Math.min(UNCOMPRESSED_BLOCK_SIZE - mCurrent.mUncompressedLength, remaining);
+      System.arraycopy(b, pos, mCurrent.mUncompressed, mCurrent.mUncompressedLength, n);
+      mCurrent.mUncompressedLength += n;
+      pos += n;
+      remaining -= n;
+      if (mCurrent.mUncompressedLength == UNCOMPRESSED_BLOCK_SIZE) {
+        submitCurrent();
+      }
+    }
+  }
+
+  private void submitCurrent() throws IOException {
+    mInFlight.add(mExecutor.submit(mCurrent));
+    mCurrent = mFree.isEmpty() ? newBlock() : mFree.pop();
+    // Write out whatever has finished, waiting only if too many blocks are outstanding
+    while (!mInFlight.isEmpty() && (mInFlight.size() >= mMaxInFlight || mInFlight.peek().isDone())) {
+      writeNext();
+    }
+  }
+
+  private void writeNext() throws IOException {
+    final Block block;
+    try {
+      block = mInFlight.remove().get();
+    } catch (final InterruptedException e) {
+      throw new IOException("Interrupted while compressing block", e);
+    } catch (final ExecutionException e) {
+      throw new IOException("Error compressing block", e.getCause());
+    }
+    mOut.write(block.mCompressed, 0, block.mCompressedLength);
+    block.mUncompressedLength = 0;
+    mFree.push(block);
+  }
+
+  private void drain() throws IOException {
+    if (mCurrent.mUncompressedLength > 0) {
+      submitCurrent();
+    }
+    while (!mInFlight.isEmpty()) {
+      writeNext();
+    }
+  }
+
+  /**
+   * As with picard's block compressed stream, flushing ends the current block even if it is not full.
+   */
+  @Override
+  public void flush() throws IOException {
+    drain();
+    mOut.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (mClosed) {
+      return;
+    }
+    mClosed = true;
+    try {
+      drain();
+      if (mTerminate) {
+        mOut.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+      }
+    } finally {
+      try {
+        mOut.close();
+      } finally {
+        // After a failure blocks may still be compressing, their deflaters cannot be released until they finish
+        boolean interrupted = false;
+        for (final Future<Block> f : mInFlight) {
+          while (true) {
+            try {
+              f.get();
+              break;
+            } catch (final InterruptedException e) {
+              interrupted = true;
+            } catch (final ExecutionException e) {
+              break;
+            }
+          }
+        }
+        mInFlight.clear();
+        for (final Block b : mBlocks) {
+          b.end();
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  // A block of uncompressed data together with the means to compress it into a complete BGZF block
+  private static final class Block implements Callable<Block> {
+    final byte[] mUncompressed = new byte[UNCOMPRESSED_BLOCK_SIZE];
+    int mUncompressedLength = 0;
+    final byte[] mCompressed = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH];
+    int mCompressedLength = 0;
+    private final Deflater mDeflater;
+    private Deflater mNoCompressionDeflater = null;
+    private final CRC32 mCrc = new CRC32();
+
+    Block(int level) {
+      mDeflater = new Deflater(level, true);
+    }
+
+    @Override
+    public Block call() {
+      final int headerLength = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH;
+      mDeflater.reset();
+      mDeflater.setInput(mUncompressed, 0, mUncompressedLength);
+      mDeflater.finish();
+      int size = mDeflater.deflate(mCompressed, headerLength, COMPRESSED_BLOCK_SIZE);
+      if (!mDeflater.finished()) {
+        // Incompressible data, storing it is guaranteed to fit
+        if (mNoCompressionDeflater == null) {
+          mNoCompressionDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+        }
+        mNoCompressionDeflater.reset();
+        mNoCompressionDeflater.setInput(mUncompressed, 0, mUncompressedLength);
+        mNoCompressionDeflater.finish();
+        size = mNoCompressionDeflater.deflate(mCompressed, headerLength, COMPRESSED_BLOCK_SIZE);
+        if (!mNoCompressionDeflater.finished()) {
+          throw new IllegalStateException("Block did not fit when stored");
+        }
+      }
+      mCrc.reset();
+      mCrc.update(mUncompressed, 0, mUncompressedLength);
+      final int blockSize = size + headerLength + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+      System.arraycopy(BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE, 0, mCompressed, 0, BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE.length);
+      mCompressed[BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET] = (byte) (blockSize - 1);
+      mCompressed[BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET + 1] = (byte) ((blockSize - 1) >> 8);
+      ByteArrayIOUtils.intToBytesLittleEndian((int) mCrc.getValue(), mCompressed, headerLength + size);
+      ByteArrayIOUtils.intToBytesLittleEndian(mUncompressedLength, mCompressed, headerLength + size + 4);
+      mCompressedLength = blockSize;
+      return this;
+    }
+
+    void end() {
+      mDeflater.end();
+      if (mNoCompressionDeflater != null) {
+        mNoCompressionDeflater.end();
+      }
+    }
+  }
+}
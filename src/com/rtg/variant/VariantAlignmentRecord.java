@@ -15,6 +15,7 @@ import java.util.Arrays;
 
 import com.rtg.reader.FastqSequenceDataSource;
 import com.rtg.sam.MateInfo;
+import com.rtg.sam.RawBamRecord;
 import com.rtg.sam.ReaderRecord;
 import com.rtg.sam.SamUtils;
 import com.rtg.util.intervals.SequenceIdLocusSimple;
@@ -104,6 +105,49 @@ public class VariantAlignmentRecord extends SequenceIdLocusSimple implements Rea
     mAlignmentScore = as == null ? -1 : as;
     mSuperCigar = record.getStringAttribute(SamUtils.CG_SUPER_CIGAR);
     mMateSequenceId = record.getMateReferenceIndex();
+    mFlag = flags(record);
+
+    mOverlapQuality = mSuperCigar == null
+      ? SamUtils.allowEmpty(record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_QUALITY))
+      : SamUtils.allowEmpty(record.getStringAttribute(SamUtils.CG_OVERLAP_QUALITY));
+    mOverlapBases = SamUtils.allowEmpty(record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_BASES));
+    mOverlapInstructions = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_RAW_READ_INSTRUCTIONS);
+    mCgReadDelta = record.getStringAttribute(SamUtils.CG_READ_DELTA);
+  }
+
+  /**
+   * Construct a new alignment record directly from the binary data of a BAM record.
+   * The result is the same as for the corresponding <code>SAMRecord</code>.
+   * @param raw BAM record. Requires header with sequence dictionary (for reference index lookup)
+   * @param readGroup read group of the record
+   * @param genome genome code for this record
+   */
+  public VariantAlignmentRecord(final RawBamRecord raw, final SAMReadGroupRecord readGroup, final int genome) {
+    super(raw.getRecord().getReferenceIndex(), raw.getRecord().getAlignmentStart() - 1, raw.getRecord().getReadUnmappedFlag() ? raw.getRecord().getAlignmentStart() - 1 + raw.getRecord().getReadLength() : raw.getAlignmentEnd());
+    final SAMRecord record = raw.getRecord();
+    mGenome = genome;
+    mFragmentLength = record.getInferredInsertSize();
+    mBases = raw.getReadBases();
+    mQuality = raw.getBaseQualities(FastqSequenceDataSource.PHRED_LOWER_LIMIT_CHAR);
+    mCigar = raw.getCigarString();
+    mMappingQuality = (byte) record.getMappingQuality();
+    mReadGroup = readGroup;
+    final Integer v = raw.getNHOrIH();
+    mAmbiguity = v == null ? -1 : v;
+    final Integer as = raw.getIntegerAttribute(SamUtils.ATTRIBUTE_ALIGNMENT_SCORE);
+    mAlignmentScore = as == null ? -1 : as;
+    mSuperCigar = raw.getStringAttribute(SamUtils.CG_SUPER_CIGAR);
+    mMateSequenceId = record.getMateReferenceIndex();
+    mFlag = flags(record);
+    mOverlapQuality = mSuperCigar == null
+      ? SamUtils.allowEmpty(raw.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_QUALITY))
+      : SamUtils.allowEmpty(raw.getStringAttribute(SamUtils.CG_OVERLAP_QUALITY));
+    mOverlapBases = SamUtils.allowEmpty(raw.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_BASES));
+    mOverlapInstructions = raw.getStringAttribute(SamUtils.ATTRIBUTE_CG_RAW_READ_INSTRUCTIONS);
+    mCgReadDelta = raw.getStringAttribute(SamUtils.CG_READ_DELTA);
+  }
+
+  private static byte flags(final SAMRecord record) {
     byte f = 0;
     if (record.getReadPairedFlag() && record.getProperPairFlag()) {
       f += 1;
@@ -120,14 +164,7 @@ public class VariantAlignmentRecord extends SequenceIdLocusSimple implements Rea
     if (record.getReadUnmappedFlag()) {
       f += 16;
     }
-    mFlag = f;
-
-    mOverlapQuality = mSuperCigar == null
-      ? SamUtils.allowEmpty(record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_QUALITY))
-      : SamUtils.allowEmpty(record.getStringAttribute(SamUtils.CG_OVERLAP_QUALITY));
-    mOverlapBases = SamUtils.allowEmpty(record.getStringAttribute(SamUtils.ATTRIBUTE_CG_OVERLAP_BASES));
-    mOverlapInstructions = record.getStringAttribute(SamUtils.ATTRIBUTE_CG_RAW_READ_INSTRUCTIONS);
-    mCgReadDelta = record.getStringAttribute(SamUtils.CG_READ_DELTA);
+    return f;
   }
 
   /**
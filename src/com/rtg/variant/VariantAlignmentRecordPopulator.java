@@ -13,6 +13,7 @@ package com.rtg.variant;
 
 import java.util.HashMap;
 
+import com.rtg.sam.RawBamRecord;
 import com.rtg.util.Populator;
 import com.rtg.util.diagnostic.NoTalkbackSlimException;
 
@@ -40,19 +41,22 @@ public class VariantAlignmentRecordPopulator implements Populator<VariantAlignme
 
   @Override
   public VariantAlignmentRecord populate(final SAMRecord rec) {
+    final RawBamRecord raw = RawBamRecord.wrap(rec);
+    final SAMReadGroupRecord readGroup = raw == null ? rec.getReadGroup() : raw.getReadGroup();
+    final int genome;
     if (mGenomeToInteger.size() > 0) {
-      final SAMReadGroupRecord readGroup = rec.getReadGroup();
       if (readGroup == null) {
         throw new NoTalkbackSlimException("Encountered a SAM record with no read group information: " + rec.getSAMString());
       }
-      final Integer genome = mGenomeToInteger.get(readGroup.getSample());
-      if (genome == null) {
+      final Integer g = mGenomeToInteger.get(readGroup.getSample());
+      if (g == null) {
         throw new NoTalkbackSlimException("Could not determine sample from SAM record (check read group information against expected samples): " + rec.getSAMString());
       }
-      return new VariantAlignmentRecord(rec, genome);
+      genome = g;
     } else {
-      return new VariantAlignmentRecord(rec, 0);
+      genome = 0;
     }
+    return raw == null ? new VariantAlignmentRecord(rec, genome) : new VariantAlignmentRecord(raw, readGroup, genome);
   }
 
   @Override
@@ -86,6 +86,7 @@ public final class VariantParams extends SingleMappedParams implements VariantOu
   private final int mChunkSize;
   private final int mLookAhead;
   private final int mMaxReadLength;
+  private final boolean mSpanSequences;
   private final boolean mIonTorrent;
   private final ThreadingEnvironment mThreadingEnvironment;
   private final Long mThreadingEnvironmentSeed;
@@ -150,6 +151,7 @@ public final class VariantParams extends SingleMappedParams implements VariantOu
     mChunkSize = builder.mChunkSize;
     mLookAhead = builder.mLookAhead;
     mMaxReadLength = builder.mMaxReadLength;
+    mSpanSequences = builder.mSpanSequences;
     mIonTorrent = builder.mIonTorrent;
     mThreadingEnvironment = builder.mThreadingEnvironment;
     mThreadingEnvironmentSeed = builder.mThreadingEnvironmentSeed;
@@ -480,6 +482,13 @@ public final class VariantParams extends SingleMappedParams implements VariantOu
     return mLookAhead;
   }
 
+  /**
+   * @return true if chunks from consecutive reference sequences may be processed concurrently.
+   */
+  public boolean spanSequences() {
+    return mSpanSequences;
+  }
+
   /**
    * @return the number of positions to include when dividing work into chunks.
    */
@@ -644,6 +653,7 @@ public final class VariantParams extends SingleMappedParams implements VariantOu
     .name(name())
     .chunkSize(mChunkSize)
     .maxReadLength(mMaxReadLength)
+    .spanSequences(mSpanSequences)
     .calibrator(mCalibrator)
     .outputIndex(mOutputIndex)
     .vcfRp(mVcfRp)
@@ -743,7 +753,8 @@ public final class VariantParams extends SingleMappedParams implements VariantOu
     sb.append(" ploidy=").append(mPloidy).append(LS);
     sb.append(" chunk_size=").append(mChunkSize)
       .append(" lookahead=").append(mLookAhead)
-      .append(" max_read_length=").append(mMaxReadLength).append(LS);
+      .append(" max_read_length=").append(mMaxReadLength)
+      .append(" span_sequences=").append(mSpanSequences).append(LS);
     sb.append(" threading_environment=").append(mThreadingEnvironment)
       .append(" treading_environment_seed=").append(mThreadingEnvironmentSeed).append(LS);
     sb.append(" exec_threads=").append(execThreads())
@@ -74,6 +74,7 @@ public final class VariantParamsBuilder extends SingleMappedParamsBuilder<Varian
   int mChunkSize = 1000;
   int mLookAhead = 2;
   int mMaxReadLength = 1000;
+  boolean mSpanSequences = false;
   // ThreadingEnvironment mThreadingEnvironment = ThreadingEnvironment.SIMPLE;
   ThreadingEnvironment mThreadingEnvironment = ThreadingEnvironment.PARALLEL;
   Long mThreadingEnvironmentSeed = null;
@@ -133,6 +134,17 @@ public final class VariantParamsBuilder extends SingleMappedParamsBuilder<Varian
     return self();
   }
 
+  /**
+   * Set whether chunks from consecutive reference sequences may be processed concurrently,
+   * rather than finishing each sequence before starting the next.
+   * @param spanSequences true to process across sequence boundaries
+   * @return this builder
+   */
+  public VariantParamsBuilder spanSequences(final boolean spanSequences) {
+    mSpanSequences = spanSequences;
+    return self();
+  }
+
   /**
    * Set the maximum length for a read.
    *
@@ -16,11 +16,11 @@ import com.rtg.mode.DNA;
 import com.rtg.sam.SamUtils;
 import com.rtg.util.MaxShiftUtils;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.Spy;
 import com.rtg.util.integrity.Exam;
 import com.rtg.util.machine.MachineType;
 import com.rtg.variant.AbstractMachineErrorParams;
 import com.rtg.variant.MachineErrorChooserInterface;
-import com.rtg.variant.ThreadingEnvironment;
 import com.rtg.variant.VariantAlignmentRecord;
 import com.rtg.variant.VariantParams;
 import com.rtg.variant.bayes.Evidence;
@@ -37,8 +37,6 @@ import com.rtg.variant.realign.Environment;
 import com.rtg.variant.realign.EnvironmentCombined;
 import com.rtg.variant.realign.InvertCgTemplateEnvironment;
 import com.rtg.variant.realign.RealignParams;
-import com.rtg.variant.realign.ScoreFastUnderflow;
-import com.rtg.variant.realign.ScoreFastUnderflowCG;
 import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
 
 /**
@@ -54,13 +52,7 @@ public class EvidenceComplex extends Evidence {
   private static final ScoreInterfaceMemoInterface SCORE_INTERFACE_MEMO;
   static {
     SCORE_INTERFACE_MEMO = new ScoreInterfaceMemo();
-  }
-
-  private static AllPaths getAllPaths(final RealignParams rp, final boolean isCG) {
-    if (isCG) {
-      return new ScoreFastUnderflowCG(rp);
-    }
-    return new ScoreFastUnderflow(rp);
+    Spy.add(SCORE_INTERFACE_MEMO);
   }
 
   private final int mReference;
@@ -120,12 +112,8 @@ public class EvidenceComplex extends Evidence {
     final VariantAlignmentRecord alignmentRecord = match.alignmentRecord();
     final AbstractMachineErrorParams me = chooser.machineErrors(alignmentRecord);
     final boolean cg = me.isCG();
-    final AllPaths sm;
-    if (params.threadingEnvironment() == ThreadingEnvironment.PARALLEL) {
-      sm = getAllPaths(me.realignParams(), cg);
-    } else {
-      sm = SCORE_INTERFACE_MEMO.getScoreInterface(me.realignParams(), cg);
-    }
+    final RealignParams realignParams = me.realignParams();
+    final AllPaths sm = SCORE_INTERFACE_MEMO.getScoreInterface(realignParams, cg);
 
     final AlignmentEnvironment se;
     if (cg) {
@@ -172,25 +160,29 @@ public class EvidenceComplex extends Evidence {
     int readHyp = EvidenceInterface.NULL;
     final double[] logScore = new double[size];
     double sum = mArithmetic.zero();
-    for (int i = 0; i < size; i++) {
-      //TODO put in fast delta scoring for non-CG case.
-      final String replace = description().name(i);
-      final AlignmentEnvironment temEnv = new AlignmentEnvironmentGenomeSubstitution(se.start() - softClipStartOffset, 0 /* doesn't matter */, reference, DNA.stringDNAtoByte(replace));
-      final EnvironmentCombined envTmp = new EnvironmentCombined(se, newStart - softClipStartOffset, maxShift, temEnv);
-      final Environment env;
-      if (cg && !se.cgOverlapOnLeft()) {
-        env = new InvertCgTemplateEnvironment(envTmp);
-      } else {
-        env = envTmp;
-      }
-      sm.setEnv(env);
-      final double poss = mArithmetic.ln2Poss(sm.totalScoreLn());
-      //System.err.println("Read match=" + match.readString() + " Hyp i=" + i + " name=" + hypotheses.description().name(i) + " : unnorm score=" + mArithmetic.poss2Ln(poss) + " scorematrix=\n" + sm.toString());
-      logScore[i] = poss;
-      sum = mArithmetic.add(sum, poss);
-      if (hypotheses.description().match(i).readString().equals(match.readString())) {
-        readHyp = i;
+    try {
+      for (int i = 0; i < size; i++) {
+        //TODO put in fast delta scoring for non-CG case.
+        final String replace = description().name(i);
+        final AlignmentEnvironment temEnv = new AlignmentEnvironmentGenomeSubstitution(se.start() - softClipStartOffset, 0 /* doesn't matter */, reference, DNA.stringDNAtoByte(replace));
+        final EnvironmentCombined envTmp = new EnvironmentCombined(se, newStart - softClipStartOffset, maxShift, temEnv);
+        final Environment env;
+        if (cg && !se.cgOverlapOnLeft()) {
+          env = new InvertCgTemplateEnvironment(envTmp);
+        } else {
+          env = envTmp;
+        }
+        sm.setEnv(env);
+        final double poss = mArithmetic.ln2Poss(sm.totalScoreLn());
+        //System.err.println("Read match=" + match.readString() + " Hyp i=" + i + " name=" + hypotheses.description().name(i) + " : unnorm score=" + mArithmetic.poss2Ln(poss) + " scorematrix=\n" + sm.toString());
+        logScore[i] = poss;
+        sum = mArithmetic.add(sum, poss);
+        if (hypotheses.description().match(i).readString().equals(match.readString())) {
+          readHyp = i;
+        }
       }
+    } finally {
+      SCORE_INTERFACE_MEMO.release(realignParams, cg, sm);
     }
 
     //normalize
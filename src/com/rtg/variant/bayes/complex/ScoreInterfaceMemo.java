@@ -12,37 +12,151 @@
 
 package com.rtg.variant.bayes.complex;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import com.rtg.util.Environment;
 import com.rtg.variant.realign.AllPaths;
 import com.rtg.variant.realign.RealignParams;
+import com.rtg.variant.realign.ScaledScoreMatrix;
+import com.rtg.variant.realign.ScaledScoreMatrixCG;
 import com.rtg.variant.realign.ScoreFastUnderflow;
 import com.rtg.variant.realign.ScoreFastUnderflowCG;
 
 /**
- * Keep singleton score interfaces per read group and CG flag.
+ * Thread-safe pool of score interfaces per read group and CG flag.
+ * A score interface is handed to one caller at a time and should be returned with <code>release</code>
+ * once finished with. At most a fixed number of idle score interfaces are retained, those
+ * for the least recently used read groups being discarded first.
  */
 public final class ScoreInterfaceMemo implements ScoreInterfaceMemoInterface {
 
-  final HashMap<RealignParams, AllPaths> mCache = new HashMap<>();
-  final HashMap<RealignParams, AllPaths> mCacheCG = new HashMap<>();
+  /** Default maximum number of idle score interfaces retained */
+  static final int DEFAULT_MAX_IDLE = Math.max(16, 4 * Environment.defaultThreads());
+
+  private static final class Key {
+    private final RealignParams mParams;
+    private final boolean mCg;
+
+    Key(final RealignParams params, final boolean cg) {
+      mParams = params;
+      mCg = cg;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return mCg == that.mCg && mParams.equals(that.mParams);
+    }
+
+    @Override
+    public int hashCode() {
+      return mParams.hashCode() * 2 + (mCg ? 1 : 0);
+    }
+  }
+
+  private final int mMaxIdle;
+  // Access ordered, so iteration starts at the least recently used key
+  private final LinkedHashMap<Key, ArrayDeque<AllPaths>> mIdle = new LinkedHashMap<>(16, 0.75f, true);
+  private int mIdleCount = 0;
+  private long mHits = 0;
+  private long mMisses = 0;
+  private long mEvictions = 0;
+
+  /**
+   * Pool retaining the default number of idle score interfaces.
+   */
+  public ScoreInterfaceMemo() {
+    this(DEFAULT_MAX_IDLE);
+  }
+
+  /**
+   * @param maxIdle maximum number of idle score interfaces retained.
+   */
+  public ScoreInterfaceMemo(final int maxIdle) {
+    if (maxIdle < 0) {
+      throw new IllegalArgumentException("Invalid pool size: " + maxIdle);
+    }
+    mMaxIdle = maxIdle;
+  }
+
+  private static AllPaths create(final RealignParams params, final boolean isCompleteGenomics) {
+    if (isCompleteGenomics) {
+      return ScaledScoreMatrix.ENABLED ? new ScaledScoreMatrixCG(params) : new ScoreFastUnderflowCG(params);
+    }
+    return ScaledScoreMatrix.ENABLED ? new ScaledScoreMatrix(params) : new ScoreFastUnderflow(params);
+  }
+
+  private synchronized AllPaths acquire(final Key key) {
+    final ArrayDeque<AllPaths> idle = mIdle.get(key);
+    if (idle != null) {
+      final AllPaths s = idle.pop();
+      if (idle.isEmpty()) {
+        mIdle.remove(key);
+      }
+      mIdleCount--;
+      mHits++;
+      return s;
+    }
+    mMisses++;
+    return null;
+  }
 
   @Override
   public AllPaths getScoreInterface(final RealignParams params, final boolean isCompleteGenomics) {
-    AllPaths s;
-    if (isCompleteGenomics) {
-      s = mCacheCG.get(params);
-      if (s == null) {
-        s = new ScoreFastUnderflowCG(params);
-        mCacheCG.put(params, s);
+    final AllPaths s = acquire(new Key(params, isCompleteGenomics));
+    // Construct outside the lock, there is some work in setting up the probabilities
+    return s != null ? s : create(params, isCompleteGenomics);
+  }
+
+  @Override
+  public synchronized void release(final RealignParams params, final boolean isCompleteGenomics, final AllPaths scoreInterface) {
+    final Key key = new Key(params, isCompleteGenomics);
+    ArrayDeque<AllPaths> idle = mIdle.get(key);
+    if (idle == null) {
+      idle = new ArrayDeque<>();
+      mIdle.put(key, idle);
+    }
+    idle.push(scoreInterface);
+    mIdleCount++;
+    final Iterator<Map.Entry<Key, ArrayDeque<AllPaths>>> it = mIdle.entrySet().iterator();
+    while (mIdleCount > mMaxIdle) {
+      final Map.Entry<Key, ArrayDeque<AllPaths>> eldest = it.next();
+      final ArrayDeque<AllPaths> victims = eldest.getValue();
+      while (mIdleCount > mMaxIdle && !victims.isEmpty()) {
+        victims.removeLast();
+        mIdleCount--;
+        mEvictions++;
       }
-    } else {
-      s = mCache.get(params);
-      if (s == null) {
-        s = new ScoreFastUnderflow(params);
-        mCache.put(params, s);
+      if (victims.isEmpty()) {
+        it.remove();
       }
     }
-    return s;
+  }
+
+  synchronized int idle() {
+    return mIdleCount;
+  }
+
+  synchronized long hits() {
+    return mHits;
+  }
+
+  synchronized long misses() {
+    return mMisses;
+  }
+
+  synchronized long evictions() {
+    return mEvictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ScoreInterfaceMemo hits " + mHits + " misses " + mMisses + " evictions " + mEvictions + " idle " + mIdleCount;
   }
 }
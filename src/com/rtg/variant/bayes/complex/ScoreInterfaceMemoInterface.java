@@ -27,4 +27,12 @@ public interface ScoreInterfaceMemoInterface {
    */
   AllPaths getScoreInterface(final RealignParams params, final boolean isCompleteGenomics);
 
+  /**
+   * Indicate that a score interface obtained from <code>getScoreInterface</code> is no longer in use.
+   * @param params parameters it was obtained with.
+   * @param isCompleteGenomics Complete Genomics flag it was obtained with.
+   * @param scoreInterface the score interface.
+   */
+  void release(final RealignParams params, final boolean isCompleteGenomics, final AllPaths scoreInterface);
+
 }
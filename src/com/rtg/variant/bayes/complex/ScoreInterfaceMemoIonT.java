@@ -53,4 +53,9 @@ public final class ScoreInterfaceMemoIonT implements ScoreInterfaceMemoInterface
     }
     return s;
   }
+
+  @Override
+  public void release(final RealignParams params, final boolean isCompleteGenomics, final AllPaths scoreInterface) {
+    // singletons, nothing to do
+  }
 }
@@ -98,6 +98,7 @@ public abstract class AbstractMultisampleCli extends ParamsCli<VariantParams> {
   private static final String X_IGNORE_QUALITIES_FLAG = "Xignore-qualities";
   private static final String X_CHUNKING_FLAG = "Xchunking";
   private static final String X_LOOKAHEAD_FLAG = "Xlookahead";
+  private static final String X_SPAN_SEQUENCES_FLAG = "Xspan-sequences";
   private static final String X_VCF_RP = "Xvcfrp";
   private static final String X_HYPER_COMPLEX_LENGTH_FLAG = "Xhyper-complex-length";
   private static final String X_INTERESTING_SEPARATION_FLAG = "Xinteresting-separation";
@@ -278,6 +279,7 @@ public abstract class AbstractMultisampleCli extends ParamsCli<VariantParams> {
     flags.registerOptional(X_INDEL_TRIGGER_FRACTION_FLAG, Integer.class, "int", "if set, percentage of bases that must be indel to trigger complex calling", 5).setCategory(SENSITIVITY_TUNING);
     flags.registerOptional(X_CHUNKING_FLAG, Integer.class, "int", "number of nucleotide positions considered per chunk", 1000).setCategory(UTILITY);
     flags.registerOptional(X_LOOKAHEAD_FLAG, Integer.class, "int", "number of chunks to prefetch", 2).setCategory(UTILITY);
+    flags.registerOptional(X_SPAN_SEQUENCES_FLAG, "allow chunks from consecutive reference sequences to be processed concurrently").setCategory(UTILITY);
     flags.registerOptional(X_VCF_RP, "include RTG posterior in VCF output").setCategory(CommonFlagCategories.REPORTING);
     flags.registerOptional(X_HYPER_COMPLEX_LENGTH_FLAG, Integer.class, "int", "the length beyond which complex regions are considered hyper complex", Integer.MAX_VALUE).setCategory(SENSITIVITY_TUNING);
     // flags.registerOptional(X_INTERESTING_THRESHOLD_FLAG, Double.class, "float", "posterior threshold below which an identity call is considered interesting", Double.valueOf(1.0 / VariantUtils.LOG_10)).setCategory(SENSITIVITY_TUNING);
@@ -324,6 +326,7 @@ public abstract class AbstractMultisampleCli extends ParamsCli<VariantParams> {
     builder.threshold((Double) mFlags.getValue(X_THRESHOLD_FLAG));
     builder.chunkSize((Integer) mFlags.getValue(X_CHUNKING_FLAG));
     builder.lookAhead((Integer) mFlags.getValue(X_LOOKAHEAD_FLAG));
+    builder.spanSequences(mFlags.isSet(X_SPAN_SEQUENCES_FLAG));
     builder.hyperComplexLength((Integer) mFlags.getValue(X_HYPER_COMPLEX_LENGTH_FLAG));
     builder.interestingSeparation((Integer) mFlags.getValue(X_INTERESTING_SEPARATION_FLAG));
     builder.simpleRepeatExtension((Boolean) mFlags.getValue(X_SIMPLE_REPEAT_EXTENSION));
@@ -14,6 +14,7 @@ package com.rtg.variant.bayes.multisample;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import com.rtg.tabix.InlineTabixIndexer;
 import com.rtg.util.ByteUtils;
 import com.rtg.variant.bayes.multisample.ComplexRegion.RegionType;
 
@@ -23,7 +24,9 @@ import com.rtg.variant.bayes.multisample.ComplexRegion.RegionType;
 public class BedComplexitiesWriter {
 
   private final OutputStream mOut;
-  private final byte[] mSequenceName;
+  private final InlineTabixIndexer mIndexer;
+  private final String mSequenceName;
+  private final byte[] mSequenceNameBytes;
   private int mLastComplexitiesEnd;
   private int mStart = -1;
   private int mEnd = -1;
@@ -36,14 +39,31 @@ public class BedComplexitiesWriter {
    * @param initialStartPosition position to start from
    */
   public BedComplexitiesWriter(OutputStream os, String sequenceName, int initialStartPosition) {
+    this(os, null, sequenceName, initialStartPosition);
+  }
+
+  /**
+   * Construct an object for writing complex regions for a specific sequence to a BED file,
+   * adding each region to an index as it is written.
+   * @param os output stream to write to
+   * @param indexer indexer for the output stream, or null if the output is not being indexed
+   * @param sequenceName sequence name
+   * @param initialStartPosition position to start from
+   */
+  public BedComplexitiesWriter(OutputStream os, InlineTabixIndexer indexer, String sequenceName, int initialStartPosition) {
     mOut = os;
-    mSequenceName = sequenceName.getBytes();
+    mIndexer = indexer;
+    mSequenceName = sequenceName;
+    mSequenceNameBytes = sequenceName.getBytes();
     mLastComplexitiesEnd = initialStartPosition;
   }
 
   private void writeRegion() throws IOException {
     if (mStart != -1) {
-      mOut.write(mSequenceName);
+      if (mIndexer != null) {
+        mIndexer.record(mSequenceName, mStart, mEnd - mStart);
+      }
+      mOut.write(mSequenceNameBytes);
       mOut.write(ByteUtils.TAB_BYTE);
       com.rtg.util.Utils.intWrite(mOut, mStart);
       mOut.write(ByteUtils.TAB_BYTE);
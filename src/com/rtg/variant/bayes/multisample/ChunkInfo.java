@@ -14,9 +14,20 @@ package com.rtg.variant.bayes.multisample;
 
 /**
  * Shared information about chunks etc.
+ * <br>
+ * Normally every chunk is <code>chunkSize</code> long (except the last). In adaptive mode the number of
+ * chunks is the same, but chunk boundaries are chosen as they are first needed so that chunks in regions
+ * that have recently proved expensive (relative to the average so far) are smaller and those in
+ * cheap regions are larger, keeping job durations more even.
  */
 public class ChunkInfo {
 
+  /** Adaptive chunks are between the chunk size divided by this and the chunk size multiplied by this */
+  static final int ADAPTIVE_FACTOR = 2;
+
+  // Weight of the previous recent cost when a new cost is reported
+  private static final double DECAY = 0.9;
+
   private final int mChunkSize;
   private final int mZeroBasedStart;
   private final int mZeroBasedEnd;
@@ -25,6 +36,17 @@ public class ChunkInfo {
   private final int mLength;
   private final String mRefName;
 
+  private final boolean mAdaptive;
+  private final int mMinChunkSize;
+  private final int mMaxChunkSize;
+  // In adaptive mode the start of each chunk, followed by the end, valid up to mAssigned
+  private final int[] mBoundaries;
+  private int mAssigned = 0;
+  private double mTotalCost = 0;
+  private double mTotalBases = 0;
+  private double mRecentCost = 0;
+  private double mRecentBases = 0;
+
   /**
    * @param seqLength reference sequence length
    * @param refName reference sequence name
@@ -35,6 +57,20 @@ public class ChunkInfo {
    * @param maxReadLength maximum read length
    */
   public ChunkInfo(int seqLength, String refName, int chunkSize, int restrictionStart, int restrictionEnd, int execThreads, int maxReadLength) {
+    this(seqLength, refName, chunkSize, restrictionStart, restrictionEnd, execThreads, maxReadLength, false);
+  }
+
+  /**
+   * @param seqLength reference sequence length
+   * @param refName reference sequence name
+   * @param chunkSize size of the chunk
+   * @param restrictionStart the start position (zero based, inclusive) of restricted calling. -1 means no position filtering.
+   * @param restrictionEnd the end position (zero based, exclusive) of restricted calling. -1 means no position filtering.
+   * @param execThreads number of execution threads
+   * @param maxReadLength maximum read length
+   * @param adaptive true if chunk sizes should adapt to the cost reported for earlier chunks
+   */
+  public ChunkInfo(int seqLength, String refName, int chunkSize, int restrictionStart, int restrictionEnd, int execThreads, int maxReadLength, boolean adaptive) {
     mChunkSize = chunkSize;
     // Normally we start at nt 0, but if the user has specified a restriction
     // use that instead.
@@ -43,8 +79,15 @@ public class ChunkInfo {
     assert mZeroBasedEnd >= mZeroBasedStart;
     mLength = mZeroBasedEnd - mZeroBasedStart;
     mNumberChunks = ((mZeroBasedEnd - mZeroBasedStart) + mChunkSize - 1) / mChunkSize;
-    mBufferSize = mChunkSize * (execThreads + 2) * 2 + maxReadLength;
+    mAdaptive = adaptive;
+    mMinChunkSize = adaptive ? Math.max(1, chunkSize / ADAPTIVE_FACTOR) : chunkSize;
+    mMaxChunkSize = adaptive ? chunkSize * ADAPTIVE_FACTOR : chunkSize;
+    mBufferSize = mMaxChunkSize * (execThreads + 2) * 2 + maxReadLength;
     mRefName = refName;
+    mBoundaries = adaptive ? new int[mNumberChunks + 1] : null;
+    if (adaptive) {
+      mBoundaries[0] = mZeroBasedStart;
+    }
   }
 
   /**
@@ -94,6 +137,85 @@ public class ChunkInfo {
     return mBufferSize;
   }
 
+  /**
+   * @param chunk chunk number
+   * @return start position of the chunk (0-based, inclusive), the end of the region if there is no such chunk
+   */
+  public int chunkStart(final int chunk) {
+    assert chunk >= 0;
+    if (chunk >= mNumberChunks) {
+      return mZeroBasedEnd;
+    }
+    if (!mAdaptive) {
+      return chunk * mChunkSize + mZeroBasedStart;
+    }
+    synchronized (this) {
+      while (mAssigned < chunk) {
+        assignNext();
+      }
+      return mBoundaries[chunk];
+    }
+  }
+
+  /**
+   * @param chunk chunk number
+   * @return end position of the chunk (0-based, exclusive)
+   */
+  public int chunkEnd(final int chunk) {
+    return chunkStart(chunk + 1);
+  }
+
+  // Choose the end of the chunk starting at the last assigned boundary, such that the remaining chunks
+  // can still cover the rest of the region with sizes between the minimum and maximum (the last may be shorter).
+  private void assignNext() {
+    final int remaining = mZeroBasedEnd - mBoundaries[mAssigned];
+    final int remainingChunks = mNumberChunks - mAssigned;
+    final int size;
+    if (remainingChunks == 1) {
+      size = remaining;
+    } else {
+      final int lo = Math.max(mMinChunkSize, remaining - (remainingChunks - 1) * mMaxChunkSize);
+      final int hi = Math.min(mMaxChunkSize, remaining - (remainingChunks - 2) * mMinChunkSize - 1);
+      assert lo <= hi : lo + " " + hi;
+      size = Math.max(lo, Math.min(hi, desiredSize()));
+    }
+    mBoundaries[mAssigned + 1] = mBoundaries[mAssigned] + size;
+    mAssigned++;
+  }
+
+  private int desiredSize() {
+    if (mRecentCost <= 0 || mTotalBases <= 0) {
+      return mChunkSize;
+    }
+    final double ratio = (mTotalCost / mTotalBases) / (mRecentCost / mRecentBases);
+    return (int) Math.min(mMaxChunkSize, Math.max(mMinChunkSize, Math.round(mChunkSize * ratio)));
+  }
+
+  /**
+   * Report the time taken by some work done for a chunk, used to size later chunks in adaptive mode.
+   * @param chunk chunk number
+   * @param nanoTime time in nanoseconds the work took
+   */
+  public void addCost(final int chunk, final long nanoTime) {
+    if (!mAdaptive || chunk >= mNumberChunks) {
+      return;
+    }
+    final int bases = chunkEnd(chunk) - chunkStart(chunk);
+    synchronized (this) {
+      mTotalCost += nanoTime;
+      mTotalBases += bases;
+      mRecentCost = DECAY * mRecentCost + nanoTime;
+      mRecentBases = DECAY * mRecentBases + bases;
+    }
+  }
+
+  /**
+   * @return true if chunk sizes adapt to the cost of earlier chunks
+   */
+  public boolean isAdaptive() {
+    return mAdaptive;
+  }
+
   /**
    * @return reference sequence name
    */
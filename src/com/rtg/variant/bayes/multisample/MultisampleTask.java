@@ -14,13 +14,16 @@ package com.rtg.variant.bayes.multisample;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.rtg.bed.BedUtils;
+import com.rtg.launcher.GlobalFlags;
 import com.rtg.launcher.ParamsTask;
 import com.rtg.reader.ReaderUtils;
 import com.rtg.reader.SequencesReader;
@@ -44,7 +47,11 @@ import com.rtg.scheduler.JobFactory;
 import com.rtg.scheduler.JobStatistics;
 import com.rtg.scheduler.Result;
 import com.rtg.scheduler.Scheduler;
+import com.rtg.scheduler.SchedulerStealing;
 import com.rtg.scheduler.SchedulerSynchronized;
+import com.rtg.tabix.InlineTabixIndexer;
+import com.rtg.tabix.TabixIndexer;
+import com.rtg.tabix.UnindexableDataException;
 import com.rtg.usage.UsageMetric;
 import com.rtg.util.SingletonPopulatorFactory;
 import com.rtg.util.StringUtils;
@@ -60,6 +67,7 @@ import com.rtg.util.intervals.ReferenceRegions;
 import com.rtg.util.intervals.RegionRestriction;
 import com.rtg.util.intervals.StatusInterval;
 import com.rtg.util.machine.MachineType;
+import com.rtg.variant.ThreadingEnvironment;
 import com.rtg.variant.Variant;
 import com.rtg.variant.Variant.VariantFilter;
 import com.rtg.variant.VariantAlignmentRecord;
@@ -86,7 +94,6 @@ import com.rtg.variant.format.VariantOutputVcfFormatter;
 import com.rtg.variant.util.VariantUtils;
 import com.rtg.vcf.VcfAnnotator;
 import com.rtg.vcf.VcfRecord;
-import com.rtg.vcf.VcfUtils;
 import com.rtg.vcf.VcfWriter;
 import com.rtg.vcf.header.VcfHeader;
 
@@ -100,8 +107,13 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
 
   private static final int ION_TORRENT_HYPER_COMPLEX = 21;
 
+  /** Hand out jobs to threads in batches with work stealing when running in parallel */
+  private static final boolean WORK_STEALING = true; //Boolean.valueOf(System.getProperty("rtg.work-stealing", "true"));
+
   private final JobStatistics<JobIdMultisample> mJobStatistics = new MultisampleStatistics();
   private final OutputStream mBedOut;
+  private final InlineTabixIndexer mBedIndexer;
+  private InlineTabixIndexer mVcfIndexer;
   private final SexMemo mSexMemo;
   private final List<VcfAnnotator> mAnnotators = new ArrayList<>();
   protected final SequencesReader mReferenceSequences;
@@ -112,7 +124,6 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
   private ThreadedMultifileIteratorWrapper<VariantAlignmentRecord> mWrapper;
   private List<SAMSequenceRecord> mSequences;
   private ReferenceRegions mBedFilterRegions;
-  private ParallelProgress mPP = null;
 
   private final JointCallerConfigurator mConfigurator;
 
@@ -159,7 +170,17 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
       throw new NoTalkbackSlimException(ErrorType.READING_ERROR, "Problem reading");
     }
     mReferenceSequences = params.genome().reader();
-    mBedOut = params.bedStream();
+    if (params.blockCompressed() && params.outputIndex()) {
+      // Index the complex regions as they are written rather than re-reading the file at the end
+      if (!params.directory().exists() && !params.directory().mkdirs()) {
+        throw new IOException("Unable to create directory \"" + params.directory().getPath() + "\"");
+      }
+      mBedIndexer = new InlineTabixIndexer(params.bedFile(), new TabixIndexer.BedIndexerFactory(0));
+      mBedOut = mBedIndexer.getOutputStream();
+    } else {
+      mBedIndexer = null;
+      mBedOut = params.bedStream();
+    }
     mSexMemo = Utils.createSexMemo(mParams);
     mConfigurator = configurator;
 
@@ -204,16 +225,15 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
   private static final byte OVERFLOW = 1;
   private static final byte SKIP = 2;
 
-  private int processNtPositions(List<Variant> calls, MultisampleJointCaller jointCaller, ChunkInfo chunkInfo, byte[] template, ReaderWindow<VariantAlignmentRecord> tribble, int start, int end) throws IOException {
+  private int processNtPositions(List<Variant> calls, MultisampleJointCaller jointCaller, ChunkInfo chunkInfo, RangeList<String> rangeList, ParallelProgress progress, byte[] template, ReaderWindow<VariantAlignmentRecord> tribble, int start, int end) throws IOException {
 
     int maxReadLen = 0;
     List<RangeList.RangeData<String>> ranges = null;
     int rangeIndex = 0;
     boolean skipWholeChunk = false;
-    if (mWrapper.context().hasRegions()) {
-      final RangeList<String> currentRangeList = mWrapper.getCurrentRangeList();
-      ranges = currentRangeList.getFullRangeList();
-      rangeIndex = currentRangeList.findFullRangeIndex(start);
+    if (rangeList != null) {
+      ranges = rangeList.getFullRangeList();
+      rangeIndex = rangeList.findFullRangeIndex(start);
       assert rangeIndex < ranges.size();
       final RangeList.RangeData<String> range = ranges.get(rangeIndex);
       skipWholeChunk = range.getMeta() == null && range.isInRange(end);
@@ -298,7 +318,7 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
       }
     }
     //TODO move to the output task so come out in sequence
-    mPP.updateProgress(chunkInfo.percent(end));
+    progress.updateProgress(chunkInfo.percent(end));
     return maxReadLen;
   }
 
@@ -341,43 +361,108 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
   private long mExcessiveHypothesesCount = 0;
   private long mNoHypothesesCount = 0;
 
+  private final Object mTossedRecordsLock = new Object();
   private final Object mExcessiveCoverageLock = new Object();
   private final Object mExcessiveHypothesesLock = new Object();
   private final Object mNoHypothesesLock = new Object();
 
-  private class JobFactoryMultiSample extends IntegralAbstract implements JobFactory<JobIdMultisample>, AutoCloseable {
+  /**
+   * Creates the jobs for a single reference sequence. The reference and record buffer are only set up
+   * when the first chunk of the sequence is processed, so that several sequences can share one scheduler.
+   * A sequence found to have no records at that point produces no output.
+   */
+  private class JobFactoryMultiSample extends IntegralAbstract implements AutoCloseable {
 
     private final ChunkInfo mInfo;
-    private final CircularBufferMultifileSinglePassReaderWindowSync<VariantAlignmentRecord> mBuffer;
     private final String mRefName;
-    private final byte[] mRefNts;
+    private final long mSdfSeqId;
+    private final int mSequenceIndex;
+    private final RangeList<String> mRangeList;
     private final MultisampleJointCaller mJointCaller;
-    private final BedComplexitiesWriter mBed;
-
-    JobFactoryMultiSample(final ChunkInfo info, final String refName, final byte[] refNts) throws IOException {
+    private final AtomicInteger mIncrsRemaining;
+    private final AtomicInteger mFinalJobsRemaining = new AtomicInteger(2); // last BED and last OUT
+    private final boolean mPosition;
+    private boolean mStarted = false;
+    private boolean mEmpty = false;
+    private boolean mClosed = false;
+    private CircularBufferMultifileSinglePassReaderWindowSync<VariantAlignmentRecord> mBuffer;
+    private byte[] mRefNts;
+    private BedComplexitiesWriter mBed;
+    private ParallelProgress mPP;
+
+    /**
+     * @param info chunking of the sequence
+     * @param refName name of the sequence
+     * @param sdfSeqId id of the sequence in the reference SDF
+     * @param sequenceIndex index of the sequence in the SAM header
+     * @param position true if the records are to be moved on to this sequence when it starts, false if they are already positioned and not empty
+     */
+    JobFactoryMultiSample(final ChunkInfo info, final String refName, final long sdfSeqId, final int sequenceIndex, final boolean position) {
       mInfo = info;
+      mRefName = refName;
+      mSdfSeqId = sdfSeqId;
+      mSequenceIndex = sequenceIndex;
+      mRangeList = mWrapper.context().hasRegions() ? mWrapper.context().rangeList(sequenceIndex) : null;
+      mJointCaller = mConfig.getJointCaller();
+      mIncrsRemaining = new AtomicInteger(info.numberChunks());
+      mPosition = position;
+    }
+
+    // Records are read in a single pass so a sequence cannot start until the previous sequence has taken all of its records
+    private boolean incrsDone() {
+      return mIncrsRemaining.get() == 0;
+    }
+
+    private synchronized void start() throws IOException {
+      if (mStarted || mEmpty) {
+        return;
+      }
+      if (mPosition) {
+        mWrapper.setSequenceId(mSequenceIndex);
+        if (!mWrapper.hasNext()) {
+          mEmpty = true; // skipped as it would be when not spanning sequences
+          return;
+        }
+      }
+      Diagnostic.userLog("Sequence " + mRefName + " filter on maximum per-sample coverage is " + mParams.maxCoverageFilter().thresholdSingle(mRefName));
+      Diagnostic.userLog("Sequence " + mRefName + " extreme coverage bypass level is "
+                         + mParams.maxCoverageBypass().thresholdTotal(mRefName));
+      mPP = new ParallelProgress(mRefName);
+      mRefNts = new byte[mReferenceSequences.length(mSdfSeqId)];
+      mReferenceSequences.read(mSdfSeqId, mRefNts);
       String[] genomeNames = mConfig.getGenomeNames();
       if (genomeNames.length == 1) {
         genomeNames = new String[] {}; // Special case for singleton caller, map all records to 0
       }
-      final int depth = mParams.maxCoverageBypass().thresholdTotal(refName);
+      final int depth = mParams.maxCoverageBypass().thresholdTotal(mRefName);
       final VariantAlignmentRecordPopulator pop = new VariantAlignmentRecordPopulator(genomeNames);
-      final RegionRestriction restriction = new RegionRestriction(refName, info.start(), info.end());
+      final RegionRestriction restriction = new RegionRestriction(mRefName, mInfo.start(), mInfo.end());
 
-      mBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(mWrapper, pop, mParams.uberHeader().getSequenceIndex(refName), restriction.getStart(), depth);
-      mRefName = refName;
-      mRefNts = refNts;
-      mJointCaller = mConfig.getJointCaller();
-      mBed = new BedComplexitiesWriter(mBedOut, refName, info.start());
+      mBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(mWrapper.sequenceIterator(mSequenceIndex), pop, mSequenceIndex, restriction.getStart(), depth);
+      mBed = new BedComplexitiesWriter(mBedOut, mBedIndexer, mRefName, mInfo.start());
+      mStarted = true;
+    }
+
+    // Called as each of the last BED and OUT jobs complete, after which no more jobs will run for this sequence
+    private void finalJobDone() throws IOException {
+      if (mFinalJobsRemaining.decrementAndGet() == 0) {
+        close();
+      }
     }
 
     @Override
-    public void close() throws IOException {
-      mTossedRecords += mBuffer.getTossedRecordCount();
-      mBed.finish();
+    public synchronized void close() throws IOException {
+      if (!mStarted || mClosed) {
+        return;
+      }
+      mClosed = true;
+      synchronized (mTossedRecordsLock) {
+        mTossedRecords += mBuffer.getTossedRecordCount();
+      }
       mBuffer.close();
       mPP.close();
       mJointCaller.endOfSequence();
+      mRefNts = null;
     }
 
     @Override
@@ -386,37 +471,38 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
       return true;
     }
 
-    @Override
-    public Job<JobIdMultisample> job(final JobIdMultisample id, final Result[] arguments) {
+    Job<JobIdMultisample> job(final JobIdMultisample id, final int chunk, final Result[] arguments) {
       switch (id.type()) {
         case INCR:
-          return new IncrJob(id, arguments);
+          return new IncrJob(id, chunk, arguments);
         case DANGLING:
-          return new DanglingJob(id, arguments);
+          return new DanglingJob(id, chunk, arguments);
         case BED:
-          return new BedJob(id, arguments);
+          return new BedJob(id, chunk, arguments);
         case COMPLEX:
-          return new ComplexJob(id, arguments);
+          return new ComplexJob(id, chunk, arguments);
         case FILTER:
-          return new FilterJob(id, arguments);
+          return new FilterJob(id, chunk, arguments);
         case OUT:
-          return new OutJob(id, arguments);
+          return new OutJob(id, chunk, arguments);
         default:
           throw new RuntimeException();
       }
     }
 
     private abstract class MultisampleJob extends Job<JobIdMultisample> {
+      protected final int mChunk; // chunk within this sequence
       protected final Result[] mArguments;
-      public MultisampleJob(JobIdMultisample id, Result[] arguments) {
+      public MultisampleJob(JobIdMultisample id, int chunk, Result[] arguments) {
         super(id);
+        mChunk = chunk;
         mArguments = arguments;
       }
 
       @Override
       public String toString() {
-        final int start = id().time() * mInfo.chunkSize() + mInfo.start();
-        final int end = Math.min(start + mInfo.chunkSize(), mInfo.end());
+        final int start = mInfo.chunkStart(mChunk);
+        final int end = mInfo.chunkEnd(mChunk);
         return super.toString() + " " + mRefName + ":" + start + "-" + end;
       }
 
@@ -428,25 +514,35 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
     }
 
     private class IncrJob extends MultisampleJob {
-      public IncrJob(JobIdMultisample id, Result[] arguments) {
-        super(id, arguments);
+      public IncrJob(JobIdMultisample id, int chunk, Result[] arguments) {
+        super(id, chunk, arguments);
       }
 
       @Override
       public Result run() throws IOException {
-        final int start = id().time() * mInfo.chunkSize() + mInfo.start();
-        final int end = Math.min(start + mInfo.chunkSize(), mInfo.end());
-        final List<Variant> calls = new ArrayList<>();
-        final int maxReadLen = processNtPositions(calls, mJointCaller, mInfo, mRefNts, mBuffer, start, end);
-        final boolean simpleRepeats = mParams.simpleRepeatExtension() && !mParams.ionTorrent();
-        final Complexities cx = new Complexities(calls, mRefName, start, end, mParams.interestingSeparation(), mParams.hyperComplexLength(), mRefNts, simpleRepeats, mConfig.getSiteSpecificPriors());
-        return new Result(cx, maxReadLen);
+        final long t0 = System.nanoTime();
+        try {
+          start();
+          final int start = mInfo.chunkStart(mChunk);
+          final int end = mInfo.chunkEnd(mChunk);
+          if (mEmpty) {
+            return new Result(new Complexities(new ArrayList<Variant>(), mRefName, start, end, mParams.interestingSeparation(), mParams.hyperComplexLength(), null, false, null), 0);
+          }
+          final List<Variant> calls = new ArrayList<>();
+          final int maxReadLen = processNtPositions(calls, mJointCaller, mInfo, mRangeList, mPP, mRefNts, mBuffer, start, end);
+          final boolean simpleRepeats = mParams.simpleRepeatExtension() && !mParams.ionTorrent();
+          final Complexities cx = new Complexities(calls, mRefName, start, end, mParams.interestingSeparation(), mParams.hyperComplexLength(), mRefNts, simpleRepeats, mConfig.getSiteSpecificPriors());
+          mInfo.addCost(mChunk, System.nanoTime() - t0);
+          return new Result(cx, maxReadLen);
+        } finally {
+          mIncrsRemaining.decrementAndGet();
+        }
       }
     }
 
     private class DanglingJob extends MultisampleJob {
-      public DanglingJob(JobIdMultisample id, Result[] arguments) {
-        super(id, arguments);
+      public DanglingJob(JobIdMultisample id, int chunk, Result[] arguments) {
+        super(id, chunk, arguments);
       }
 
       @Override
@@ -459,29 +555,38 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
     }
 
     private class BedJob extends MultisampleJob {
-      public BedJob(JobIdMultisample id, Result[] arguments) {
-        super(id, arguments);
+      public BedJob(JobIdMultisample id, int chunk, Result[] arguments) {
+        super(id, chunk, arguments);
       }
 
       @Override
       public Result run() throws IOException {
-        final Complexities last = (Complexities) mArguments[1].result(0);
-        if (last != null) {
-          mBed.write(last);
+        if (!mEmpty) {
+          final Complexities last = (Complexities) mArguments[1].result(0);
+          if (last != null) {
+            mBed.write(last);
+          }
+          if (mChunk == mInfo.numberChunks()) {
+            mBed.finish();
+          }
+        }
+        if (mChunk == mInfo.numberChunks()) {
+          finalJobDone();
         }
         return new Result();
       }
     }
 
     private class ComplexJob extends MultisampleJob {
-      public ComplexJob(JobIdMultisample id, Result[] arguments) {
-        super(id, arguments);
+      public ComplexJob(JobIdMultisample id, int chunk, Result[] arguments) {
+        super(id, chunk, arguments);
       }
 
       @Override
       public Result run() throws IOException {
+        final long t0 = System.nanoTime();
         final Complexities complexRegions = (Complexities) mArguments[0].result(0);
-        if (complexRegions != null) {
+        if (complexRegions != null && !mEmpty) {
           assert complexRegions.isFixed();
           final List<Variant> calls;
           if (mParams.noComplexCalls()) {
@@ -499,6 +604,7 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
             updateCounts(caller);
           }
           mBuffer.flush(complexRegions.startOfChunk(), complexRegions.endOfChunk());
+          mInfo.addCost(mChunk, System.nanoTime() - t0);
           return new Result(calls);
         } else {
           return new Result((Object) null);
@@ -507,8 +613,8 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
     }
 
     private class FilterJob extends MultisampleJob {
-      public FilterJob(JobIdMultisample id, Result[] arguments) {
-        super(id, arguments);
+      public FilterJob(JobIdMultisample id, int chunk, Result[] arguments) {
+        super(id, chunk, arguments);
       }
 
       @Override
@@ -517,7 +623,7 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
 
         final List<Variant> equivFiltered;
         final List<Variant> lastCalls;
-        if (mArguments[0] == null && mArguments[1] == null) { // Final filter job to flush out previous last call (if present)
+        if (mEmpty || (mArguments[0] == null && mArguments[1] == null)) { // Final filter job to flush out previous last call (if present)
           equivFiltered = prevLastCall;
           lastCalls = null;
         } else {
@@ -535,8 +641,8 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
     }
 
     private class OutJob extends MultisampleJob {
-      public OutJob(JobIdMultisample id, Result[] arguments) {
-        super(id, arguments);
+      public OutJob(JobIdMultisample id, int chunk, Result[] arguments) {
+        super(id, chunk, arguments);
       }
 
       @Override
@@ -552,14 +658,42 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
             mOut.write(record);
           }
         }
-        if (mBuffer.finishedTo() < Math.min(id().time() * mInfo.chunkSize() + mInfo.start(), mInfo.end())) { //flushing should be keeping up with output
-          throw new RuntimeException("Failed to flush chunk: " + mBuffer.finishedTo() + " : " + id().time() * mInfo.chunkSize());
+        if (!mEmpty && mBuffer.finishedTo() < mInfo.chunkStart(mChunk)) { //flushing should be keeping up with output
+          throw new RuntimeException("Failed to flush chunk: " + mBuffer.finishedTo() + " : " + mInfo.chunkStart(mChunk));
+        }
+        if (mChunk == mInfo.numberChunks() + 1) {
+          finalJobDone();
         }
         return null;
       }
     }
   }
 
+  /**
+   * Dispatches jobs to the factory for the sequence they belong to.
+   */
+  private static final class SequencesJobFactory implements JobFactory<JobIdMultisample>, AutoCloseable {
+    private final DependenciesMultiSample mDependencies;
+    private final List<JobFactoryMultiSample> mFactories;
+
+    SequencesJobFactory(final DependenciesMultiSample dependencies, final List<JobFactoryMultiSample> factories) {
+      mDependencies = dependencies;
+      mFactories = factories;
+    }
+
+    @Override
+    public Job<JobIdMultisample> job(final JobIdMultisample id, final Result[] arguments) {
+      return mFactories.get(mDependencies.sequence(id)).job(id, mDependencies.chunk(id), arguments);
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (final JobFactoryMultiSample factory : mFactories) {
+        factory.close();
+      }
+    }
+  }
+
   private List<Variant> trimSplit(List<Variant> merged) {
     if (!mParams.enableTrimSplit()) {
       return merged;
@@ -601,35 +735,49 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
     return result;
   }
 
-  private void processAnEntireSequence(final String refName, final byte[] refNts) throws IOException {
-    mPP = new ParallelProgress(refName);
+  private JobFactoryMultiSample createJobFactory(final String refName, final long sdfSeqId, final int sequenceIndex, final int sequenceLength, final boolean position) {
     final Ploidy ploidy = mSexMemo.getRealPloidy(mParams.sex(), refName);
     if (!mConfig.handlesPloidy(ploidy)) {
       Diagnostic.userLog(ploidy + " sequence " + refName + " not supported in this caller");
-      return;
+      return null;
     }
-    Diagnostic.userLog("Sequence " + refName + " filter on maximum per-sample coverage is " + mParams.maxCoverageFilter().thresholdSingle(refName));
-    Diagnostic.userLog("Sequence " + refName + " extreme coverage bypass level is "
-                       + mParams.maxCoverageBypass().thresholdTotal(refName));
-
-    final List<RangeList.RangeData<String>> ranges = mWrapper.getCurrentRangeList().getRangeList();
+    final List<RangeList.RangeData<String>> ranges = mWrapper.context().rangeList(sequenceIndex).getRangeList();
     assert ranges.size() > 0;
     final int startPos = ranges.get(0).getStart();
-    if (startPos >= refNts.length) {
-      throw new NoTalkbackSlimException("Desired start position for sequence " + refName + " (" + startPos + ") is greater than available reference SDF sequence length (" + refNts.length + ")");
+    if (startPos >= sequenceLength) {
+      throw new NoTalkbackSlimException("Desired start position for sequence " + refName + " (" + startPos + ") is greater than available reference SDF sequence length (" + sequenceLength + ")");
     }
     int endPos = ranges.get(ranges.size() - 1).getEnd();
-    if (endPos > refNts.length) {
-      Diagnostic.warning("Sequence length disparity between reference SDF and SAM headers for sequence " + refName + ". Clipping end position to available SDF sequence length (" + refNts.length + ")");
-      endPos = refNts.length;
+    if (endPos > sequenceLength) {
+      Diagnostic.warning("Sequence length disparity between reference SDF and SAM headers for sequence " + refName + ". Clipping end position to available SDF sequence length (" + sequenceLength + ")");
+      endPos = sequenceLength;
+    }
+    final ChunkInfo info = new ChunkInfo(sequenceLength, refName, mParams.chunkSize(), startPos, endPos, mParams.execThreads(), mParams.maxReadLength(), GlobalFlags.getBooleanValue(GlobalFlags.CALLER_ADAPTIVE_CHUNKS));
+    return new JobFactoryMultiSample(info, refName, sdfSeqId, sequenceIndex, position);
+  }
+
+  // Process the sequences in order with a single scheduler, so chunks from the end of one sequence can run alongside the start of the next
+  private void processSequences(final List<JobFactoryMultiSample> factories) throws IOException {
+    final int[] numberChunks = new int[factories.size()];
+    for (int i = 0; i < numberChunks.length; i++) {
+      numberChunks[i] = factories.get(i).mInfo.numberChunks();
     }
-    final ChunkInfo info = new ChunkInfo(refNts.length, refName, mParams.chunkSize(), startPos, endPos, mParams.execThreads(), mParams.maxReadLength());
-    final DependenciesMultiSample depen = new DependenciesMultiSample(info.numberChunks());
-    try (final JobFactoryMultiSample jobFac = new JobFactoryMultiSample(info, refName, refNts)) {
+    final DependenciesMultiSample depen = new DependenciesMultiSample(numberChunks, new DependenciesMultiSample.SequenceGate() {
+      @Override
+      public boolean ready(int sequence) {
+        return factories.get(sequence - 1).incrsDone();
+      }
+    });
+    try (final SequencesJobFactory jobFac = new SequencesJobFactory(depen, factories)) {
       final EventList<JobIdMultisample> eventList = new EventListMultiSample<>();
-      final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, jobFac, eventList, null, mJobStatistics, mParams.threadingLookAhead());
+      final Scheduler<JobIdMultisample> sched;
+      if (WORK_STEALING && mParams.threadingEnvironment() == ThreadingEnvironment.PARALLEL) {
+        sched = new SchedulerStealing<>(depen, jobFac, eventList, null, mJobStatistics, mParams.threadingLookAhead(), SchedulerStealing.DEFAULT_BATCH);
+      } else {
+        sched = new SchedulerSynchronized<>(depen, jobFac, eventList, null, mJobStatistics, mParams.threadingLookAhead());
+      }
       //final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, jobFac, eventList, System.err, mJobStatistics, mParams.threadingLookAhead());
-      final String msg = "Processing " + refName;
+      final String msg = "Processing " + (factories.size() == 1 ? factories.get(0).mRefName : factories.size() + " sequences");
       final Executor<JobIdMultisample> exec = createExecutor(sched, msg, mParams);
       exec.run();
       assert eventList.next(sched.lookAhead()) == null;
@@ -739,7 +887,12 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
     for (VcfAnnotator annot : mAnnotators) {
       annot.updateHeader(mVcfHeader);
     }
-    mOut = new VcfWriter(mVcfHeader, mParams.vcfStream());
+    if (mParams.blockCompressed() && mParams.outputIndex()) {
+      mVcfIndexer = new InlineTabixIndexer(mParams.vcfFile(), new TabixIndexer.VcfIndexerFactory());
+      mOut = new VcfWriter(mVcfIndexer, mVcfHeader);
+    } else {
+      mOut = new VcfWriter(mVcfHeader, mParams.vcfStream());
+    }
     mBedFilterRegions = (mParams.regionsFilterBedFile() == null) ? null : BedUtils.regions(mParams.regionsFilterBedFile());
 
     Diagnostic.developerLog("Chunk size is " + mParams.chunkSize());
@@ -753,6 +906,7 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
       init();
       try {
         final Map<String, Long> sequenceNameMap = ReaderUtils.getSequenceNameMap(mReferenceSequences);
+        final List<JobFactoryMultiSample> spanned = new ArrayList<>();
         for (final SAMSequenceRecord r : mSequences) {
           final String sequenceName = r.getSequenceName(); //mReferenceSequences.name(l);
           // Only process this sequence if we are doing them all, or if it is
@@ -763,15 +917,30 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
             }
             final long sdfSeqId = sequenceNameMap.get(sequenceName);
             final int sequenceLength = mReferenceSequences.length(sdfSeqId);
-            mWrapper.setSequenceId(r.getSequenceIndex());
-            if (mWrapper.hasNext()) {
-              assert sequenceLength == r.getSequenceLength() : "" + sequenceLength + " != " + r.getSequenceLength();
-              final byte[] sequenceNt = new byte[sequenceLength];
-              mReferenceSequences.read(sdfSeqId, sequenceNt);
-              processAnEntireSequence(sequenceName, sequenceNt);
+            if (mParams.spanSequences()) {
+              if (sequenceLength == 0) {
+                continue;
+              }
+              // Records are not checked until the sequence is reached, those without any are passed over quickly
+              final JobFactoryMultiSample factory = createJobFactory(sequenceName, sdfSeqId, r.getSequenceIndex(), sequenceLength, true);
+              if (factory != null && factory.mInfo.numberChunks() > 0) {
+                spanned.add(factory);
+              }
+            } else {
+              mWrapper.setSequenceId(r.getSequenceIndex());
+              if (mWrapper.hasNext()) {
+                assert sequenceLength == r.getSequenceLength() : "" + sequenceLength + " != " + r.getSequenceLength();
+                final JobFactoryMultiSample factory = createJobFactory(sequenceName, sdfSeqId, r.getSequenceIndex(), sequenceLength, false);
+                if (factory != null) {
+                  processSequences(Collections.singletonList(factory));
+                }
+              }
             }
           }
         }
+        if (!spanned.isEmpty()) {
+          processSequences(spanned);
+        }
         logRecordCounts();
         mStatistics.setExcessiveCoverageCount(mExcessiveCoverageCount);
         mStatistics.setExcessiveHypothesesCount(mExcessiveHypothesesCount);
@@ -791,9 +960,19 @@ public class MultisampleTask extends ParamsTask<VariantParams, VariantStatistics
         mWrapper.close();
       }
     }
-    if (mParams.blockCompressed() && mParams.outputIndex()) {
-      VcfUtils.createVcfTabixIndex(mParams.vcfFile());
-      BedUtils.createBedTabixIndex(mParams.bedFile());
+    if (mVcfIndexer != null) {
+      saveIndex(mVcfIndexer);
+    }
+    if (mBedIndexer != null) {
+      saveIndex(mBedIndexer);
+    }
+  }
+
+  private static void saveIndex(InlineTabixIndexer indexer) throws IOException {
+    try {
+      indexer.saveIndex();
+    } catch (final UnindexableDataException e) {
+      Diagnostic.warning(TabixIndexer.getTabixWarningMessage(indexer.getFile(), e));
     }
   }
 }
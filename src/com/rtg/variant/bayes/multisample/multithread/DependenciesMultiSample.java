@@ -63,7 +63,26 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
     ORDERING.freeze();
   }
 
-  private final int mNumberChunks;
+  /**
+   * Decides when the chunks of a sequence can start being scheduled.
+   */
+  public interface SequenceGate {
+    /**
+     * @param sequence index of a sequence other than the first.
+     * @return true iff the first increment job of the sequence can be scheduled.
+     */
+    boolean ready(int sequence);
+  }
+
+  private final int[] mNumberChunks;
+
+  private final SequenceGate mGate;
+
+  // Time at which each sequence starts, the final entry is one past the last sequence
+  private final int[] mOffsets;
+
+  // Maximum chunk number allowed in a global identifier
+  private final int mTotalChunks;
 
   private int mNext = 0;
 
@@ -71,9 +90,76 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
    * @param numberChunks number chunks.
    */
   public DependenciesMultiSample(final int numberChunks) {
-    mNumberChunks = numberChunks;
+    this(new int[] {numberChunks});
   }
 
+  /**
+   * Chain several sequences together so they can be processed by a single scheduler.
+   * Each sequence starts one time step after the last chunk of the previous sequence, so
+   * the final filter and output of one sequence share a time with the first chunk of the next.
+   * Output and bed jobs are linked across the boundary so results are still written in sequence order.
+   * @param numberChunks number chunks in each sequence.
+   */
+  public DependenciesMultiSample(final int[] numberChunks) {
+    this(numberChunks, null);
+  }
+
+  /**
+   * Chain several sequences together, holding back the increment jobs of each sequence after the first
+   * until the gate allows them.
+   * @param numberChunks number chunks in each sequence.
+   * @param gate consulted before the first increment job of each sequence after the first, may be null.
+   */
+  public DependenciesMultiSample(final int[] numberChunks, final SequenceGate gate) {
+    mNumberChunks = numberChunks.clone();
+    mGate = gate;
+    mOffsets = new int[numberChunks.length + 1];
+    for (int i = 0; i < numberChunks.length; i++) {
+      mOffsets[i + 1] = mOffsets[i] + numberChunks[i] + 1;
+    }
+    mTotalChunks = mOffsets[numberChunks.length] - 1;
+  }
+
+  /**
+   * @return the maximum chunk number for identifiers produced by these dependencies.
+   */
+  public int totalChunks() {
+    return mTotalChunks;
+  }
+
+  /**
+   * @param id job identifier.
+   * @return the index of the sequence that the job belongs to.
+   */
+  public int sequence(final JobIdMultisample id) {
+    final int time = id.time();
+    int lo = 0;
+    int hi = mNumberChunks.length;
+    while (hi - lo > 1) {
+      final int mid = (lo + hi) >>> 1;
+      if (mOffsets[mid] <= time) {
+        lo = mid;
+      } else {
+        hi = mid;
+      }
+    }
+    if (lo > 0 && time == mOffsets[lo] && (id.type() == JobType.FILTER || id.type() == JobType.OUT)) {
+      return lo - 1;
+    }
+    return lo;
+  }
+
+  /**
+   * @param id job identifier.
+   * @return the chunk within its own sequence that the job is for.
+   */
+  public int chunk(final JobIdMultisample id) {
+    return id.time() - mOffsets[sequence(id)];
+  }
+
+  private JobIdMultisample id(final int seq, final int chunk, final JobType type) {
+    return new JobIdMultisample(mTotalChunks, mOffsets[seq] + chunk, type);
+  }
 
   @Override
   public int delta() {
@@ -84,7 +170,9 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
   @Override
   public Collection<JobIdMultisample> from(final JobIdMultisample id) {
     final List<JobIdMultisample> res = new LinkedList<>();
-    final int chunk = id.time();
+    final int seq = sequence(id);
+    final int numberChunks = mNumberChunks[seq];
+    final int chunk = id.time() - mOffsets[seq];
     final JobType type = id.type();
     final Set<EnumTimeId<JobType>> fromId = ORDERING.from(id.type());
     //System.err.println(fromId);
@@ -94,11 +182,12 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
       final int fromChunk = chunk + incr;
       final JobIdMultisample from;
       final JobType fridType = frid.type();
-      if (fromChunk < 0 || (type == JobType.DANGLING && chunk == mNumberChunks && fridType == JobType.INCR && incr == 0)) {
-        from = null;
+      if (fromChunk < 0 || (type == JobType.DANGLING && chunk == numberChunks && fridType == JobType.INCR && incr == 0)) {
+        // First bed of a sequence follows the last bed of the previous sequence
+        from = seq > 0 && type == JobType.BED && fridType == JobType.BED ? id(seq - 1, mNumberChunks[seq - 1], JobType.BED) : null;
       } else {
         final boolean none;
-        if (chunk == mNumberChunks + 1) {
+        if (chunk == numberChunks + 1) {
           switch (type) {
             case FILTER:
               none = fridType != JobType.FILTER;
@@ -128,7 +217,14 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
               throw new RuntimeException(id.toString());
           }
         }
-        from = none ? null : new JobIdMultisample(mNumberChunks, fromChunk, fridType);
+        if (!none) {
+          from = id(seq, fromChunk, fridType);
+        } else if (seq > 0 && type == JobType.OUT && fridType == JobType.OUT) {
+          // First output of a sequence follows the last output of the previous sequence
+          from = id(seq - 1, mNumberChunks[seq - 1] + 1, JobType.OUT);
+        } else {
+          from = null;
+        }
       }
       res.add(from);
     }
@@ -139,15 +235,17 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
   @Override
   public Collection<JobIdMultisample> to(final JobIdMultisample id) {
     final Set<JobIdMultisample> res = new HashSet<>();
-    final int chunk = id.time();
+    final int seq = sequence(id);
+    final int numberChunks = mNumberChunks[seq];
+    final int chunk = id.time() - mOffsets[seq];
     final JobType typeFrom = id.type();
     if (typeFrom == JobType.DANGLING && chunk == 0) {
       //special case at beggining - see diagram.
-      res.add(new JobIdMultisample(mNumberChunks, 1, JobType.DANGLING));
-      res.add(new JobIdMultisample(mNumberChunks, 0, JobType.COMPLEX));
-      res.add(new JobIdMultisample(mNumberChunks, 0, JobType.BED));
+      res.add(id(seq, 1, JobType.DANGLING));
+      res.add(id(seq, 0, JobType.COMPLEX));
+      res.add(id(seq, 0, JobType.BED));
     } else if (typeFrom == JobType.COMPLEX && chunk == 0) {
-      res.add(new JobIdMultisample(mNumberChunks, 0, JobType.BED));
+      res.add(id(seq, 0, JobType.BED));
       return res;
     } else {
       final Set<EnumTimeId<JobType>> toSet = ORDERING.to(id.type());
@@ -157,13 +255,16 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
         final int toChunk = chunk + toIncr;
         final JobType toType = toid.type();
         final boolean inRange;
-        if (toChunk <= mNumberChunks) {
+        if (toChunk <= numberChunks) {
           inRange = true;
         } else {
-          inRange = toChunk == mNumberChunks + 1 && (toType == JobType.FILTER || toType == JobType.OUT);
+          inRange = toChunk == numberChunks + 1 && (toType == JobType.FILTER || toType == JobType.OUT);
         }
         if (inRange) {
-          res.add(new JobIdMultisample(mNumberChunks, toChunk, toType));
+          res.add(id(seq, toChunk, toType));
+        } else if (seq + 1 < mNumberChunks.length && toType == typeFrom && (toType == JobType.BED || toType == JobType.OUT)) {
+          // Ordering of output carries on into the next sequence
+          res.add(id(seq + 1, toChunk - numberChunks - 1, toType));
         }
       }
     }
@@ -173,20 +274,38 @@ public class DependenciesMultiSample extends IntegralAbstract implements Depende
 
   @Override
   public JobIdMultisample next(LookAhead lookAhead) {
+    if (mNext < mTotalChunks) {
+      final JobIdMultisample incr = new JobIdMultisample(mTotalChunks, mNext, JobType.INCR);
+      if (chunk(incr) == mNumberChunks[sequence(incr)]) {
+        mNext++; // No increment job at the final chunk of a sequence
+      }
+    }
     final JobIdMultisample res;
-    if (mNext >= mNumberChunks || !lookAhead.ok(mNext, 0)) {
+    if (mNext >= mTotalChunks || !lookAhead.ok(mNext, 0) || !ready(mNext)) {
       res = null;
     } else {
-      res = new JobIdMultisample(mNumberChunks, mNext, JobType.INCR);
+      res = new JobIdMultisample(mTotalChunks, mNext, JobType.INCR);
       mNext++;
     }
     return res;
   }
 
+  // Like the look ahead, a closed gate only delays increments, it is checked again as each job completes
+  private boolean ready(final int time) {
+    if (mGate == null) {
+      return true;
+    }
+    final int seq = sequence(new JobIdMultisample(mTotalChunks, time, JobType.INCR));
+    return seq == 0 || time != mOffsets[seq] || mGate.ready(seq);
+  }
+
   @Override
   public boolean integrity() {
-    Exam.assertTrue(mNumberChunks > 0);
-    Exam.assertTrue(0 <= mNext && mNext <= mNumberChunks);
+    Exam.assertEquals(mNumberChunks.length + 1, mOffsets.length);
+    for (final int numberChunks : mNumberChunks) {
+      Exam.assertTrue(numberChunks > 0);
+    }
+    Exam.assertTrue(0 <= mNext && mNext <= mTotalChunks);
     return true;
   }
 
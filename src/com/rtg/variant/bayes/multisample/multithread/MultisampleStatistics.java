@@ -28,14 +28,21 @@ public class MultisampleStatistics implements JobStatistics<JobIdMultisample> {
     }
   }
 
+  private final SpyTimer mLockWait = new SpyTimer("SchedulerLockWait");
+
   @Override
   public void increment(JobIdMultisample id, long nanoTime) {
     mSpies[id.type().ordinal()].increment(nanoTime);
   }
 
+  @Override
+  public void lockWait(long nanoTime) {
+    mLockWait.increment(nanoTime);
+  }
+
   @Override
   public String toString() {
-    return Arrays.toString(mSpies);
+    return Arrays.toString(mSpies) + " " + mLockWait;
   }
 
 }
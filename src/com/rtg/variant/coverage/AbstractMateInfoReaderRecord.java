@@ -12,6 +12,7 @@
 package com.rtg.variant.coverage;
 
 import com.rtg.sam.MateInfo;
+import com.rtg.sam.RawBamRecord;
 import com.rtg.sam.ReaderRecord;
 import com.rtg.util.intervals.SequenceIdLocusSimple;
 
@@ -33,7 +34,20 @@ public abstract class AbstractMateInfoReaderRecord<T extends AbstractMateInfoRea
    * @param genome the genome id
    */
   public AbstractMateInfoReaderRecord(SAMRecord sam, int genome) {
-    super(sam.getReferenceIndex(), sam.getAlignmentStart() - 1, sam.getAlignmentEnd());
+    this(sam, sam.getAlignmentEnd(), genome);
+  }
+
+  /**
+   * Constructor
+   * @param raw the binary BAM record this is based on
+   * @param genome the genome id
+   */
+  public AbstractMateInfoReaderRecord(RawBamRecord raw, int genome) {
+    this(raw.getRecord(), raw.getAlignmentEnd(), genome);
+  }
+
+  private AbstractMateInfoReaderRecord(SAMRecord sam, int alignmentEnd, int genome) {
+    super(sam.getReferenceIndex(), sam.getAlignmentStart() - 1, alignmentEnd);
     mMated = sam.getReadPairedFlag() && sam.getProperPairFlag();
     if (mMated) {
       mFragmentLength = sam.getInferredInsertSize();
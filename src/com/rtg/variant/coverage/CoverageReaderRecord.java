@@ -13,6 +13,7 @@ package com.rtg.variant.coverage;
 
 import java.util.BitSet;
 
+import com.rtg.sam.RawBamRecord;
 import com.rtg.sam.SamUtils;
 import com.rtg.util.CompareHelper;
 
@@ -39,6 +40,23 @@ public class CoverageReaderRecord extends AbstractMateInfoReaderRecord<CoverageR
     mCoverageBitSet = parseCigar(sam);
   }
 
+  /**
+   * @param raw binary BAM record to convert
+   * @param genome genome record applies to
+   */
+  public CoverageReaderRecord(RawBamRecord raw, int genome) {
+    super(raw, genome);
+    final Integer ih = raw.getIntegerAttribute(SamUtils.ATTRIBUTE_IH);
+    mIH = ih == null ? 1 : ih;
+    mCoverageMultiplier = ih == null ? 1.0 : 1.0 / ih;
+    final BitSet bs = new BitSet();
+    int tPos = 0;
+    for (int i = 0; i < raw.getCigarLength(); i++) {
+      tPos = cover(bs, tPos, raw.getCigarOperation(i), raw.getCigarOperationLength(i));
+    }
+    mCoverageBitSet = bs;
+  }
+
   @Override
   public int compareTo(CoverageReaderRecord o) {
     return new CompareHelper().compare(getSequenceId(), o.getSequenceId())
@@ -100,40 +118,47 @@ public class CoverageReaderRecord extends AbstractMateInfoReaderRecord<CoverageR
       if (Character.isDigit(c)) {
         n = 10 * n + c - '0';
       } else {
-        switch (c) {
-        case SamUtils.CIGAR_SAME_OR_MISMATCH:
-        case SamUtils.CIGAR_SAME:
-        case SamUtils.CIGAR_MISMATCH:
-          // it is a match or mismatch, so increment our coverage counts
-          while (n-- > 0) {
-            if (0 <= tPos) {
-              bs.set(tPos, true);
-            }
-            tPos++;
-          }
-          break;
-
-        case SamUtils.CIGAR_GAP_IN_READ:
-          // skip this region in the reference genome
-        case SamUtils.CIGAR_DELETION_FROM_REF: // we record the delete at the read position just after the delete
-          tPos += n;
-          break;
-
-        case SamUtils.CIGAR_INSERTION_INTO_REF:
-        case SamUtils.CIGAR_SOFT_CLIP:
-          // skip over these soft-clipped read bases.
-        case 'H':
-          // unlike soft clipping, hard clipping does not appear in the read, so we just skip it.
-        case 'P':
-          // padding is just to get multiple inserts aligned, so it does not increment either position.
-          break;
-
-        default:
-          throw new RuntimeException("Unknown cigar code=" + c);
-        }
+        tPos = cover(bs, tPos, c, n);
         n = 0;
       }
     }
     return bs;
   }
+
+  // Apply one cigar operation, returning the new template position
+  private static int cover(BitSet bs, int templatePos, char c, int n) {
+    int tPos = templatePos;
+    switch (c) {
+    case SamUtils.CIGAR_SAME_OR_MISMATCH:
+    case SamUtils.CIGAR_SAME:
+    case SamUtils.CIGAR_MISMATCH:
+      // it is a match or mismatch, so increment our coverage counts
+      for (int k = 0; k < n; k++) {
+        if (0 <= tPos) {
+          bs.set(tPos, true);
+        }
+        tPos++;
+      }
+      break;
+
+    case SamUtils.CIGAR_GAP_IN_READ:
+      // skip this region in the reference genome
+    case SamUtils.CIGAR_DELETION_FROM_REF: // we record the delete at the read position just after the delete
+      tPos += n;
+      break;
+
+    case SamUtils.CIGAR_INSERTION_INTO_REF:
+    case SamUtils.CIGAR_SOFT_CLIP:
+      // skip over these soft-clipped read bases.
+    case 'H':
+      // unlike soft clipping, hard clipping does not appear in the read, so we just skip it.
+    case 'P':
+      // padding is just to get multiple inserts aligned, so it does not increment either position.
+      break;
+
+    default:
+      throw new RuntimeException("Unknown cigar code=" + c);
+    }
+    return tPos;
+  }
 }
@@ -22,6 +22,7 @@ import java.util.Set;
 import com.rtg.launcher.ParamsTask;
 import com.rtg.mode.DnaUtils;
 import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindow;
+import com.rtg.sam.RawBamRecord;
 import com.rtg.sam.SamReadingContext;
 import com.rtg.sam.SamUtils;
 import com.rtg.sam.ThreadedMultifileIteratorWrapper;
@@ -439,7 +440,8 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
 
     @Override
     public CoverageReaderRecord populate(SAMRecord source) {
-      return new CoverageReaderRecord(source, 0);
+      final RawBamRecord raw = RawBamRecord.wrap(source);
+      return raw == null ? new CoverageReaderRecord(source, 0) : new CoverageReaderRecord(raw, 0);
     }
   }
 
@@ -12,6 +12,10 @@
 
 package com.rtg.variant.eval;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import com.rtg.util.BasicLinkedListNode;
 import com.rtg.util.Utils;
 import com.rtg.util.integrity.Exam;
@@ -96,6 +100,35 @@ public class HalfPath extends IntegralAbstract implements Comparable<HalfPath> {
 
   }
 
+  /**
+   * Add the included and excluded variants of a path through a later, independent region
+   * of the template. Only the variant lists are updated, the haplotypes are left alone.
+   * @param later path through the later region
+   */
+  void append(HalfPath later) {
+    for (final OrientedVariant var : oldestFirst(later.mIncluded)) {
+      mIncluded = new BasicLinkedListNode<>(var, mIncluded);
+    }
+    for (final Variant var : oldestFirst(later.mExcluded)) {
+      mExcluded = new BasicLinkedListNode<>(var, mExcluded);
+    }
+    if (later.mLastVariant != null) {
+      mVariantEndPosition = later.mVariantEndPosition;
+      mLastVariant = later.mLastVariant;
+    }
+  }
+
+  static <T> List<T> oldestFirst(BasicLinkedListNode<T> list) {
+    final ArrayList<T> res = new ArrayList<>();
+    if (list != null) {
+      for (final T v : list) {
+        res.add(v);
+      }
+    }
+    Collections.reverse(res);
+    return res;
+  }
+
   void step() {
     haplotypeAStep();
     haplotypeBStep();
@@ -103,6 +103,12 @@ public class Path extends IntegralAbstract implements Comparable<Path> {
     mSyncPointList = null;
   }
 
+  private Path(HalfPath calledPath, HalfPath baselinePath, BasicLinkedListNode<Integer> syncPoints) {
+    mCalledPath = calledPath;
+    mBaselinePath = baselinePath;
+    mSyncPointList = syncPoints;
+  }
+
   private Path(Path parent, BasicLinkedListNode<Integer> syncPoints) {
     mCalledPath = new HalfPath(parent.mCalledPath);
     mBaselinePath = new HalfPath(parent.mBaselinePath);
@@ -235,6 +241,107 @@ public class Path extends IntegralAbstract implements Comparable<Path> {
     return best;
   }
 
+  /**
+   * Split the variants on a template into regions whose best paths can be found independently.
+   * A region ends at a stretch of template, free of variants from both sets, that is long enough and
+   * varied enough that any offset the variants in the region could introduce between the called and
+   * baseline haplotypes fails to match somewhere in the stretch. Every path is therefore back in
+   * sync before the next variant, and the best path over the whole template is the concatenation of
+   * the best paths through each region.
+   *
+   * @param template original reference sequence.
+   * @param calledVariants called variants, ordered by start position.
+   * @param baseLineVariants baseline variants, ordered by start position.
+   * @param minVariants a region is not ended until it contains at least this many variants.
+   * @param <T> the type parameter
+   * @return the called and baseline variants in each region, in template order.
+   */
+  static <T extends Variant> List<Pair<List<T>, List<T>>> regions(byte[] template, Collection<T> calledVariants, Collection<T> baseLineVariants, int minVariants) {
+    final List<T> called = new ArrayList<>(calledVariants);
+    final List<T> baseline = new ArrayList<>(baseLineVariants);
+    final List<Pair<List<T>, List<T>>> regions = new ArrayList<>();
+    int calledStart = 0;
+    int baselineStart = 0;
+    int c = 0;
+    int b = 0;
+    int maxEnd = 0;
+    int maxOffset = 0;
+    while (c < called.size() || b < baseline.size()) {
+      final boolean nextCalled = b >= baseline.size() || (c < called.size() && called.get(c).getStart() <= baseline.get(b).getStart());
+      final T var = nextCalled ? called.get(c) : baseline.get(b);
+      if (c + b - calledStart - baselineStart >= Math.max(minVariants, 1) && independent(template, maxEnd, var.getStart(), maxOffset)) {
+        regions.add(new Pair<List<T>, List<T>>(called.subList(calledStart, c), baseline.subList(baselineStart, b)));
+        calledStart = c;
+        baselineStart = b;
+        maxOffset = 0;
+      }
+      maxEnd = Math.max(maxEnd, var.getEnd());
+      maxOffset += lengthChange(var);
+      if (nextCalled) {
+        c++;
+      } else {
+        b++;
+      }
+    }
+    regions.add(new Pair<List<T>, List<T>>(called.subList(calledStart, c), baseline.subList(baselineStart, b)));
+    return regions;
+  }
+
+  // Largest change in length any allele of the variant makes to the template
+  private static int lengthChange(Variant var) {
+    final int refLength = var.getEnd() - var.getStart();
+    final byte[] alleleB = var.ntAlleleB();
+    return Math.max(Math.abs(var.ntAlleleA().length - refLength), alleleB == null ? 0 : Math.abs(alleleB.length - refLength));
+  }
+
+  // True if every offset up to maxOffset between the haplotypes mismatches somewhere in the gap
+  private static boolean independent(byte[] template, int gapStart, int gapEnd, int maxOffset) {
+    // Leave a base either side so paths have stepped clear of the last variant and can skip to just before the next
+    final int start = gapStart + 1;
+    final int end = Math.min(gapEnd, template.length) - 1;
+    if (end - start <= maxOffset + 1) {
+      return false;
+    }
+    for (int offset = 1; offset <= maxOffset; offset++) {
+      int p = start;
+      while (p + offset < end && template[p] == template[p + offset]) {
+        p++;
+      }
+      if (p + offset >= end) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Join the best paths through consecutive regions produced by <code>regions</code> into
+   * a single path, equivalent to the best path over all the variants. The resulting path is only
+   * suitable for retrieving results, it cannot be extended further.
+   * @param template original reference sequence.
+   * @param regionPaths best path through each region, in template order.
+   * @return the combined path.
+   */
+  static Path merge(byte[] template, List<Path> regionPaths) {
+    final HalfPath called = new HalfPath(template);
+    final HalfPath baseline = new HalfPath(template);
+    BasicLinkedListNode<Integer> syncPoints = null;
+    for (int i = 0; i < regionPaths.size(); i++) {
+      final Path path = regionPaths.get(i);
+      called.append(path.mCalledPath);
+      baseline.append(path.mBaselinePath);
+      // Only the last region contributes the sync point at the end of the template
+      final List<Integer> regionSyncPoints = HalfPath.oldestFirst(path.mSyncPointList);
+      if (i < regionPaths.size() - 1) {
+        regionSyncPoints.remove(regionSyncPoints.size() - 1);
+      }
+      for (final Integer pos : regionSyncPoints) {
+        syncPoints = new BasicLinkedListNode<>(pos, syncPoints);
+      }
+    }
+    return new Path(called, baseline, syncPoints);
+  }
+
   /**
    * Move the path to just before the next variant
    * @param template the template to skip along
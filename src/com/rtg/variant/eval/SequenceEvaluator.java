@@ -14,17 +14,20 @@ package com.rtg.variant.eval;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 import com.reeltwo.jumble.annotations.TestClass;
 import com.rtg.reader.SequencesReader;
 import com.rtg.util.IORunnable;
 import com.rtg.util.Pair;
+import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.NoTalkbackSlimException;
 import com.rtg.util.diagnostic.SlimException;
@@ -35,17 +38,53 @@ import com.rtg.util.diagnostic.SlimException;
 @TestClass({"com.rtg.variant.eval.VcfEvalTaskTest", "com.rtg.variant.eval.SequenceEvaluatorTest"})
 class SequenceEvaluator implements IORunnable {
 
+  // Minimum number of variants in a region evaluated on its own thread
+  static final int REGION_VARIANTS = 1000;
+
   private final EvalSynchronizer mSynchronize;
   private final SequencesReader mTemplate;
   private final Map<String, Long> mNameMap;
+  private final Semaphore mThreads;
+  private final int mRegionVariants;
+
+  /**
+   * @param variantSets source of the variants and destination for results
+   * @param nameMap map from sequence name to sequence id in the template
+   * @param template the template sequences
+   * @param threads one permit for each thread available, shared by all the evaluators running at once.
+   * The evaluator holds a permit while running, and uses any free permits to search independent regions
+   * within the sequence.
+   */
+  SequenceEvaluator(EvalSynchronizer variantSets, Map<String, Long> nameMap, SequencesReader template, Semaphore threads) {
+    this(variantSets, nameMap, template, threads, REGION_VARIANTS);
+  }
 
-  SequenceEvaluator(EvalSynchronizer variantSets, Map<String, Long> nameMap, SequencesReader template) {
+  /**
+   * @param variantSets source of the variants and destination for results
+   * @param nameMap map from sequence name to sequence id in the template
+   * @param template the template sequences
+   * @param threads one permit for each thread available, shared by all the evaluators running at once.
+   * @param regionVariants minimum number of variants in a region evaluated on its own thread
+   */
+  SequenceEvaluator(EvalSynchronizer variantSets, Map<String, Long> nameMap, SequencesReader template, Semaphore threads, int regionVariants) {
     mSynchronize = variantSets;
     mTemplate = template;
     mNameMap = nameMap;
+    mThreads = threads;
+    mRegionVariants = regionVariants;
   }
+
   @Override
   public void run() throws IOException {
+    mThreads.acquireUninterruptibly();
+    try {
+      evaluate();
+    } finally {
+      mThreads.release();
+    }
+  }
+
+  private void evaluate() throws IOException {
     final Pair<String, Map<VariantSetType, List<DetectedVariant>>> setPair = mSynchronize.nextSet();
     if (setPair == null) {
       return;
@@ -83,7 +122,7 @@ class SequenceEvaluator implements IORunnable {
       Diagnostic.developerLog("Sequence: " + currentName + " has " + calledCalls.size() + " called variants");
 
       //find the best path for variant calls
-      final Path best = Path.bestPath(template, currentName, calledCalls, baseLineCalls);
+      final Path best = bestPath(template, currentName, calledCalls, baseLineCalls);
       //System.out.println(path);
       List<OrientedVariant> truePositives = best.getCalledIncluded();
       final List<OrientedVariant> baselineTruePositives = best.getBaselineIncluded();
@@ -121,6 +160,40 @@ class SequenceEvaluator implements IORunnable {
       }
     }
   }
+
+  private Path bestPath(final byte[] template, final String name, Collection<DetectedVariant> calledCalls, Collection<DetectedVariant> baseLineCalls) throws IOException {
+    if (mThreads.availablePermits() == 0) {
+      return Path.bestPath(template, name, calledCalls, baseLineCalls);
+    }
+    final List<Pair<List<DetectedVariant>, List<DetectedVariant>>> regions = Path.regions(template, calledCalls, baseLineCalls, mRegionVariants);
+    // Only take threads not in use by other sequences, so the total never exceeds the thread count
+    int extra = 0;
+    while (extra < regions.size() - 1 && mThreads.tryAcquire()) {
+      extra++;
+    }
+    if (extra == 0) {
+      return Path.bestPath(template, name, calledCalls, baseLineCalls);
+    }
+    try {
+      Diagnostic.developerLog("Sequence: " + name + " split into " + regions.size() + " independent regions, using " + (extra + 1) + " threads");
+      final Path[] paths = new Path[regions.size()];
+      final SimpleThreadPool pool = new SimpleThreadPool(extra + 1, "VcfEvalRegion-" + name, false);
+      for (int i = 0; i < regions.size(); i++) {
+        final int region = i;
+        pool.execute(new IORunnable() {
+          @Override
+          public void run() {
+            paths[region] = Path.bestPath(template, name, regions.get(region).getA(), regions.get(region).getB());
+          }
+        });
+      }
+      pool.terminate();
+      return Path.merge(template, Arrays.asList(paths));
+    } finally {
+      mThreads.release(extra);
+    }
+  }
+
   static boolean groupInPhase(List<VariantSummary> group) {
     if (group.size() < 1) {
       return true;
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 import com.rtg.launcher.NoStatistics;
 import com.rtg.launcher.ParamsTask;
@@ -169,8 +170,9 @@ public final class VcfEvalTask extends ParamsTask<VcfEvalParams, NoStatistics> {
 
     final SimpleThreadPool threadPool = new SimpleThreadPool(params.numberThreads(), "VcfEval", true);
     threadPool.enableBasicProgress(templateSequences.numberSequences());
+    final Semaphore threads = new Semaphore(params.numberThreads());
     for (int i = 0; i < templateSequences.numberSequences(); i++) {
-      threadPool.execute(new SequenceEvaluator(sync, nameMap, templateSequences.copy()));
+      threadPool.execute(new SequenceEvaluator(sync, nameMap, templateSequences.copy(), threads));
     }
 
     threadPool.terminate();
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import com.rtg.util.diagnostic.SpyCounter;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.IntegralAbstract;
+import com.rtg.variant.util.arithmetic.LogApproximatePossibility;
+import com.rtg.variant.util.arithmetic.LogPossibility;
+import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
+
+/**
+ * Forward all paths calculation equivalent to <code>ScoreFastUnderflow</code>, but using
+ * plain double probabilities held in flat arrays for just the previous and current rows.
+ * Whenever the values in a row get small the row is rescaled by a power of two, which is exact,
+ * and the scale remembered. So the result is the same as that of <code>ScoreMatrix</code> with
+ * <code>SimplePossibility</code> when that does not underflow, and there is no need to
+ * recalculate in log space when it would. The only exception is parameters so extreme that
+ * the total probability is zero even with scaling, which are handed to a log space matrix.
+ */
+public class ScaledScoreMatrix extends IntegralAbstract implements AllPaths {
+
+  /** Whether the complex caller uses this rather than <code>ScoreFastUnderflow</code> */
+  public static final boolean ENABLED = true; //Boolean.valueOf(System.getProperty("rtg.scaled-allpaths", "true"));
+
+  private static final SpyCounter SPY = new SpyCounter("ScaledScoreMatrix");
+
+  // Rows whose largest value falls below this are rescaled
+  private static final double SCALE_THRESHOLD = Math.scalb(1.0, -256);
+  private static final double LN2 = Math.log(2.0);
+
+  protected final RealignParams mParams;
+
+  // Probabilities computed in exactly the same way as AbstractAllPaths does with SimplePossibility
+  private final double mMatchP;
+  private final double mMisMatchP;
+  protected final double mDeleteOpen;
+  private final double mDeleteExtend;
+  protected final double mInsertOpen;
+  protected final double mInsertExtend;
+  private final double mOneMinusDeleteExtend;
+  protected final double mOneMinusDeleteOpen;
+  protected final double mOneMinusInsertExtend;
+  protected final double mOneMinusDeleteInsertOpen;
+  protected final double mDeleteOpenInFour;
+
+  protected Environment mEnv = null;
+  /** Number of rows less one */
+  protected int mLength = -1;
+  protected int mWidth = -1;
+
+  // Values for the previous row and the row being calculated
+  protected double[] mPrevMatch = new double[0];
+  protected double[] mPrevInsert = new double[0];
+  protected double[] mPrevDelete = new double[0];
+  protected double[] mMatch = new double[0];
+  protected double[] mInsert = new double[0];
+  protected double[] mDelete = new double[0];
+
+  // Match probabilities for the current row when the template is the same as or different to the read
+  private double mEqualP;
+  private double mDifferentP;
+  private byte mRead;
+
+  /** True value of the probabilities in the current row is the stored value times two to this power */
+  private int mScaleExponent;
+  private double mTotal;
+
+  private AllPaths mLogMatrix = null;
+  private boolean mUseLog = false;
+
+  /**
+   * @param params the machine error model and related parameters.
+   */
+  public ScaledScoreMatrix(final RealignParams params) {
+    mParams = params;
+    mMatchP = Math.exp(params.matchLn());
+    mMisMatchP = Math.exp(params.misMatchLn());
+    mDeleteOpen = Math.exp(params.deleteOpenLn());
+    mDeleteExtend = Math.exp(params.deleteExtendLn());
+    mInsertOpen = Math.exp(params.insertOpenLn());
+    mInsertExtend = Math.exp(params.insertExtendLn());
+    mOneMinusDeleteExtend = 1.0 - Math.exp(params.deleteExtendLn());
+    mOneMinusDeleteOpen = 1.0 - mDeleteOpen;
+    mOneMinusInsertExtend = 1.0 - Math.exp(params.insertExtendLn());
+    mOneMinusDeleteInsertOpen = 1.0 - mDeleteOpen - Math.exp(params.insertOpenLn());
+    mDeleteOpenInFour = mDeleteOpen * 0.25;
+    SPY.increment();
+  }
+
+  @Override
+  public void setEnv(final Environment env) {
+    final int width = 2 * env.maxShift() + 1;
+    if (width > mMatch.length) {
+      mPrevMatch = new double[width];
+      mPrevInsert = new double[width];
+      mPrevDelete = new double[width];
+      mMatch = new double[width];
+      mInsert = new double[width];
+      mDelete = new double[width];
+    }
+    mEnv = env;
+    mLength = env.readLength();
+    mWidth = width;
+    calculateProbabilities();
+    mUseLog = !(mTotal > 0.0);
+    if (mUseLog) {
+      if (mLogMatrix == null) {
+        mLogMatrix = makeLogMatrix();
+      }
+      mLogMatrix.setEnv(env);
+    }
+  }
+
+  /**
+   * @return the log space equivalent of this matrix
+   */
+  protected AllPaths makeLogMatrix() {
+    return new ScoreMatrix(LogApproximatePossibility.SINGLETON, mParams);
+  }
+
+  /**
+   * As for <code>AbstractAllPaths</code>.
+   * @param row one-based read position.
+   * @return an offset along the template, from where the read is expected to start.
+   */
+  protected int rowOffset(final int row) {
+    return row - mEnv.maxShift() - 1;
+  }
+
+  /**
+   * Calculate all the rows and the total probability of the read.
+   */
+  protected void calculateProbabilities() {
+    calculateInitialRow();
+    for (int row = 1; row <= mLength; row++) {
+      calculateRow(row);
+    }
+    calculateEnd();
+  }
+
+  protected final void calculateInitialRow() {
+    final double delete = mDeleteOpen;
+    final double match = 1.0 - mDeleteOpen;
+    for (int j = 0; j < mWidth; j++) {
+      mDelete[j] = delete;
+      mMatch[j] = match;
+      mInsert[j] = 0.0;
+    }
+    mScaleExponent = 0;
+  }
+
+  /**
+   * Make the current row the previous one, ready to calculate the next row.
+   * @param row the one-based row about to be calculated
+   */
+  protected final void nextRow(final int row) {
+    double[] t = mPrevMatch;
+    mPrevMatch = mMatch;
+    mMatch = t;
+    t = mPrevInsert;
+    mPrevInsert = mInsert;
+    mInsert = t;
+    t = mPrevDelete;
+    mPrevDelete = mDelete;
+    mDelete = t;
+
+    mRead = mEnv.read(row - 1);
+    if (mRead != 0) {
+      final double q = mEnv.quality(row - 1);
+      final double q3 = q / 3.0;
+      mEqualP = mMatchP * (1.0 - q) + mMisMatchP * q3;
+      mDifferentP = mMatchP * q3 + mMisMatchP * ((1.0 - q3) / 3.0);
+    }
+  }
+
+  /**
+   * @param row one-based row
+   * @param j column
+   * @return probability of the read nucleotide for the row given the template nucleotide under the column
+   */
+  protected final double matchEq(final int row, final int j) {
+    final byte te = mEnv.template(rowOffset(row) + j);
+    if (te == 0 || mRead == 0) {
+      return 0.25;
+    }
+    return te == mRead ? mEqualP : mDifferentP;
+  }
+
+  protected final void calculateRow(final int row) {
+    nextRow(row);
+    final int last = mWidth - 1;
+    final boolean lastRow = row == mLength;
+    for (int j = 0; j < mWidth; j++) {
+      mDelete[j] = j == last ? 0.0 : (mDeleteExtend * mPrevDelete[j + 1] + mDeleteOpen * mPrevMatch[j + 1]) * 0.25;
+      final double m = mPrevDelete[j] * mOneMinusDeleteExtend + mPrevMatch[j] * mOneMinusDeleteInsertOpen + mPrevInsert[j] * mOneMinusInsertExtend;
+      mMatch[j] = m * matchEq(row, j);
+      mInsert[j] = lastRow || j == 0 ? 0.0 : mInsertExtend * mInsert[j - 1] + mInsertOpen * mMatch[j - 1];
+    }
+    rescale();
+  }
+
+  /**
+   * If the values in the current row have become small multiply them all by a power of two.
+   */
+  protected final void rescale() {
+    double max = 0.0;
+    for (int j = 0; j < mWidth; j++) {
+      max = Math.max(max, Math.max(mMatch[j], Math.max(mInsert[j], mDelete[j])));
+    }
+    if (max < SCALE_THRESHOLD && max > 0.0) {
+      final int exp = Math.getExponent(max);
+      final double scale = Math.scalb(1.0, -exp);
+      for (int j = 0; j < mWidth; j++) {
+        mMatch[j] *= scale;
+        mInsert[j] *= scale;
+        mDelete[j] *= scale;
+      }
+      mScaleExponent += exp;
+    }
+  }
+
+  protected final void calculateEnd() {
+    double sum = 0.0;
+    for (int j = mWidth - 1; j >= 0; j--) {
+      sum = sum + (mDelete[j] + mMatch[j]);
+    }
+    mTotal = sum;
+  }
+
+  @Override
+  public double totalScoreLn() {
+    if (mUseLog) {
+      return mLogMatrix.totalScoreLn();
+    }
+    return Math.log(mTotal) + mScaleExponent * LN2;
+  }
+
+  @Override
+  public double totalScore() {
+    if (mUseLog) {
+      return mLogMatrix.totalScore();
+    }
+    return Math.scalb(mTotal, mScaleExponent);
+  }
+
+  /**
+   * @return the total as a natural log, see <code>arithmetic()</code>
+   */
+  @Override
+  public double total() {
+    if (mUseLog) {
+      return mLogMatrix.total();
+    }
+    return totalScoreLn();
+  }
+
+  @Override
+  public boolean underflow() {
+    return false;
+  }
+
+  @Override
+  public PossibilityArithmetic arithmetic() {
+    if (mUseLog) {
+      return mLogMatrix.arithmetic();
+    }
+    return LogPossibility.SINGLETON;
+  }
+
+  @Override
+  public void toString(final StringBuilder sb) {
+    sb.append("ScaledScoreMatrix");
+    if (mLength != -1) {
+      sb.append(" length=").append(mLength).append(" width=").append(mWidth).append(" total=").append(totalScoreLn());
+    }
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertNotNull(mParams);
+    if (mLength != -1) {
+      Exam.assertNotNull(mEnv);
+      Exam.assertTrue(0 < mWidth && mWidth <= mMatch.length);
+      Exam.assertEquals(mMatch.length, mPrevMatch.length);
+    }
+    return true;
+  }
+}
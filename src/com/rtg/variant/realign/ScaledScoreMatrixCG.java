@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import static com.rtg.sam.SamUtils.CG_RAW_READ_LENGTH;
+
+import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.variant.util.arithmetic.LogApproximatePossibility;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
+
+/**
+ * Complete Genomics version of <code>ScaledScoreMatrix</code>, equivalent to <code>ScoreFastUnderflowCG</code>.
+ */
+@TestClass("com.rtg.variant.realign.ScaledScoreMatrixTest")
+public class ScaledScoreMatrixCG extends ScaledScoreMatrix {
+
+  private final double[][] mGapDistributions;
+
+  /**
+   * @param params CG priors and gap probabilities
+   */
+  public ScaledScoreMatrixCG(final RealignParams params) {
+    super(params);
+    mGapDistributions = params.gapDistributionPoss(SimplePossibility.SINGLETON);
+  }
+
+  @Override
+  public void setEnv(Environment env) {
+    if (env.readLength() != CG_RAW_READ_LENGTH) {
+      throw new IllegalArgumentException("CG read is not the right length was: " + env.readLength());
+    }
+    super.setEnv(env);
+  }
+
+  @Override
+  protected AllPaths makeLogMatrix() {
+    return new ScoreMatrixCG(LogApproximatePossibility.SINGLETON, mParams);
+  }
+
+  @Override
+  protected int rowOffset(final int row) {
+    return ScoreMatrixCG.rowOffsetCG(row, mEnv.maxShift());
+  }
+
+  // As for ScoreMatrixCG.calculateCGGap
+  private void calculateCGGap(final int row, final int whichGap) {
+    nextRow(row);
+    final int gapStart = mParams.gapStart(whichGap);
+    final int gapEnd = mParams.gapEnd(whichGap);
+    final double[] gapFreqs = mGapDistributions[whichGap];
+    final int offset = rowOffset(row) - rowOffset(row - 1);
+    for (int j = 0; j < mWidth; j++) {
+      double del = 0.0;
+      double mm = 0.0;
+      for (int gapSize = gapStart; gapSize <= gapEnd; gapSize++) {
+        final double gapFreq = gapFreqs[gapSize - gapStart];
+        final int prevCol = j - (gapSize - offset);
+        if (0 <= prevCol && prevCol < mWidth) {
+          del = del + (mPrevDelete[prevCol] + mPrevMatch[prevCol]) * mDeleteOpenInFour * gapFreq;
+        }
+        final int prevMatchCol = prevCol - 1;
+        if (0 <= prevMatchCol && prevMatchCol < mWidth) {
+          final double m = mPrevDelete[prevMatchCol] * mOneMinusDeleteOpen + mPrevMatch[prevMatchCol] * mOneMinusDeleteInsertOpen + mPrevInsert[prevMatchCol] * mOneMinusInsertExtend;
+          mm = mm + m * gapFreq;
+        }
+      }
+      mDelete[j] = del;
+      mMatch[j] = mm * matchEq(row, j);
+      mInsert[j] = row == mLength || j == 0 ? 0.0 : mInsertExtend * mInsert[j - 1] + mInsertOpen * mMatch[j - 1];
+    }
+    rescale();
+  }
+
+  @Override
+  protected void calculateProbabilities() {
+    int row = 0;
+    calculateInitialRow();
+    row++;
+    while (row <= 5) {
+      calculateRow(row++);
+    }
+    calculateCGGap(row++, ScoreMatrixCG.OVERLAP_GAP);
+    while (row <= 15) {
+      calculateRow(row++);
+    }
+    calculateCGGap(row++, ScoreMatrixCG.SMALL_GAP);
+    while (row <= 25) {
+      calculateRow(row++);
+    }
+    calculateCGGap(row++, ScoreMatrixCG.LARGE_GAP);
+    while (row <= mLength) {
+      calculateRow(row++);
+    }
+    calculateEnd();
+  }
+}
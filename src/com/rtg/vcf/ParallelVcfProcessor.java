@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.vcf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.rtg.launcher.CommonFlags;
+import com.rtg.tabix.AbstractIndexReader;
+import com.rtg.tabix.TabixIndexReader;
+import com.rtg.tabix.TabixIndexer;
+import com.rtg.tabix.TabixLineReader;
+import com.rtg.util.NullStreamUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.intervals.RegionRestriction;
+import com.rtg.util.io.FileUtils;
+import com.rtg.vcf.header.VcfHeader;
+
+/**
+ * Processes a block compressed and tabix indexed VCF file on several threads. The index is used to divide
+ * the file into regions holding similar amounts of data, each region is processed independently, and
+ * the resulting records are written in the original order through a single <code>VcfWriter</code>.
+ */
+final class ParallelVcfProcessor {
+
+  /** Approximate amount of compressed input in a region */
+  static final long REGION_BYTES = 1L << 20;
+
+  /**
+   * Processing applied to the records of one region.
+   */
+  interface RegionTask {
+    /**
+     * Process records.
+     * @param reader supplies the records of the region
+     * @param writer destination for the resulting records
+     * @throws IOException if an IO error occurs
+     */
+    void process(VcfReader reader, VcfWriter writer) throws IOException;
+  }
+
+  /**
+   * Supplies a task for each region, so that tasks may keep state between records.
+   */
+  interface RegionTaskFactory {
+    /**
+     * @return the task to apply to the next region
+     */
+    RegionTask task();
+  }
+
+  // Collects the records of a region for writing in order later
+  private static final class RecordCollector extends VcfWriter {
+    private final List<VcfRecord> mRecords = new ArrayList<>();
+
+    RecordCollector(VcfHeader header) {
+      super(header, NullStreamUtils.getNullOutputStream());
+    }
+
+    @Override
+    public void write(VcfRecord record) {
+      mRecords.add(record);
+    }
+  }
+
+  /**
+   * Test whether a file can be processed by region.
+   * @param input the VCF file
+   * @return true if the input is block compressed and has a tabix index
+   * @throws IOException if an IO error occurs
+   */
+  static boolean canProcess(File input) throws IOException {
+    return !CommonFlags.isStdio(input) && FileUtils.isGzipFilename(input) && TabixIndexer.indexFileName(input).exists() && TabixIndexer.isBlockCompressed(input);
+  }
+
+  /**
+   * Divide a sequence into regions holding roughly a given amount of compressed input.
+   * @param regions list to add the regions to
+   * @param sequence name of the sequence
+   * @param linearIndex linear index for the sequence
+   * @param regionBytes approximate compressed size of each region, or 0 to use a single region for the sequence
+   */
+  static void addRegions(List<RegionRestriction> regions, String sequence, long[] linearIndex, long regionBytes) {
+    int start = RegionRestriction.MISSING;
+    if (regionBytes > 0 && linearIndex.length > 0) {
+      long startOffset = linearIndex[0] >>> 16;
+      long offset = startOffset;
+      for (int window = 1; window < linearIndex.length; window++) {
+        // Windows without records may have no entry
+        offset = Math.max(offset, linearIndex[window] >>> 16);
+        if (offset - startOffset >= regionBytes) {
+          final int end = window << AbstractIndexReader.LINEAR_INDEX_SHIFT;
+          regions.add(new RegionRestriction(sequence, start, end));
+          start = end;
+          startOffset = offset;
+        }
+      }
+    }
+    regions.add(new RegionRestriction(sequence, start, RegionRestriction.MISSING));
+  }
+
+  private final File mInput;
+  private final int mThreads;
+  private final long mRegionBytes;
+  private final VcfHeader mHeader;
+  private final TabixIndexReader mIndex;
+
+  /**
+   * @param input block compressed and indexed VCF file
+   * @param threads number of threads to use
+   * @param splitSequences true if a sequence may be divided between regions, false if the processing
+   * depends on adjacent records and each sequence must be processed as a whole
+   * @throws IOException if an IO error occurs
+   */
+  ParallelVcfProcessor(File input, int threads, boolean splitSequences) throws IOException {
+    this(input, threads, splitSequences ? REGION_BYTES : 0);
+  }
+
+  /**
+   * @param input block compressed and indexed VCF file
+   * @param threads number of threads to use
+   * @param regionBytes approximate compressed size of each region, or 0 to process each sequence as a single region
+   * @throws IOException if an IO error occurs
+   */
+  ParallelVcfProcessor(File input, int threads, long regionBytes) throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads: " + threads);
+    }
+    mInput = input;
+    mThreads = threads;
+    mRegionBytes = regionBytes;
+    mHeader = VcfUtils.getHeader(input);
+    mIndex = new TabixIndexReader(TabixIndexer.indexFileName(input));
+  }
+
+  /**
+   * @return a copy of the header of the input
+   */
+  VcfHeader getHeader() {
+    return mHeader.copy();
+  }
+
+  List<RegionRestriction> regions() throws IOException {
+    final List<RegionRestriction> regions = new ArrayList<>();
+    for (final String sequence : mIndex.sequenceNames()) {
+      addRegions(regions, sequence, mRegionBytes > 0 ? mIndex.linearIndex(sequence) : new long[0], mRegionBytes);
+    }
+    return regions;
+  }
+
+  private final class RegionJob implements Callable<List<VcfRecord>> {
+    private final RegionRestriction mRegion;
+    private final RegionTask mTask;
+
+    RegionJob(RegionRestriction region, RegionTask task) {
+      mRegion = region;
+      mTask = task;
+    }
+
+    @Override
+    public List<VcfRecord> call() throws IOException {
+      final RecordCollector collector = new RecordCollector(mHeader);
+      try (VcfReader reader = new VcfReader(new TabixLineReader(mInput, mIndex, mRegion), mHeader)) {
+        // Records overlapping the start of the region belong to the previous region
+        while (reader.hasNext() && reader.peek().getStart() < mRegion.getStart()) {
+          reader.next();
+        }
+        mTask.process(reader, collector);
+      }
+      return collector.mRecords;
+    }
+  }
+
+  /**
+   * Process all the records of the input.
+   * @param factory supplies the processing for each region
+   * @param writer destination for the resulting records
+   * @throws IOException if an IO error occurs
+   */
+  void process(RegionTaskFactory factory, VcfWriter writer) throws IOException {
+    final List<RegionRestriction> regions = regions();
+    Diagnostic.developerLog("Processing " + mInput.getPath() + " as " + regions.size() + " regions on " + mThreads + " threads");
+    // Limits the number of regions held in memory awaiting output
+    final int maxInFlight = 2 * mThreads;
+    final ArrayDeque<Future<List<VcfRecord>>> inFlight = new ArrayDeque<>();
+    final ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+    try {
+      for (final RegionRestriction region : regions) {
+        inFlight.add(executor.submit(new RegionJob(region, factory.task())));
+        while (!inFlight.isEmpty() && (inFlight.size() >= maxInFlight || inFlight.peek().isDone())) {
+          writeNext(inFlight, writer);
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        writeNext(inFlight, writer);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void writeNext(ArrayDeque<Future<List<VcfRecord>>> inFlight, VcfWriter writer) throws IOException {
+    final List<VcfRecord> records;
+    try {
+      records = inFlight.remove().get();
+    } catch (final InterruptedException e) {
+      throw new IOException("Interrupted while processing region", e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Error processing region", cause);
+    }
+    for (final VcfRecord record : records) {
+      writer.write(record);
+    }
+  }
+}
@@ -61,6 +61,7 @@ public final class VcfAnnotatorCli extends AbstractCli {
     mFlags.registerOptional(VCF_IDS_FLAG, File.class, "file", "file in VCF format containing variant ids to be added to the VCF id field").setCategory(REPORTING).setMaxCount(Integer.MAX_VALUE);
     CommonFlags.initNoGzip(mFlags);
     CommonFlags.initIndexFlags(mFlags);
+    CommonFlags.initThreadsFlag(mFlags);
     final List<String> derivedRange = new ArrayList<>();
     for (final DerivedAnnotations derived : DerivedAnnotations.values()) {
       derivedRange.add(derived.toString());
@@ -84,6 +85,9 @@ public final class VcfAnnotatorCli extends AbstractCli {
           return false;
         }
       }
+      if (!CommonFlags.validateThreads(flags)) {
+        return false;
+      }
       if (!flags.checkNand(BED_IDS_FLAG, VCF_IDS_FLAG)) {
         return false;
       }
@@ -164,26 +168,52 @@ public final class VcfAnnotatorCli extends AbstractCli {
     final boolean gzip = !mFlags.isSet(CommonFlags.NO_GZIP);
     final boolean index = !mFlags.isSet(CommonFlags.NO_INDEX);
     final boolean stdout = CommonFlags.isStdio(output);
-    try (VcfReader reader = VcfReader.openVcfReader(inputFile)) {
-      final VcfHeader header = reader.getHeader();
+    final int threads = CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG));
+    final AnnotateTask task = new AnnotateTask(annotators);
+    final ParallelVcfProcessor processor = threads > 1 && ParallelVcfProcessor.canProcess(inputFile) ? new ParallelVcfProcessor(inputFile, threads, true) : null;
+    try (VcfReader reader = processor == null ? VcfReader.openVcfReader(inputFile) : null) {
+      final VcfHeader header = processor == null ? reader.getHeader() : processor.getHeader();
       for (final VcfAnnotator annotator : annotators) {
         annotator.updateHeader(header);
       }
       header.addRunInfo();
       final File vcfFile = stdout ? null : FileUtils.getZippedFileName(gzip, output);
       try (VcfWriter writer = new VcfWriter(header, vcfFile, out, gzip, index)) {
-        while (reader.hasNext()) {
-          final VcfRecord rec = reader.next();
-          for (final VcfAnnotator annotator : annotators) {
-            annotator.annotate(rec);
-          }
-          writer.write(rec);
+        if (processor == null) {
+          task.process(reader, writer);
+        } else {
+          // Annotators do not keep state between records, so all regions can share the task
+          processor.process(new ParallelVcfProcessor.RegionTaskFactory() {
+            @Override
+            public ParallelVcfProcessor.RegionTask task() {
+              return task;
+            }
+          }, writer);
         }
       }
     }
     return 0;
   }
 
+  private static final class AnnotateTask implements ParallelVcfProcessor.RegionTask {
+    private final List<VcfAnnotator> mAnnotators;
+
+    AnnotateTask(List<VcfAnnotator> annotators) {
+      mAnnotators = annotators;
+    }
+
+    @Override
+    public void process(VcfReader reader, VcfWriter writer) throws IOException {
+      while (reader.hasNext()) {
+        final VcfRecord rec = reader.next();
+        for (final VcfAnnotator annotator : mAnnotators) {
+          annotator.annotate(rec);
+        }
+        writer.write(rec);
+      }
+    }
+  }
+
   @Override
   public String moduleName() {
     return MODULE_NAME;
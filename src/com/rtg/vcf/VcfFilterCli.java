@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.rtg.bed.BedUtils;
 import com.rtg.launcher.AbstractCli;
@@ -31,9 +33,11 @@ import com.rtg.util.cli.CommonFlagCategories;
 import com.rtg.util.cli.Validator;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.intervals.ReferenceRanges;
+import com.rtg.util.intervals.ReferenceRegions;
 import com.rtg.util.intervals.RegionRestriction;
 import com.rtg.util.io.FileUtils;
 import com.rtg.vcf.VcfFilterStatistics.Stat;
+import com.rtg.vcf.header.VcfHeader;
 
 /**
  * Class inputs the variant results and filters them based on various criteria.
@@ -92,9 +96,6 @@ public final class VcfFilterCli extends AbstractCli {
   private static final String MAX_POSTERIOR_SCORE = "Xmax-posterior-score";
 
 
-  private final VcfFilterTask mVcfFilterTask = new VcfFilterTask();
-
-
   @Override
   protected void initFlags() {
     mFlags.registerExtendedHelp();
@@ -105,6 +106,7 @@ public final class VcfFilterCli extends AbstractCli {
     mFlags.registerRequired('o', OUTPUT, File.class, "file", "output VCF file. Use '-' to write to standard output").setCategory(INPUT_OUTPUT);
     CommonFlags.initNoGzip(mFlags);
     CommonFlags.initIndexFlags(mFlags);
+    CommonFlags.initThreadsFlag(mFlags);
     mFlags.registerOptional(RESTRICTION_FLAG, String.class, "string", "if set, only read VCF records within the specified range. The format is one of <template_name>, <template_name>:start-end or <template_name>:start+length").setCategory(INPUT_OUTPUT);
     mFlags.registerOptional(SamFilterOptions.BED_REGIONS_FLAG, File.class, "File", "if set, only read VCF records that overlap the ranges contained in the specified BED file").setCategory(INPUT_OUTPUT);
 
@@ -186,6 +188,9 @@ public final class VcfFilterCli extends AbstractCli {
           return false;
         }
       }
+      if (!CommonFlags.validateThreads(flags)) {
+        return false;
+      }
       if ((flags.isSet(MIN_GENOTYPE_QUALITY) || flags.isSet(MAX_GENOTYPE_QUALITY)) && (flags.isSet(MIN_POSTERIOR_SCORE) || flags.isSet(MAX_POSTERIOR_SCORE))) {
         //Only possible if someone is monkeying with X-flags
         flags.setParseMessage("Use genotype-quality or posterior filters, not both.");
@@ -334,54 +339,123 @@ public final class VcfFilterCli extends AbstractCli {
   }
 
   private void process(final OutputStream output) throws IOException {
+    final ReferenceRegions includeBed = regions(INCLUDE_BED, INCLUDE_VCF);
+    final ReferenceRegions excludeBed = regions(EXCLUDE_BED, EXCLUDE_VCF);
+    final RegionRestriction region;
+    if (mFlags.isSet(SamFilterOptions.RESTRICTION_FLAG)) {
+      region = new RegionRestriction((String) mFlags.getValue(RESTRICTION_FLAG));
+    } else {
+      region = null;
+    }
+    final ReferenceRanges ranges;
+    if (mFlags.isSet(SamFilterOptions.BED_REGIONS_FLAG)) {
+      Diagnostic.developerLog("Loading BED regions");
+      ranges = SamRangeUtils.createBedReferenceRanges((File) mFlags.getValue(SamFilterOptions.BED_REGIONS_FLAG));
+    } else {
+      ranges = null;
+    }
+    final File in = (File) mFlags.getValue(INPUT);
+    final File out = (File) mFlags.getValue(OUTPUT);
+    final boolean gzip = !mFlags.isSet(NO_GZIP);
+    final boolean index = !mFlags.isSet(CommonFlags.NO_INDEX);
+    final boolean stdout = CommonFlags.isStdio(out);
+    final int threads = CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG));
+    final File vcfFile = stdout ? null : FileUtils.getZippedFileName(gzip, out);
+    final VcfFilterTask vcfFilterTask = makeTask(includeBed, excludeBed);
+    Diagnostic.developerLog("Starting filter");
+    if (threads > 1 && region == null && ranges == null && ParallelVcfProcessor.canProcess(in)) {
+      // Overlap and density filtering depend on neighbouring records, so keep sequences whole
+      final ParallelVcfProcessor processor = new ParallelVcfProcessor(in, threads, !vcfFilterTask.mRemoveOverlapping && vcfFilterTask.mDensityWindow == null);
+      final VcfHeader inputHeader = processor.getHeader();
+      final VcfHeader header = processor.getHeader();
+      vcfFilterTask.setHeader(inputHeader);
+      vcfFilterTask.updateHeader(header);
+      final List<VcfFilterTask> regionTasks = new ArrayList<>();
+      try (VcfWriter w = new VcfWriter(header, vcfFile, output, gzip, index)) {
+        processor.process(new ParallelVcfProcessor.RegionTaskFactory() {
+          @Override
+          public ParallelVcfProcessor.RegionTask task() {
+            final VcfFilterTask task = makeTask(includeBed, excludeBed);
+            task.setHeader(inputHeader);
+            regionTasks.add(task);
+            return task;
+          }
+        }, w);
+      }
+      for (final VcfFilterTask task : regionTasks) {
+        vcfFilterTask.mVcfFilterStatistics.merge(task.mVcfFilterStatistics);
+      }
+    } else {
+      try (VcfReader r = ranges != null ? VcfReader.openVcfReader(in, ranges) : VcfReader.openVcfReader(in, region)) {
+        try (VcfWriter w = new VcfWriter(r.getHeader(), vcfFile, output, gzip, index)) {
+          vcfFilterTask.filterVcf(r, w);
+        }
+      }
+    }
+    if (!stdout) {
+      vcfFilterTask.printStatistics(output);
+    }
+  }
+
+  private ReferenceRegions regions(String bedFlag, String vcfFlag) throws IOException {
+    if (mFlags.isSet(bedFlag)) {
+      return BedUtils.regions((File) mFlags.getValue(bedFlag));
+    } else if (mFlags.isSet(vcfFlag)) {
+      return VcfUtils.regionsVcf((File) mFlags.getValue(vcfFlag));
+    }
+    return null;
+  }
 
+  // A filter task configured from the flags
+  private VcfFilterTask makeTask(ReferenceRegions includeBed, ReferenceRegions excludeBed) {
+    final VcfFilterTask task = new VcfFilterTask();
     if (mFlags.isSet(SAMPLE)) {
       for (Object o : mFlags.getValues(SAMPLE)) {
-        mVcfFilterTask.mSampleNames.add((String) o);
+        task.mSampleNames.add((String) o);
       }
     }
 
-    mVcfFilterTask.mResetFailedSampleGts =  mFlags.isSet(CLEAR_FAILED_SAMPLES);
+    task.mResetFailedSampleGts =  mFlags.isSet(CLEAR_FAILED_SAMPLES);
 
     // These involve checking the specified sample field
-    mVcfFilterTask.mRemoveSameAsRef = mFlags.isSet(REMOVE_SAME_AS_REF);
-    mVcfFilterTask.mSnpsOnly = mFlags.isSet(SNPS_ONLY);
-    mVcfFilterTask.mNonSnpsOnly = mFlags.isSet(NON_SNPS_ONLY);
+    task.mRemoveSameAsRef = mFlags.isSet(REMOVE_SAME_AS_REF);
+    task.mSnpsOnly = mFlags.isSet(SNPS_ONLY);
+    task.mNonSnpsOnly = mFlags.isSet(NON_SNPS_ONLY);
 
     if (mFlags.isSet(MIN_QUALITY) || mFlags.isSet(MAX_QUALITY)) {
       final double minQuality = mFlags.isSet(MIN_QUALITY) ? (Double) mFlags.getValue(MIN_QUALITY) : 0.0;
       final double maxQuality = mFlags.isSet(MAX_QUALITY) ? (Double) mFlags.getValue(MAX_QUALITY) : Double.MAX_VALUE;
-      mVcfFilterTask.mFilters.add(new VcfFilter.QualFilter(mVcfFilterTask.mVcfFilterStatistics, minQuality, maxQuality));
+      task.mFilters.add(new VcfFilter.QualFilter(task.mVcfFilterStatistics, minQuality, maxQuality));
     }
     if (mFlags.isSet(MIN_GENOTYPE_QUALITY) || mFlags.isSet(MAX_GENOTYPE_QUALITY)
         || mFlags.isSet(MIN_POSTERIOR_SCORE) || mFlags.isSet(MAX_POSTERIOR_SCORE)) {
       final double minGq = mFlags.isSet(MIN_GENOTYPE_QUALITY) ? (Double) mFlags.getValue(MIN_GENOTYPE_QUALITY) : mFlags.isSet(MIN_POSTERIOR_SCORE) ? (Double) mFlags.getValue(MIN_POSTERIOR_SCORE) : 0.0;
       final double maxGq = mFlags.isSet(MAX_GENOTYPE_QUALITY) ? (Double) mFlags.getValue(MAX_GENOTYPE_QUALITY) : mFlags.isSet(MAX_POSTERIOR_SCORE) ? (Double) mFlags.getValue(MAX_POSTERIOR_SCORE) : Double.MAX_VALUE;
       final boolean posteriorFiltering = mFlags.isSet(MIN_POSTERIOR_SCORE) || mFlags.isSet(MAX_POSTERIOR_SCORE);
-      mVcfFilterTask.mVcfFilterStatistics.setPosteriorFiltering(posteriorFiltering);
-      mVcfFilterTask.mFilters.add(new VcfSampleFilter.GqFilter(mVcfFilterTask.mVcfFilterStatistics, minGq, maxGq, posteriorFiltering));
+      task.mVcfFilterStatistics.setPosteriorFiltering(posteriorFiltering);
+      task.mFilters.add(new VcfSampleFilter.GqFilter(task.mVcfFilterStatistics, minGq, maxGq, posteriorFiltering));
     }
     if (mFlags.isSet(MIN_DEPTH) || mFlags.isSet(MAX_DEPTH)) {
       final int minReadDepth = mFlags.isSet(MIN_DEPTH) ? (Integer) mFlags.getValue(MIN_DEPTH) : 0;
       final int maxReadDepth = mFlags.isSet(MAX_DEPTH) ? (Integer) mFlags.getValue(MAX_DEPTH) : Integer.MAX_VALUE;
-      mVcfFilterTask.mFilters.add(new VcfSampleFilter.MinMaxIntFilter(mVcfFilterTask.mVcfFilterStatistics, Stat.READ_DEPTH_FILTERED_COUNT, minReadDepth, maxReadDepth, VcfUtils.FORMAT_SAMPLE_DEPTH));
+      task.mFilters.add(new VcfSampleFilter.MinMaxIntFilter(task.mVcfFilterStatistics, Stat.READ_DEPTH_FILTERED_COUNT, minReadDepth, maxReadDepth, VcfUtils.FORMAT_SAMPLE_DEPTH));
     }
     if (mFlags.isSet(MIN_COMBINED_DEPTH) || mFlags.isSet(MAX_COMBINED_DEPTH)) {
       final int minCombinedReadDepth = mFlags.isSet(MIN_COMBINED_DEPTH) ? (Integer) mFlags.getValue(MIN_COMBINED_DEPTH) : 0;
       final int maxCombinedReadDepth = mFlags.isSet(MAX_COMBINED_DEPTH) ? (Integer) mFlags.getValue(MAX_COMBINED_DEPTH) : Integer.MAX_VALUE;
-      mVcfFilterTask.mFilters.add(new VcfInfoFilter.MinMaxIntFilter(mVcfFilterTask.mVcfFilterStatistics, Stat.COMBINED_READ_DEPTH_FILTERED_COUNT, minCombinedReadDepth, maxCombinedReadDepth, VcfUtils.INFO_COMBINED_DEPTH));
+      task.mFilters.add(new VcfInfoFilter.MinMaxIntFilter(task.mVcfFilterStatistics, Stat.COMBINED_READ_DEPTH_FILTERED_COUNT, minCombinedReadDepth, maxCombinedReadDepth, VcfUtils.INFO_COMBINED_DEPTH));
     }
     if (mFlags.isSet(MIN_AVR_SCORE) || mFlags.isSet(MAX_AVR_SCORE)) {
       final double minAvrScore = mFlags.isSet(MIN_AVR_SCORE) ? (Double) mFlags.getValue(MIN_AVR_SCORE) : Double.NEGATIVE_INFINITY;
       final double maxAvrScore = mFlags.isSet(MAX_AVR_SCORE) ? (Double) mFlags.getValue(MAX_AVR_SCORE) : Double.POSITIVE_INFINITY;
-      mVcfFilterTask.mFilters.add(new VcfSampleFilter.MinMaxDoubleFilter(mVcfFilterTask.mVcfFilterStatistics, Stat.AVR_SCORE_FILTERED_COUNT, minAvrScore, maxAvrScore, VcfUtils.FORMAT_AVR));
+      task.mFilters.add(new VcfSampleFilter.MinMaxDoubleFilter(task.mVcfFilterStatistics, Stat.AVR_SCORE_FILTERED_COUNT, minAvrScore, maxAvrScore, VcfUtils.FORMAT_AVR));
     }
     if (mFlags.isSet(MAX_AMBIGUITY_RATIO)) {
       final double maxAmbiguityRatio = mFlags.isSet(MAX_AMBIGUITY_RATIO) ? (Double) mFlags.getValue(MAX_AMBIGUITY_RATIO) : Double.POSITIVE_INFINITY;
-      mVcfFilterTask.mFilters.add(new VcfSampleFilter.MinMaxDoubleFilter(mVcfFilterTask.mVcfFilterStatistics, Stat.AMBIGOUS_FILTERED_COUNT, Double.NEGATIVE_INFINITY, maxAmbiguityRatio, VcfUtils.FORMAT_AMBIGUITY_RATIO));
+      task.mFilters.add(new VcfSampleFilter.MinMaxDoubleFilter(task.mVcfFilterStatistics, Stat.AMBIGOUS_FILTERED_COUNT, Double.NEGATIVE_INFINITY, maxAmbiguityRatio, VcfUtils.FORMAT_AMBIGUITY_RATIO));
     }
     if (mFlags.isSet(MAX_DENOVO_SCORE) || mFlags.isSet(MIN_DENOVO_SCORE)) {
-      mVcfFilterTask.mFilters.add(new VcfSampleFilter.DenovoFilter(mVcfFilterTask.mVcfFilterStatistics,
+      task.mFilters.add(new VcfSampleFilter.DenovoFilter(task.mVcfFilterStatistics,
           mFlags.isSet(MIN_DENOVO_SCORE) ? (Double) mFlags.getValue(MIN_DENOVO_SCORE) : 0,
           mFlags.isSet(MAX_DENOVO_SCORE) ? (Double) mFlags.getValue(MAX_DENOVO_SCORE) : Double.MAX_VALUE));
     }
@@ -396,76 +470,41 @@ public final class VcfFilterCli extends AbstractCli {
         MIN_AVR_SCORE, MAX_AVR_SCORE,
         MIN_DENOVO_SCORE, MAX_DENOVO_SCORE,
     };
-    mVcfFilterTask.mCheckingSample = false;
+    task.mCheckingSample = false;
     for (final String flag : sampleFlags) {
-      mVcfFilterTask.mCheckingSample |= mFlags.isSet(flag);
+      task.mCheckingSample |= mFlags.isSet(flag);
     }
 
-    mVcfFilterTask.mRemoveOverlapping = mFlags.isSet(REMOVE_OVERLAPPING);
-    mVcfFilterTask.mRemoveAllSameAsRef = mFlags.isSet(REMOVE_ALL_SAME_AS_REF);
-    mVcfFilterTask.mDensityWindow = mFlags.isSet(DENSITY_WINDOW) ? (Integer) mFlags.getValue(DENSITY_WINDOW) : null;
+    task.mRemoveOverlapping = mFlags.isSet(REMOVE_OVERLAPPING);
+    task.mRemoveAllSameAsRef = mFlags.isSet(REMOVE_ALL_SAME_AS_REF);
+    task.mDensityWindow = mFlags.isSet(DENSITY_WINDOW) ? (Integer) mFlags.getValue(DENSITY_WINDOW) : null;
 
     if (mFlags.isSet(KEEP_FILTER)) {
       for (final Object tag : mFlags.getValues(KEEP_FILTER)) {
-        mVcfFilterTask.mKeepFilters.add((String) tag);
+        task.mKeepFilters.add((String) tag);
       }
     }
     if (mFlags.isSet(REMOVE_FILTER)) {
       for (final Object tag : mFlags.getValues(REMOVE_FILTER)) {
-        mVcfFilterTask.mRemoveFilters.add((String) tag);
+        task.mRemoveFilters.add((String) tag);
       }
     }
     if (mFlags.isSet(KEEP_INFO)) {
       for (final Object tag : mFlags.getValues(KEEP_INFO)) {
-        mVcfFilterTask.mKeepInfos.add((String) tag);
+        task.mKeepInfos.add((String) tag);
       }
     }
     if (mFlags.isSet(REMOVE_INFO)) {
       for (final Object tag : mFlags.getValues(REMOVE_INFO)) {
-        mVcfFilterTask.mRemoveInfos.add((String) tag);
+        task.mRemoveInfos.add((String) tag);
       }
     }
-    if (mFlags.isSet(INCLUDE_BED)) {
-      mVcfFilterTask.mIncludeBed = BedUtils.regions((File) mFlags.getValue(INCLUDE_BED));
-    } else if (mFlags.isSet(INCLUDE_VCF)) {
-      mVcfFilterTask.mIncludeBed = VcfUtils.regionsVcf((File) mFlags.getValue(INCLUDE_VCF));
-    }
-    if (mFlags.isSet(EXCLUDE_BED)) {
-      mVcfFilterTask.mExcludeBed = BedUtils.regions((File) mFlags.getValue(EXCLUDE_BED));
-    } else if (mFlags.isSet(EXCLUDE_VCF)) {
-      mVcfFilterTask.mExcludeBed = VcfUtils.regionsVcf((File) mFlags.getValue(EXCLUDE_VCF));
-    }
-    final RegionRestriction region;
-    if (mFlags.isSet(SamFilterOptions.RESTRICTION_FLAG)) {
-      region = new RegionRestriction((String) mFlags.getValue(RESTRICTION_FLAG));
-    } else {
-      region = null;
-    }
-    final ReferenceRanges ranges;
-    if (mFlags.isSet(SamFilterOptions.BED_REGIONS_FLAG)) {
-      Diagnostic.developerLog("Loading BED regions");
-      ranges = SamRangeUtils.createBedReferenceRanges((File) mFlags.getValue(SamFilterOptions.BED_REGIONS_FLAG));
-    } else {
-      ranges = null;
-    }
-    mVcfFilterTask.mAllSamples = mFlags.isSet(ALL_SAMPLES);
-    mVcfFilterTask.mFailFilterName = mFlags.isSet(FAIL_FLAG) ? (String) mFlags.getValue(FAIL_FLAG) : null;
+    task.mAllSamples = mFlags.isSet(ALL_SAMPLES);
+    task.mFailFilterName = mFlags.isSet(FAIL_FLAG) ? (String) mFlags.getValue(FAIL_FLAG) : null;
 
-    final File in = (File) mFlags.getValue(INPUT);
-    final File out = (File) mFlags.getValue(OUTPUT);
-    final boolean gzip = !mFlags.isSet(NO_GZIP);
-    final boolean index = !mFlags.isSet(CommonFlags.NO_INDEX);
-    final boolean stdout = CommonFlags.isStdio(out);
-    Diagnostic.developerLog("Starting filter");
-    try (VcfReader r = ranges != null ? VcfReader.openVcfReader(in, ranges) : VcfReader.openVcfReader(in, region)) {
-      final File vcfFile = stdout ? null : FileUtils.getZippedFileName(gzip, out);
-      try (VcfWriter w = new VcfWriter(r.getHeader(), vcfFile, output, gzip, index)) {
-        mVcfFilterTask.filterVcf(r, w);
-      }
-      if (!stdout) {
-        mVcfFilterTask.printStatistics(output);
-      }
-    }
+    task.mIncludeBed = includeBed;
+    task.mExcludeBed = excludeBed;
+    return task;
   }
 
 }
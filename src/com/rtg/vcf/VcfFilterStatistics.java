@@ -126,6 +126,26 @@ class VcfFilterStatistics implements Statistics {
     mPosteriorFiltering = posteriorFiltering;
   }
 
+  /**
+   * Add the counts from statistics collected separately for part of the input.
+   * @param other statistics to add
+   */
+  void merge(VcfFilterStatistics other) {
+    for (int i = 0; i < mValues.length; i++) {
+      mValues[i] += other.mValues[i];
+    }
+    if (mFilteredCount != null) {
+      for (int i = 0; i < mFilteredCount.length; i++) {
+        mFilteredCount[i] += other.mFilteredCount[i];
+      }
+    }
+    if (mInfoCount != null) {
+      for (int i = 0; i < mInfoCount.length; i++) {
+        mInfoCount[i] += other.mInfoCount[i];
+      }
+    }
+  }
+
   void setFilterTags(Map<String, Integer> filterTags) {
     mFilterTags.putAll(filterTags);
     mFilteredCount = new int[mFilterTags.size()];
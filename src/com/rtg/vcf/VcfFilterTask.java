@@ -35,7 +35,7 @@ import com.rtg.vcf.header.VcfHeader;
  * <code>VcfFilterCli</code> so the initialization is quite hideous.
  */
 @TestClass("com.rtg.vcf.VcfFilterCliTest")
-class VcfFilterTask {
+class VcfFilterTask implements ParallelVcfProcessor.RegionTask {
 
   protected final VcfFilterStatistics mVcfFilterStatistics = new VcfFilterStatistics();
 
@@ -82,17 +82,33 @@ class VcfFilterTask {
    */
   protected void filterVcf(VcfReader reader, VcfWriter writer) throws IOException {
     final VcfHeader header = reader.getHeader();
+    setHeader(header);
+    updateHeader(header);
+    process(reader, writer);
+  }
+
+  /**
+   * Prepare for filtering records from an input with the given header
+   * @param header header of the input
+   */
+  void setHeader(VcfHeader header) {
     checkHeaderFieldFilters(header);
     for (final VcfFilter filter : mFilters) {
       if (filter instanceof VcfSampleFilter) {
         ((VcfSampleFilter) filter).setSamples(mSampleIndexes, mSampleFailed);
       }
     }
+  }
+
+  /**
+   * Add the details of filtering to a header
+   * @param header header of the output
+   */
+  void updateHeader(VcfHeader header) {
     header.addRunInfo();
     if (mFailFilterName != null) {
       header.ensureContains(new FilterField(mFailFilterName, "RTG vcffilter user defined filter"));
     }
-    process(reader, writer);
   }
 
   protected void printStatistics(OutputStream outStream) {
@@ -154,7 +170,8 @@ class VcfFilterTask {
   }
 
 
-  void process(final VcfReader r, final VcfWriter w) throws IOException {
+  @Override
+  public void process(final VcfReader r, final VcfWriter w) throws IOException {
     mPrevDense = false;
     mPrevRecord = null;
     try {
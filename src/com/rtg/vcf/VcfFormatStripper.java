@@ -27,8 +27,6 @@ public class VcfFormatStripper implements VcfAnnotator {
   private final boolean mKeepMode;
   private final HashSet<String> mFormats;
 
-  private boolean mKeepRecord = true;
-
   /**
    * Keep or remove a selected set of format fields from header and records
    * @param formatList the list of format field ids
@@ -65,12 +63,13 @@ public class VcfFormatStripper implements VcfAnnotator {
         it.remove();
       }
     }
-    if (rec.getFormatAndSample().size() == 0) {
-      mKeepRecord = false;
-    }
   }
 
-  boolean keepRecord() {
-    return mKeepRecord;
+  /**
+   * @param rec a record that has been annotated
+   * @return false if all the format fields of the record have been removed
+   */
+  boolean keepRecord(VcfRecord rec) {
+    return mFormats == null || mFormats.size() == 0 || rec.getFormatAndSample().size() != 0;
   }
 }
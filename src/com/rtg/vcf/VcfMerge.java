@@ -28,13 +28,15 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.rtg.launcher.AbstractCli;
 import com.rtg.launcher.CommonFlags;
 import com.rtg.tabix.TabixIndexReader;
 import com.rtg.tabix.TabixIndexer;
-import com.rtg.tabix.TabixLineReader;
 import com.rtg.util.cli.CFlags;
 import com.rtg.util.cli.CommonFlagCategories;
 import com.rtg.util.cli.Flag;
@@ -80,6 +82,7 @@ public class VcfMerge extends AbstractCli {
     mFlags.registerOptional(PRESERVE_FORMATS, "if set, variants with different ALTs and unmergeable FORMAT fields will be kept unmerged (Default is to remove those FORMAT fields so the variants can be combined)").setCategory(UTILITY);
     CommonFlags.initNoGzip(mFlags);
     CommonFlags.initIndexFlags(mFlags);
+    CommonFlags.initThreadsFlag(mFlags);
     mFlags.registerOptional(STATS_FLAG, "output statistics for the merged VCF file").setCategory(UTILITY);
     mFlags.setValidator(new VcfMergeValidator());
   }
@@ -95,7 +98,7 @@ public class VcfMerge extends AbstractCli {
           return false;
         }
       }
-      return true;
+      return CommonFlags.validateThreads(flags);
     }
   }
 
@@ -129,7 +132,8 @@ public class VcfMerge extends AbstractCli {
     final boolean index = !mFlags.isSet(CommonFlags.NO_INDEX);
     final VariantStatistics stats = mFlags.isSet(STATS_FLAG) ? new VariantStatistics(null) : null;
     final boolean preserveFormats = mFlags.isSet(PRESERVE_FORMATS);
-    mergeVcfFiles(out, outFile, gzip, index, stats, extraHeaderLines.toArray(new String[extraHeaderLines.size()]), forceMerge, preserveFormats, inputs.toArray(new File[inputs.size()]));
+    final int threads = CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG));
+    mergeVcfFiles(out, outFile, gzip, index, stats, extraHeaderLines.toArray(new String[extraHeaderLines.size()]), forceMerge, preserveFormats, threads, inputs.toArray(new File[inputs.size()]));
     return 0;
   }
 
@@ -147,33 +151,34 @@ public class VcfMerge extends AbstractCli {
     return alleleBasedFormats;
   }
 
-  static void mergeVcfFiles(OutputStream output, File outFile, boolean gzip, boolean index, final VariantStatistics stats, String[] extraHeaderLines, Set<String> forceMerge, final boolean preserveFormats, File... inputs) throws IOException {
-    final VcfPositionZipper posZip = new VcfPositionZipper(null, extraHeaderLines, forceMerge, inputs);
-    final VcfHeader header = posZip.getHeader();
-    header.addRunInfo();
-    final Set<String> alleleBasedFormatFields = alleleBasedFormats(header);
-
+  static void mergeVcfFiles(OutputStream output, File outFile, boolean gzip, boolean index, final VariantStatistics stats, String[] extraHeaderLines, Set<String> forceMerge, final boolean preserveFormats, int threads, File... inputs) throws IOException {
     final boolean stdout = CommonFlags.isStdio(outFile);
-    final File vcfFile = stdout ? null : FileUtils.getZippedFileName(gzip, outFile);
-    try (VcfWriter w = new VcfWriter(header, vcfFile, output, gzip, index)) {
-      final ZipperCallback callback = new ZipperCallback() {
-        @Override
-        public void vcfAtPosition(VcfRecord[] records, VcfHeader[] headers) throws IOException {
-          assert records.length > 0;
-          final VcfRecord[] mergedArr = VcfRecord.mergeRecords(records, headers, header, alleleBasedFormatFields, preserveFormats);
-          for (VcfRecord merged : mergedArr) {
-            if (stats != null) {
-              stats.tallyVariant(header, merged);
+    try (VcfPositionZipper posZip = new VcfPositionZipper(null, extraHeaderLines, forceMerge, threads, inputs)) {
+      final VcfHeader header = posZip.getHeader();
+      header.addRunInfo();
+      final Set<String> alleleBasedFormatFields = alleleBasedFormats(header);
+
+      final File vcfFile = stdout ? null : FileUtils.getZippedFileName(gzip, outFile);
+      try (VcfWriter w = new VcfWriter(header, vcfFile, output, gzip, index)) {
+        final ZipperCallback callback = new ZipperCallback() {
+          @Override
+          public void vcfAtPosition(VcfRecord[] records, VcfHeader[] headers) throws IOException {
+            assert records.length > 0;
+            final VcfRecord[] mergedArr = VcfRecord.mergeRecords(records, headers, header, alleleBasedFormatFields, preserveFormats);
+            for (VcfRecord merged : mergedArr) {
+              if (stats != null) {
+                stats.tallyVariant(header, merged);
+              }
+              w.write(merged);
             }
-            w.write(merged);
           }
+        };
+        while (posZip.hasNextPosition()) {
+          posZip.nextPosition(callback);
         }
-      };
-      while (posZip.hasNextPosition()) {
-        posZip.nextPosition(callback);
+      } catch (final IllegalArgumentException iae) {
+        throw new IOException("Problem in VCF header: " + iae.getMessage());
       }
-    } catch (final IllegalArgumentException iae) {
-      throw new IOException("Problem in VCF header: " + iae.getMessage());
     }
     if (!stdout) {
       if (stats != null) {
@@ -185,30 +190,39 @@ public class VcfMerge extends AbstractCli {
   /**
    * This class will process multiple <code>VCF</code> files in order and call the appropriate callback
    * for each chromosome position encountered in any of the files. The callback receives all records that
-   * are present on that position (provided there is only 1 per file)
+   * are present on that position (provided there is only 1 per file). A heap of the next position of each
+   * file selects the files taking part in each position, and with several threads the files are read and
+   * decoded in parallel ahead of the position being processed.
    */
   static class VcfPositionZipper implements Closeable {
     final File[] mFiles;
     final TabixIndexReader[] mIndexes;
     final RegionRestriction[] mRegions;
-    final VcfReader[] mReaders;
+    final VcfReadAhead[] mReaders;
+    private final VcfHeader[] mHeaders;
     private final VcfHeader mMergedHeader;
-    private int mCurrentRegion = 0;
-    private final Set<Integer> mCurrentRecords = new HashSet<>();
+    private final ExecutorService mExecutor;
+    private int mCurrentRegion = -1;
+    /** Next position of each input with records remaining in the current region, the position is in the high bits and the input in the low bits */
+    private final PriorityQueue<Long> mHeap = new PriorityQueue<>();
+    private final List<Integer> mCurrentRecords = new ArrayList<>();
 
     public VcfPositionZipper(RegionRestriction rr, File... vcfFiles) throws IOException {
-      this(rr, null, null, vcfFiles);
+      this(rr, null, null, 1, vcfFiles);
     }
-    public VcfPositionZipper(RegionRestriction rr, String[] extraHeaderLines, Set<String> forceMerge, File... vcfFiles) throws IOException {
+    public VcfPositionZipper(RegionRestriction rr, String[] extraHeaderLines, Set<String> forceMerge, int threads, File... vcfFiles) throws IOException {
       mIndexes = new TabixIndexReader[vcfFiles.length];
 
       mFiles = vcfFiles;
-      mReaders = new VcfReader[mFiles.length];
+      mReaders = new VcfReadAhead[mFiles.length];
+      mHeaders = new VcfHeader[mFiles.length];
       VcfHeader current = null;
       int numSamples = 0;
       boolean warnNumSamples = true;
-      for (final File mFile : mFiles) {
-        try (VcfReader vr = new VcfReader(new BufferedReader(new InputStreamReader(GzipUtils.createGzipInputStream(new FileInputStream(mFile)))))) {
+      for (int i = 0; i < mFiles.length; i++) {
+        try (VcfReader vr = new VcfReader(new BufferedReader(new InputStreamReader(GzipUtils.createGzipInputStream(new FileInputStream(mFiles[i])))))) {
+          // Kept for reading the records, the merge may modify the header it starts from
+          mHeaders[i] = vr.getHeader().copy();
           if (current != null) {
             current = VcfHeaderMerge.mergeHeaders(current, vr.getHeader(), forceMerge);
             if (current.getNumberOfSamples() != numSamples && warnNumSamples) {
@@ -260,14 +274,29 @@ public class VcfMerge extends AbstractCli {
           }
         }
       }
-      populateNext();
+      mExecutor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+      try {
+        for (int i = 0; i < mFiles.length; i++) {
+          mReaders[i] = new VcfReadAhead(mExecutor, mFiles[i], mIndexes[i], mHeaders[i], mRegions);
+        }
+        populateNext();
+      } catch (final IOException | RuntimeException e) {
+        close();
+        throw e;
+      }
     }
 
     @Override
     public void close() throws IOException {
-      for (final VcfReader reader : mReaders) {
-        if (reader != null) {
-          reader.close();
+      try {
+        for (final VcfReadAhead reader : mReaders) {
+          if (reader != null) {
+            reader.close();
+          }
+        }
+      } finally {
+        if (mExecutor != null) {
+          mExecutor.shutdownNow();
         }
       }
     }
@@ -277,54 +306,42 @@ public class VcfMerge extends AbstractCli {
       return mMergedHeader;
     }
 
-    private void populateNext() throws IOException {
-      boolean recordActive = false;
-      while (!recordActive && mCurrentRegion < mRegions.length) {
-        int minPos = Integer.MAX_VALUE;
+    private void addToHeap(int input) throws IOException {
+      if (mReaders[input].hasNext()) {
+        mHeap.add(((long) mReaders[input].peek().getStart() << 32) + input);
+      }
+    }
 
+    private void populateNext() throws IOException {
+      while (mHeap.isEmpty() && mCurrentRegion + 1 < mRegions.length) {
+        mCurrentRegion++;
         for (int i = 0; i < mReaders.length; i++) {
-          if (mReaders[i] == null) {
-            mReaders[i] = new VcfReader(new TabixLineReader(mFiles[i], mIndexes[i], mRegions[mCurrentRegion]), mFiles[i]);
-          }
-          if (mReaders[i].hasNext()) {
-            final int pos = mReaders[i].peek().getStart();
-            if (pos < minPos) {
-              minPos = pos;
-              mCurrentRecords.clear();
-              mCurrentRecords.add(i);
-              recordActive = true;
-            } else if (pos == minPos) {
-              mCurrentRecords.add(i);
-            }
-          }
-        }
-        if (!recordActive) {
-          mCurrentRegion++;
-          for (int i = 0; i < mReaders.length; i++) {
-            if (mReaders[i] != null) {
-              mReaders[i].close();
-            }
-            mReaders[i] = null;
+          if (mCurrentRegion > 0) {
+            mReaders[i].nextRegion();
           }
+          addToHeap(i);
         }
       }
     }
 
     public boolean hasNextPosition() {
-      return !mCurrentRecords.isEmpty();
+      return !mHeap.isEmpty();
     }
 
     public void nextPosition(ZipperCallback callback) throws IOException {
+      // Inputs at the same position come off the heap in input order
+      final long position = mHeap.peek() >> 32;
+      while (!mHeap.isEmpty() && mHeap.peek() >> 32 == position) {
+        mCurrentRecords.add((int) (mHeap.poll() & 0xFFFFFFFFL));
+      }
       final ArrayList<VcfRecord> recs = new ArrayList<>(mCurrentRecords.size());
       final ArrayList<VcfHeader> headers = new ArrayList<>(mCurrentRecords.size());
-      int position;
       for (final int i : mCurrentRecords) {
         do {
-          final VcfRecord rec = mReaders[i].next();
-          position = rec.getStart();
-          recs.add(rec);
-          headers.add(mReaders[i].getHeader());
+          recs.add(mReaders[i].next());
+          headers.add(mHeaders[i]);
         } while (mReaders[i].hasNext() && mReaders[i].peek().getStart() == position);
+        addToHeap(i);
       }
       callback.vcfAtPosition(recs.toArray(new VcfRecord[recs.size()]), headers.toArray(new VcfHeader[headers.size()]));
       mCurrentRecords.clear();
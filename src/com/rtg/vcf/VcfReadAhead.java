@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.vcf;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.rtg.tabix.TabixIndexReader;
+import com.rtg.tabix.TabixLineReader;
+import com.rtg.util.intervals.RegionRestriction;
+import com.rtg.vcf.header.VcfHeader;
+
+/**
+ * Reads the records of a sequence of regions of a tabix indexed VCF file in batches. When given an
+ * executor the next batch is read and decoded on another thread while the current batch is consumed,
+ * so that many inputs may be decoded in parallel.
+ */
+final class VcfReadAhead implements Closeable {
+
+  /** Number of records read at once */
+  static final int BATCH_SIZE = 128;
+
+  private final File mInput;
+  private final TabixIndexReader mIndex;
+  private final VcfHeader mHeader;
+  private final RegionRestriction[] mRegions;
+  private final ExecutorService mExecutor;
+
+  // Reading state, only used by one batch read at a time
+  private int mReadRegion = 0;
+  private VcfReader mReader = null;
+
+  // Consuming state
+  private int mRegion = 0;
+  private Future<List<VcfRecord>> mPending = null;
+  private List<VcfRecord> mBatch = null;
+  private int mPosition = 0;
+  private boolean mRegionEnd = false;
+
+  /**
+   * @param executor executor to read batches on, or null to read on the calling thread
+   * @param input block compressed VCF file
+   * @param index index for the file
+   * @param header header of the file
+   * @param regions regions to read, in the order they will be consumed
+   */
+  VcfReadAhead(ExecutorService executor, File input, TabixIndexReader index, VcfHeader header, RegionRestriction[] regions) {
+    mExecutor = executor;
+    mInput = input;
+    mIndex = index;
+    mHeader = header;
+    mRegions = regions;
+    submit();
+  }
+
+  private final class BatchReader implements Callable<List<VcfRecord>> {
+    @Override
+    public List<VcfRecord> call() throws IOException {
+      return read();
+    }
+  }
+
+  // Read the next batch of records of the current region, an empty batch marks the end of the region
+  private List<VcfRecord> read() throws IOException {
+    final List<VcfRecord> batch = new ArrayList<>(BATCH_SIZE);
+    if (mReadRegion < mRegions.length) {
+      if (mReader == null) {
+        mReader = new VcfReader(new TabixLineReader(mInput, mIndex, mRegions[mReadRegion]), mHeader);
+      }
+      while (batch.size() < BATCH_SIZE && mReader.hasNext()) {
+        final VcfRecord rec = mReader.next();
+        // Merging needs the sample columns of every record, decode them while still on the reading thread
+        rec.getFormatAndSample();
+        batch.add(rec);
+      }
+      if (batch.isEmpty()) {
+        mReader.close();
+        mReader = null;
+        mReadRegion++;
+      }
+    }
+    return batch;
+  }
+
+  private void submit() {
+    if (mExecutor != null && mRegion < mRegions.length) {
+      mPending = mExecutor.submit(new BatchReader());
+    }
+  }
+
+  private List<VcfRecord> nextBatch() throws IOException {
+    if (mExecutor == null) {
+      return read();
+    }
+    if (mPending == null) {
+      return new ArrayList<>(0);
+    }
+    final List<VcfRecord> batch;
+    try {
+      batch = mPending.get();
+    } catch (final InterruptedException e) {
+      throw new IOException("Interrupted while reading VCF records", e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Error reading VCF records", cause);
+    } finally {
+      mPending = null;
+    }
+    if (batch.isEmpty()) {
+      mRegion++;
+    }
+    submit();
+    return batch;
+  }
+
+  // Make a record of the current region available, returns false at the end of the region
+  private boolean fill() throws IOException {
+    while (!mRegionEnd && (mBatch == null || mPosition >= mBatch.size())) {
+      mBatch = nextBatch();
+      mPosition = 0;
+      mRegionEnd = mBatch.isEmpty();
+    }
+    return !mRegionEnd;
+  }
+
+  /**
+   * @return true if the current region has another record
+   * @throws IOException if an IO error occurs
+   */
+  boolean hasNext() throws IOException {
+    return fill();
+  }
+
+  /**
+   * @return the next record of the current region without consuming it
+   * @throws IOException if an IO error occurs
+   */
+  VcfRecord peek() throws IOException {
+    if (!fill()) {
+      throw new IllegalStateException("No more records");
+    }
+    return mBatch.get(mPosition);
+  }
+
+  /**
+   * @return the next record of the current region
+   * @throws IOException if an IO error occurs
+   */
+  VcfRecord next() throws IOException {
+    final VcfRecord rec = peek();
+    mBatch.set(mPosition++, null);
+    return rec;
+  }
+
+  /**
+   * Skip any remaining records of the current region and move to the next region.
+   * @throws IOException if an IO error occurs
+   */
+  void nextRegion() throws IOException {
+    while (fill()) {
+      mPosition = mBatch.size();
+    }
+    mBatch = null;
+    mRegionEnd = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (mPending != null) {
+      // Wait for any batch being read, so the reader is not closed underneath it
+      try {
+        mPending.get();
+      } catch (final InterruptedException | ExecutionException e) {
+        // Unread records are not wanted
+      }
+      mPending = null;
+    }
+    if (mReader != null) {
+      mReader.close();
+      mReader = null;
+    }
+  }
+}
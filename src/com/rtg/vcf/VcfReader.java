@@ -12,13 +12,16 @@
 
 package com.rtg.vcf;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 
 import com.rtg.launcher.CommonFlags;
+import com.rtg.sam.BgzfInputStream;
 import com.rtg.tabix.BrLineReader;
 import com.rtg.tabix.LineReader;
 import com.rtg.tabix.TabixIndexer;
@@ -84,6 +87,27 @@ public class VcfReader implements Closeable {
     setNext();
   }
 
+  /**
+   * Read VcfRecords from a source whose header has already been read
+   * @param reader source of record lines
+   * @param header header of the source
+   * @throws IOException if an IO error occurs
+   */
+  VcfReader(LineReader reader, VcfHeader header) throws IOException {
+    mIn = reader;
+    mHeader = header;
+    mNumSamples = mHeader.getNumberOfSamples();
+    setNext();
+  }
+
+  // Block compressed files are inflated on several threads
+  private static InputStream createInputStream(File f) throws IOException {
+    if (FileUtils.isGzipFilename(f) && TabixIndexer.isBlockCompressed(f)) {
+      return new BufferedInputStream(new BgzfInputStream(f, BgzfInputStream.threads()), FileUtils.BUFFERED_STREAM_SIZE);
+    }
+    return FileUtils.createInputStream(f, true);
+  }
+
   /**
    * Open a <code>VCF</code> reader
    * @param f <code>VCF</code> file, optionally gzipped. If f is '-', input will be read from System.in instead
@@ -92,7 +116,7 @@ public class VcfReader implements Closeable {
    */
   public static VcfReader openVcfReader(File f) throws IOException {
     final boolean stdin = CommonFlags.isStdio(f);
-    return new VcfReader(new BufferedReader(new InputStreamReader(stdin ? System.in : FileUtils.createInputStream(f, true))));
+    return new VcfReader(new BufferedReader(new InputStreamReader(stdin ? System.in : createInputStream(f))));
   }
 
   /**
@@ -106,7 +130,7 @@ public class VcfReader implements Closeable {
     final boolean stdin = CommonFlags.isStdio(f);
     final VcfReader vcfr;
     if (ranges == null || ranges.allAvailable()) {
-      vcfr = new VcfReader(new BufferedReader(new InputStreamReader(stdin ? System.in : FileUtils.createInputStream(f, true))));
+      vcfr = new VcfReader(new BufferedReader(new InputStreamReader(stdin ? System.in : createInputStream(f))));
     } else {
       if (stdin) {
         throw new IOException("Cannot apply region restrictions when reading from stdin");
@@ -127,7 +151,7 @@ public class VcfReader implements Closeable {
     final boolean stdin = CommonFlags.isStdio(f);
     final VcfReader vcfr;
     if (region == null) {
-      vcfr = new VcfReader(new BufferedReader(new InputStreamReader(stdin ? System.in : FileUtils.createInputStream(f, true))));
+      vcfr = new VcfReader(new BufferedReader(new InputStreamReader(stdin ? System.in : createInputStream(f))));
     } else {
       if (stdin) {
         throw new IOException("Cannot apply region restriction when reading from stdin");
@@ -165,71 +189,86 @@ public class VcfReader implements Closeable {
   }
 
   /**
-   * Turn a line of <code>VCF</code> output into a {@link VcfRecord}
+   * Turn a line of <code>VCF</code> output into a {@link VcfRecord}.
+   * The <code>INFO</code>, <code>FORMAT</code> and sample columns are checked but only decoded
+   * when first accessed, so records that are only partly examined are cheap.
    * @param line line of file
    * @return the corresponding record
    */
   public static VcfRecord vcfLineToRecord(String line) {
     final VcfRecord rec = new VcfRecord();
-    final String[] field = StringUtils.split(line, '\t');
-    if (field.length < 8) {
+    // Start of each of the fixed fields, and of the FORMAT field if present
+    final int[] start = new int[INFO_FIELD + 2];
+    int fields = 1;
+    for (int i = 0; fields < start.length && (i = line.indexOf('\t', i)) != -1; i++) {
+      start[fields++] = i + 1;
+    }
+    if (fields < INFO_FIELD + 1) {
       throw new IllegalArgumentException("Invalid VCF record, expected at least 8 fields on line: " + line);
     }
-    rec.setSequence(StringUtils.deepCopy(field[CHROM_FIELD]));
-    rec.setStart(Integer.parseInt(field[POS_FIELD]) - 1);
-    rec.setId(StringUtils.deepCopy(field[ID_FIELD]));
-    rec.setRefCall(StringUtils.deepCopy(field[REF_FIELD]));
-    final String[] altSplit = StringUtils.split(field[ALT_FIELD], ',');
+    rec.setSequence(field(line, start, CHROM_FIELD));
+    rec.setStart(Integer.parseInt(field(line, start, POS_FIELD)) - 1);
+    rec.setId(field(line, start, ID_FIELD));
+    rec.setRefCall(field(line, start, REF_FIELD));
+    final String[] altSplit = StringUtils.split(field(line, start, ALT_FIELD), ',');
     for (final String anAltSplit : altSplit) {
       if (!anAltSplit.equals(".")) {
-        rec.addAltCall(StringUtils.deepCopy(anAltSplit));
+        rec.addAltCall(anAltSplit);
       }
     }
-    rec.setQuality(field[QUAL_FIELD]);  // "." or float.
-    final String[] filterSplit = StringUtils.split(field[FILTER_FIELD], ';');
+    rec.setQuality(field(line, start, QUAL_FIELD));  // "." or float.
+    final String[] filterSplit = StringUtils.split(field(line, start, FILTER_FIELD), ';');
     for (final String aFilterSplit : filterSplit) {
       if (!aFilterSplit.equals(".")) {
-        rec.addFilter(StringUtils.deepCopy(aFilterSplit));
-      }
-    }
-    if (!field[INFO_FIELD].equals(VcfRecord.MISSING)) {
-      final String[] infoSplit = StringUtils.split(field[INFO_FIELD], ';');
-      for (final String anInfoSplit : infoSplit) {
-        final String info = StringUtils.deepCopy(anInfoSplit);
-        final int eq = info.indexOf('=');
-        if (eq < 1) {
-          rec.addInfo(info);
-        } else {
-          final String key = info.substring(0, eq);
-          final String[] vals = StringUtils.split(info.substring(eq + 1), ',');
-          rec.addInfo(key, vals);
-        }
+        rec.addFilter(aFilterSplit);
       }
     }
-    rec.setNumberOfSamples(0);
-    // now parse each sample field.
-    if (field.length > 8) {
-      if (field.length == 9) {
+    final int infoEnd = fields > INFO_FIELD + 1 ? start[INFO_FIELD + 1] - 1 : line.length();
+    int numSamples = 0;
+    int formatStart = -1;
+    if (fields > INFO_FIELD + 1) {
+      formatStart = start[INFO_FIELD + 1];
+      final int formatEnd = line.indexOf('\t', formatStart);
+      if (formatEnd == -1) {
         throw new IllegalArgumentException("Invalid VCF record, format field exists without sample fields");
       }
-      final String[] genotypes = StringUtils.split(field[8], ':');
-      rec.setNumberOfSamples(field.length - 9);
-      for (int sample = 9; sample < field.length; sample++) {
-        final String[] svalues = StringUtils.split(field[sample], ':');
-        if (svalues.length > genotypes.length) {
-          throw new IllegalArgumentException("Invalid VCF record, column " + (sample + 1) + " does not have the same number of values as specified in the format column. Field=" + field[sample] + " record: " + line);
+      final int formatValues = count(line, formatStart, formatEnd, ':');
+      int sampleStart = formatEnd + 1;
+      while (true) {
+        int sampleEnd = line.indexOf('\t', sampleStart);
+        if (sampleEnd == -1) {
+          sampleEnd = line.length();
         }
-        for (int i = 0; i < svalues.length; i++) {
-          rec.addFormatAndSample(genotypes[i], svalues[i]);
+        if (count(line, sampleStart, sampleEnd, ':') > formatValues) {
+          throw new IllegalArgumentException("Invalid VCF record, column " + (INFO_FIELD + numSamples + 3) + " does not have the same number of values as specified in the format column. Field=" + line.substring(sampleStart, sampleEnd) + " record: " + line);
         }
-        for (int i = svalues.length; i < genotypes.length; i++) {
-          rec.addFormatAndSample(genotypes[i], VcfRecord.MISSING);
+        numSamples++;
+        if (sampleEnd == line.length()) {
+          break;
         }
+        sampleStart = sampleEnd + 1;
       }
     }
+    rec.setNumberOfSamples(numSamples);
+    rec.setUndecoded(line, start[INFO_FIELD], infoEnd, formatStart);
     return rec;
   }
 
+  private static String field(String line, int[] start, int field) {
+    return line.substring(start[field], start[field + 1] - 1);
+  }
+
+  // Number of values in a separated list
+  private static int count(String line, int start, int end, char separator) {
+    int count = 1;
+    for (int i = start; i < end; i++) {
+      if (line.charAt(i) == separator) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * @return the header
    */
@@ -15,8 +15,10 @@ package com.rtg.vcf;
 import static com.rtg.util.StringUtils.TAB;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -67,6 +69,14 @@ public class VcfRecord implements SequenceNameLocus {
    */
   private final Map<String, ArrayList<String>> mFormatAndSample;
 
+  // When created by VcfReader the INFO, FORMAT and sample columns are left as text in the line until first
+  // needed. A non-negative start indicates the corresponding columns have not been decoded yet.
+  private String mLine = null;
+  private volatile int mInfoStart = -1;
+  private int mInfoEnd = -1;
+  private volatile int mFormatStart = -1;
+  private int mUndecodedSamples = 0;
+
   /**
    * Merges multiple VCF records into one VCF record
    *
@@ -136,7 +146,7 @@ public class VcfRecord implements SequenceNameLocus {
     merged.mQual = records[0].mQual;
     merged.mFilters.addAll(records[0].mFilters);
     merged.mNumSamples = destHeader.getNumberOfSamples();
-    for (final Map.Entry<String, ArrayList<String>> entry : records[0].mInfo.entrySet()) {
+    for (final Map.Entry<String, ArrayList<String>> entry : records[0].info().entrySet()) {
       ArrayList<String> val = merged.mInfo.get(entry.getKey());
       if (val == null) {
         val = new ArrayList<>();
@@ -147,51 +157,71 @@ public class VcfRecord implements SequenceNameLocus {
       }
     }
 
+    // Locate the record supplying each destination sample in one pass over the samples of the records
     final List<String> names = destHeader.getSampleNames();
+    final HashMap<String, Integer> destIndexes = new HashMap<>();
     for (int destSampleIndex = 0; destSampleIndex < names.size(); destSampleIndex++) {
-      boolean sampleDone = false;
-      for (int i = 0; i < headers.length; i++) {
-        final int sampleIndex = headers[i].getSampleNames().indexOf(names.get(destSampleIndex));
-        if (sampleIndex > -1) {
-          if (sampleDone) {
-            Diagnostic.warning("Multiple records found at position: " + merged.getSequenceName() + ":" + merged.getOneBasedStart() + " for sample: " + names.get(destSampleIndex) + ". Keeping first.");
-            continue;
+      destIndexes.put(names.get(destSampleIndex), destSampleIndex);
+    }
+    final int[] sourceRecord = new int[names.size()];
+    final int[] sourceSample = new int[names.size()];
+    final int[] duplicates = new int[names.size()];
+    Arrays.fill(sourceRecord, -1);
+    for (int i = 0; i < headers.length; i++) {
+      final List<String> sampleNames = headers[i].getSampleNames();
+      for (int sampleIndex = 0; sampleIndex < sampleNames.size(); sampleIndex++) {
+        final Integer destSampleIndex = destIndexes.get(sampleNames.get(sampleIndex));
+        if (destSampleIndex != null) {
+          if (sourceRecord[destSampleIndex] == -1) {
+            sourceRecord[destSampleIndex] = i;
+            sourceSample[destSampleIndex] = sampleIndex;
+          } else {
+            duplicates[destSampleIndex]++;
           }
-          sampleDone = true;
-          for (final String key : records[i].getFormats()) {
-            ArrayList<String> field = merged.getFormatAndSample().get(key);
-            if (field == null) {
-              field = new ArrayList<>();
-              merged.mFormatAndSample.put(key, field);
-            }
-            while (field.size() <= destSampleIndex) {
-              field.add(MISSING);
-            }
-            if (key.equals(VcfUtils.FORMAT_GENOTYPE)) {
-              final String gtStr = records[i].getFormatAndSample().get(key).get(sampleIndex);
-              final int[] splitGt = VcfUtils.splitGt(gtStr);
-              for (int gti = 0; gti < splitGt.length; gti++) {
-                if (splitGt[gti] != -1) {
-                  splitGt[gti] = gtMap[i][splitGt[gti]];
-                }
-              }
-              final char sep = gtStr.indexOf(VcfUtils.PHASED_SEPARATOR) != -1 ? VcfUtils.PHASED_SEPARATOR : VcfUtils.UNPHASED_SEPARATOR;
-              final StringBuilder sb = new StringBuilder();
-              sb.append(splitGt[0] == -1 ? MISSING : splitGt[0]);
-              for (int gti = 1; gti < splitGt.length; gti++) {
-                sb.append(sep).append(splitGt[gti] == -1 ? MISSING : splitGt[gti]);
-              }
-              field.set(destSampleIndex, sb.toString());
-            } else {
-              field.set(destSampleIndex, records[i].getFormatAndSample().get(key).get(sampleIndex));
+        }
+      }
+    }
+    for (int destSampleIndex = 0; destSampleIndex < names.size(); destSampleIndex++) {
+      for (int d = 0; d < duplicates[destSampleIndex]; d++) {
+        Diagnostic.warning("Multiple records found at position: " + merged.getSequenceName() + ":" + merged.getOneBasedStart() + " for sample: " + names.get(destSampleIndex) + ". Keeping first.");
+      }
+      final int i = sourceRecord[destSampleIndex];
+      if (i == -1) {
+        continue;
+      }
+      final int sampleIndex = sourceSample[destSampleIndex];
+      for (final Map.Entry<String, ArrayList<String>> entry : records[i].formatAndSample().entrySet()) {
+        final String key = entry.getKey();
+        ArrayList<String> field = merged.mFormatAndSample.get(key);
+        if (field == null) {
+          field = new ArrayList<>(names.size());
+          merged.mFormatAndSample.put(key, field);
+        }
+        while (field.size() <= destSampleIndex) {
+          field.add(MISSING);
+        }
+        if (key.equals(VcfUtils.FORMAT_GENOTYPE)) {
+          final String gtStr = entry.getValue().get(sampleIndex);
+          final int[] splitGt = VcfUtils.splitGt(gtStr);
+          for (int gti = 0; gti < splitGt.length; gti++) {
+            if (splitGt[gti] != -1) {
+              splitGt[gti] = gtMap[i][splitGt[gti]];
             }
           }
+          final char sep = gtStr.indexOf(VcfUtils.PHASED_SEPARATOR) != -1 ? VcfUtils.PHASED_SEPARATOR : VcfUtils.UNPHASED_SEPARATOR;
+          final StringBuilder sb = new StringBuilder();
+          sb.append(splitGt[0] == -1 ? MISSING : splitGt[0]);
+          for (int gti = 1; gti < splitGt.length; gti++) {
+            sb.append(sep).append(splitGt[gti] == -1 ? MISSING : splitGt[gti]);
+          }
+          field.set(destSampleIndex, sb.toString());
+        } else {
+          field.set(destSampleIndex, entry.getValue().get(sampleIndex));
         }
       }
     }
-    for (final String key : merged.getFormats()) {
-      final ArrayList<String> field = merged.getFormatAndSample().get(key);
-      while (field.size() < destHeader.getNumberOfSamples()) {
+    for (final ArrayList<String> field : merged.mFormatAndSample.values()) {
+      while (field.size() < names.size()) {
         field.add(MISSING);
       }
     }
@@ -249,6 +279,85 @@ public class VcfRecord implements SequenceNameLocus {
     mFormatAndSample = new LinkedHashMap<>();
   }
 
+  /**
+   * Keep undecoded columns from the line this record was read from, they will be decoded on demand.
+   * @param line the whole record line
+   * @param infoStart start of the <code>INFO</code> column
+   * @param infoEnd end of the <code>INFO</code> column
+   * @param formatStart start of the <code>FORMAT</code> column, or -1 if there are no sample columns
+   * (the number of samples must already be set)
+   */
+  void setUndecoded(String line, int infoStart, int infoEnd, int formatStart) {
+    mLine = line;
+    mInfoEnd = infoEnd;
+    mUndecodedSamples = mNumSamples;
+    mInfoStart = infoStart;
+    mFormatStart = formatStart;
+  }
+
+  private Map<String, ArrayList<String>> info() {
+    if (mInfoStart >= 0) {
+      decodeInfo();
+    }
+    return mInfo;
+  }
+
+  private Map<String, ArrayList<String>> formatAndSample() {
+    if (mFormatStart >= 0) {
+      decodeSamples();
+    }
+    return mFormatAndSample;
+  }
+
+  private synchronized void decodeInfo() {
+    if (mInfoStart < 0) {
+      return;
+    }
+    final String infoField = mLine.substring(mInfoStart, mInfoEnd);
+    if (!infoField.equals(MISSING)) {
+      for (final String info : StringUtils.split(infoField, ';')) {
+        final int eq = info.indexOf('=');
+        final String key = eq < 1 ? info : info.substring(0, eq);
+        ArrayList<String> val = mInfo.get(key);
+        if (val == null) {
+          val = new ArrayList<>();
+          mInfo.put(key, val);
+        }
+        if (eq >= 1) {
+          Collections.addAll(val, StringUtils.split(info.substring(eq + 1), ','));
+        }
+      }
+    }
+    mInfoStart = -1;
+  }
+
+  private synchronized void decodeSamples() {
+    if (mFormatStart < 0) {
+      return;
+    }
+    final String[] field = StringUtils.split(mLine.substring(mFormatStart), '\t');
+    final String[] genotypes = StringUtils.split(field[0], ':');
+    for (int sample = 1; sample < field.length; sample++) {
+      final String[] svalues = StringUtils.split(field[sample], ':');
+      for (int i = 0; i < svalues.length; i++) {
+        addFormatAndSampleDecoded(genotypes[i], svalues[i]);
+      }
+      for (int i = svalues.length; i < genotypes.length; i++) {
+        addFormatAndSampleDecoded(genotypes[i], MISSING);
+      }
+    }
+    mFormatStart = -1;
+  }
+
+  private void addFormatAndSampleDecoded(String key, String val) {
+    ArrayList<String> list = mFormatAndSample.get(key);
+    if (list == null) {
+      list = new ArrayList<>(mNumSamples);
+      mFormatAndSample.put(key, list);
+    }
+    list.add(val);
+  }
+
   @Override
   public String getSequenceName() {
     return mSequence;
@@ -409,7 +518,7 @@ public class VcfRecord implements SequenceNameLocus {
    * @return info fields (should be treated as read-only).
    */
   public Map<String, ArrayList<String>> getInfo() {
-    return mInfo;
+    return info();
   }
 
   /**
@@ -419,10 +528,11 @@ public class VcfRecord implements SequenceNameLocus {
    * @return this, for call chaining
    */
   public VcfRecord addInfo(String key, String... values) {
-    ArrayList<String> val = mInfo.get(key);
+    final Map<String, ArrayList<String>> info = info();
+    ArrayList<String> val = info.get(key);
     if (val == null) {
       val = new ArrayList<>();
-      mInfo.put(key, val);
+      info.put(key, val);
     }
     if (values != null) {
       Collections.addAll(val, values);
@@ -437,10 +547,11 @@ public class VcfRecord implements SequenceNameLocus {
    * @return this, for call chaining
    */
   public VcfRecord setInfo(String key, String... values) {
-    ArrayList<String> val = mInfo.get(key);
+    final Map<String, ArrayList<String>> info = info();
+    ArrayList<String> val = info.get(key);
     if (val == null) {
       val = new ArrayList<>();
-      mInfo.put(key, val);
+      info.put(key, val);
     }
     val.clear();
     if (values != null) {
@@ -455,7 +566,7 @@ public class VcfRecord implements SequenceNameLocus {
    * @return this, for call chaining
    */
   public VcfRecord removeInfo(final String key) {
-    mInfo.remove(key);
+    info().remove(key);
     return this;
   }
 
@@ -465,14 +576,14 @@ public class VcfRecord implements SequenceNameLocus {
    * @return format keywords mapped to sample values (should be treated as read-only).
    */
   public Map<String, ArrayList<String>> getFormatAndSample() {
-    return mFormatAndSample;
+    return formatAndSample();
   }
 
   /**
    * @return a set of the genotype keywords
    */
   public Set<String> getFormats() {
-    return mFormatAndSample.keySet();
+    return formatAndSample().keySet();
   }
 
   /**
@@ -481,8 +592,9 @@ public class VcfRecord implements SequenceNameLocus {
    * @return this, for call chaining
    */
   public VcfRecord addFormat(String key) {
-    if (!mFormatAndSample.containsKey(key)) {
-      mFormatAndSample.put(key, new ArrayList<String>());
+    final Map<String, ArrayList<String>> formatAndSample = formatAndSample();
+    if (!formatAndSample.containsKey(key)) {
+      formatAndSample.put(key, new ArrayList<String>());
     }
     return this;
   }
@@ -494,13 +606,14 @@ public class VcfRecord implements SequenceNameLocus {
    * @return this, for call chaining
    */
   public VcfRecord addFormatAndSample(String key, String val) {
-    if (mFormatAndSample.containsKey(key)) {
-      assert mFormatAndSample.get(key).size() < mNumSamples : "Tried to insert more " + key + " format values than number of samples";
-      mFormatAndSample.get(key).add(val);
+    final Map<String, ArrayList<String>> formatAndSample = formatAndSample();
+    if (formatAndSample.containsKey(key)) {
+      assert formatAndSample.get(key).size() < mNumSamples : "Tried to insert more " + key + " format values than number of samples";
+      formatAndSample.get(key).add(val);
     } else {
       final ArrayList<String> list = new ArrayList<>();
       list.add(val);
-      mFormatAndSample.put(key, list);
+      formatAndSample.put(key, list);
     }
     return this;
   }
@@ -516,11 +629,12 @@ public class VcfRecord implements SequenceNameLocus {
   public VcfRecord setFormatAndSample(String key, String val, int sampleIndex) {
     assert sampleIndex < mNumSamples : "Invalid sample index: " + sampleIndex;
     final ArrayList<String> vals;
-    if (mFormatAndSample.containsKey(key)) {
-      vals = mFormatAndSample.get(key);
+    final Map<String, ArrayList<String>> formatAndSample = formatAndSample();
+    if (formatAndSample.containsKey(key)) {
+      vals = formatAndSample.get(key);
     } else {
       vals = new ArrayList<>();
-      mFormatAndSample.put(key, vals);
+      formatAndSample.put(key, vals);
       while (vals.size() < mNumSamples) {
         vals.add(MISSING);
       }
@@ -536,7 +650,7 @@ public class VcfRecord implements SequenceNameLocus {
    */
   public VcfRecord resetSample(int sampleIndex) {
     assert sampleIndex < mNumSamples : "Invalid sample index: " + sampleIndex;
-    for (List<String> vals : mFormatAndSample.values()) {
+    for (List<String> vals : formatAndSample().values()) {
       if (sampleIndex < vals.size()) {
         vals.set(sampleIndex, MISSING);
       }
@@ -550,8 +664,9 @@ public class VcfRecord implements SequenceNameLocus {
    * @return this, for chain calling
    */
   public VcfRecord padFormatAndSample(String key) {
-    if (mFormatAndSample.containsKey(key)) {
-      final ArrayList<String> list = mFormatAndSample.get(key);
+    final Map<String, ArrayList<String>> formatAndSample = formatAndSample();
+    if (formatAndSample.containsKey(key)) {
+      final ArrayList<String> list = formatAndSample.get(key);
       while (list.size() < mNumSamples) {
         list.add(MISSING);
       }
@@ -593,9 +708,20 @@ public class VcfRecord implements SequenceNameLocus {
     sb.append(TAB);
     sb.append(getFilter(mFilters));
     sb.append(TAB);
-    sb.append(getPrintableInfo(getInfo()));
-    if (countNumberOfSamples(mFormatAndSample) != mNumSamples) {
-      throw new IllegalStateException("Number of samples (" + mNumSamples + ") disagrees with contents of VCF record (" + countNumberOfSamples(mFormatAndSample) + ")");
+    final int infoStart = mInfoStart;
+    if (infoStart >= 0 && distinctKeys(mLine, infoStart, mInfoEnd, ';', true)) {
+      sb.append(mLine, infoStart, mInfoEnd);
+    } else {
+      sb.append(getPrintableInfo(getInfo()));
+    }
+    final int formatStart = mFormatStart;
+    if (formatStart >= 0 && mNumSamples == mUndecodedSamples && samplesCanonical(formatStart)) {
+      sb.append(TAB);
+      sb.append(mLine, formatStart, mLine.length());
+      return sb.toString();
+    }
+    if (countNumberOfSamples(formatAndSample()) != mNumSamples) {
+      throw new IllegalStateException("Number of samples (" + mNumSamples + ") disagrees with contents of VCF record (" + countNumberOfSamples(formatAndSample()) + ")");
     }
     if (mNumSamples > 0) {
       sb.append(TAB);
@@ -608,6 +734,63 @@ public class VcfRecord implements SequenceNameLocus {
     return sb.toString();
   }
 
+  private static int keyEnd(String line, int start, int end, boolean infoKey) {
+    if (infoKey) {
+      for (int i = start + 1; i < end; i++) {
+        if (line.charAt(i) == '=') {
+          return i;
+        }
+      }
+    }
+    return end;
+  }
+
+  private static int separatorEnd(String line, int start, int end, char sep) {
+    int i = start;
+    while (i < end && line.charAt(i) != sep) {
+      i++;
+    }
+    return i;
+  }
+
+  // True if the keys in an undecoded column are distinct, in which case decoding and printing would reproduce the text
+  private static boolean distinctKeys(String line, int start, int end, char sep, boolean infoKeys) {
+    int seg = start;
+    while (seg <= end) {
+      final int segEnd = separatorEnd(line, seg, end, sep);
+      final int keyLength = keyEnd(line, seg, segEnd, infoKeys) - seg;
+      int prev = start;
+      while (prev < seg) {
+        final int prevEnd = separatorEnd(line, prev, end, sep);
+        if (keyEnd(line, prev, prevEnd, infoKeys) - prev == keyLength && line.regionMatches(prev, line, seg, keyLength)) {
+          return false;
+        }
+        prev = prevEnd + 1;
+      }
+      seg = segEnd + 1;
+    }
+    return true;
+  }
+
+  // True if printing the decoded format and sample columns would reproduce the undecoded text
+  private boolean samplesCanonical(int formatStart) {
+    final int end = mLine.length();
+    final int formatEnd = separatorEnd(mLine, formatStart, end, '\t');
+    if (!distinctKeys(mLine, formatStart, formatEnd, ':', false)) {
+      return false;
+    }
+    int sample = formatEnd + 1;
+    while (sample <= end) {
+      final int sampleEnd = separatorEnd(mLine, sample, end, '\t');
+      // Trailing missing values are omitted when printing
+      if (sampleEnd - sample >= 2 && mLine.charAt(sampleEnd - 1) == VcfUtils.MISSING_VALUE && mLine.charAt(sampleEnd - 2) == ':') {
+        return false;
+      }
+      sample = sampleEnd + 1;
+    }
+    return true;
+  }
+
   private static String getAltCalls(List<String> altCalls) {
     if (altCalls.size() == 0) {
       return MISSING;
@@ -687,7 +870,7 @@ public class VcfRecord implements SequenceNameLocus {
    * @return value as a String or null if not specified
    */
   public String getSampleString(int sampleNumber, String formatField) {
-    final ArrayList<String> samples = mFormatAndSample.get(formatField);
+    final ArrayList<String> samples = formatAndSample().get(formatField);
     if (samples != null) {
       return samples.get(sampleNumber);
     }
@@ -72,6 +72,7 @@ public class VcfSubset extends AbstractCli {
     mFlags.registerRequired('o', OUTPUT, File.class, "file", "output VCF file. Use '-' to write to standard output").setCategory(INPUT_OUTPUT);
     CommonFlags.initNoGzip(mFlags);
     CommonFlags.initIndexFlags(mFlags);
+    CommonFlags.initThreadsFlag(mFlags);
 
     // Contents of FILTER
     mFlags.registerOptional(REMOVE_FILTER, String.class, "STRING", "remove the specified FILTER tag").setCategory(FILTERING).setMinCount(0).setMaxCount(Integer.MAX_VALUE);
@@ -118,6 +119,9 @@ public class VcfSubset extends AbstractCli {
         }
       }
 
+      if (!CommonFlags.validateThreads(flags)) {
+        return false;
+      }
       if (!checkPairNands(flags, REMOVE_INFOS, REMOVE_INFO, KEEP_INFO)) {
         return false;
       }
@@ -213,11 +217,14 @@ public class VcfSubset extends AbstractCli {
     final boolean index = !mFlags.isSet(CommonFlags.NO_INDEX);
     final boolean stdout = CommonFlags.isStdio(output);
 
+    final int threads = CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG));
+
     final List<VcfAnnotator> annotators = new ArrayList<>();
 
     final File vcfFile = stdout ? null : FileUtils.getZippedFileName(gzip, output);
-    try (VcfReader reader = VcfReader.openVcfReader(input)) {
-      final VcfHeader header = reader.getHeader();
+    final ParallelVcfProcessor processor = threads > 1 && ParallelVcfProcessor.canProcess(input) ? new ParallelVcfProcessor(input, threads, true) : null;
+    try (VcfReader reader = processor == null ? VcfReader.openVcfReader(input) : null) {
+      final VcfHeader header = processor == null ? reader.getHeader() : processor.getHeader();
 
       final AnnotatorAdder sampleAnnAdder = new AnnotatorAdder() {
         @Override
@@ -297,7 +304,6 @@ public class VcfSubset extends AbstractCli {
       };
       final VcfFormatStripper formatStripper = (VcfFormatStripper) formatAnnAdder.processFlags(annotators, header, REMOVE_FORMAT, KEEP_FORMAT, "Format");
 
-      int skippedRecords = 0;
       for (final VcfAnnotator annotator : annotators) {
         annotator.updateHeader(header);
       }
@@ -305,21 +311,24 @@ public class VcfSubset extends AbstractCli {
         formatStripper.updateHeader(header);
       }
       header.addRunInfo();
+      int skippedRecords = 0;
       try (VcfWriter writer = new VcfWriter(header, vcfFile, out, gzip, index)) {
-        while (reader.hasNext()) {
-          final VcfRecord rec = reader.next();
-          for (final VcfAnnotator annotator : annotators) {
-            annotator.annotate(rec);
-          }
-          if (formatStripper != null) {
-            formatStripper.annotate(rec);
-            if (formatStripper.keepRecord()) {
-              writer.write(rec);
-            } else {
-              skippedRecords++;
+        if (processor == null) {
+          final SubsetTask task = new SubsetTask(annotators, formatStripper);
+          task.process(reader, writer);
+          skippedRecords = task.mSkippedRecords;
+        } else {
+          final List<SubsetTask> tasks = new ArrayList<>();
+          processor.process(new ParallelVcfProcessor.RegionTaskFactory() {
+            @Override
+            public ParallelVcfProcessor.RegionTask task() {
+              final SubsetTask task = new SubsetTask(annotators, formatStripper);
+              tasks.add(task);
+              return task;
             }
-          } else {
-            writer.write(rec);
+          }, writer);
+          for (final SubsetTask task : tasks) {
+            skippedRecords += task.mSkippedRecords;
           }
         }
       }
@@ -330,6 +339,38 @@ public class VcfSubset extends AbstractCli {
     return 0;
   }
 
+  // Applies the annotators to each record, dropping those left without format fields
+  private static final class SubsetTask implements ParallelVcfProcessor.RegionTask {
+    private final List<VcfAnnotator> mAnnotators;
+    private final VcfFormatStripper mFormatStripper;
+    private int mSkippedRecords = 0;
+
+    SubsetTask(List<VcfAnnotator> annotators, VcfFormatStripper formatStripper) {
+      mAnnotators = annotators;
+      mFormatStripper = formatStripper;
+    }
+
+    @Override
+    public void process(VcfReader reader, VcfWriter writer) throws IOException {
+      while (reader.hasNext()) {
+        final VcfRecord rec = reader.next();
+        for (final VcfAnnotator annotator : mAnnotators) {
+          annotator.annotate(rec);
+        }
+        if (mFormatStripper != null) {
+          mFormatStripper.annotate(rec);
+          if (mFormatStripper.keepRecord(rec)) {
+            writer.write(rec);
+          } else {
+            mSkippedRecords++;
+          }
+        } else {
+          writer.write(rec);
+        }
+      }
+    }
+  }
+
   @Override
   public String moduleName() {
     return MODULE_NAME;
@@ -18,7 +18,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import com.rtg.tabix.IndexingStreamCreator;
+import com.rtg.tabix.InlineTabixIndexer;
 import com.rtg.tabix.TabixIndexer;
+import com.rtg.tabix.UnindexableDataException;
 import com.rtg.util.ByteUtils;
 import com.rtg.vcf.header.VcfHeader;
 
@@ -30,6 +32,8 @@ import com.rtg.vcf.header.VcfHeader;
 public class VcfWriter implements Closeable {
 
   private final IndexingStreamCreator mIndexer;
+  private final InlineTabixIndexer mInlineIndexer;
+  private final boolean mSaveInlineIndex;
   private final OutputStream mOut;
   private final VcfHeader mHeader;
   private boolean mHeaderWritten = false;
@@ -47,8 +51,34 @@ public class VcfWriter implements Closeable {
     if (header == null) {
       throw new NullPointerException("header cannot be null");
     }
-    mIndexer = new IndexingStreamCreator(outputFile, stdout, compress, new TabixIndexer.VcfIndexerFactory(), createIndexIfPossible);
-    mOut = mIndexer.createStreamsAndStartThreads();
+    if (outputFile != null && compress && createIndexIfPossible) {
+      mIndexer = null;
+      mInlineIndexer = new InlineTabixIndexer(outputFile, new TabixIndexer.VcfIndexerFactory());
+      mSaveInlineIndex = true;
+      mOut = mInlineIndexer.getOutputStream();
+    } else {
+      mIndexer = new IndexingStreamCreator(outputFile, stdout, compress, new TabixIndexer.VcfIndexerFactory(), createIndexIfPossible);
+      mInlineIndexer = null;
+      mSaveInlineIndex = false;
+      mOut = mIndexer.createStreamsAndStartThreads();
+    }
+    mHeader = header;
+  }
+
+  /**
+   * Creates a new VCF writer to a block compressed file whose index is built as records
+   * are written. The caller is responsible for saving the index after closing the writer.
+   * @param indexer indexer for the output file
+   * @param header header for the file
+   */
+  public VcfWriter(InlineTabixIndexer indexer, VcfHeader header) {
+    if (header == null) {
+      throw new NullPointerException("header cannot be null");
+    }
+    mIndexer = null;
+    mInlineIndexer = indexer;
+    mSaveInlineIndex = false;
+    mOut = indexer.getOutputStream();
     mHeader = header;
   }
 
@@ -66,6 +96,8 @@ public class VcfWriter implements Closeable {
       throw new NullPointerException("header cannot be null");
     }
     mIndexer = null;
+    mInlineIndexer = null;
+    mSaveInlineIndex = false;
     mOut = out;
     mHeader = header;
   }
@@ -100,6 +132,9 @@ public class VcfWriter implements Closeable {
 
   private void writeToStream(VcfRecord record) throws IOException {
     //System.err.println(record.toString());
+    if (mInlineIndexer != null) {
+      mInlineIndexer.record(record.getSequenceName(), Math.max(record.getStart(), 0), record.getRefCall().length());
+    }
     mOut.write(record.toString().getBytes());
     ByteUtils.writeNewline(mOut);
   }
@@ -114,6 +149,13 @@ public class VcfWriter implements Closeable {
     if (mIndexer != null) {
       mIndexer.close();
     }
+    if (mSaveInlineIndex) {
+      try {
+        mInlineIndexer.saveIndex();
+      } catch (final UnindexableDataException e) {
+        throw new IOException("Cannot produce index for: " + mInlineIndexer.getFile() + " (try disabling indexing)", e);
+      }
+    }
   }
 
 }
@@ -43,6 +43,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(SingleIndelEditDistanceTest.class);
     suite.addTestSuite(SingleIndelSeededEditDistanceTest.class);
     suite.addTestSuite(SoftClipperOmniTest.class);
+    suite.addTestSuite(StripedGotohEditDistanceTest.class);
     suite.addTestSuite(UnidirectionalPrioritisedEditDistanceTest.class);
     return suite;
   }
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.ngs.NgsParams;
+import com.rtg.ngs.NgsParamsBuilder;
+import com.rtg.util.InvalidParamsException;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.Utils;
+import com.rtg.variant.MachineErrorParamsBuilder;
+import com.rtg.variant.realign.RealignParamsImplementation;
+
+/**
+ * Micro benchmark for the individual edit distance engines. Each engine is run on the same
+ * simulated read and template pairs for a range of read lengths and error profiles, and the
+ * time and heap allocation per alignment is reported. Each measurement is preceded by a warm up
+ * run over the same pairs so that the timed run uses compiled code.
+ * <p>
+ * Run with:
+ * <pre>
+ * java -server com.rtg.alignment.EditDistanceTiming [alignments-per-case [seed]]
+ * </pre>
+ */
+public final class EditDistanceTiming {
+
+  private static final int MAX_SHIFT = 7;
+  private static final int TEMPLATE_PADDING = 50;
+  private static final int[] READ_LENGTHS = {36, 100, 250};
+
+  /** A way of introducing errors into reads. */
+  enum ErrorProfile {
+    /** Read matches the template exactly */
+    EXACT(0.0, 0, 0),
+    /** Illumina like substitutions only */
+    SUBSTITUTIONS(0.02, 0, 0),
+    /** A few substitutions and a single short indel */
+    SINGLE_INDEL(0.01, 1, 3),
+    /** Many substitutions and a couple of longer indels */
+    HEAVY(0.05, 2, 8);
+
+    final double mSubstitutionRate;
+    final int mIndels;
+    final int mMaxIndelLength;
+
+    ErrorProfile(double substitutionRate, int indels, int maxIndelLength) {
+      mSubstitutionRate = substitutionRate;
+      mIndels = indels;
+      mMaxIndelLength = maxIndelLength;
+    }
+  }
+
+  /** A read and the template it came from. */
+  static final class Pair {
+    final byte[] mRead;
+    final byte[] mTemplate;
+    final int mStart;
+
+    Pair(byte[] read, byte[] template, int start) {
+      mRead = read;
+      mTemplate = template;
+      mStart = start;
+    }
+  }
+
+  /** Creates a fresh engine so that each case starts without state from the previous one. */
+  interface EngineFactory {
+    String name();
+    UnidirectionalEditDistance create(int maxReadLength);
+  }
+
+  private static final NgsParams PARAMS = new NgsParamsBuilder()
+    .gapOpenPenalty(EditDistanceFactory.DEFAULT_GAP_OPEN_PENALTY)
+    .gapExtendPenalty(EditDistanceFactory.DEFAULT_GAP_EXTEND_PENALTY)
+    .substitutionPenalty(EditDistanceFactory.DEFAULT_SUBSTITUTION_PENALTY)
+    .unknownsPenalty(EditDistanceFactory.DEFAULT_UNKNOWNS_PENALTY)
+    .create();
+
+  static List<EngineFactory> engines() {
+    final List<EngineFactory> res = new ArrayList<>();
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "NoIndels";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new NoIndelsEditDistance(PARAMS);
+      }
+    });
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "SingleIndel";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new SingleIndelEditDistance(PARAMS, maxReadLength);
+      }
+    });
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "SingleIndelSeeded";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new SingleIndelSeededEditDistance(PARAMS, maxReadLength);
+      }
+    });
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "HopStepLong";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new HopStepEditDistanceLong(PARAMS);
+      }
+    });
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "Seeded";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new SeededAligner(PARAMS, false);
+      }
+    });
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "Gotoh";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new GotohEditDistance(PARAMS);
+      }
+    });
+    res.add(new EngineFactory() {
+      @Override
+      public String name() {
+        return "StripedGotoh";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        return new StripedGotohEditDistance(PARAMS);
+      }
+    });
+    return res;
+  }
+
+  static EngineFactory cgEngine() {
+    return new EngineFactory() {
+      @Override
+      public String name() {
+        return "CgGotoh";
+      }
+      @Override
+      public UnidirectionalEditDistance create(int maxReadLength) {
+        try {
+          return new CgGotohEditDistance(MAX_SHIFT, new RealignParamsImplementation(new MachineErrorParamsBuilder().errors("cg_real_errors").create()), EditDistanceFactory.DEFAULT_UNKNOWNS_PENALTY);
+        } catch (final InvalidParamsException | IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+  }
+
+  private static byte[] randomBases(PortableRandom random, int length) {
+    final byte[] res = new byte[length];
+    for (int i = 0; i < length; i++) {
+      res[i] = (byte) (1 + random.nextInt(4));
+    }
+    return res;
+  }
+
+  private static byte substitute(PortableRandom random, byte base) {
+    return (byte) (1 + (base + random.nextInt(3)) % 4);
+  }
+
+  /**
+   * Simulate a read from a random template, applying the given errors.
+   * @param random source of randomness
+   * @param readLength length of the read
+   * @param profile errors to introduce
+   * @return the read and template
+   */
+  static Pair simulate(PortableRandom random, int readLength, ErrorProfile profile) {
+    final byte[] template = randomBases(random, readLength + 2 * TEMPLATE_PADDING);
+    final int start = TEMPLATE_PADDING;
+    final byte[] read = new byte[readLength];
+    final int[] indelAt = new int[profile.mIndels];
+    for (int i = 0; i < indelAt.length; i++) {
+      indelAt[i] = readLength / (indelAt.length + 1) * (i + 1);
+    }
+    int t = start;
+    int nextIndel = 0;
+    for (int r = 0; r < readLength; r++) {
+      if (nextIndel < indelAt.length && r == indelAt[nextIndel]) {
+        final int length = 1 + random.nextInt(profile.mMaxIndelLength);
+        if (random.nextBoolean()) {
+          t += length; // deletion from the read
+        } else {
+          for (int k = 0; k < length && r < readLength - 1; k++) {
+            read[r++] = (byte) (1 + random.nextInt(4)); // insertion into the read
+          }
+        }
+        nextIndel++;
+      }
+      final byte base = template[t++];
+      read[r] = random.nextDouble() < profile.mSubstitutionRate ? substitute(random, base) : base;
+    }
+    return new Pair(read, template, start);
+  }
+
+  /**
+   * Simulate a left arm Complete Genomics read <code>(5-overlap-10-smallgap-10-largegap-10)</code>
+   * using the most common gap sizes.
+   * @param random source of randomness
+   * @param profile errors to introduce, only substitutions are applied
+   * @return the read and template
+   */
+  static Pair simulateCg(PortableRandom random, ErrorProfile profile) {
+    final byte[] template = randomBases(random, CgGotohEditDistance.CG_RAW_READ_LENGTH + 2 * TEMPLATE_PADDING);
+    final int start = TEMPLATE_PADDING;
+    final int[] fragments = {5, 10, 10, 10};
+    final int[] gaps = {-2, 0, 6};
+    final byte[] read = new byte[CgGotohEditDistance.CG_RAW_READ_LENGTH];
+    int t = start;
+    int r = 0;
+    for (int f = 0; f < fragments.length; f++) {
+      if (f > 0) {
+        t += gaps[f - 1];
+      }
+      for (int k = 0; k < fragments[f]; k++) {
+        final byte base = template[t++];
+        read[r++] = random.nextDouble() < profile.mSubstitutionRate ? substitute(random, base) : base;
+      }
+    }
+    return new Pair(read, template, start);
+  }
+
+  private static long allocatedBytes(ThreadMXBean bean) {
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * Align every pair.
+   * @return the total score and the number of pairs for which an alignment was produced
+   */
+  private static long[] run(UnidirectionalEditDistance ed, Pair[] pairs, boolean cg) {
+    long totalScore = 0;
+    long aligned = 0;
+    for (final Pair p : pairs) {
+      final int[] actions = ed.calculateEditDistance(p.mRead, p.mRead.length, p.mTemplate, p.mStart, Integer.MAX_VALUE, MAX_SHIFT, cg);
+      if (actions != null && ActionsHelper.alignmentScore(actions) != Integer.MAX_VALUE) {
+        totalScore += ActionsHelper.alignmentScore(actions);
+        aligned++;
+      }
+    }
+    return new long[] {totalScore, aligned};
+  }
+
+  /**
+   * Time one engine on one set of read and template pairs.
+   * @param out where the result line is written
+   * @param factory engine under test
+   * @param label description of the pairs
+   * @param pairs the pairs to align
+   * @param cg true if the pairs are Complete Genomics reads
+   */
+  static void time(PrintStream out, EngineFactory factory, String label, Pair[] pairs, boolean cg) {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    final UnidirectionalEditDistance ed = factory.create(pairs[0].mRead.length);
+    run(ed, pairs, cg); // warm up
+    final long a0 = allocatedBytes(bean);
+    final long t0 = System.nanoTime();
+    final long[] result = run(ed, pairs, cg);
+    final long t1 = System.nanoTime();
+    final long a1 = allocatedBytes(bean);
+    final double nsPerAlignment = (t1 - t0) / (double) pairs.length;
+    final String bytesPerAlignment = a0 < 0 ? "n/a" : Utils.realFormat((a1 - a0) / (double) pairs.length, 1);
+    final String allocRate = a0 < 0 ? "n/a" : Utils.realFormat((a1 - a0) * 1000.0 / (t1 - t0), 1);
+    final String meanScore = result[1] == 0 ? "n/a" : Utils.realFormat(result[0] / (double) result[1], 2);
+    out.println(String.format("%-18s %-22s %12s ns/aln %10s B/aln %10s MB/s %6s%% aligned  mean score %s",
+      factory.name(), label, Utils.realFormat(nsPerAlignment, 1), bytesPerAlignment, allocRate, Utils.realFormat(100.0 * result[1] / pairs.length, 1), meanScore));
+  }
+
+  /**
+   * Run all engines over all read lengths and error profiles.
+   * @param out where results are written
+   * @param alignments number of alignments in each case
+   * @param seed seed for the simulated reads
+   */
+  static void timeAll(PrintStream out, int alignments, long seed) {
+    final List<EngineFactory> engines = engines();
+    for (final int readLength : READ_LENGTHS) {
+      for (final ErrorProfile profile : ErrorProfile.values()) {
+        final PortableRandom random = new PortableRandom(seed);
+        final Pair[] pairs = new Pair[alignments];
+        for (int i = 0; i < pairs.length; i++) {
+          pairs[i] = simulate(random, readLength, profile);
+        }
+        for (final EngineFactory factory : engines) {
+          time(out, factory, readLength + "bp " + profile, pairs, false);
+        }
+      }
+    }
+    final EngineFactory cg = cgEngine();
+    for (final ErrorProfile profile : new ErrorProfile[] {ErrorProfile.EXACT, ErrorProfile.SUBSTITUTIONS}) {
+      final PortableRandom random = new PortableRandom(seed);
+      final Pair[] pairs = new Pair[alignments];
+      for (int i = 0; i < pairs.length; i++) {
+        pairs[i] = simulateCg(random, profile);
+      }
+      time(out, cg, "cg35 " + profile, pairs, true);
+    }
+  }
+
+  private EditDistanceTiming() { }
+
+  /**
+   * @param args optionally the number of alignments per case and the random seed.
+   */
+  public static void main(String[] args) {
+    final int alignments = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+    timeAll(System.out, alignments, seed);
+  }
+}
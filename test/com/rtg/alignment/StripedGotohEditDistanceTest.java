@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.alignment;
+
+import java.util.Arrays;
+
+import com.rtg.mode.DnaUtils;
+import com.rtg.ngs.NgsParams;
+import com.rtg.ngs.NgsParamsBuilder;
+import com.rtg.util.PortableRandom;
+
+/**
+ */
+public class StripedGotohEditDistanceTest extends AbstractUnidirectionalEditDistanceTest {
+
+  @Override
+  protected UnidirectionalEditDistance getEditDistanceInstance(int gapOpen, int gapExtend, int substitutionPenalty, int unknownsPenalty) {
+    final NgsParams ngsParams = new NgsParamsBuilder().substitutionPenalty(substitutionPenalty).gapOpenPenalty(gapOpen).gapExtendPenalty(gapExtend).unknownsPenalty(unknownsPenalty).create();
+    return new StripedGotohEditDistance(ngsParams);
+  }
+
+  public void testSimple() {
+    final byte[] read = DnaUtils.encodeString("acgtacgtactcgtttgg");
+    final byte[] template = DnaUtils.encodeString("ttttacgtacgtacccgtttgggaaaaa");
+    final int[] actions = getEditDistanceInstance(19, 1, 9, 5).calculateEditDistance(read, read.length, template, 4, Integer.MAX_VALUE, 7, false);
+    assertEquals(4, ActionsHelper.zeroBasedTemplateStart(actions));
+    assertEquals(9, ActionsHelper.alignmentScore(actions));
+    assertEquals("==========X=======", ActionsHelper.toString(actions));
+  }
+
+  private static byte[] mutate(PortableRandom r, byte[] template, int start, int length) {
+    final byte[] read = new byte[length];
+    int t = start;
+    for (int i = 0; i < length; i++) {
+      final int event = r.nextInt(40);
+      if (event == 0 && t < template.length - 3) {
+        t += 1 + r.nextInt(3); // deletion
+      } else if (event == 1) {
+        read[i] = (byte) r.nextInt(5); // insertion
+        continue;
+      }
+      final byte base = t < template.length ? template[t++] : 0;
+      read[i] = event == 2 ? (byte) r.nextInt(5) : base;
+    }
+    return read;
+  }
+
+  /** A single call on an aligner. */
+  private interface Call {
+    int[] align(UnidirectionalEditDistance ed);
+  }
+
+  private static String result(UnidirectionalEditDistance ed, Call call) {
+    try {
+      final int[] actions = call.align(ed);
+      return Arrays.toString(Arrays.copyOf(actions, ActionsHelper.ACTIONS_START_INDEX + 1 + (ActionsHelper.actionsCount(actions) >> ActionsHelper.ACTIONS_PER_INT_SHIFT)));
+    } catch (final RuntimeException e) {
+      return e.getClass().getName();
+    }
+  }
+
+  private static void checkSame(UnidirectionalEditDistance expected, UnidirectionalEditDistance actual, Call call, String msg) {
+    assertEquals(msg, result(expected, call), result(actual, call));
+  }
+
+  /** The alignments must be identical to those of the original implementation. */
+  public void testSameAsGotoh() {
+    final PortableRandom r = new PortableRandom(123);
+    final int[][] penalties = {{19, 1, 9, 5}, {1, 1, 1, 1}, {5, 2, 3, 0}};
+    for (final int[] p : penalties) {
+      for (final boolean stop : new boolean[] {false, true}) {
+        final GotohEditDistance gotoh = new GotohEditDistance(p[0], p[1], p[2], p[3], stop);
+        final StripedGotohEditDistance striped = new StripedGotohEditDistance(p[0], p[1], p[2], p[3], stop);
+        for (int k = 0; k < 300; k++) {
+          final int length = 10 + r.nextInt(k % 3 == 0 ? 300 : 60);
+          final byte[] template = new byte[length + 40];
+          for (int i = 0; i < template.length; i++) {
+            template[i] = (byte) (r.nextInt(30) == 0 ? 0 : 1 + r.nextInt(4));
+          }
+          final int start = r.nextInt(25);
+          final byte[] read = mutate(r, template, start, length);
+          final int zeroBasedStart = Math.max(0, start + r.nextInt(7) - 3);
+          final int maxShift = 1 + r.nextInt(12);
+          final int maxScore = r.nextBoolean() ? 1000 : r.nextInt(50);
+          final String msg = "k=" + k + " stop=" + stop + " penalties=" + Arrays.toString(p);
+          checkSame(gotoh, striped, new Call() {
+            @Override
+            public int[] align(UnidirectionalEditDistance ed) {
+              return ed.calculateEditDistance(read, length, template, zeroBasedStart, maxScore, maxShift, false);
+            }
+          }, msg);
+          final int rs = r.nextInt(length - 5);
+          final int re = rs + 5 + r.nextInt(length - rs - 4);
+          final int ts = Math.max(0, start + rs + r.nextInt(5) - 2);
+          final int te = Math.min(template.length, ts + (re - rs) + r.nextInt(5) - 2);
+          checkSame(gotoh, striped, new Call() {
+            @Override
+            public int[] align(UnidirectionalEditDistance ed) {
+              return ed.calculateEditDistanceFixedStart(read, rs, re, template, ts, maxScore, maxShift);
+            }
+          }, msg + " fixed start");
+          checkSame(gotoh, striped, new Call() {
+            @Override
+            public int[] align(UnidirectionalEditDistance ed) {
+              return ed.calculateEditDistanceFixedEnd(read, rs, re, template, ts, te, maxScore, maxShift);
+            }
+          }, msg + " fixed end");
+          checkSame(gotoh, striped, new Call() {
+            @Override
+            public int[] align(UnidirectionalEditDistance ed) {
+              return ed.calculateEditDistanceFixedBoth(read, rs, re, template, ts, te, maxScore, maxShift);
+            }
+          }, msg + " fixed both");
+        }
+      }
+    }
+  }
+}
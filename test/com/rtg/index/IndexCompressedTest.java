@@ -11,6 +11,7 @@
  */
 package com.rtg.index;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,6 +20,7 @@ import java.util.List;
 
 import com.rtg.index.IndexBase.IndexState;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.test.FileHelper;
 
 /**
  */
@@ -199,4 +201,39 @@ public class IndexCompressedTest extends AbstractIndexTest {
       assertEquals(73, countIndex.getHash(30));
     }
   }
+
+  public final void testSaveLoad() throws IOException {
+    final CreateParams params = new CreateParams(20, 16, 16, true, false, false);
+    final IndexCompressed index = new IndexCompressed(params, 3, false, 3, 3, 1);
+    final long[] hashes = {5, 3, 70000 & 0xFFFF, 5, 12345, 5, 5, 3};
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < hashes.length; i++) {
+        index.add(hashes[i], i);
+      }
+      index.freeze();
+    }
+    final File dir = FileHelper.createTempDirectory();
+    try {
+      final File file = new File(dir, "index.bin");
+      index.save(file);
+      final IndexCompressed loaded = IndexCompressed.load(file, params, 3, false, 3, 3, 1);
+      assertTrue(loaded.globalIntegrity());
+      assertEquals(index.numberEntries(), loaded.numberEntries());
+      assertEquals(index.numberHashes(), loaded.numberHashes());
+      for (final long hash : new long[] {3, 5, 4464, 12345, 0, 99}) {
+        assertEquals(index.searchCount(hash), loaded.searchCount(hash));
+        assertEquals(index.search(hash), loaded.search(hash));
+      }
+      assertEquals(0, loaded.searchCount(5)); // over repeat threshold
+      assertEquals(2, loaded.searchCount(3));
+      try {
+        IndexCompressed.load(file, params, 4, false, 4, 4, 1);
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage().contains("different parameters"));
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
 }
@@ -11,6 +11,7 @@
  */
 package com.rtg.index;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 
@@ -21,6 +22,7 @@ import com.rtg.ngs.NgsParamsBuilder;
 import com.rtg.util.TestUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.io.MemoryPrintStream;
+import com.rtg.util.test.FileHelper;
 
 import junit.framework.TestCase;
 
@@ -180,4 +182,35 @@ public class IndexSetTest extends TestCase {
         , "Worker Thread Created - CreateIndex-0"
         );
   }
+
+  public void testSaveLoad() throws IOException {
+    final NgsParams params = new NgsParamsBuilder().numberThreads(1).hashCountThreshold(100).outputParams(NgsOutputParams.builder().create()).create();
+    final CreateParams indexParams = new CreateParams(10, 16, 16, true, false, false);
+    final IndexSet is = new IndexSet(params, indexParams, 2);
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < 5; i++) {
+        is.get(0).add(i * 7, i);
+        is.get(1).add(i * 11, i);
+      }
+      is.freeze(1);
+    }
+    final File dir = FileHelper.createTempDirectory();
+    try {
+      final File saved = new File(dir, "saved");
+      assertFalse(IndexSet.isSaved(saved, "sig", 2));
+      is.save(saved, "sig");
+      assertTrue(IndexSet.isSaved(saved, "sig", 2));
+      assertFalse(IndexSet.isSaved(saved, "other", 2));
+      assertFalse(IndexSet.isSaved(saved, "sig", 3));
+      final IndexSet loaded = new IndexSet(saved, params, indexParams, 2);
+      assertEquals(2, loaded.size());
+      for (int i = 0; i < 5; i++) {
+        assertEquals(1, loaded.get(0).searchCount(i * 7));
+        assertEquals(1, loaded.get(1).searchCount(i * 11));
+      }
+      assertEquals(0, loaded.get(1).searchCount(7));
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
 }
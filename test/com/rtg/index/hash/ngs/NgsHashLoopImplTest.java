@@ -22,6 +22,13 @@ import java.io.PrintStream;
 import java.io.StringWriter;
 import java.util.ArrayList;
 
+import com.rtg.index.FinderHashValue;
+import com.rtg.index.Index;
+import com.rtg.index.IndexCompressed;
+import com.rtg.index.IndexSet;
+import com.rtg.index.hash.ngs.instances.MaskL36w18s3e1;
+import com.rtg.index.params.CreateParams;
+import com.rtg.index.queue.IndexQueues;
 import com.rtg.launcher.DefaultReaderParamsTest;
 import com.rtg.launcher.ISequenceParams;
 import com.rtg.launcher.MockSequenceParams;
@@ -36,6 +43,7 @@ import com.rtg.reader.ReaderLongMock;
 import com.rtg.reader.ReaderTestUtils;
 import com.rtg.reader.SequencesWriter;
 import com.rtg.util.intervals.LongRange;
+import com.rtg.util.PortableRandom;
 import com.rtg.util.StringUtils;
 import com.rtg.util.diagnostic.CliDiagnosticListener;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -342,6 +350,76 @@ public final class NgsHashLoopImplTest extends TestCase {
   }
   private static final String EXPECTED_3 = "" + "reset" + LS + "code 0" + LS + "code 0" + LS + "code 0" + LS + "code 0" + LS + "readId 0" + LS + "set 0" + LS + "reset" + LS + "reset" + LS + "code 0" + LS + "code 0" + LS + "code 0" + LS + "code 3" + LS + "readId 1" + LS + "set 1" + LS + "reset" + LS + "reset" + LS + "code 0" + LS + "code 0" + LS + "code 1" + LS + "code 1" + LS + "readId 2" + LS + "set 2" + LS + "reset" + LS + "reset" + LS + "code 0" + LS + "code 0" + LS + "code 1" + LS + "code 3" + LS + "readId 3" + LS + "set 3" + LS + "reset" + LS;
 
+  private static String indexContents(final Index index) throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    index.scan(new FinderHashValue() {
+      @Override
+      public void found(long hash, long value) {
+        sb.append(hash).append(" ").append(value).append(LS);
+      }
+    });
+    return sb.toString();
+  }
+
+  public void testReadLoopMultiCore() throws IOException {
+    Diagnostic.setLogStream();
+    final PortableRandom r = new PortableRandom(42);
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      sb.append(">r").append(i).append(LS);
+      final int length = i == 17 ? 30 : 36;
+      for (int j = 0; j < length; j++) {
+        // Frequent repeats so that buckets hold several values
+        sb.append(r.nextInt(50) == 0 ? 'n' : "acgt".charAt(i % 7 == 0 ? j % 4 : r.nextInt(4)));
+      }
+      sb.append(LS);
+    }
+    try (final ReaderParams reads = getReads(sb.toString())) {
+      final int numberReads = (int) reads.reader().numberSequences();
+      final HashFunctionFactory factory = MaskL36w18s3e1.FACTORY;
+      final CreateParams indexParams = new CreateParams(numberReads, factory.hashBits(), factory.windowBits(), true, false, false);
+      final ISequenceParams params = new MockSequenceParams(reads, 0, numberReads);
+
+      final Index[] expected = new Index[factory.numberWindows()];
+      final Index[] actual = new Index[factory.numberWindows()];
+      for (int i = 0; i < expected.length; i++) {
+        expected[i] = new IndexCompressed(indexParams, null, false, 0, 0, 1);
+        actual[i] = new IndexCompressed(indexParams, null, false, 0, 0, 3);
+      }
+      final NgsHashLoopImpl hl = new NgsHashLoopImpl(numberReads, false);
+      final ImplementHashFunction hf = (ImplementHashFunction) factory.create(new ReadCallImplementation(new IndexSet(expected)), new ImplementHashFunctionTest.TemplateCallMock());
+      hf.setReadSequences(numberReads);
+      long expectedLength = 0;
+      for (int pass = 0; pass < 2; pass++) {
+        expectedLength = hl.readLoop(params, hf, ReadEncoder.SINGLE_END, false);
+        for (final Index index : expected) {
+          index.freeze();
+        }
+      }
+
+      final ImplementHashFunction hfm = (ImplementHashFunction) factory.create(null, new ImplementHashFunctionTest.TemplateCallMock());
+      hfm.setReadSequences(numberReads);
+      final IndexSet actualSet = new IndexSet(actual);
+      final IndexQueues[] queues = actualSet.queues(3, 3, indexParams);
+      final ImplementHashFunction[] clones = new ImplementHashFunction[3];
+      for (int i = 0; i < clones.length; i++) {
+        clones[i] = hfm.readThreadClone(new ReadCallQueues(queues, i));
+      }
+      final NgsHashLoopImpl hlm = new NgsHashLoopImpl(numberReads, false);
+      assertEquals(expectedLength, hlm.readLoopMultiCore(params, clones, ReadEncoder.SINGLE_END, false));
+      actualSet.freeze(queues);
+
+      for (int i = 0; i < expected.length; i++) {
+        assertEquals(expected[i].numberEntries(), actual[i].numberEntries());
+        assertEquals(indexContents(expected[i]), indexContents(actual[i]));
+      }
+      for (int i = 0; i < numberReads; i++) {
+        assertEquals(hf.mReadSequencesF1[i], hfm.mReadSequencesF1[i]);
+        assertEquals(hf.mReadSequencesF2[i], hfm.mReadSequencesF2[i]);
+      }
+    }
+  }
+
   /**
    * Tests progress and start end values.
    */
@@ -167,6 +167,14 @@ public class IndexQueuesTest extends TestCase {
     assertEquals("IndexQueues: threads=" + threads + " radixBits=" + xRadixBits + " radixSize=" + xRadixSize + " lowerBits=" + xLowerBits, iq.toString());
   }
 
+  public void testBytes() {
+    assertEquals(2 * 100 * 4, IndexQueues.bytes(42, 100, 20, 10));
+    assertEquals(2 * 100 * 8, IndexQueues.bytes(43, 100, 20, 10));
+    assertEquals(2 * 100 * 8, IndexQueues.bytes(42, 100, 33, 10));
+    assertEquals(2 * 100 * 4, IndexQueues.bytes(40, 100, 20, 8));
+    assertEquals(0, IndexQueues.bytes(64, 0, 20, 10));
+  }
+
   public void testBadThreads() {
     try {
       new IndexQueues(0, 13, 10, 0, 2);
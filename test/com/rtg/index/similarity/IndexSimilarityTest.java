@@ -13,6 +13,7 @@ package com.rtg.index.similarity;
 
 import com.rtg.index.Index;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
 import com.rtg.util.StringUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 
@@ -109,4 +110,41 @@ public class IndexSimilarityTest extends TestCase {
           expected);
   }
 
+  public final void testMaxSequences() {
+    final CreateParams params = new CreateParams(100, 32, 32, true, false, false);
+    final IndexSimilarity index = new IndexSimilarity(params, 6, false, 6, 0, false, 1);
+    final long[] hashes = {1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2, 3};
+    final int[] ids = {1, 2, 3, 0, 2, 2, 3, 4, 3, 4, 4, 5};
+    add(index, hashes, ids);
+    index.freeze();
+    add(index, hashes, ids);
+    index.freeze();
+    // Hash 1 occurs in 4 sequences so is ignored
+    final SimilarityMatrix matrix = index.similarity(10, 1, 3);
+    assertEquals(0.0, matrix.get(0, 2));
+    assertEquals(4.0, matrix.get(3, 3));
+    assertEquals(6.0, matrix.get(3, 4));
+    assertEquals(1.0, matrix.get(5, 5));
+    assertEquals(index.similarity(10).toString(), index.similarity(10, 1, 4).toString());
+  }
+
+  public final void testThreads() {
+    final CreateParams params = new CreateParams(5000, 32, 32, true, false, false);
+    final IndexSimilarity index = new IndexSimilarity(params, null, false, Integer.MAX_VALUE, 0, false, 1);
+    final PortableRandom random = new PortableRandom(3);
+    final long[] hashes = new long[5000];
+    final int[] ids = new int[hashes.length];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = random.nextLong() & 0xFFFFFFF0L;
+      ids[i] = random.nextInt(20);
+    }
+    add(index, hashes, ids);
+    index.freeze();
+    add(index, hashes, ids);
+    index.freeze();
+    final String expected = index.similarity(20).toString();
+    assertEquals(expected, index.similarity(20, 3, 0).toString());
+    assertEquals(expected, index.similarity(20, 7, 0).toString());
+  }
+
 }
@@ -18,10 +18,12 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Random;
 
 import com.rtg.mode.SequenceType;
 import com.rtg.reader.MockArraySequencesReader;
 import com.rtg.reader.SequencesReader;
+import com.rtg.util.PortableRandom;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.io.MemoryPrintStream;
 
@@ -81,14 +83,10 @@ public class NeighborJoiningTest extends TestCase {
         + "X C" + LS, 5);
   }
 
-  static ArrayList<ArrayList<Double>> buildList(final double[][] d) {
-    final ArrayList<ArrayList<Double>> res = new ArrayList<>();
-    for (final double[] dd : d) {
-      final ArrayList<Double> row = new ArrayList<>();
-      for (double aDd : dd) {
-        row.add(aDd);
-      }
-      res.add(row);
+  static double[][] copy(final double[][] d) {
+    final double[][] res = new double[d.length][];
+    for (int i = 0; i < d.length; i++) {
+      res[i] = d[i].clone();
     }
     return res;
   }
@@ -122,7 +120,7 @@ public class NeighborJoiningTest extends TestCase {
     //the result is non-deterministic - do enough to get a statistical result.
     for (int k = 0; k < 100; k++) {
       final NeighborJoining nj = new NeighborJoining(k * 1237L);
-      final BinaryTree tree = nj.neighborJoin(s, buildList(d));
+      final BinaryTree tree = nj.neighborJoin(s, copy(d));
       assertNotNull(tree);
       final ByteArrayOutputStream bos = new ByteArrayOutputStream();
       try {
@@ -162,7 +160,7 @@ public class NeighborJoiningTest extends TestCase {
     s.add("C");
     s.add("D");
     final NeighborJoining nj = new NeighborJoining();
-    final BinaryTree tree = nj.neighborJoin(s, buildList(d));
+    final BinaryTree tree = nj.neighborJoin(s, copy(d));
     assertNotNull(tree);
     final Appendable out = new StringWriter();
     tree.modifiedNewHampshire(out);
@@ -266,9 +264,9 @@ public class NeighborJoiningTest extends TestCase {
       }
     }
     final StringWriter sb = new StringWriter();
-    final ArrayList<ArrayList<Double>> aa = NeighborJoining.makeArray(ma);
-    for (ArrayList<Double> a : aa) {
-      for (Double d : a) {
+    final double[][] aa = NeighborJoining.makeArray(ma);
+    for (double[] a : aa) {
+      for (double d : a) {
         final String strVal = String.format("  %1$02.4f", d);
         sb.append(strVal);
       }
@@ -362,6 +360,157 @@ public class NeighborJoiningTest extends TestCase {
     assertEquals(exp, str);
   }
 
+  /** Joins split across threads give the same tree, including where pairs tie. */
+  public void testThreads() throws IOException {
+    Diagnostic.setLogStream();
+    final int n = 300;
+    final ArrayList<String> names = new ArrayList<>();
+    final double[][] d = new double[n][];
+    final Random random = new Random(7);
+    for (int i = 0; i < n; i++) {
+      names.add("s" + i);
+      d[i] = new double[i];
+      for (int j = 0; j < i; j++) {
+        d[i][j] = 1 + random.nextInt(20);
+      }
+    }
+    final StringWriter single = new StringWriter();
+    new NeighborJoining(42, 1).neighborJoin(names, copy(d)).modifiedNewHampshire(single);
+    final StringWriter multi = new StringWriter();
+    new NeighborJoining(42, 3).neighborJoin(names, copy(d)).modifiedNewHampshire(multi);
+    assertEquals(single.toString(), multi.toString());
+  }
+
+  /**
+   * The original implementation, which computes every entry of the Q matrix on each iteration.
+   * Kept as a reference for the order in which pairs are joined and ties are broken.
+   */
+  private static final class FullScanNeighborJoining {
+    private final PortableRandom mRandom;
+
+    FullScanNeighborJoining(final long seed) {
+      mRandom = new PortableRandom(seed);
+    }
+
+    private static double distance(final int i, final int j, final ArrayList<ArrayList<Double>> d) {
+      return i == j ? 0 : (i > j ? d.get(i).get(j) : d.get(j).get(i));
+    }
+
+    private static void remove(final int f, final ArrayList<BinaryTree> s, final ArrayList<ArrayList<Double>> d) {
+      for (int k = f + 1; k < d.size(); k++) {
+        d.get(k).remove(f);
+      }
+      s.remove(f);
+      d.remove(f);
+    }
+
+    BinaryTree neighborJoin(final ArrayList<String> nodeNames, final double[][] matrix) {
+      final ArrayList<ArrayList<Double>> d = new ArrayList<>();
+      for (final double[] row : matrix) {
+        final ArrayList<Double> r = new ArrayList<>();
+        for (final double v : row) {
+          r.add(v);
+        }
+        d.add(r);
+      }
+      final ArrayList<BinaryTree> s = new ArrayList<>();
+      for (final String name : nodeNames) {
+        s.add(new BinaryTree(null, null, 0, 0, name));
+      }
+      while (s.size() > 1) {
+        final double[] colSum = new double[d.size()];
+        for (int j = 0; j < d.size(); j++) {
+          double sum = 0;
+          for (int k = 0; k < d.size(); k++) {
+            sum += distance(j, k, d);
+          }
+          colSum[j] = sum;
+        }
+        final int r = d.size() - 2;
+        double best = Double.POSITIVE_INFINITY;
+        int c = 0;
+        int f = -1;
+        int g = -1;
+        for (int k = 1; k < d.size(); k++) {
+          for (int j = 0; j < k; j++) {
+            final double q = r * distance(k, j, d) - colSum[k] - colSum[j];
+            if (Double.doubleToRawLongBits(q) == Double.doubleToRawLongBits(best) && mRandom.nextInt(++c) == 0) {
+              f = k;
+              g = j;
+            } else if (q < best) {
+              c = 1;
+              f = k;
+              g = j;
+              best = q;
+            }
+          }
+        }
+        final double dfu, dgu, dfg = 0.5 * distance(f, g, d);
+        if (d.size() > 2) {
+          dfu = dfg + 0.5 * (colSum[f] - colSum[g]) / (d.size() - 2);
+          dgu = dfg + 0.5 * (colSum[g] - colSum[f]) / (d.size() - 2);
+        } else {
+          dfu = dfg;
+          dgu = dfg;
+        }
+        final ArrayList<Double> newRow = new ArrayList<>();
+        for (int i = 0; i < d.size(); i++) {
+          if (i != f && i != g) {
+            newRow.add(0.5 * (distance(f, i, d) - dfu + distance(g, i, d) - dgu));
+          }
+        }
+        final BinaryTree newNode = new BinaryTree(s.get(f), s.get(g), dfu, dgu, String.valueOf(d.size()));
+        if (f > g) {
+          remove(f, s, d);
+          remove(g, s, d);
+        } else {
+          remove(g, s, d);
+          remove(f, s, d);
+        }
+        d.add(newRow);
+        s.add(newNode);
+      }
+      return s.get(0);
+    }
+  }
+
+  private static String describe(final BinaryTree tree) throws IOException {
+    final StringWriter out = new StringWriter();
+    tree.modifiedNewHampshire(out);
+    return out.toString() + tree.toString();
+  }
+
+  private static void checkFullScan(final int n, final int distinct, final long matrixSeed) throws IOException {
+    final ArrayList<String> names = new ArrayList<>();
+    final double[][] d = new double[n][];
+    final Random random = new Random(matrixSeed);
+    for (int i = 0; i < n; i++) {
+      names.add("s" + i);
+      d[i] = new double[i];
+      for (int j = 0; j < i; j++) {
+        d[i][j] = 1 + random.nextInt(distinct);
+      }
+    }
+    for (final long seed : new long[] {23, 42}) {
+      final String expected = describe(new FullScanNeighborJoining(seed).neighborJoin(names, d));
+      for (final int threads : new int[] {1, 2, 3}) {
+        assertEquals("n=" + n + " seed=" + seed + " threads=" + threads, expected, describe(new NeighborJoining(seed, threads).neighborJoin(names, copy(d))));
+      }
+    }
+  }
+
+  /** The same trees as the original full scan, on matrices with many tied distances. */
+  public void testSameAsFullScan() throws IOException {
+    Diagnostic.setLogStream();
+    checkFullScan(2, 1, 1);
+    checkFullScan(5, 1, 1);
+    checkFullScan(12, 2, 3);
+    checkFullScan(40, 3, 5);
+    checkFullScan(100, 1, 7);
+    checkFullScan(100, 4, 11);
+    checkFullScan(300, 2, 13); // large enough to search in parallel
+  }
+
   /**
    * Get all sequence names in the reader.
    * @param reader sequences from where to get names.
@@ -76,6 +76,26 @@ public class SimilarityMatrixTest extends TestCase {
     assertEquals(expected, sim.toString());
   }
 
+  public void testAdd() {
+    final SimilarityMatrix sim = new SimilarityMatrix(3);
+    sim.set(0, 0, 1);
+    sim.set(2, 1, 2);
+    final SimilarityMatrix other = new SimilarityMatrix(3);
+    other.set(1, 2, 3);
+    other.set(2, 2, 4);
+    sim.add(other);
+    assertEquals(1, sim.get(0, 0), 1.0E-8);
+    assertEquals(5, sim.get(1, 2), 1.0E-8);
+    assertEquals(4, sim.get(2, 2), 1.0E-8);
+    assertEquals(0, sim.get(0, 2), 1.0E-8);
+    try {
+      sim.add(new SimilarityMatrix(2));
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("2 != 3", e.getMessage());
+    }
+  }
+
   public void testSet() {
     final SimilarityMatrix sim = new SimilarityMatrix(10);
     sim.globalIntegrity();
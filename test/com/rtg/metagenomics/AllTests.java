@@ -44,6 +44,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(MetagenomicsWrapperTaskTest.class);
     suite.addTestSuite(MinimizerTest.class);
     suite.addTestSuite(NewtonRaphsonSolverTest.class);
+    suite.addTestSuite(ReadHitTableTest.class);
     suite.addTestSuite(SimpleTerminatorTest.class);
     suite.addTestSuite(SpeciesCliTest.class);
     suite.addTestSuite(SpeciesInfoTest.class);
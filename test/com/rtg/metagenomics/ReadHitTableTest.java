@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ReadHitTableTest extends TestCase {
+
+  public void testHash() {
+    assertEquals(ReadHitTable.hash("read1"), ReadHitTable.hash("read1"));
+    // Equal String hash codes
+    assertFalse(ReadHitTable.hash("Aa") == ReadHitTable.hash("BB"));
+    final HashSet<Long> hashes = new HashSet<>();
+    for (int i = 0; i < 100000; i++) {
+      assertTrue(hashes.add(ReadHitTable.hash("read" + i)));
+    }
+  }
+
+  public void testFrags() {
+    final ReadHitTable table = new ReadHitTable();
+    table.add("r1", 3);
+    table.add("r2", 5);
+    table.add("r1", 1);
+    table.add("r3", 2);
+    table.add("r1", 3);
+    for (int i = 0; i < 40; i++) {
+      table.add("r2", 40 - i);
+    }
+    assertEquals(45, table.hits());
+    final HashMap<String, Frag> frags = new HashMap<>();
+    Frag f;
+    while ((f = table.nextFrag()) != null) {
+      frags.put(f.toString(), f);
+    }
+    assertNull(table.nextFrag());
+    assertEquals(3, frags.size());
+    assertTrue(frags.containsKey(FragTest.frag(1, 3, 3).toString()));
+    assertTrue(frags.containsKey(FragTest.frag(2).toString()));
+    final int[] r2 = new int[41];
+    for (int i = 0; i < 40; i++) {
+      r2[i] = i + 1;
+    }
+    r2[40] = 5;
+    Arrays.sort(r2);
+    assertTrue(frags.containsKey(FragTest.frag(r2).toString()));
+    try {
+      table.add("r4", 1);
+      fail();
+    } catch (final IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testEmpty() {
+    final ReadHitTable table = new ReadHitTable();
+    assertEquals(0, table.hits());
+    assertNull(table.nextFrag());
+  }
+}
@@ -16,7 +16,11 @@ import static com.rtg.util.StringUtils.LS;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.rtg.launcher.GlobalFlags;
 import com.rtg.launcher.MockReaderParams;
@@ -24,6 +28,7 @@ import com.rtg.launcher.MockSequenceParams;
 import com.rtg.metagenomics.SpeciesParams.SpeciesParamsBuilder;
 import com.rtg.metagenomics.matrix.Matrix;
 import com.rtg.metagenomics.matrix.MatrixSimple;
+import com.rtg.metagenomics.matrix.MatrixSparseSymmetric;
 import com.rtg.metagenomics.matrix.Vector;
 import com.rtg.metagenomics.matrix.VectorSimple;
 import com.rtg.mode.SequenceMode;
@@ -188,20 +193,18 @@ public class SpeciesTest extends TestCase {
           SpeciesTask.SPECIES_HEADER.replace('\t',  ' '),
           "0.8621 0.1308 1.000 0.3472 0.05267 1.000 0.0 0.000 0.000 0 4.56 N 1 2 1 none 0",
           "0.1379 0.006867 1.000 0.1528 0.007606 1.000 0.0 0.000 0.000 0 55.00 N 1 3 1 none 1");
-      final Matrix hessian = sp.hessianR(blockResult.getR());
+      final MatrixSparseSymmetric hessian = sp.hessianR(blockResult.getR());
       assertEquals(5.3333, hessian.get(0, 0), 1e-4);
       assertEquals(2.6666, hessian.get(0, 1), 1e-4);
       assertEquals(2.6666, hessian.get(1, 0), 1e-4);
       assertEquals(82.3333, hessian.get(1, 1), 1e-4);
       //System.err.println("Hessian:");
       //System.err.println(hessian);
-      //Extract eigenvectors and eigenvalues.
-      final EigenvalueDecomposition ed = hessian.toJama().eig();
       final Vector r = new VectorSimple(3);
       r.set(0, 1.0);
       r.set(1, 1.0);
       r.set(2, 1.0);
-      final Vector stdDev = Species.variance(Species.makeFlatMembership(hessian.dimension()), blockInfo, r, ed);
+      final Vector stdDev = Species.variance(Species.makeFlatMembership(hessian.dimension()), blockInfo, r, hessian, null);
       assertEquals(0.4365, Math.sqrt(stdDev.get(0)), 1e-4);
       assertEquals(0.1111, Math.sqrt(stdDev.get(1)), 1e-4);
     } finally {
@@ -294,8 +297,6 @@ public class SpeciesTest extends TestCase {
     final int n = hessian.dimension();
     //System.err.println("Hessian:");
     //System.err.println(hessian);
-    //Extract eigenvectors and eigenvalues.
-    final EigenvalueDecomposition ed = hessian.toJama().eig();
     final SpeciesMap sm = new SpeciesMap();
     final long[] genomeLengths = new long[n];
     final Vector r = new VectorSimple(n);
@@ -305,13 +306,107 @@ public class SpeciesTest extends TestCase {
       r.set(i, 1.0);
     }
     final BlockInfo info = new BlockInfo(42, null, new Frag[0], sm, genomeLengths, false);
-    final Vector actual = Species.variance(Species.makeFlatMembership(n), info, r, ed);
+    final Vector actual = Species.variance(Species.makeFlatMembership(n), info, r, sparse(hessian), null);
     //System.err.println(actual);
     for (int i = 0; i < n; i++) {
       assertEquals(stdDev[i], Math.sqrt(actual.get(i)), 1e-6);
     }
   }
 
+  private static MatrixSparseSymmetric sparse(final Matrix hessian) {
+    final int n = hessian.dimension();
+    final int[][] columns = new int[n][];
+    for (int i = 0; i < n; i++) {
+      columns[i] = new int[i + 1];
+      for (int j = 0; j <= i; j++) {
+        columns[i][j] = j;
+      }
+    }
+    final MatrixSparseSymmetric res = new MatrixSparseSymmetric(columns);
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j <= i; j++) {
+        res.set(i, j, hessian.get(i, j));
+      }
+    }
+    return res;
+  }
+
+  public void testVarianceMatchesEigenDecomposition() {
+    final Random random = new Random(7);
+    final int n = 150;
+    final Frag[] frags = new Frag[400];
+    final ArrayList<Integer> l = new ArrayList<>();
+    for (int f = 0; f < frags.length; f++) {
+      l.clear();
+      final int g = random.nextInt(n);
+      l.add(g);
+      // Fragments of nearby genomes, giving a banded Hessian
+      for (int k = 0; k < 3; k++) {
+        l.add(Math.min(n - 1, g + random.nextInt(5)));
+      }
+      Collections.sort(l);
+      frags[f] = new Frag(l);
+      frags[f].setMultiplicity(1 + random.nextInt(3));
+    }
+    final SpeciesMap sm = new SpeciesMap();
+    final long[] genomeLengths = new long[n];
+    for (int i = 0; i < n; i++) {
+      sm.id(i);
+      genomeLengths[i] = 100 + random.nextInt(1000);
+    }
+    final BlockInfo info = new BlockInfo(42, null, frags, sm, genomeLengths, false);
+    final Species sp = new Species(info);
+    final Vector r = sp.solve(10).getR();
+    final MatrixSparseSymmetric hessian = sp.hessian(r);
+    assertTrue(hessian.entries() < n * (n + 1) / 2);
+    // Taxa of one genome, and taxa of runs of genomes
+    final int[][] membersOf = new int[2 * n][];
+    for (int j = 0; j < n; j++) {
+      membersOf[j] = new int[] {j};
+      membersOf[n + j] = new int[j % 7 + 1];
+      for (int k = 0; k < membersOf[n + j].length; k++) {
+        membersOf[n + j][k] = (j + k) % n;
+      }
+    }
+    final SpeciesMap global = new SpeciesMap();
+    for (int j = 0; j < membersOf.length; j++) {
+      global.id(j);
+    }
+    final BlockInfo globalInfo = new BlockInfo(42, global, frags, sm, genomeLengths, false);
+    final EigenvalueDecomposition ed = hessian.toJama().eig();
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final Vector single = Species.variance(membersOf, globalInfo, r, hessian, null);
+      final Vector parallel = Species.variance(membersOf, globalInfo, r, hessian, executor);
+      for (int j = 0; j < membersOf.length; j++) {
+        double expected = 0.0;
+        for (int i = 0; i < n; i++) {
+          double vi = 0.0;
+          for (final int j2 : membersOf[j]) {
+            vi += ed.getV().get(j2, i) * r.get(j2);
+          }
+          expected += vi * vi / ed.getRealEigenvalues()[i];
+        }
+        assertEquals(expected, single.get(j), 1e-6 * expected);
+        assertEquals(single.get(j), parallel.get(j));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testInverseQuadraticIndefinite() {
+    final MatrixSparseSymmetric a = new MatrixSparseSymmetric(new int[][] {{0}, {0, 1}});
+    a.set(0, 0, 1.0);
+    a.set(1, 0, 2.0);
+    a.set(1, 1, 1.0);
+    final Vector w = new VectorSimple(2);
+    assertEquals(0.0, Species.inverseQuadratic(a, new double[] {1.0, 1.0}, w));
+    w.set(0, 1.0);
+    w.set(1, -1.0);
+    assertEquals(Double.POSITIVE_INFINITY, Species.inverseQuadratic(a, new double[] {1.0, 1.0}, w));
+  }
+
   public void testStdDevRotated() {
     checkStdDevRotated(1.0, 1.0);
     checkStdDevRotated(1.0, 0.1);
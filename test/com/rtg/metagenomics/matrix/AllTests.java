@@ -28,6 +28,7 @@ public class AllTests extends TestSuite {
     final TestSuite suite = new TestSuite("com.rtg.metagenomics.matrix");
 
     suite.addTestSuite(MatrixSimpleTest.class);
+    suite.addTestSuite(MatrixSparseSymmetricTest.class);
     suite.addTestSuite(MatrixSymmetricTest.class);
     suite.addTestSuite(MatrixTransposeTest.class);
     suite.addTestSuite(MatrixUtilsTest.class);
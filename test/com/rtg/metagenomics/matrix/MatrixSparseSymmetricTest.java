@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics.matrix;
+
+import static com.rtg.util.StringUtils.LS;
+
+import com.rtg.util.integrity.Exam;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class MatrixSparseSymmetricTest extends TestCase {
+
+  public void test0() {
+    final Matrix ma = new MatrixSparseSymmetric(new int[0][]);
+    ma.globalIntegrity();
+    Exam.assertEquals("", ma.toString());
+  }
+
+  public void test() {
+    final MatrixSparseSymmetric ma = new MatrixSparseSymmetric(new int[][] {{0}, {1}, {0, 2}});
+    ma.globalIntegrity();
+    Exam.assertTrue(ma.isSymmetric());
+    Exam.assertEquals(3, ma.dimension());
+    Exam.assertEquals(4, ma.entries());
+
+    ma.set(0, 0, 1.0);
+    ma.set(0, 2, 2.0);
+    ma.incr(2, 0, 0.5);
+    ma.incr(1, 1, 3.0);
+    final String exp = ""
+      + "[0]  1.0000" + LS
+      + "[1]  0.0000  3.0000" + LS
+      + "[2]  2.5000  0.0000  0.0000" + LS
+      ;
+    Exam.assertEquals(exp, ma.toString());
+    Exam.assertEquals(2.5, ma.get(0, 2));
+    Exam.assertEquals(2.5, ma.get(2, 0));
+    Exam.assertEquals(0.0, ma.get(1, 2));
+    try {
+      ma.set(2, 1, 1.0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      Exam.assertEquals("(2, 1) is not in the sparsity pattern", e.getMessage());
+    }
+    try {
+      ma.incr(0, 1, 1.0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      Exam.assertEquals("(0, 1) is not in the sparsity pattern", e.getMessage());
+    }
+
+    final Jama.Matrix jama = ma.toJama();
+    final Vector x = new VectorSimple(3);
+    x.set(0, 1.0);
+    x.set(1, 2.0);
+    x.set(2, 3.0);
+    final Vector y = new VectorSimple(3);
+    y.set(1, 42.0);
+    ma.multiply(x, y);
+    for (int i = 0; i < 3; i++) {
+      double e = 0;
+      for (int j = 0; j < 3; j++) {
+        Exam.assertEquals(ma.get(i, j), jama.get(i, j));
+        e += jama.get(i, j) * x.get(j);
+      }
+      Exam.assertEquals(e, y.get(i));
+    }
+  }
+}
@@ -20,23 +20,32 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Collections;
 
 import com.rtg.index.hash.ngs.NgsHashLoopImpl;
 import com.rtg.launcher.CommonFlags;
+import com.rtg.launcher.DefaultReaderParams;
 import com.rtg.launcher.SequenceParams;
 import com.rtg.mode.DnaUtils;
 import com.rtg.mode.SequenceMode;
 import com.rtg.ngs.NgsTestUtils.OverriddenNgsOutputParams;
 import com.rtg.ngs.NgsTestUtils.ParamsParams;
 import com.rtg.reader.ReaderTestUtils;
+import com.rtg.reader.FormatCli;
+import com.rtg.reader.InputFormat;
+import com.rtg.reader.PrereadType;
+import com.rtg.reader.SdfId;
 import com.rtg.reader.SequencesReader;
+import com.rtg.reader.SequencesWriter;
 import com.rtg.usage.UsageMetric;
 import com.rtg.util.TestUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.DiagnosticEvent;
 import com.rtg.util.diagnostic.DiagnosticListener;
 import com.rtg.util.diagnostic.ListenerType;
+import com.rtg.util.intervals.LongRange;
+import com.rtg.util.io.FileUtils;
 import com.rtg.util.test.FileHelper;
 
 import junit.framework.Assert;
@@ -137,6 +146,101 @@ public class NgsTaskFunctionalTest extends TestCase {
     check(new NgsMaskParamsExplicit("SplitL4w4s0e0"), SEQ_DNA_ODD_S, SEQ_DNA_ODD_Q, "fooo\tF\t0\t1\t0\t0" + LS + "fooo\tR\t0\t1\t0\t0" + LS + "fiii\tF\t1\t1\t0\t0" + LS, null);
   }
 
+  public void testSavedReadIndex() throws Exception {
+    final File indexDir = new File(mDir, "readindex");
+    final ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+    final NgsParams params = getParams(out1, new NgsMaskParamsExplicit("SplitL4w4s0e0"), new ParamsParams(SEQ_DNA_ODD_S, SEQ_DNA_ODD_Q, CommonFlags.MAX_SCORE, false, false), 1)
+      .cloneBuilder().compressHashes(true).readIndexDirectory(indexDir).create();
+    final NgsTask first = execNgs(params);
+    assertTrue(new File(indexDir, "indexset.txt").exists());
+    assertTrue(new File(indexDir, "index0.bin").exists());
+
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    final PrintStream pr = new PrintStream(log);
+    Diagnostic.setLogStream(pr);
+    final ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+    final NgsTask second;
+    try {
+      final NgsOutputParams outputParams = new OverriddenNgsOutputParams(NgsTestUtils.OverriddenNgsOutputParams.builder().outStream(out2).outputDir(new File(mDir, "log2")).filterParams(params.outputParams().filter()));
+      second = execNgs(params.cloneBuilder().outputParams(outputParams).create());
+    } finally {
+      pr.close();
+      Diagnostic.setLogStream();
+    }
+    TestUtils.containsAll(log.toString(), "Mapped 1 saved indexes from " + indexDir.getPath());
+    assertEquals(first.usage(), second.usage());
+    assertEquals(TestUtils.sortLines(out1.toString()), TestUtils.sortLines(out2.toString()));
+    assertEquals(TestUtils.sortLines(NgsTestUtils.HEADER + "fooo\tF\t0\t1\t0\t0" + LS + "fooo\tR\t0\t1\t0\t0" + LS + "fiii\tF\t1\t1\t0\t0" + LS), TestUtils.sortLines(out2.toString()));
+  }
+
+  private NgsTask execRestricted(NgsParams params, LongRange range, OutputStream out, String logDir, ByteArrayOutputStream log) throws Exception {
+    final SequenceParams reads = SequenceParams.builder().directory(params.buildFirstParams().directory()).mode(SequenceMode.UNIDIRECTIONAL).readerRestriction(range).create();
+    return execReads(params, reads, out, logDir, log);
+  }
+
+  private NgsTask execReads(NgsParams params, SequenceParams reads, OutputStream out, String logDir, ByteArrayOutputStream log) throws Exception {
+    final NgsOutputParams outputParams = new OverriddenNgsOutputParams(NgsTestUtils.OverriddenNgsOutputParams.builder().outStream(out).outputDir(new File(mDir, logDir)).filterParams(params.outputParams().filter()));
+    final PrintStream pr = new PrintStream(log);
+    Diagnostic.setLogStream(pr);
+    try {
+      return execNgs(params.cloneBuilder().buildFirstParams(reads).outputParams(outputParams).create());
+    } finally {
+      pr.close();
+      Diagnostic.setLogStream();
+    }
+  }
+
+  public void testSavedReadIndexRestriction() throws Exception {
+    final File indexDir = new File(mDir, "readindex");
+    final NgsParams params = getParams(new ByteArrayOutputStream(), new NgsMaskParamsExplicit("SplitL4w4s0e0"), new ParamsParams(SEQ_DNA_ODD_S, SEQ_DNA_ODD_Q, CommonFlags.MAX_SCORE, false, false), 1)
+      .cloneBuilder().compressHashes(true).readIndexDirectory(indexDir).create();
+    final ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+    execRestricted(params, new LongRange(0, 1), out1, "log1", new ByteArrayOutputStream());
+    assertTrue(new File(indexDir, "indexset.txt").exists());
+
+    // Same SDF and number of reads, but different reads, so the saved index must not be used
+    final ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+    final ByteArrayOutputStream log2 = new ByteArrayOutputStream();
+    execRestricted(params, new LongRange(1, 2), out2, "log2", log2);
+    assertFalse(log2.toString().contains("saved indexes"));
+    final ByteArrayOutputStream out3 = new ByteArrayOutputStream();
+    final ByteArrayOutputStream log3 = new ByteArrayOutputStream();
+    execRestricted(params, new LongRange(1, 2), out3, "log3", log3);
+    TestUtils.containsAll(log3.toString(), "Mapped 1 saved indexes from " + indexDir.getPath());
+    assertEquals(TestUtils.sortLines(out2.toString()), TestUtils.sortLines(out3.toString()));
+    assertFalse(TestUtils.sortLines(out1.toString()).equals(TestUtils.sortLines(out2.toString())));
+  }
+
+  private NgsTask execInMemory(NgsParams params, String reads, OutputStream out, String logDir, ByteArrayOutputStream log) throws Exception {
+    // As map does for reads that are not in an SDF, these have no SDF-ID
+    final File file = FileUtils.stringToFile(reads, new File(mDir, logDir + ".fa"));
+    final SequencesWriter sw = new SequencesWriter(FormatCli.getDnaDataSource(Arrays.asList(file), InputFormat.FASTA, null, false, false, null, false), null, PrereadType.UNKNOWN, true);
+    sw.setSdfId(new SdfId(0));
+    final SequencesReader reader = sw.processSequencesInMemory(file, false, null, null, LongRange.NONE);
+    assertFalse(reader.getSdfId().available());
+    final SequenceParams readParams = SequenceParams.builder().readerParam(new DefaultReaderParams(reader, LongRange.NONE, SequenceMode.UNIDIRECTIONAL)).useMemReader(true).mode(SequenceMode.UNIDIRECTIONAL).create();
+    return execReads(params, readParams, out, logDir, log);
+  }
+
+  public void testSavedReadIndexNoSdfId() throws Exception {
+    final File indexDir = new File(mDir, "readindex");
+    final NgsParams params = getParams(new ByteArrayOutputStream(), new NgsMaskParamsExplicit("SplitL4w4s0e0"), new ParamsParams(SEQ_DNA_ODD_S, SEQ_DNA_ODD_Q, CommonFlags.MAX_SCORE, false, false), 1)
+      .cloneBuilder().compressHashes(true).readIndexDirectory(indexDir).create();
+    final ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+    final ByteArrayOutputStream log1 = new ByteArrayOutputStream();
+    execInMemory(params, SEQ_DNA_ODD_S, out1, "log1", log1);
+    TestUtils.containsAll(log1.toString(), "Read index can only be saved when the reads have an SDF-ID, it will be rebuilt.");
+    assertFalse(new File(indexDir, "indexset.txt").exists());
+
+    // Different reads without an SDF-ID, with the same number of reads
+    final ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+    final ByteArrayOutputStream log2 = new ByteArrayOutputStream();
+    execInMemory(params, ">bar" + LS + "aaaa" + LS + ">baaa" + LS + "acgt", out2, "log2", log2);
+    assertFalse(log2.toString().contains("saved indexes"));
+    assertFalse(new File(indexDir, "indexset.txt").exists());
+    assertFalse(TestUtils.sortLines(out1.toString()).equals(TestUtils.sortLines(out2.toString())));
+  }
+
   public void testOddg() throws Exception {
     check(new NgsMaskParamsGeneral(4, 0, 0, 1, false), SEQ_DNA_ODD_S, SEQ_DNA_ODD_Q, "fooo\tF\t0\t1\t0\t0" + LS + "fooo\tR\t0\t1\t0\t0" + LS + "fiii\tF\t1\t1\t0\t0" + LS, null);
   }
@@ -47,6 +47,7 @@ public class AllTests extends TestCase {
     suite.addTestSuite(EmptyStringPrereadNamesTest.class);
     suite.addTestSuite(FastaSequenceDataSourceTest.class);
     suite.addTestSuite(FastqSequenceDataSourceTest.class);
+    suite.addTestSuite(ReadAheadSequenceDataSourceTest.class);
     suite.addTestSuite(FileBitwiseInputStreamTest.class);
     suite.addTestSuite(FileBitwiseOutputStreamTest.class);
     suite.addTestSuite(FileCompressedInputStreamTest.class);
@@ -139,6 +139,30 @@ public class DataInMemoryTest extends TestCase {
   }
 
 
+  public void testMappedData() throws IOException {
+    final File dir = FileUtils.createTempDir("test", "dir");
+    try {
+      final String data = FileHelper.resourceToString("com/rtg/reader/resources/reads100.fastq");
+      ReaderTestUtils.getReaderDNAFastq(data, dir, new SdfId(), 1234);
+      final IndexFile f = new IndexFile(dir);
+
+      final DataFileIndex seqIndex = DataFileIndex.loadSequenceDataFileIndex(f.dataIndexVersion(), dir);
+      final DataInMemory mem = DataInMemory.loadDelayQuality(dir, f, seqIndex, 3, 1000);
+      final DataInMemory mapped = DataInMemory.mapDelayQuality(dir, f, seqIndex, 3, 1000);
+      for (int i = 0; i < 97; i++) {
+        assertEquals(mem.length(i), mapped.length(i));
+        final byte[] exp = new byte[mem.length(i)];
+        final byte[] act = new byte[exp.length];
+        assertEquals(mem.readSequence(i, exp, 0, exp.length), mapped.readSequence(i, act, 0, act.length));
+        assertTrue("i: " + i + " \nExp: " + Arrays.toString(exp) + " \nACT: " + Arrays.toString(act), Arrays.equals(exp, act));
+        assertEquals(mem.readQuality(i, exp, 0, exp.length), mapped.readQuality(i, act, 0, act.length));
+        assertTrue(Arrays.equals(exp, act));
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
   public void testData() throws IOException {
     final File dir = FileUtils.createTempDir("test", "dir");
     try {
@@ -85,6 +85,7 @@ public class FormatCliTest extends AbstractCliTest {
         , "--allow-duplicate-names"
         , "--sam-rg"
         , "--select-read-group"
+        , "-T,", "--threads=INT", "number of threads. Defaults to the number of available cores"
         );
     checkExtendedHelp("rtg format"
         , "--Xcompress=BOOL", "compress sdf (Default is " + true + ")"
@@ -755,6 +756,19 @@ public class FormatCliTest extends AbstractCliTest {
     }
   }
 
+  public void testReadAhead() {
+    assertFalse(PrereadExecutor.readAhead(1, 1, InputFormat.FASTQ));
+    assertTrue(PrereadExecutor.readAhead(2, 1, InputFormat.FASTQ));
+    assertTrue(PrereadExecutor.readAhead(2, 1, InputFormat.SAM_PE));
+    // a thread per arm for both reading and writing
+    assertFalse(PrereadExecutor.readAhead(2, 2, InputFormat.FASTQ));
+    assertFalse(PrereadExecutor.readAhead(3, 2, InputFormat.FASTQ));
+    assertTrue(PrereadExecutor.readAhead(4, 2, InputFormat.FASTQ));
+    // FASTA may contain long sequences
+    assertFalse(PrereadExecutor.readAhead(8, 1, InputFormat.FASTA));
+    assertFalse(PrereadExecutor.readAhead(8, 2, InputFormat.FASTA));
+  }
+
 
   public void testSamRGFormat() throws IOException {
     try (TestDirectory dir = new TestDirectory()) {
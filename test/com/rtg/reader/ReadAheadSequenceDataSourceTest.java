@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rtg.reader.FastqSequenceDataSource.FastQScoreType;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ReadAheadSequenceDataSourceTest extends TestCase {
+
+  @Override
+  public void setUp() {
+    Diagnostic.setLogStream();
+  }
+
+  @Override
+  public void tearDown() {
+    Diagnostic.setLogStream();
+  }
+
+  private static String fastq(int count) {
+    final PortableRandom random = new PortableRandom(5);
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      final int length = 1 + random.nextInt(100);
+      sb.append("@read").append(i).append(" extra\n");
+      for (int j = 0; j < length; j++) {
+        sb.append("ACGTN".charAt(random.nextInt(5)));
+      }
+      sb.append("\n+\n");
+      for (int j = 0; j < length; j++) {
+        sb.append((char) ('!' + random.nextInt(41)));
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static FastqSequenceDataSource source(String data) {
+    final List<InputStream> streams = new ArrayList<>();
+    streams.add(new ByteArrayInputStream(data.getBytes()));
+    return new FastqSequenceDataSource(streams, FastQScoreType.PHRED);
+  }
+
+  public void testSameSequences() throws IOException {
+    final String data = fastq(2 * ReadAheadSequenceDataSource.BATCH_SIZE + 7);
+    try (SequenceDataSource expected = source(data); SequenceDataSource actual = new ReadAheadSequenceDataSource(source(data))) {
+      assertTrue(actual.hasQualityData());
+      assertEquals(expected.type(), actual.type());
+      while (expected.nextSequence()) {
+        assertTrue(actual.nextSequence());
+        final int length = expected.currentLength();
+        assertEquals(length, actual.currentLength());
+        assertEquals(expected.name(), actual.name());
+        assertTrue(Arrays.equals(Arrays.copyOf(expected.sequenceData(), length), Arrays.copyOf(actual.sequenceData(), length)));
+        assertTrue(Arrays.equals(Arrays.copyOf(expected.qualityData(), length), Arrays.copyOf(actual.qualityData(), length)));
+      }
+      assertFalse(actual.nextSequence());
+      assertFalse(actual.nextSequence());
+      assertEquals(expected.getMinLength(), actual.getMinLength());
+      assertEquals(expected.getMaxLength(), actual.getMaxLength());
+      try {
+        actual.setDusting(true);
+        fail();
+      } catch (final IllegalStateException e) {
+        assertEquals("Reading has already started", e.getMessage());
+      }
+    }
+  }
+
+  public void testSameSdf() throws IOException {
+    final File dir = FileUtils.createTempDir("readahead", "test");
+    try {
+      final String data = fastq(3 * ReadAheadSequenceDataSource.BATCH_SIZE);
+      final SdfId sdfId = new SdfId();
+      final File expected = new File(dir, "expected");
+      final SequencesWriter expectedWriter = new SequencesWriter(source(data), expected, 100000, null, PrereadType.UNKNOWN, true, 20);
+      expectedWriter.setSdfId(sdfId);
+      expectedWriter.processSequences();
+      final File actual = new File(dir, "actual");
+      final SequencesWriter actualWriter = new SequencesWriter(new ReadAheadSequenceDataSource(source(data)), actual, 100000, null, PrereadType.UNKNOWN, true, 20);
+      actualWriter.setSdfId(sdfId);
+      actualWriter.processSequences();
+      final File[] files = expected.listFiles();
+      assertNotNull(files);
+      assertTrue(files.length > 5);
+      for (final File file : files) {
+        if ("mainIndex".equals(file.getName())) {
+          continue; // contains the creation details of each run
+        }
+        assertTrue(file.getName(), Arrays.equals(Files.readAllBytes(file.toPath()), Files.readAllBytes(new File(actual, file.getName()).toPath())));
+      }
+      assertEquals(expected.listFiles().length, actual.listFiles().length);
+      assertEquals(expectedWriter.getExcludedResidueCount(), actualWriter.getExcludedResidueCount());
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  public void testError() throws IOException {
+    try (SequenceDataSource ds = new ReadAheadSequenceDataSource(source(fastq(3) + "@bad\nACGT\n+\n!!\n"))) {
+      for (int i = 0; i < 3; i++) {
+        ds.nextSequence();
+      }
+      fail();
+    } catch (final NoTalkbackSlimException e) {
+      // expected, raised while reading the batch
+    }
+  }
+}
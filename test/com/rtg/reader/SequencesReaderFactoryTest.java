@@ -15,6 +15,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.rtg.mode.DNAFastaSymbolTable;
 import com.rtg.util.TestUtils;
@@ -96,4 +97,30 @@ public class SequencesReaderFactoryTest extends TestCase {
     }
   }
 
+  public void testMapped() throws Exception {
+    Diagnostic.setLogStream();
+    final File tmpDir = FileUtils.createTempDir("testSeqReaderFact", "mapped");
+    try {
+      ReaderTestUtils.getReaderDNAFastq(FileHelper.resourceToString("com/rtg/reader/resources/reads100.fastq"), tmpDir, new SdfId(), 1000);
+      final SequencesReader mem = SequencesReaderFactory.createMemorySequencesReader(tmpDir, true, false, LongRange.NONE);
+      final SequencesReader mapped = SequencesReaderFactory.createMappedSequencesReader(tmpDir, true, false, LongRange.NONE);
+      assertTrue(mapped instanceof CompressedMemorySequencesReader2);
+      assertEquals(mem.numberSequences(), mapped.numberSequences());
+      for (int i = 0; i < mem.numberSequences(); i++) {
+        assertEquals(mem.length(i), mapped.length(i));
+        final byte[] exp = new byte[mem.length(i)];
+        final byte[] act = new byte[exp.length];
+        mem.read(i, exp);
+        mapped.read(i, act);
+        assertTrue(Arrays.equals(exp, act));
+        mem.readQuality(i, exp);
+        mapped.readQuality(i, act);
+        assertTrue(Arrays.equals(exp, act));
+      }
+      assertNull(SequencesReaderFactory.createMappedSequencesReader(null, true, false, LongRange.NONE));
+    } finally {
+      FileHelper.deleteAll(tmpDir);
+    }
+  }
+
 }
@@ -38,6 +38,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(PileUpTest.class);
     suite.addTestSuite(SingleMappedParamsTest.class);
     suite.addTestSuite(RandomArrayListTest.class);
+    suite.addTestSuite(RawBamRecordTest.class);
     suite.addTestSuite(SamBamReaderTest.class);
     suite.addTestSuite(SamBamRecordImplTest.class);
     suite.addTestSuite(SamPicardTest.class);
@@ -14,6 +14,8 @@ package com.rtg.sam;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 import com.rtg.tabix.IndexTestUtils;
@@ -43,6 +45,32 @@ public class BamIndexerTest extends TestCase {
     assertEquals(exp, myBai);
   }
 
+  private static final class CloseCheckingStream extends FilterInputStream {
+    private boolean mClosed = false;
+
+    CloseCheckingStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+      mClosed = true;
+      super.close();
+    }
+  }
+
+  public void testClosesStream() throws Exception {
+    // Closing the stream also shuts down the block inflating threads
+    try (CloseCheckingStream is = new CloseCheckingStream(Resources.getResourceAsStream("com/rtg/sam/resources/bam.bam"))) {
+      assertNotNull(BamIndexer.createBamIndex(is));
+      assertTrue(is.mClosed);
+    }
+    try (CloseCheckingStream is = new CloseCheckingStream(Resources.getResourceAsStream("com/rtg/sam/resources/bam.bam"))) {
+      assertNotNull(BamIndexer.createBamIndexNoHeader(is, true, 1));
+      assertTrue(is.mClosed);
+    }
+  }
+
   public void test2() throws Exception {
     final ByteArrayOutputStream os = new ByteArrayOutputStream();
     try {
@@ -11,9 +11,16 @@
  */
 package com.rtg.sam;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
 import com.rtg.util.Resources;
 
 import junit.framework.TestCase;
+import net.sf.samtools.util.BlockCompressedOutputStream;
 
 /**
  * Tests corresponding class
@@ -54,4 +61,124 @@ public class BgzfInputStreamTest extends TestCase {
       bgzfi.close();
     }
   }
+
+  private static byte[] bgzf(byte[] data) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (BlockCompressedOutputStream out = new BlockCompressedOutputStream(bos, null)) {
+      out.write(data);
+    }
+    return bos.toByteArray();
+  }
+
+  public void testThreadedSameAsSingle() throws IOException {
+    final PortableRandom r = new PortableRandom(42);
+    final byte[] data = new byte[1000000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) "acgt\n".charAt(r.nextInt(i % 3 == 0 ? 5 : 2));
+    }
+    final byte[] compressed = bgzf(data);
+    try (BgzfInputStream single = new BgzfInputStream(new ByteArrayInputStream(compressed));
+         BgzfInputStream threaded = new BgzfInputStream(new ByteArrayInputStream(compressed), 3)) {
+      final byte[] b1 = new byte[7919];
+      final byte[] b2 = new byte[b1.length];
+      int total = 0;
+      int len;
+      while ((len = single.read(b1)) != -1) {
+        assertEquals(len, threaded.read(b2));
+        for (int i = 0; i < len; i++) {
+          assertEquals(data[total + i], b1[i]);
+          assertEquals(b1[i], b2[i]);
+        }
+        total += len;
+        assertEquals(single.blockStart(), threaded.blockStart());
+        assertEquals(single.dataOffset(), threaded.dataOffset());
+        final int c = single.read();
+        assertEquals(c, threaded.read());
+        if (c != -1) {
+          assertEquals(data[total], (byte) c);
+          total++;
+        }
+      }
+      assertEquals(data.length, total);
+      assertEquals(-1, threaded.read(b2));
+      assertEquals(-1, threaded.read());
+      assertEquals(compressed.length, single.blockStart());
+      assertEquals(compressed.length, threaded.blockStart());
+    }
+  }
+
+  public void testThreadedBadCrc() throws IOException {
+    final byte[] data = new byte[200000];
+    final byte[] compressed = bgzf(data);
+    compressed[compressed.length - 28 - 8] ^= 1; // CRC of the last data block, before the 28 byte EOF block
+    try (BgzfInputStream threaded = new BgzfInputStream(new ByteArrayInputStream(compressed), 2)) {
+      final byte[] b = new byte[data.length];
+      try {
+        while (threaded.read(b) != -1) {
+          // keep reading
+        }
+        fail();
+      } catch (final IOException e) {
+        assertEquals("Crc doesn't match block", e.getMessage());
+      }
+    }
+  }
+
+  private static byte[] readAll(BgzfInputStream in) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] b = new byte[4096];
+    int len;
+    while ((len = in.read(b)) != -1) {
+      bos.write(b, 0, len);
+    }
+    return bos.toByteArray();
+  }
+
+  public void testThreads() throws IOException {
+    final byte[] data = new byte[500000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 251);
+    }
+    final byte[] compressed = bgzf(data);
+    final int original = BgzfInputStream.threads();
+    try {
+      BgzfInputStream.setThreads(1);
+      assertEquals(1, BgzfInputStream.threads());
+      try (BgzfInputStream in = new BgzfInputStream(new ByteArrayInputStream(compressed), 3)) {
+        assertTrue(Arrays.equals(data, readAll(in)));
+      }
+      BgzfInputStream.setThreads(3);
+      assertEquals(3, BgzfInputStream.threads());
+      try (BgzfInputStream in = new BgzfInputStream(new ByteArrayInputStream(compressed), 3)) {
+        assertTrue(Arrays.equals(data, readAll(in)));
+      }
+      try {
+        BgzfInputStream.setThreads(0);
+        fail();
+      } catch (final IllegalArgumentException e) {
+        assertEquals("Invalid number of threads: 0", e.getMessage());
+      }
+    } finally {
+      BgzfInputStream.setThreads(original);
+    }
+  }
+
+  public void testCloseWhileReadingAhead() throws IOException {
+    final byte[] data = new byte[1000000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 13);
+    }
+    final byte[] compressed = bgzf(data);
+    try (BgzfInputStream other = new BgzfInputStream(new ByteArrayInputStream(compressed), 2)) {
+      final BgzfInputStream closed = new BgzfInputStream(new ByteArrayInputStream(compressed), 4);
+      assertEquals(data[0], (byte) closed.read());
+      assertEquals(data[0], (byte) other.read());
+      // Drops the blocks read ahead, but leaves the shared threads for other streams
+      closed.close();
+      closed.close();
+      final byte[] rest = readAll(other);
+      assertEquals(data.length - 1, rest.length);
+      assertTrue(Arrays.equals(Arrays.copyOfRange(data, 1, data.length), rest));
+    }
+  }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rtg.reader.FastqSequenceDataSource;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileReader;
+import net.sf.samtools.SAMFileWriter;
+import net.sf.samtools.SAMFileWriterFactory;
+import net.sf.samtools.SAMReadGroupRecord;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceDictionary;
+import net.sf.samtools.SAMSequenceRecord;
+
+/**
+ */
+public class RawBamRecordTest extends TestCase {
+
+  static SAMFileHeader header() {
+    final SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    final SAMSequenceDictionary dict = new SAMSequenceDictionary();
+    dict.addSequence(new SAMSequenceRecord("chr1", 1000));
+    dict.addSequence(new SAMSequenceRecord("chr2", 1000));
+    header.setSequenceDictionary(dict);
+    final SAMReadGroupRecord rg = new SAMReadGroupRecord("rg1");
+    rg.setSample("sample1");
+    rg.setPlatform("ILLUMINA");
+    header.addReadGroup(rg);
+    return header;
+  }
+
+  private static SAMRecord record(SAMFileHeader header, String name, int ref, int start, int flags, String cigar, String bases, String quals) {
+    final SAMRecord rec = new SAMRecord(header);
+    rec.setReadName(name);
+    rec.setReferenceIndex(ref);
+    rec.setAlignmentStart(start);
+    rec.setFlags(flags);
+    rec.setMappingQuality(37);
+    rec.setCigarString(cigar);
+    rec.setReadString(bases);
+    rec.setBaseQualityString(quals);
+    return rec;
+  }
+
+  /**
+   * Write some records with a variety of field and attribute types to a BAM file.
+   * @param file file to write
+   * @return the header
+   */
+  public static SAMFileHeader writeBam(File file) {
+    final SAMFileHeader header = header();
+    final List<SAMRecord> records = new ArrayList<>();
+    SAMRecord rec = record(header, "r0", 0, 5, 0, "10M", "ACGTNACGTA", "!#%'+-/13I");
+    rec.setAttribute("RG", "rg1");
+    rec.setAttribute("AS", 3);
+    rec.setAttribute("NH", 2);
+    records.add(rec);
+    rec = record(header, "read1", 0, 10, 0x1 | 0x2 | 0x10 | 0x40, "2S3M2I4M1D3M5N2M1H", "ACGTACGTACGTACGT", "*");
+    rec.setAttribute("IH", 70000);
+    rec.setAttribute("XA", 'c');
+    rec.setAttribute("XB", new int[] {1, 2, 3});
+    rec.setAttribute("AS", -5);
+    rec.setAttribute("XU", "some text");
+    records.add(rec);
+    rec = record(header, "cg", 1, 20, 0x1 | 0x80, "23=5N10=", "ACGTAACGTAACGTAACGTAACGTAACGTAACGTA", "5555555555555555555555555555555555=");
+    rec.setAttribute("RG", "rg1");
+    rec.setAttribute(SamUtils.CG_SUPER_CIGAR, "5=2B20=6N10=");
+    rec.setAttribute(SamUtils.CG_OVERLAP_QUALITY, "55");
+    rec.setAttribute(SamUtils.CG_READ_DELTA, "AC");
+    rec.setAttribute("NH", 300);
+    rec.setAttribute("XF", 1.5f);
+    records.add(rec);
+    rec = record(header, "odd", 1, 30, 0, "5X", "RYKMB", "!!!!!");
+    rec.setAttribute("AS", 40000);
+    records.add(rec);
+    rec = record(header, "unmapped", 1, 30, 0x4, "*", "ACG", "III");
+    records.add(rec);
+    final SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, file);
+    try {
+      for (final SAMRecord r : records) {
+        writer.addAlignment(r);
+      }
+    } finally {
+      writer.close();
+    }
+    return header;
+  }
+
+  public void testSameAsPicard() throws IOException {
+    final File dir = FileUtils.createTempDir("rawbam", "test");
+    try {
+      final File bam = new File(dir, "test.bam");
+      writeBam(bam);
+      final SAMFileReader reader = new SAMFileReader(bam);
+      try {
+        int count = 0;
+        for (final SAMRecord rec : reader) {
+          final RawBamRecord raw = RawBamRecord.wrap(rec);
+          assertNotNull(raw);
+          assertTrue(rec == raw.getRecord());
+          // Decode everything from the raw data before picard touches the record
+          final String bases = new String(raw.getReadBases());
+          final byte[] quals = raw.getBaseQualities(FastqSequenceDataSource.PHRED_LOWER_LIMIT_CHAR);
+          final String cigar = raw.getCigarString();
+          final int end = raw.getAlignmentEnd();
+          final SAMReadGroupRecord rg = raw.getReadGroup();
+          final String[] tags = {"AS", "NH", "IH", "XU", SamUtils.CG_SUPER_CIGAR, SamUtils.CG_OVERLAP_QUALITY, SamUtils.CG_READ_DELTA, "ZZ"};
+          final Object[] values = new Object[tags.length];
+          for (int i = 0; i < tags.length; i++) {
+            values[i] = i < 3 ? raw.getIntegerAttribute(tags[i]) : raw.getStringAttribute(tags[i]);
+          }
+          final Integer nhih = raw.getNHOrIH();
+
+          assertEquals(rec.getReadString(), bases);
+          final byte[] expQuals = rec.getBaseQualities().clone();
+          for (int i = 0; i < expQuals.length; i++) {
+            expQuals[i] += FastqSequenceDataSource.PHRED_LOWER_LIMIT_CHAR;
+          }
+          assertTrue(rec.getReadName(), Arrays.equals(expQuals, quals));
+          assertEquals(rec.getCigarString(), cigar);
+          assertEquals(rec.getCigarLength(), raw.getCigarLength());
+          assertEquals(rec.getAlignmentEnd(), end);
+          assertEquals(rec.getReadGroup(), rg);
+          for (int i = 0; i < tags.length; i++) {
+            assertEquals(tags[i], i < 3 ? rec.getIntegerAttribute(tags[i]) : rec.getStringAttribute(tags[i]), values[i]);
+          }
+          assertEquals(SamUtils.getNHOrIH(rec), nhih);
+          count++;
+        }
+        assertEquals(5, count);
+      } finally {
+        reader.close();
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  public void testNotBam() {
+    final SAMRecord rec = record(header(), "r0", 0, 5, 0, "4M", "ACGT", "IIII");
+    assertNull(RawBamRecord.wrap(rec));
+  }
+}
@@ -68,4 +68,34 @@ public class ThreadedMultifileIteratorWrapperTest extends TestCase {
     }
   }
 
+  public void testSequenceIterator() throws Exception {
+    Diagnostic.setLogStream();
+    try (final TestDirectory top = new TestDirectory()) {
+      final File sam = new File(top, "sam");
+      final String rec = MultifileIteratorTest.SAM_REC_RG1;
+      FileUtils.stringToFile(ThreadedMultifileIteratorTest.SAM_HEAD1 + "@SQ\tSN:gj\tLN:30\n" + "@RG\tID:1\tSM:sample1\tPL:ILLUMINA" + "\n"
+        + rec + rec.replace("\tgi\t", "\tgj\t") + rec.replace("\tgi\t", "\tgj\t"), sam);
+      final ArrayList<File> fileList = new ArrayList<>();
+      fileList.add(sam);
+      final SamFilterParams params = SamFilterParams.builder().create();
+      final SingletonPopulatorFactory<VariantAlignmentRecord> pf = new SingletonPopulatorFactory<>(new VariantAlignmentRecordPopulator());
+      try (ThreadedMultifileIteratorWrapper<VariantAlignmentRecord> it = new ThreadedMultifileIteratorWrapper<>(fileList, 1, pf, params, SamUtils.getUberHeader(fileList))) {
+        it.setSequenceId(0);
+        final RecordIterator<VariantAlignmentRecord> first = it.sequenceIterator(0);
+        final RecordIterator<VariantAlignmentRecord> second = it.sequenceIterator(1);
+        assertFalse(second.hasNext());
+        assertTrue(first.hasNext());
+        assertEquals(0, first.next().getSequenceId());
+        assertFalse(first.hasNext());
+        it.setSequenceId(1);
+        assertFalse(first.hasNext());
+        assertTrue(second.hasNext());
+        assertEquals(1, second.next().getSequenceId());
+        assertEquals(1, second.next().getSequenceId());
+        assertFalse(second.hasNext());
+        assertEquals(3, second.getOutputRecordsCount());
+      }
+    }
+  }
+
 }
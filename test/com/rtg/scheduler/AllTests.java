@@ -30,6 +30,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(JobTest.class);
     suite.addTestSuite(LookAheadTest.class);
     suite.addTestSuite(ResultTest.class);
+    suite.addTestSuite(SchedulerStealingTest.class);
     suite.addTestSuite(SchedulerSynchronizedTest.class);
     suite.addTestSuite(UtilTest.class);
     return suite;
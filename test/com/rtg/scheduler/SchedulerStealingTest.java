@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.scheduler;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rtg.scheduler.example.DependenciesExample;
+import com.rtg.scheduler.example.ExampleJobId;
+import com.rtg.scheduler.example.JobFactoryExample;
+import com.rtg.util.TestUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.io.MemoryPrintStream;
+import com.rtg.variant.bayes.multisample.multithread.EventListMultiSample;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class SchedulerStealingTest extends TestCase {
+
+  private static class CountStatistics implements JobStatistics<ExampleJobId> {
+    final AtomicInteger mJobs = new AtomicInteger();
+    final AtomicInteger mWaits = new AtomicInteger();
+    final AtomicLong mWaitTime = new AtomicLong();
+
+    @Override
+    public void increment(ExampleJobId id, long nanoTime) {
+      mJobs.incrementAndGet();
+    }
+
+    @Override
+    public void lockWait(long nanoTime) {
+      assertTrue(nanoTime >= 0);
+      mWaits.incrementAndGet();
+      mWaitTime.addAndGet(nanoTime);
+    }
+  }
+
+  private static String[] run(final int size, final int threads, final int batch, final CountStatistics st) throws IOException {
+    final DependenciesExample dep = new DependenciesExample(size);
+    final JobFactoryExample factory = new JobFactoryExample(size);
+    final MemoryPrintStream ps = new MemoryPrintStream();
+    final EventList<ExampleJobId> eventList = new EventListMultiSample<>();
+    final Scheduler<ExampleJobId> sch = new SchedulerStealing<>(dep, factory, eventList, ps.printStream(), st, size, batch);
+    assertTrue(sch.checkEmpty());
+    if (threads == 1) {
+      new ExecutorSequential<>(sch).run();
+    } else {
+      new ExecutorThreaded<>(sch, threads).run();
+    }
+    assertTrue(sch.checkEmpty());
+    assertNull(eventList.next(sch.lookAhead()));
+    TestUtils.containsAll(ps.toString(), "<0:INCR", ">0:INCR", "<" + (size - 1) + ":OUT", ">" + (size - 1) + ":OUT");
+    return new String[] {factory.bed().toString(), factory.out().toString()};
+  }
+
+  public void test2() throws IOException {
+    Diagnostic.setLogStream();
+    final String[] res = run(2, 5, 3, null);
+    assertEquals("1:BED(0:BED(null, 0:DANGLING(null, 0:INCR())), 1:DANGLING(0:INCR(), 1:INCR()))", res[0]);
+    assertEquals("1:OUT(0:OUT(null, 0:MERGE(0:DANGLING(null, 0:INCR()), 0:COMPLEX(0:DANGLING(null, 0:INCR())))), 1:MERGE(1:DANGLING(0:INCR(), 1:INCR()), 1:COMPLEX(1:DANGLING(0:INCR(), 1:INCR()))))", res[1]);
+  }
+
+  public void testSameAsSequential() throws IOException {
+    Diagnostic.setLogStream();
+    final CountStatistics seqSt = new CountStatistics();
+    final String[] seq = run(7, 1, 1, seqSt);
+    for (final int batch : new int[] {1, 2, 5}) {
+      final CountStatistics st = new CountStatistics();
+      final String[] par = run(7, 4, batch, st);
+      assertEquals(seq[0], par[0]);
+      assertEquals(seq[1], par[1]);
+      assertEquals(seqSt.mJobs.get(), st.mJobs.get());
+      assertTrue(st.mWaits.get() > 0);
+      assertTrue(st.mWaitTime.get() >= 0);
+    }
+  }
+
+  public void testBadBatch() {
+    try {
+      new SchedulerStealing<>(new DependenciesExample(2), new JobFactoryExample(2), new EventListMultiSample<ExampleJobId>(), null, null, 2, 0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Invalid batch size: 0", e.getMessage());
+    }
+  }
+}
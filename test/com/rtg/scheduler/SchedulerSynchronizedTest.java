@@ -42,6 +42,11 @@ public class SchedulerSynchronizedTest extends TestCase {
       mSb.append(id).append(" ").append(nanoTime).append(LS);
     }
 
+    @Override
+    public void lockWait(long nanoTime) {
+      assertTrue(nanoTime >= 0);
+    }
+
     @Override
     public String toString() {
       return mSb.toString();
@@ -135,7 +135,10 @@ public class SimilarityCliTest extends AbstractCliTest {
         "--unique-words",
         "count only unique words",
         "--max-reads=INT",
-        "maximum number of reads to use from each input SDF");
+        "maximum number of reads to use from each input SDF",
+        "-T,",
+        "--threads=INT",
+        "number of threads. Defaults to the number of available cores");
   }
 
 
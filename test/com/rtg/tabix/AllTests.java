@@ -28,6 +28,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(GenericPositionReaderTest.class);
     suite.addTestSuite(IndexerCliTest.class);
     suite.addTestSuite(IndexingStreamCreatorTest.class);
+    suite.addTestSuite(InlineTabixIndexerTest.class);
     suite.addTestSuite(IndexUtilsTest.class);
     suite.addTestSuite(TabixIndexMergeTest.class);
     suite.addTestSuite(SamPositionReaderTest.class);
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.tabix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.io.IOUtils;
+import com.rtg.util.io.TestDirectory;
+import com.rtg.vcf.VcfRecord;
+import com.rtg.vcf.VcfWriter;
+import com.rtg.vcf.header.VcfHeader;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class InlineTabixIndexerTest extends TestCase {
+
+  private static void assertSameIndex(File data) throws IOException, UnindexableDataException {
+    final File expected = new File(data.getParentFile(), "expected.tbi");
+    new TabixIndexer(data, expected).saveIndex(new TabixIndexer.VcfIndexerFactory());
+    assertTrue(Arrays.equals(IOUtils.readData(expected), IOUtils.readData(TabixIndexer.indexFileName(data))));
+  }
+
+  public void testVcf() throws IOException, UnindexableDataException {
+    try (TestDirectory dir = new TestDirectory("inlinetabix")) {
+      final File vcfFile = new File(dir, "calls.vcf.gz");
+      final VcfHeader header = new VcfHeader();
+      header.addCommonHeader();
+      header.addSampleName("sample");
+      final PortableRandom random = new PortableRandom(42);
+      try (VcfWriter writer = new VcfWriter(header, vcfFile, null, true, true)) {
+        // Enough records to span many compressed blocks and several bins
+        for (final String seq : new String[] {"chr1", "chr2", "chr10"}) {
+          int pos = 0;
+          for (int i = 0; i < 20000; i++) {
+            pos += 1 + random.nextInt(200);
+            final VcfRecord rec = new VcfRecord();
+            rec.setNumberOfSamples(1);
+            rec.setSequence(seq);
+            rec.setStart(pos);
+            rec.setRefCall(i % 7 == 0 ? "ACGTACGT" : "A");
+            rec.addAltCall("T");
+            rec.addFormatAndSample("GT", "1/0");
+            writer.write(rec);
+          }
+        }
+      }
+      assertSameIndex(vcfFile);
+    }
+  }
+
+  public void testEmpty() throws IOException, UnindexableDataException {
+    try (TestDirectory dir = new TestDirectory("inlinetabix")) {
+      final File vcfFile = new File(dir, "calls.vcf.gz");
+      final VcfHeader header = new VcfHeader();
+      header.addCommonHeader();
+      new VcfWriter(header, vcfFile, null, true, true).close();
+      assertSameIndex(vcfFile);
+    }
+  }
+
+  public void testBed() throws IOException, UnindexableDataException {
+    try (TestDirectory dir = new TestDirectory("inlinetabix")) {
+      final File bedFile = new File(dir, "regions.bed.gz");
+      final InlineTabixIndexer indexer = new InlineTabixIndexer(bedFile, new TabixIndexer.BedIndexerFactory(0));
+      try (OutputStream out = indexer.getOutputStream()) {
+        for (int i = 0; i < 5000; i++) {
+          final int start = i * 100;
+          final int end = start + (i % 3) * 50;
+          indexer.record("seq", start, end - start);
+          out.write(("seq\t" + start + "\t" + end + "\tregion" + i + "\n").getBytes());
+        }
+      }
+      indexer.saveIndex();
+      final File expected = new File(dir, "expected.tbi");
+      new TabixIndexer(bedFile, expected).saveBedIndex();
+      assertTrue(Arrays.equals(IOUtils.readData(expected), IOUtils.readData(TabixIndexer.indexFileName(bedFile))));
+    }
+  }
+
+  public void testUnsorted() throws IOException {
+    try (TestDirectory dir = new TestDirectory("inlinetabix")) {
+      final File bedFile = new File(dir, "regions.bed.gz");
+      final InlineTabixIndexer indexer = new InlineTabixIndexer(bedFile, new TabixIndexer.BedIndexerFactory(0));
+      try (OutputStream out = indexer.getOutputStream()) {
+        indexer.record("seq", 100, 10);
+        out.write("seq\t100\t110\n".getBytes());
+        indexer.record("seq", 50, 10);
+        out.write("seq\t50\t60\n".getBytes());
+      }
+      try {
+        indexer.saveIndex();
+        fail();
+      } catch (final UnindexableDataException e) {
+        assertEquals("File is not sorted", e.getMessage());
+      }
+    }
+  }
+}
@@ -68,6 +68,10 @@ public class TabixIndexReaderTest extends TestCase {
       final VirtualOffsets positions = tir.getFilePointers(new SamRegionRestriction("simulatedSequence2", 32769, 33000));
       assertEquals((44947L << 16) | 22268, positions.start(0));
       assertEquals((56124L << 16) | 50222, positions.end(0));
+      final long[] linear = tir.linearIndex("simulatedSequence2");
+      assertTrue(linear.length > 2);
+      assertTrue(AbstractIndexReader.isLessThanUnsigned(linear[2], positions.end(0)));
+      assertEquals(0, tir.linearIndex("nosuchsequence").length);
     } finally {
       FileHelper.deleteAll(dir);
     }
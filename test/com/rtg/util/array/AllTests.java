@@ -27,8 +27,10 @@ public class AllTests extends TestSuite {
     final TestSuite suite = new TestSuite("com.rtg.util.array");
     suite.addTestSuite(ArrayHandleTest.class);
     suite.addTestSuite(ArrayTypeTest.class);
+    suite.addTestSuite(DirectChunksTest.class);
     suite.addTestSuite(DummyIndexTest.class);
     suite.addTestSuite(IndexTypeTest.class);
+    suite.addTestSuite(MappedIndexTest.class);
     suite.addTestSuite(WrappedIntArrayTest.class);
     suite.addTestSuite(ArrayUtilsTest.class);
     suite.addTestSuite(SingleValueIntArrayTest.class);
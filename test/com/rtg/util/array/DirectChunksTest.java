@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class DirectChunksTest extends TestCase {
+
+  public void testUseOffHeap() {
+    assertFalse(DirectChunks.useOffHeap(0));
+    assertEquals(DirectChunks.OFF_HEAP, DirectChunks.useOffHeap(1L << 32));
+  }
+
+  public void testPositions() {
+    final DirectChunks dc = new DirectChunks(20, 2, 3);
+    assertEquals(20, dc.capacity());
+    assertEquals(8, dc.chunkSize());
+    assertEquals(0, dc.position(8));
+    assertEquals(12, dc.position(11));
+    assertTrue(dc.chunk(7) != dc.chunk(8));
+    assertTrue(dc.chunk(16) == dc.chunk(19));
+    assertEquals(16, dc.chunk(19).capacity());
+    assertTrue(dc.chunk(0).isDirect());
+  }
+
+  public void testGrowAndTrim() {
+    final DirectChunks dc = new DirectChunks(3, 0, 4);
+    dc.chunk(2).put(dc.position(2), (byte) 7);
+    dc.ensureCapacity(4);
+    assertEquals(4, dc.capacity()); // 3 * 3 / 2
+    dc.ensureCapacity(5);
+    assertEquals(6, dc.capacity());
+    assertEquals(7, dc.chunk(2).get(dc.position(2)));
+    dc.ensureCapacity(40);
+    assertEquals(40, dc.capacity());
+    assertEquals(7, dc.chunk(2).get(dc.position(2)));
+    final ByteBuffer second = dc.chunk(16);
+    dc.trim(32);
+    assertEquals(32, dc.capacity());
+    assertTrue(second == dc.chunk(16));
+    dc.trim(18);
+    assertEquals(2, dc.chunk(17).capacity());
+    dc.trim(0);
+    assertEquals(0, dc.capacity());
+    assertTrue(dc.integrity());
+  }
+
+  public void testBadArguments() {
+    try {
+      new DirectChunks(-1, 0, 4);
+      fail();
+    } catch (final NegativeArraySizeException e) {
+      assertEquals("Negative length=-1", e.getMessage());
+    }
+    try {
+      new DirectChunks(1, 3, 28);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("chunkBits=28 entryShift=3", e.getMessage());
+    }
+  }
+}
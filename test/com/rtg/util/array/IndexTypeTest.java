@@ -19,6 +19,6 @@ import junit.framework.TestCase;
  */
 public class IndexTypeTest extends TestCase {
   public void test() {
-    assertEquals("[ARRAY, CHUNKS]", Arrays.toString(IndexType.values()));
+    assertEquals("[ARRAY, CHUNKS, DIRECT]", Arrays.toString(IndexType.values()));
   }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.rtg.util.array.longindex.LongArray;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class MappedIndexTest extends TestCase {
+
+  private static LongArray values(final long... values) {
+    final LongArray a = new LongArray(values.length);
+    for (int i = 0; i < values.length; i++) {
+      a.set(i, values[i]);
+    }
+    return a;
+  }
+
+  public void testEntryBytes() {
+    assertEquals(1, MappedIndex.entryBytes(values()));
+    assertEquals(1, MappedIndex.entryBytes(values(0, 255, 3)));
+    assertEquals(2, MappedIndex.entryBytes(values(0, 256)));
+    assertEquals(4, MappedIndex.entryBytes(values(65536, 1)));
+    assertEquals(8, MappedIndex.entryBytes(values(1L << 32)));
+    assertEquals(8, MappedIndex.entryBytes(values(-1)));
+  }
+
+  private void check(final long... expected) throws IOException {
+    final LongArray index = values(expected);
+    final int entryBytes = MappedIndex.entryBytes(index);
+    final File file = FileHelper.createTempFile();
+    try {
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+        out.writeInt(42);
+        assertEquals(expected.length * entryBytes, MappedIndex.write(out, index, entryBytes));
+      }
+      final MappedIndex mapped;
+      try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+        mapped = new MappedIndex(raf.getChannel(), 4, expected.length, entryBytes);
+      }
+      assertTrue(mapped.integrity());
+      assertEquals(expected.length, mapped.length());
+      for (int i = 0; i < expected.length; i++) {
+        assertEquals(expected[i], mapped.get(i));
+      }
+      try {
+        mapped.get(expected.length);
+        fail();
+      } catch (final IndexOutOfBoundsException e) {
+        // expected
+      }
+      try {
+        mapped.set(0, 0);
+        fail();
+      } catch (final UnsupportedOperationException e) {
+        assertEquals("Mapped index is read only", e.getMessage());
+      }
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+
+  public void testMapped() throws IOException {
+    check(1, 0, 255, 7);
+    check(300, 0, 65535);
+    check(70000, 0xFFFFFFFFL, 12);
+    check(Long.MAX_VALUE, -5, 0);
+  }
+
+  public void testSigned() throws IOException {
+    final File file = FileHelper.createTempFile();
+    try {
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+        MappedIndex.write(out, values(0xFFFF, 5), 2);
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+        final MappedIndex mapped = new MappedIndex(raf.getChannel(), 0, 2, 2);
+        assertEquals(-1, mapped.getSigned(0));
+        assertEquals(5, mapped.getSigned(1));
+        assertEquals(0xFFFF, mapped.get(0));
+      }
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+
+  public void testBadRegion() throws IOException {
+    final File file = FileHelper.createTempFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      new MappedIndex(raf.getChannel(), 0, 1, 4);
+      fail();
+    } catch (final IOException e) {
+      assertTrue(e.getMessage().startsWith("Mapped index extends past end of file"));
+    } finally {
+      assertTrue(file.delete());
+    }
+    try {
+      MappedIndex.entryBytes(values(1));
+      MappedIndex.write(null, values(1), 3);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Unsupported entry size: 3", e.getMessage());
+    }
+  }
+}
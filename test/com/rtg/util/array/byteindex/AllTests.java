@@ -28,6 +28,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(ByteArrayTest.class);
     suite.addTestSuite(ByteChunksTest.class);
     suite.addTestSuite(ByteCreateTest.class);
+    suite.addTestSuite(ByteDirectTest.class);
     suite.addTestSuite(ByteIndexTest.class);
     suite.addTestSuite(SmallChunksTest.class);
     return suite;
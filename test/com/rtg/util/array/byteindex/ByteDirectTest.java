@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array.byteindex;
+
+/**
+ * Test off heap byte index
+ */
+public class ByteDirectTest extends AbstractByteIndexTest {
+
+  @Override
+  protected ByteIndex create(final long length) {
+    return new ByteDirect(length);
+  }
+
+  @Override
+  protected ByteIndex create(final long length, final int bits) {
+    return new ByteDirect(length, bits);
+  }
+
+  public void testExtension() {
+    final ByteDirect bd = new ByteDirect(0, 4);
+    for (int i = 0; i < 40; i++) {
+      bd.append(i);
+    }
+    assertEquals(40, bd.length());
+    for (int i = 0; i < 40; i++) {
+      assertEquals(i, bd.get(i));
+    }
+    bd.setSigned(39, -3);
+    assertEquals(-3, bd.getSigned(39));
+    assertEquals(253, bd.get(39));
+    bd.trim(17);
+    assertEquals(16, bd.get(16));
+    assertTrue(bd.integrity());
+  }
+}
@@ -28,6 +28,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(IntArrayTest.class);
     suite.addTestSuite(IntChunksTest.class);
     suite.addTestSuite(IntCreateTest.class);
+    suite.addTestSuite(IntDirectTest.class);
     suite.addTestSuite(IntIndexTest.class);
     suite.addTestSuite(SmallChunksTest.class);
     return suite;
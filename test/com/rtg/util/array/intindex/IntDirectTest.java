@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array.intindex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Test off heap int index
+ */
+public class IntDirectTest extends AbstractIntIndexTest {
+
+  @Override
+  protected IntIndex create(final long length) {
+    return new IntDirect(length);
+  }
+
+  @Override
+  protected IntIndex create(final long length, final int bits) {
+    return new IntDirect(length, bits);
+  }
+
+  public void testExtension() {
+    final IntDirect id = new IntDirect(3, 2);
+    id.set(2, 0xFFFFFFFFL);
+    id.extendTo(11);
+    assertEquals(11, id.length());
+    assertEquals(0xFFFFFFFFL, id.get(2));
+    assertEquals(-1, id.getSigned(2));
+    id.setSigned(10, -5);
+    assertEquals(-5, id.getSigned(10));
+    id.trim(3);
+    assertEquals(3, id.length());
+    assertEquals(-1, id.getInt(2));
+    assertTrue(id.integrity());
+  }
+
+  public void testSerial() throws IOException {
+    final IntDirect la = new IntDirect(10);
+    for (int i = 0; i < 10; i++) {
+      la.set(i, i * 4 + 7);
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      la.save(oos);
+    }
+    final IntIndex index2 = IntCreate.loadIndex(new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())));
+    assertTrue(index2 instanceof IntDirect);
+    assertEquals(la.length(), index2.length());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(la.get(i), index2.get(i));
+    }
+  }
+}
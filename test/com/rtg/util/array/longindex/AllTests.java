@@ -27,6 +27,7 @@ public class AllTests extends TestSuite {
     final TestSuite suite = new TestSuite("com.rtg.util.array.longindex");
     suite.addTestSuite(LongArrayTest.class);
     suite.addTestSuite(LongChunksTest.class);
+    suite.addTestSuite(LongDirectTest.class);
     suite.addTestSuite(LongCreateTest.class);
     suite.addTestSuite(LongIndexTest.class);
     suite.addTestSuite(SmallChunksTest.class);
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.array.longindex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Test off heap long index
+ */
+public class LongDirectTest extends AbstractLongIndexTest {
+
+  @Override
+  protected LongIndex create(final long length) {
+    return new LongDirect(length);
+  }
+
+  @Override
+  protected LongIndex create(final long length, final int bits) {
+    return new LongDirect(length, bits);
+  }
+
+  public void testExtension() {
+    final LongDirect ld = new LongDirect(5, 3);
+    for (int i = 0; i < 5; i++) {
+      ld.set(i, Long.MAX_VALUE - i);
+    }
+    assertEquals(5, ld.extendBy(30));
+    assertEquals(35, ld.length());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Long.MAX_VALUE - i, ld.get(i));
+    }
+    for (int i = 5; i < 35; i++) {
+      assertEquals(0, ld.get(i));
+      ld.set(i, -i);
+    }
+    ld.extendTo(100);
+    assertEquals(100, ld.length());
+    assertEquals(-34, ld.getSigned(34));
+    ld.trim(20);
+    assertEquals(20, ld.length());
+    assertTrue(ld.integrity());
+    assertEquals(-19, ld.get(19));
+    assertEquals(Long.MAX_VALUE, ld.get(0));
+    ld.append(42);
+    assertEquals(42, ld.get(20));
+    ld.trim(0);
+    assertEquals(0, ld.length());
+    ld.extendBy(9);
+    assertEquals(0, ld.get(8));
+    assertTrue(ld.integrity());
+  }
+
+  public void testSerial() throws IOException {
+    final LongDirect la = new LongDirect(10);
+    for (int i = 0; i < 10; i++) {
+      la.set(i, i * 4 - 7);
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      la.save(oos);
+    }
+    final LongIndex index2 = LongCreate.loadIndex(new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())));
+    assertTrue(index2 instanceof LongDirect);
+    assertEquals(la.length(), index2.length());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(la.get(i), index2.get(i));
+    }
+  }
+}
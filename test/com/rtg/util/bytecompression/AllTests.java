@@ -26,6 +26,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(ByteArrayTest.class);
     suite.addTestSuite(BitwiseByteArrayTest.class);
     suite.addTestSuite(CompressedByteArrayTest.class);
+    suite.addTestSuite(MappedBitwiseByteArrayTest.class);
     suite.addTestSuite(MultiByteArrayTest.class);
     suite.addTestSuite(SingleByteArrayTest.class);
 
@@ -11,6 +11,13 @@
  */
 package com.rtg.util.bytecompression;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
 
 import junit.framework.TestCase;
 
@@ -89,6 +96,33 @@ public class CompressedByteArrayTest extends TestCase {
     }
   }
 
+  public void testMapCompressed() throws IOException {
+    final File dir = FileUtils.createTempDir("compressedbytearray", "test");
+    try {
+      final byte[] data = new byte[500];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = (byte) ((i * 11) % 64);
+      }
+      final CompressedByteArray array = new CompressedByteArray(data.length, 64, false);
+      array.set(0, data, data.length);
+      final File f = new File(dir, "qual.bin");
+      try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(f))) {
+        array.dumpCompressedValues(dos, data.length);
+      }
+      final CompressedByteArray mapped = CompressedByteArray.mapCompressed(f, 17, 480, 64);
+      assertEquals(463, mapped.length());
+      assertEquals(0, mapped.bytes());
+      final byte[] act = new byte[463];
+      mapped.get(act, 0, act.length);
+      for (int i = 17; i < 480; i++) {
+        assertEquals(data[i], mapped.get(i - 17));
+        assertEquals(data[i], act[i - 17]);
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
   public void testMinBits() {
     assertEquals(1, CompressedByteArray.minBits(0));
     assertEquals(1, CompressedByteArray.minBits(1));
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.bytecompression;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class MappedBitwiseByteArrayTest extends TestCase {
+
+  private static byte[] data(int length, int range) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) ((i * 7 + i / 13) % range);
+    }
+    return data;
+  }
+
+  private static File write(File dir, byte[] data, int range) throws IOException {
+    final BitwiseByteArray array = new BitwiseByteArray(data.length, CompressedByteArray.minBits(range));
+    array.set(0, data, data.length);
+    final File f = new File(dir, "seq.bin");
+    try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(f))) {
+      array.dumpCompressedValues(dos, data.length);
+    }
+    return f;
+  }
+
+  public void testMap() throws IOException {
+    final File dir = FileUtils.createTempDir("mappedbitwise", "test");
+    try {
+      final byte[] data = data(1000, 5);
+      final File f = write(dir, data, 5);
+      for (final int[] range : new int[][] {{0, 1000}, {0, 64}, {63, 129}, {100, 1000}, {500, 500}}) {
+        final int start = range[0];
+        final int end = range[1];
+        final MappedBitwiseByteArray mapped = MappedBitwiseByteArray.map(f, start, end, 5);
+        final BitwiseByteArray loaded = BitwiseByteArray.loadBitwise(f, start, end, 5);
+        assertTrue(mapped.integrity());
+        assertEquals(end - start, mapped.length());
+        assertEquals(0, mapped.bytes());
+        for (int i = start; i < end; i++) {
+          assertEquals(data[i], mapped.get(i - start));
+          assertEquals(loaded.get(i - start), mapped.get(i - start));
+        }
+        final byte[] act = new byte[end - start + 3];
+        mapped.get(act, 0, 3, end - start);
+        for (int i = start; i < end; i++) {
+          assertEquals(data[i], act[i - start + 3]);
+        }
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  public void testReadOnly() throws IOException {
+    final File dir = FileUtils.createTempDir("mappedbitwise", "test");
+    try {
+      final MappedBitwiseByteArray mapped = MappedBitwiseByteArray.map(write(dir, data(10, 22), 22), 0, 10, 22);
+      assertEquals(data(10, 22)[9], mapped.get(9));
+      try {
+        mapped.set(0, (byte) 1);
+        fail();
+      } catch (final UnsupportedOperationException e) {
+        assertEquals("Mapped array is read only", e.getMessage());
+      }
+      try {
+        mapped.set(0, new byte[1], 1);
+        fail();
+      } catch (final UnsupportedOperationException e) {
+        // expected
+      }
+      try {
+        mapped.set(0, new byte[1], 0, 1);
+        fail();
+      } catch (final UnsupportedOperationException e) {
+        // expected
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+}
@@ -30,6 +30,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(ClosedFileInputStreamTest.class);
     suite.addTestSuite(GzipAsynchInputStreamTest.class);
     suite.addTestSuite(GzipAsynchOutputStreamTest.class);
+    suite.addTestSuite(ParallelBlockCompressedOutputStreamTest.class);
     suite.addTestSuite(IOUtilsTest.class);
     suite.addTestSuite(LogFileTest.class);
     suite.addTestSuite(LineWriterTest.class);
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.util.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
+
+import junit.framework.TestCase;
+import net.sf.samtools.util.BlockCompressedOutputStream;
+import net.sf.samtools.util.BlockCompressedStreamConstants;
+
+/**
+ */
+public class ParallelBlockCompressedOutputStreamTest extends TestCase {
+
+  private static byte[] data() {
+    final PortableRandom r = new PortableRandom(17);
+    final byte[] data = new byte[700000];
+    for (int i = 0; i < data.length; i++) {
+      // Mostly compressible text with a stretch of random bytes that will not compress
+      data[i] = i > 300000 && i < 400000 ? (byte) r.nextInt(256) : (byte) "acgt\t\n".charAt(r.nextInt(6));
+    }
+    return data;
+  }
+
+  private static void write(OutputStream out, byte[] data) throws IOException {
+    int pos = 0;
+    int step = 1;
+    while (pos < data.length) {
+      if (step == 1) {
+        out.write(data[pos]);
+      } else {
+        out.write(data, pos, Math.min(step, data.length - pos));
+      }
+      pos += step;
+      step = step * 7 % 100003;
+      if (step % 13 == 0) {
+        out.flush();
+      }
+    }
+  }
+
+  private static void check(boolean terminate) throws IOException {
+    final byte[] data = data();
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (OutputStream out = new BlockCompressedOutputStream(expected, null, 2, terminate)) {
+      write(out, data);
+    }
+    final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    try (OutputStream out = new ParallelBlockCompressedOutputStream(actual, 2, terminate)) {
+      write(out, data);
+    }
+    assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+    final byte[] eof = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK;
+    assertEquals(terminate, Arrays.equals(eof, Arrays.copyOfRange(actual.toByteArray(), actual.size() - eof.length, actual.size())));
+  }
+
+  public void testSameAsPicard() throws IOException {
+    check(true);
+    check(false);
+  }
+
+  public void testThreads() throws IOException {
+    final int original = ParallelBlockCompressedOutputStream.threads();
+    try {
+      ParallelBlockCompressedOutputStream.setThreads(1);
+      assertEquals(1, ParallelBlockCompressedOutputStream.threads());
+      check(true);
+      ParallelBlockCompressedOutputStream.setThreads(3);
+      assertEquals(3, ParallelBlockCompressedOutputStream.threads());
+      check(true);
+      try {
+        ParallelBlockCompressedOutputStream.setThreads(0);
+        fail();
+      } catch (final IllegalArgumentException e) {
+        assertEquals("Invalid number of threads: 0", e.getMessage());
+      }
+    } finally {
+      ParallelBlockCompressedOutputStream.setThreads(original);
+    }
+  }
+
+  public void testCloseAfterWriteFailure() throws IOException {
+    final byte[] data = data();
+    final OutputStream failing = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("disk full");
+      }
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        throw new IOException("disk full");
+      }
+    };
+    final OutputStream out = new ParallelBlockCompressedOutputStream(failing, 2, true);
+    try {
+      out.write(data);
+      fail();
+    } catch (final IOException e) {
+      assertEquals("disk full", e.getMessage());
+    }
+    // Blocks still in flight are waited for before the deflaters are released
+    try {
+      out.close();
+      fail();
+    } catch (final IOException e) {
+      assertEquals("disk full", e.getMessage());
+    }
+    out.close(); // already closed
+  }
+
+  public void testBadLevel() {
+    try {
+      new ParallelBlockCompressedOutputStream(new ByteArrayOutputStream(), 10, true);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Invalid compression level: 10", e.getMessage());
+    }
+  }
+}
@@ -11,9 +11,17 @@
  */
 package com.rtg.variant;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
+import com.rtg.sam.RawBamRecord;
+import com.rtg.sam.RawBamRecordTest;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
+
 import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileReader;
 import net.sf.samtools.SAMRecord;
 import net.sf.samtools.SAMSequenceRecord;
 
@@ -116,4 +124,33 @@ public class VariantAlignmentRecordTest extends TestCase {
     // there are more fields for even finer disambiguation
   }
 
+
+  public void testFromRawBam() throws IOException {
+    final File dir = FileUtils.createTempDir("variantalignmentrecord", "test");
+    try {
+      final File bam = new File(dir, "test.bam");
+      RawBamRecordTest.writeBam(bam);
+      final SAMFileReader reader = new SAMFileReader(bam);
+      try {
+        for (final SAMRecord rec : reader) {
+          final RawBamRecord raw = RawBamRecord.wrap(rec);
+          final VariantAlignmentRecord direct = new VariantAlignmentRecord(raw, raw.getReadGroup(), 1);
+          final VariantAlignmentRecord viaSam = new VariantAlignmentRecord(rec, 1);
+          assertEquals(viaSam.toString(), direct.toString());
+          assertEquals(0, viaSam.valueCompareTo(direct));
+          assertEquals(viaSam.getSequenceId(), direct.getSequenceId());
+          assertEquals(viaSam.getEnd(), direct.getEnd());
+          assertEquals(viaSam.getReadGroup(), direct.getReadGroup());
+          assertEquals(viaSam.getMateSequenceId(), direct.getMateSequenceId());
+          assertEquals(viaSam.getFragmentLength(), direct.getFragmentLength());
+          assertEquals(viaSam.isUnmapped(), direct.isUnmapped());
+          assertEquals(viaSam.isCgOverlapLeft(), direct.isCgOverlapLeft());
+        }
+      } finally {
+        reader.close();
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
 }
@@ -84,7 +84,7 @@ public class VariantParamsTest extends TestCase {
         " max_ambiguity=null" + LS,
         " sex=EITHER" + LS,
         " ploidy=DIPLOID" + LS,
-        " chunk_size=1000 lookahead=2 max_read_length=1000" + LS,
+        " chunk_size=1000 lookahead=2 max_read_length=1000 span_sequences=false" + LS,
         " threading_environment=PARALLEL treading_environment_seed=null" + LS,
         " exec_threads=1 io_threads=1" + LS,
         " hyper_complex_threshold=21" + LS,
@@ -246,6 +246,7 @@ public class VariantParamsTest extends TestCase {
     assertEquals(params.calibrator(), vpc.calibrator());
     assertEquals(params.chunkSize(), vpc.chunkSize());
     assertEquals(params.lookAhead(), vpc.lookAhead());
+    assertEquals(params.spanSequences(), vpc.spanSequences());
     assertEquals(params.ionTorrent(), vpc.ionTorrent());
     assertEquals(params.pruneHypotheses(), vpc.pruneHypotheses());
     assertEquals(params.ploidy(), vpc.ploidy());
@@ -11,13 +11,18 @@
  */
 package com.rtg.variant.bayes.complex;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import com.rtg.variant.AbstractMachineErrorParams;
 import com.rtg.variant.MachineErrorParams;
 import com.rtg.variant.realign.AllPaths;
 import com.rtg.variant.realign.RealignParams;
 import com.rtg.variant.realign.RealignParamsImplementation;
-import com.rtg.variant.realign.ScoreFastUnderflow;
-import com.rtg.variant.realign.ScoreFastUnderflowCG;
+import com.rtg.variant.realign.ScaledScoreMatrix;
+import com.rtg.variant.realign.ScaledScoreMatrixCG;
 
 import junit.framework.TestCase;
 
@@ -25,8 +30,7 @@ import junit.framework.TestCase;
  */
 public class ScoreInterfaceMemoTest extends TestCase {
 
-  public void test() {
-    final ScoreInterfaceMemoInterface memo = new ScoreInterfaceMemo();
+  private static RealignParams realignParams() {
     final AbstractMachineErrorParams params = MachineErrorParams.builder()
       .errorInsEventRate(0.1)
       .errorInsDistribution(new double[] {0.0, 0.8, 0.15, 0.03, 0.01, 0.01})
@@ -35,16 +39,92 @@ public class ScoreInterfaceMemoTest extends TestCase {
       .errorMnpEventRate(0.3)
       .errorMnpDistribution(new double[] {0.5, 0.5})
       .create();
-    final RealignParams p1 = new RealignParamsImplementation(params);
+    return new RealignParamsImplementation(params);
+  }
+
+  public void test() {
+    final ScoreInterfaceMemo memo = new ScoreInterfaceMemo();
+    final RealignParams p1 = realignParams();
     final AllPaths s1 = memo.getScoreInterface(p1, false);
-    assertTrue(s1 instanceof ScoreFastUnderflow);
+    assertEquals(ScaledScoreMatrix.class, s1.getClass());
+    // In use so a second request gets a different one
+    final AllPaths s1b = memo.getScoreInterface(p1, false);
+    assertFalse(s1 == s1b);
+    memo.release(p1, false, s1);
     assertTrue(s1 == memo.getScoreInterface(p1, false));
-    final RealignParams p2 = new RealignParamsImplementation(params);
+    memo.release(p1, false, s1);
+    final RealignParams p2 = realignParams();
     final AllPaths s2 = memo.getScoreInterface(p2, false);
-    assertTrue(s2 instanceof ScoreFastUnderflow);
+    assertEquals(ScaledScoreMatrix.class, s2.getClass());
     assertFalse(s1 == s2);
     final AllPaths s3 = memo.getScoreInterface(p1, true);
-    assertTrue(s3 instanceof ScoreFastUnderflowCG);
+    assertEquals(ScaledScoreMatrixCG.class, s3.getClass());
+    memo.release(p1, true, s3);
     assertTrue(s3 == memo.getScoreInterface(p1, true));
+    assertEquals(2, memo.hits());
+    assertEquals(4, memo.misses());
+    assertEquals(0, memo.evictions());
+    assertEquals("ScoreInterfaceMemo hits 2 misses 4 evictions 0 idle 1", memo.toString());
+  }
+
+  public void testEviction() {
+    final ScoreInterfaceMemo memo = new ScoreInterfaceMemo(2);
+    final RealignParams p1 = realignParams();
+    final RealignParams p2 = realignParams();
+    final RealignParams p3 = realignParams();
+    final AllPaths s1 = memo.getScoreInterface(p1, false);
+    final AllPaths s2 = memo.getScoreInterface(p2, false);
+    final AllPaths s3 = memo.getScoreInterface(p3, false);
+    memo.release(p1, false, s1);
+    memo.release(p2, false, s2);
+    assertEquals(2, memo.idle());
+    // p1 least recently used so it goes
+    memo.release(p3, false, s3);
+    assertEquals(2, memo.idle());
+    assertEquals(1, memo.evictions());
+    assertFalse(s1 == memo.getScoreInterface(p1, false));
+    assertTrue(s2 == memo.getScoreInterface(p2, false));
+    assertTrue(s3 == memo.getScoreInterface(p3, false));
+    assertEquals(0, memo.idle());
+
+    final ScoreInterfaceMemo none = new ScoreInterfaceMemo(0);
+    none.release(p1, false, s1);
+    assertEquals(0, none.idle());
+    try {
+      new ScoreInterfaceMemo(-1);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Invalid pool size: -1", e.getMessage());
+    }
+  }
+
+  public void testConcurrent() throws InterruptedException {
+    final ScoreInterfaceMemo memo = new ScoreInterfaceMemo(4);
+    final RealignParams p1 = realignParams();
+    final Set<AllPaths> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<AllPaths, Boolean>()));
+    final AtomicBoolean shared = new AtomicBoolean(false);
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 1000; i++) {
+            final AllPaths s = memo.getScoreInterface(p1, false);
+            if (!inUse.add(s)) {
+              shared.set(true);
+            }
+            inUse.remove(s);
+            memo.release(p1, false, s);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (final Thread t : threads) {
+      t.join();
+    }
+    assertFalse(shared.get());
+    assertEquals(4000, memo.hits() + memo.misses());
+    assertTrue(memo.idle() <= 4);
   }
 }
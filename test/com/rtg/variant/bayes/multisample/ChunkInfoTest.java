@@ -51,4 +51,75 @@ public class ChunkInfoTest extends TestCase {
     assertEquals(20, chunks.end());
     assertEquals(1, chunks.length());
   }
+
+  public void testChunkBoundaries() {
+    final ChunkInfo chunks = new ChunkInfo(100, "foo", 30, 5, 95, 5, 4);
+    assertFalse(chunks.isAdaptive());
+    assertEquals(3, chunks.numberChunks());
+    assertEquals(5, chunks.chunkStart(0));
+    assertEquals(35, chunks.chunkEnd(0));
+    assertEquals(65, chunks.chunkStart(2));
+    assertEquals(95, chunks.chunkEnd(2));
+    assertEquals(95, chunks.chunkStart(4));
+    chunks.addCost(0, 1000); // ignored
+    assertEquals(35, chunks.chunkStart(1));
+  }
+
+  private static void checkCovers(ChunkInfo chunks, int min, int max) {
+    assertEquals(chunks.start(), chunks.chunkStart(0));
+    for (int i = 0; i < chunks.numberChunks(); i++) {
+      final int size = chunks.chunkEnd(i) - chunks.chunkStart(i);
+      assertTrue(size >= 1 && size <= max);
+      if (i < chunks.numberChunks() - 1) {
+        assertTrue(size >= min);
+      }
+    }
+    assertEquals(chunks.end(), chunks.chunkEnd(chunks.numberChunks() - 1));
+  }
+
+  public void testAdaptive() {
+    final ChunkInfo chunks = new ChunkInfo(10000, "foo", 100, -1, -1, 5, 4, true);
+    assertTrue(chunks.isAdaptive());
+    assertEquals(100, chunks.numberChunks());
+    assertEquals(2804, chunks.bufferSize());
+    // No costs reported yet, so the nominal size is used
+    assertEquals(100, chunks.chunkEnd(0));
+    for (int i = 0; i < 20; i++) {
+      chunks.addCost(i, 1000);
+    }
+    // Recent chunks as expensive as the average
+    assertEquals(100, chunks.chunkEnd(20) - chunks.chunkStart(20));
+    for (int i = 21; i < 40; i++) {
+      chunks.addCost(i, 10000);
+    }
+    // Recent chunks expensive, so split
+    assertEquals(50, chunks.chunkEnd(40) - chunks.chunkStart(40));
+    for (int i = 40; i < 60; i++) {
+      chunks.addCost(i, 10);
+    }
+    // Recent chunks cheap, so merge
+    assertEquals(200, chunks.chunkEnd(60) - chunks.chunkStart(60));
+    checkCovers(chunks, 50, 200);
+  }
+
+  public void testAdaptiveLimits() {
+    // Always cheap so chunks want to be large, but the number of chunks is fixed
+    final ChunkInfo chunks = new ChunkInfo(1050, "foo", 100, -1, -1, 1, 4, true);
+    assertEquals(11, chunks.numberChunks());
+    chunks.addCost(0, 1000000);
+    for (int i = 1; i < chunks.numberChunks(); i++) {
+      chunks.addCost(i, 1);
+    }
+    checkCovers(chunks, 50, 200);
+    // Always expensive so chunks want to be small
+    final ChunkInfo expensive = new ChunkInfo(1050, "foo", 100, -1, -1, 1, 4, true);
+    expensive.addCost(0, 1);
+    for (int i = 1; i < expensive.numberChunks(); i++) {
+      expensive.addCost(i, 1000000);
+    }
+    checkCovers(expensive, 50, 200);
+    final ChunkInfo one = new ChunkInfo(7, "foo", 100, -1, -1, 1, 4, true);
+    assertEquals(1, one.numberChunks());
+    assertEquals(7, one.chunkEnd(0));
+  }
 }
@@ -18,6 +18,7 @@ import static com.rtg.sam.SharedSamConstants.SAM11;
 import static com.rtg.sam.SharedSamConstants.SAM_FAMILY;
 import static com.rtg.util.StringUtils.FS;
 import static com.rtg.util.StringUtils.LS;
+import static com.rtg.util.StringUtils.TAB;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -25,6 +26,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Random;
 
 import com.rtg.Slim;
 import com.rtg.launcher.GlobalFlags;
@@ -270,6 +272,99 @@ public class MultisampleTaskTest extends TestCase {
     }
   }
 
+  private static final String DNA = "ACGT";
+
+  private static String snpOutput(final File templ, final File sam, final File output, final String... extraArgs) throws IOException {
+    final String[] args = {"snp",
+        "-t", templ.getPath(),
+        "-o", output.getPath(),
+        "-Z",
+        "-m", "default", "--keep-duplicates",
+        sam.getPath()
+    };
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream berr = new ByteArrayOutputStream();
+    try (final PrintStream err = new PrintStream(berr)) {
+      assertEquals(0, new Slim().intMain(Utils.append(args, extraArgs), out, err));
+      err.flush();
+      assertEquals("", berr.toString());
+    }
+    final StringBuilder sb = new StringBuilder();
+    for (final String line : FileUtils.fileToString(new File(output, "snps.vcf")).split(LS)) {
+      if (!line.startsWith("##")) {
+        sb.append(line).append(LS);
+      }
+    }
+    sb.append(FileUtils.fileToString(new File(output, "regions.bed")));
+    return sb.toString();
+  }
+
+  // Chunks from several sequences in one scheduler must give the same output as one sequence at a time
+  public void testSpanSequences() throws Exception {
+    checkSpanSequences();
+  }
+
+  // Sequences without reads are skipped in both modes, even when every position is being output
+  public void testSpanSequencesAll() throws Exception {
+    final String spanned = checkSpanSequences("--all");
+    assertFalse(spanned.contains("s2" + TAB));
+  }
+
+  private String checkSpanSequences(final String... extraArgs) throws Exception {
+    final Random random = new Random(42);
+    final int length = 2500; // a few chunks per sequence
+    final String[] names = {"s1", "s2", "s3", "s4", "s5"};
+    final StringBuilder ref = new StringBuilder();
+    final StringBuilder sam = new StringBuilder();
+    sam.append("@HD" + TAB + "VN:1.0" + TAB + "SO:coordinate" + LS);
+    for (final String name : names) {
+      sam.append("@SQ" + TAB + "SN:").append(name).append(TAB + "LN:").append(length).append(LS);
+    }
+    sam.append("@RG" + TAB + "ID:RG1" + TAB + "SM:TEST" + TAB + "PL:ILLUMINA" + LS);
+    int readId = 0;
+    for (final String name : names) {
+      final char[] seq = new char[length];
+      for (int i = 0; i < length; i++) {
+        seq[i] = DNA.charAt(random.nextInt(DNA.length()));
+      }
+      ref.append(">").append(name).append(LS).append(seq).append(LS);
+      if (!"s2".equals(name)) { // leave one sequence without any reads
+        final char[] sample = seq.clone();
+        for (final int pos : new int[] {37, 999, 1500 + random.nextInt(500), 2480}) {
+          sample[pos] = DNA.charAt((DNA.indexOf(sample[pos]) + 1) % DNA.length());
+        }
+        for (int start = 0; start + 20 <= length; start += 4) {
+          for (int copy = 0; copy < 2; copy++) {
+            sam.append("r").append(readId++).append(TAB + "0" + TAB).append(name).append(TAB).append(start + 1)
+              .append(TAB + "255" + TAB + "20M" + TAB + "*" + TAB + "0" + TAB + "0" + TAB).append(sample, start, 20)
+              .append(TAB + "*" + TAB + "AS:i:0" + TAB + "IH:i:1" + TAB + "RG:Z:RG1" + LS);
+          }
+        }
+      }
+    }
+    try (final TestDirectory dir = new TestDirectory("variance_span")) {
+      final File samFile = new File(dir, OUT_SAM + ".gz");
+      BgzipFileHelper.streamToBgzipFile(new ByteArrayInputStream(sam.toString().getBytes()), samFile);
+      new TabixIndexer(samFile, new File(dir, OUT_SAM + ".gz.tbi")).saveSamIndex();
+      final File templ = ReaderTestUtils.getDNADir(ref.toString());
+      try {
+        final String[] args = Utils.append(getArguments(), extraArgs);
+        final String bySequence = snpOutput(templ, samFile, new File(dir, "by_sequence"), args);
+        final String spanned = snpOutput(templ, samFile, new File(dir, "spanned"), Utils.append(args, new String[] {"--Xspan-sequences"}));
+        assertEquals(bySequence, spanned);
+        TestUtils.containsAll(spanned, "s1" + TAB + "38" + TAB, "s3" + TAB + "1000" + TAB, "s4" + TAB + "2481" + TAB, "s5" + TAB + "38" + TAB);
+        for (final String output : new String[] {"by_sequence", "spanned"}) {
+          final String log = FileUtils.fileToString(new File(new File(dir, output), "snp.log"));
+          assertTrue(log.contains("Sequence s1 "));
+          assertFalse(log.contains("Sequence s2 "));
+        }
+        return spanned;
+      } finally {
+        FileHelper.deleteAll(templ);
+      }
+    }
+  }
+
   // Leverage the population caller nano regression code to test indel triggering
   public void testIndelTriggering() throws Exception {
     final String testName = "indel_triggering_fraction";
@@ -18,6 +18,8 @@ import java.util.Set;
 
 import com.rtg.scheduler.AbstractDependenciesTest;
 import com.rtg.scheduler.Dependencies;
+import com.rtg.scheduler.LookAhead;
+import com.rtg.scheduler.Util;
 import com.rtg.util.integrity.Exam;
 
 /**
@@ -203,6 +205,72 @@ public class DependenciesMultiSampleTest extends AbstractDependenciesTest<JobIdM
     return a.equals(b);
   }
 
+  public void testSpanSequences() {
+    // first sequence has times 0 to 3, second starts at time 3
+    final DependenciesMultiSample dep = new DependenciesMultiSample(new int[] {2, 3});
+    Exam.globalIntegrity(dep);
+    assertEquals(6, dep.totalChunks());
+    final JobIdMultisample lastOut = new JobIdMultisample(6, 3, JobType.OUT);
+    assertEquals(0, dep.sequence(lastOut));
+    assertEquals(3, dep.chunk(lastOut));
+    final JobIdMultisample firstIncr = new JobIdMultisample(6, 3, JobType.INCR);
+    assertEquals(1, dep.sequence(firstIncr));
+    assertEquals(0, dep.chunk(firstIncr));
+    assertEquals(1, dep.sequence(new JobIdMultisample(6, 7, JobType.OUT)));
+    assertEquals(4, dep.chunk(new JobIdMultisample(6, 7, JobType.OUT)));
+
+    // output ordering carries across the boundary
+    final Collection<JobIdMultisample> fromBed = dep.from(new JobIdMultisample(6, 3, JobType.BED));
+    assertTrue(fromBed.contains(new JobIdMultisample(6, 2, JobType.BED)));
+    assertTrue(dep.to(new JobIdMultisample(6, 2, JobType.BED)).contains(new JobIdMultisample(6, 3, JobType.BED)));
+    final Collection<JobIdMultisample> fromOut = dep.from(new JobIdMultisample(6, 4, JobType.OUT));
+    assertTrue(fromOut.contains(lastOut));
+    assertTrue(dep.to(lastOut).contains(new JobIdMultisample(6, 4, JobType.OUT)));
+    // but nothing else does
+    final Collection<JobIdMultisample> fromDangling = dep.from(new JobIdMultisample(6, 3, JobType.DANGLING));
+    assertEquals(3, fromDangling.size());
+    assertEquals(1, Util.nonNullSize(fromDangling));
+    assertEquals(2, Util.nonNullSize(dep.from(new JobIdMultisample(6, 4, JobType.FILTER))));
+
+    final Set<JobIdMultisample> allIds = allIds(dep, 10);
+    // no increment at the final chunk of a sequence
+    assertFalse(allIds.contains(new JobIdMultisample(6, 2, JobType.INCR)));
+    assertFalse(allIds.contains(new JobIdMultisample(6, 6, JobType.INCR)));
+    // 2 + 3 chunks with all 6 jobs, 4 jobs at the start and 2 at the end of each sequence, less the increments at the end
+    assertEquals(5 * 6 + 2 * (4 + 2) - 2, allIds.size());
+    for (final JobIdMultisample id : allIds) {
+      for (final JobIdMultisample to : dep.to(id)) {
+        assertTrue(id + ">" + to, dep.from(to).contains(id));
+      }
+      for (final JobIdMultisample from : dep.from(id)) {
+        assertTrue(from == null || dep.to(from).contains(id));
+      }
+    }
+  }
+
+  public void testSpanSequencesGate() {
+    final boolean[] open = new boolean[1];
+    final DependenciesMultiSample dep = new DependenciesMultiSample(new int[] {2, 3}, new DependenciesMultiSample.SequenceGate() {
+      @Override
+      public boolean ready(int sequence) {
+        assertEquals(1, sequence);
+        return open[0];
+      }
+    });
+    final LookAhead lookAhead = getLookAhead(10, dep.delta());
+    assertEquals(new JobIdMultisample(6, 0, JobType.INCR), dep.next(lookAhead));
+    assertEquals(new JobIdMultisample(6, 1, JobType.INCR), dep.next(lookAhead));
+    // held back at the start of the second sequence until the gate opens
+    assertNull(dep.next(lookAhead));
+    assertNull(dep.next(lookAhead));
+    open[0] = true;
+    assertEquals(new JobIdMultisample(6, 3, JobType.INCR), dep.next(lookAhead));
+    open[0] = false; // only consulted for the first chunk
+    assertEquals(new JobIdMultisample(6, 4, JobType.INCR), dep.next(lookAhead));
+    assertEquals(new JobIdMultisample(6, 5, JobType.INCR), dep.next(lookAhead));
+    assertNull(dep.next(lookAhead));
+  }
+
   //check that all the ids are found when look ahead bounds being applied.
   protected Set<JobIdMultisample> allIdsLookahead(final DependenciesMultiSample dep) {
     final Set<JobIdMultisample> allIds = new HashSet<>();
@@ -21,7 +21,8 @@ public class MultisampleStatisticsTest extends TestCase {
   public void test() {
     final MultisampleStatistics st = new MultisampleStatistics();
     st.increment(new JobIdMultisample(5, 0, JobType.INCR), 42);
-    assertEquals("[Timer INCR      0.00  count 1       0.00 bytes read 0, Timer DANGLING empty, Timer COMPLEX empty, Timer FILTER empty, Timer BED empty, Timer OUT empty]"
+    st.lockWait(7);
+    assertEquals("[Timer INCR      0.00  count 1       0.00 bytes read 0, Timer DANGLING empty, Timer COMPLEX empty, Timer FILTER empty, Timer BED empty, Timer OUT empty] Timer SchedulerLockWait      0.00  count 1       0.00 bytes read 0"
         , st.toString());
   }
 }
@@ -12,11 +12,18 @@
 
 package com.rtg.variant.coverage;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.BitSet;
 
+import com.rtg.sam.RawBamRecord;
+import com.rtg.sam.RawBamRecordTest;
 import com.rtg.sam.SamUtils;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
 
 import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileReader;
 import net.sf.samtools.SAMRecord;
 import net.sf.samtools.SAMSequenceDictionary;
 import net.sf.samtools.SAMSequenceRecord;
@@ -87,4 +94,35 @@ public class CoverageReaderRecordTest extends TestCase {
     assertEquals(-1, crr0.compareTo(crr));
     assertFalse(crr0.equals(crr));
   }
+
+  public void testFromRawBam() throws IOException {
+    final File dir = FileUtils.createTempDir("coveragereaderrecord", "test");
+    try {
+      final File bam = new File(dir, "test.bam");
+      RawBamRecordTest.writeBam(bam);
+      final SAMFileReader reader = new SAMFileReader(bam);
+      try {
+        for (final SAMRecord rec : reader) {
+          if (rec.getReadUnmappedFlag()) {
+            continue;
+          }
+          final CoverageReaderRecord direct = new CoverageReaderRecord(RawBamRecord.wrap(rec), 2);
+          final CoverageReaderRecord viaSam = new CoverageReaderRecord(rec, 2);
+          assertEquals(viaSam.getStart(), direct.getStart());
+          assertEquals(viaSam.getEnd(), direct.getEnd());
+          assertEquals(viaSam.getIH(), direct.getIH());
+          assertEquals(viaSam.getCoverageMultiplier(), direct.getCoverageMultiplier());
+          assertEquals(viaSam.getCoverageBitSet(), direct.getCoverageBitSet());
+          assertEquals(viaSam.isMated(), direct.isMated());
+          assertEquals(viaSam.getMateSequenceId(), direct.getMateSequenceId());
+          assertEquals(viaSam.getFragmentLength(), direct.getFragmentLength());
+          assertEquals(0, viaSam.disambiguateDuplicate(direct));
+        }
+      } finally {
+        reader.close();
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
 }
@@ -20,6 +20,8 @@ import java.util.List;
 import com.rtg.launcher.OutputParams;
 import com.rtg.reader.ReaderTestUtils;
 import com.rtg.tabix.TabixIndexer;
+import com.rtg.util.Pair;
+import com.rtg.util.PortableRandom;
 import com.rtg.util.StringUtils;
 import com.rtg.util.TestUtils;
 import com.rtg.util.io.FileUtils;
@@ -566,4 +568,79 @@ public class PathTest extends TestCase {
       FileHelper.deleteAll(tmpDir);
     }
   }
+
+  public void testRegionsRefusedInRepeat() {
+    final byte[] template = new byte[100];
+    Arrays.fill(template, (byte) 1);
+    final List<Variant> called = new ArrayList<>();
+    called.add(new MockVariant(10, 11, new byte[] {}, null));
+    called.add(new MockVariant(60, 61, new byte[] {2}, null));
+    final List<Variant> baseline = new ArrayList<>();
+    baseline.add(new MockVariant(20, 21, new byte[] {}, null));
+    baseline.add(new MockVariant(60, 61, new byte[] {2}, null));
+    // The deletions could be reconciled anywhere in the homopolymer, so no split is allowed
+    assertEquals(1, Path.regions(template, called, baseline, 1).size());
+    template[40] = 3;
+    assertEquals(2, Path.regions(template, called, baseline, 1).size());
+    assertEquals(1, Path.regions(template, called, baseline, 4).size());
+  }
+
+  private static byte[] randomAllele(PortableRandom random, int length) {
+    final byte[] allele = new byte[length];
+    for (int i = 0; i < length; i++) {
+      allele[i] = (byte) (1 + random.nextInt(4));
+    }
+    return allele;
+  }
+
+  private static Variant randomVariant(PortableRandom random, int pos) {
+    final int refLength = random.nextInt(3);
+    final byte[] alleleA = randomAllele(random, random.nextInt(3));
+    final byte[] alleleB = random.nextBoolean() ? null : randomAllele(random, random.nextInt(3));
+    if (refLength == 0 && alleleA.length == 0 && (alleleB == null || alleleB.length == 0)) {
+      return new MockVariant(pos, pos + 1, new byte[] {4}, alleleB);
+    }
+    return new MockVariant(pos, pos + refLength, alleleA, alleleB);
+  }
+
+  public void testRegionsMatchWholeSequence() {
+    for (int seed = 0; seed < 20; seed++) {
+      final PortableRandom random = new PortableRandom(seed);
+      final byte[] template = randomAllele(random, 3000);
+      // Some repetitive stretches where regions cannot be split
+      Arrays.fill(template, 1000, 1300, (byte) 1);
+      for (int i = 2000; i < 2300; i++) {
+        template[i] = (byte) (1 + i % 2);
+      }
+      final List<Variant> called = new ArrayList<>();
+      final List<Variant> baseline = new ArrayList<>();
+      int pos = 1;
+      while (pos < template.length - 10) {
+        final Variant var = randomVariant(random, pos);
+        final int choice = random.nextInt(4);
+        if (choice != 0) {
+          called.add(var);
+        }
+        if (choice == 1) {
+          baseline.add(var);
+        } else if (choice == 2) {
+          baseline.add(randomVariant(random, pos));
+        }
+        pos += 3 + random.nextInt(40);
+      }
+      final Path whole = Path.bestPath(template, "seq", called, baseline);
+      final List<Pair<List<Variant>, List<Variant>>> regions = Path.regions(template, called, baseline, 3);
+      assertTrue(regions.size() > 10);
+      final List<Path> paths = new ArrayList<>();
+      for (final Pair<List<Variant>, List<Variant>> region : regions) {
+        paths.add(Path.bestPath(template, "seq", region.getA(), region.getB()));
+      }
+      final Path merged = Path.merge(template, paths);
+      assertEquals(whole.getCalledIncluded().toString(), merged.getCalledIncluded().toString());
+      assertEquals(whole.getCalledExcluded().toString(), merged.getCalledExcluded().toString());
+      assertEquals(whole.getBaselineIncluded().toString(), merged.getBaselineIncluded().toString());
+      assertEquals(whole.getBaselineExcluded().toString(), merged.getBaselineExcluded().toString());
+      assertEquals(whole.getSyncPoints().toString(), merged.getSyncPoints().toString());
+    }
+  }
 }
@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 import com.rtg.reader.ReaderTestUtils;
 import com.rtg.reader.SequencesReader;
@@ -220,6 +221,87 @@ public class SequenceEvaluatorTest extends TestCase {
     checkPhasing(expectedCorrect, expectedUnphasable, expectedMisPhasings, variants);
   }
 
+  private static final String[] ALT = {"A", "C", "G", "T"};
+
+  // A SNP at the given position of the template in VcfEvalTaskTest.REF
+  private static String snp(String template, int pos, int shift, String gt) {
+    final String ref = template.substring(pos - 1, pos);
+    int a = 0;
+    while (!ALT[a].equals(ref)) {
+      a++;
+    }
+    return "10 " + pos + " . " + ref + " " + ALT[(a + shift) % ALT.length] + " 0.0 PASS . GT " + gt;
+  }
+
+  private static MockVariantSet manyRegions() {
+    final String template = VcfEvalTaskTest.REF.substring(VcfEvalTaskTest.REF.indexOf('\n') + 1).replaceAll("\\s", "");
+    final List<String> baseline = new ArrayList<>();
+    final List<String> calls = new ArrayList<>();
+    for (int pos = 20, i = 0; pos < template.length() - 20; pos += 37 + i % 5, i++) {
+      baseline.add(snp(template, pos, 1, i % 3 == 0 ? "0|1" : "1|0"));
+      switch (i % 7) {
+        case 0: // false negative
+          break;
+        case 1: // wrong allele
+          calls.add(snp(template, pos, 2, "1|0"));
+          break;
+        case 2: // extra false positive before the true positive
+          calls.add(snp(template, pos - 6, 1, "1|1"));
+          calls.add(snp(template, pos, 1, "1|0"));
+          break;
+        default:
+          calls.add(snp(template, pos, 1, i % 2 == 0 ? "0|1" : "1|0"));
+          break;
+      }
+    }
+    return new MockVariantSet(baseline, calls);
+  }
+
+  // Counts the permits taken in addition to the one held while evaluating the sequence
+  private static class CountingSemaphore extends Semaphore {
+    int mExtra = 0;
+    CountingSemaphore(int permits) {
+      super(permits);
+    }
+    @Override
+    public boolean tryAcquire() {
+      final boolean acquired = super.tryAcquire();
+      if (acquired) {
+        mExtra++;
+      }
+      return acquired;
+    }
+  }
+
+  public void testSharedThreads() throws IOException, UnindexableDataException {
+    final CountingSemaphore serialThreads = new CountingSemaphore(1);
+    final String serial = evaluate(manyRegions(), serialThreads, 2);
+    assertEquals(0, serialThreads.mExtra);
+    final CountingSemaphore threads = new CountingSemaphore(3);
+    final String parallel = evaluate(manyRegions(), threads, 2);
+    assertEquals(2, threads.mExtra);
+    assertEquals(3, threads.availablePermits());
+    assertEquals(serial, parallel);
+    assertTrue(serial.endsWith("correct=56 misphasings=49 unphasable=0"));
+  }
+
+  private static String evaluate(MockVariantSet variants, Semaphore threads, int regionVariants) throws IOException, UnindexableDataException {
+    final MemoryPrintStream tp = new MemoryPrintStream();
+    final MemoryPrintStream fp = new MemoryPrintStream();
+    final MemoryPrintStream fn = new MemoryPrintStream();
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File calls = FileHelper.stringToGzFile(variants.mCallsVcf.toString(), new File(dir, "calls.vcf.gz"));
+      new TabixIndexer(calls).saveVcfIndex();
+      final File baseline = FileHelper.stringToGzFile(variants.mBaselineVcf.toString(), new File(dir, "baseline.vcf.gz"));
+      new TabixIndexer(baseline).saveVcfIndex();
+      final EvalSynchronizer sync = new EvalSynchronizer(variants, tp.outputStream(), fp.outputStream(), fn.outputStream(), null, baseline, calls, RocSortOrder.DESCENDING);
+      final SequencesReader reader = ReaderTestUtils.getReaderDnaMemory(VcfEvalTaskTest.REF);
+      new SequenceEvaluator(sync, Collections.singletonMap("10", 0L), reader, threads, regionVariants).run();
+      return "tp:\n" + tp.toString() + "fp:\n" + fp.toString() + "fn:\n" + fn.toString()
+        + "correct=" + sync.getCorrectPhasings() + " misphasings=" + sync.getMisPhasings() + " unphasable=" + sync.getUnphasable();
+    }
+  }
+
   private void checkPhasing(int expectedCorrect, int expectedUnphasable, int expectedMisPhasings, MockVariantSet variants) throws IOException, UnindexableDataException {
     final MemoryPrintStream tp = new MemoryPrintStream();
     final MemoryPrintStream fp = new MemoryPrintStream();
@@ -231,7 +313,7 @@ public class SequenceEvaluatorTest extends TestCase {
       new TabixIndexer(baseline).saveVcfIndex();
       final EvalSynchronizer sync = new EvalSynchronizer(variants, tp.outputStream(), fp.outputStream(), fn.outputStream(), null, baseline, calls, RocSortOrder.DESCENDING);
       final SequencesReader reader = ReaderTestUtils.getReaderDnaMemory(VcfEvalTaskTest.REF);
-      final SequenceEvaluator eval = new SequenceEvaluator(sync, Collections.singletonMap("10", 0L), reader);
+      final SequenceEvaluator eval = new SequenceEvaluator(sync, Collections.singletonMap("10", 0L), reader, new Semaphore(1));
       eval.run();
       assertEquals("correctphasings: " + sync.getCorrectPhasings() + ", misphasings: " + sync.getMisPhasings() + ", unphaseable: " + sync.getUnphasable(), expectedCorrect, sync.getCorrectPhasings());
       assertEquals("misphasings: " + sync.getMisPhasings() + ", unphaseable: " + sync.getUnphasable(), expectedMisPhasings, sync.getMisPhasings());
@@ -37,6 +37,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(InvertCgTemplateEnvironmentTest.class);
     suite.addTestSuite(DeltaImplementationTest.class);
     suite.addTestSuite(RealignParamsImplementationTest.class);
+    suite.addTestSuite(ScaledScoreMatrixTest.class);
     suite.addTestSuite(DeltaSlowlyTest.class);
     suite.addTestSuite(RealignParamsGenomeTest.class);
     suite.addTestSuite(AlignmentEnvironmentReadTest.class);
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.realign;
+
+import static com.rtg.sam.SamUtils.CG_RAW_READ_LENGTH;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.integrity.Exam;
+import com.rtg.variant.realign.ScoreMatrixCGTest.MockRealignParamsCG;
+import com.rtg.variant.realign.ScoreMatrixTest.MockRealignParams;
+import com.rtg.variant.util.arithmetic.LogPossibility;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ScaledScoreMatrixTest extends TestCase {
+
+  private static Environment randomEnv(PortableRandom r, int length, int maxShift) {
+    final byte[] read = new byte[length];
+    final double[] quality = new double[length];
+    for (int i = 0; i < length; i++) {
+      read[i] = (byte) (r.nextInt(20) == 0 ? 0 : 1 + r.nextInt(4));
+      quality[i] = 0.0001 + 0.3 * r.nextDouble();
+    }
+    final byte[] template = new byte[length + 2 * maxShift + 20];
+    for (int i = 0; i < template.length; i++) {
+      // mostly a copy of the read so there are good alignments
+      final int k = i - maxShift - 5;
+      template[i] = k >= 0 && k < length && r.nextInt(5) != 0 ? read[k] : (byte) r.nextInt(5);
+    }
+    return new EnvironmentImplementation(maxShift, template, maxShift + 5, read, quality);
+  }
+
+  private static void checkSame(AllPaths expected, AllPaths actual, Environment env) {
+    expected.setEnv(env);
+    actual.setEnv(env);
+    Exam.integrity(actual);
+    final double exp = expected.totalScoreLn();
+    assertEquals(exp, actual.totalScoreLn(), 1e-9 * Math.abs(exp));
+    assertEquals(exp, actual.arithmetic().poss2Ln(actual.total()), 1e-9 * Math.abs(exp));
+    assertFalse(actual.underflow());
+  }
+
+  public void testSameAsScoreFastUnderflow() {
+    final PortableRandom r = new PortableRandom(3);
+    final AllPaths expected = new ScoreFastUnderflow(new MockRealignParams());
+    final AllPaths actual = new ScaledScoreMatrix(new MockRealignParams());
+    final ScoreMatrix simple = new ScoreMatrix(SimplePossibility.SINGLETON, new MockRealignParams());
+    for (int k = 0; k < 200; k++) {
+      final Environment env = randomEnv(r, 1 + r.nextInt(80), 1 + r.nextInt(8));
+      checkSame(expected, actual, env);
+      simple.setEnv(env);
+      if (!simple.underflow()) {
+        // Bit for bit the same as the non log calculation
+        assertEquals(expected.totalScoreLn(), actual.totalScoreLn());
+        assertEquals(expected.totalScore(), actual.totalScore());
+      }
+    }
+  }
+
+  public void testSameAsScoreFastUnderflowCG() {
+    final PortableRandom r = new PortableRandom(5);
+    final AllPaths expected = new ScoreFastUnderflowCG(new MockRealignParamsCG());
+    final AllPaths actual = new ScaledScoreMatrixCG(new MockRealignParamsCG());
+    for (int k = 0; k < 100; k++) {
+      checkSame(expected, actual, randomEnv(r, CG_RAW_READ_LENGTH, 8 + r.nextInt(4)));
+    }
+  }
+
+  public void testUnderflow() {
+    final AllPaths score = new ScaledScoreMatrix(new MockRealignParams());
+    score.setEnv(new ScoreFastUnderflowTest().envUnderflow());
+    assertEquals(-750.22187, score.totalScoreLn(), 0.001);
+    assertEquals(0.0, score.totalScore());
+    // Long reads underflow many times over, compare with exact log arithmetic
+    final PortableRandom r = new PortableRandom(7);
+    final Environment env = randomEnv(r, 2000, 5);
+    final ScoreMatrix log = new ScoreMatrix(LogPossibility.SINGLETON, new MockRealignParams());
+    log.setEnv(env);
+    score.setEnv(env);
+    assertTrue(String.valueOf(log.totalScoreLn()), log.totalScoreLn() < -1000);
+    assertEquals(log.totalScoreLn(), score.totalScoreLn(), 1e-9 * Math.abs(log.totalScoreLn()));
+  }
+
+  public void testExtremeParamsCG() {
+    final MockRealignParamsCG params = new MockRealignParamsCG() {
+      @Override
+      public double deleteOpenLn() {
+        return -1000.0;
+      }
+      @Override
+      public double insertOpenLn() {
+        return -1000.0;
+      }
+      @Override
+      public double matchLn() {
+        return -1000.0;
+      }
+      @Override
+      public double misMatchLn() {
+        return -1000.0;
+      }
+    };
+    final AllPaths score = new ScaledScoreMatrixCG(params);
+    score.setEnv(new ScoreFastUnderflowCGTest().envUnderflow());
+    assertEquals(-22101.3, score.totalScoreLn(), 0.1);
+  }
+
+  public void testCgLength() {
+    try {
+      new ScaledScoreMatrixCG(new MockRealignParamsCG()).setEnv(randomEnv(new PortableRandom(1), 20, 4));
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("CG read is not the right length was: 20", e.getMessage());
+    }
+  }
+}
@@ -29,6 +29,7 @@ public class AllTests extends TestSuite {
     suite.addTest(com.rtg.vcf.validator.AllTests.suite());
     suite.addTestSuite(AdjacencyTest.class);
     suite.addTestSuite(ChildPhasingVcfAnnotatorTest.class);
+    suite.addTestSuite(ParallelVcfProcessorTest.class);
     suite.addTestSuite(SegregationVcfAnnotatorTest.class);
     suite.addTestSuite(VcfFilterStatisticsTest.class);
     suite.addTestSuite(SnpIntersectionTest.class);
@@ -44,6 +45,7 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(VcfInfoStripperTest.class);
     suite.addTestSuite(VcfInfoPerAltIntegerAnnotatorTest.class);
     suite.addTestSuite(VcfMergeTest.class);
+    suite.addTestSuite(VcfReadAheadTest.class);
     suite.addTestSuite(VcfReaderTest.class);
     suite.addTestSuite(VcfRecordTest.class);
     suite.addTestSuite(VcfSampleStripperTest.class);
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.vcf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.rtg.tabix.TabixIndexer;
+import com.rtg.tabix.UnindexableDataException;
+import com.rtg.util.StringUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.intervals.RegionRestriction;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.BgzipFileHelper;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ParallelVcfProcessorTest extends TestCase {
+
+  @Override
+  public void setUp() {
+    Diagnostic.setLogStream();
+  }
+
+  @Override
+  public void tearDown() {
+    Diagnostic.setLogStream();
+  }
+
+  public void testAddRegions() {
+    final long[] linear = {0, 0, 100L << 16, (150L << 16) | 7, 0, 300L << 16};
+    final List<RegionRestriction> regions = new ArrayList<>();
+    ParallelVcfProcessor.addRegions(regions, "s", linear, 100);
+    assertEquals(3, regions.size());
+    assertEquals(RegionRestriction.MISSING, regions.get(0).getStart());
+    assertEquals(2 << 14, regions.get(0).getEnd());
+    assertEquals(2 << 14, regions.get(1).getStart());
+    assertEquals(5 << 14, regions.get(1).getEnd());
+    assertEquals(5 << 14, regions.get(2).getStart());
+    assertEquals(RegionRestriction.MISSING, regions.get(2).getEnd());
+    regions.clear();
+    ParallelVcfProcessor.addRegions(regions, "s", linear, 0);
+    ParallelVcfProcessor.addRegions(regions, "t", new long[0], 100);
+    assertEquals(2, regions.size());
+    assertEquals("s", regions.get(0).toString());
+    assertEquals("t", regions.get(1).toString());
+  }
+
+  private static String records() {
+    final Random random = new Random(42);
+    final StringBuilder sb = new StringBuilder();
+    for (final String sequence : new String[] {"chr1", "chr2", "chr3"}) {
+      for (int pos = 1; pos < 100000; pos += 1 + random.nextInt(20)) {
+        // Some deletions overlap the start of the following region
+        final String ref = random.nextInt(7) == 0 ? "ACGTACGTACGTACGTACGTACGTA" : "A";
+        sb.append(sequence).append('\t').append(pos).append("\t.\t").append(ref).append("\tG\t").append(random.nextInt(1000))
+          .append("\tPASS\tDP=").append(random.nextInt(100)).append("\tGT:GQ\t0/1:").append(random.nextInt(100)).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String recordLines(String vcf) {
+    final StringBuilder sb = new StringBuilder();
+    for (final String line : StringUtils.split(vcf, '\n')) {
+      if (line.length() > 0 && line.charAt(0) != '#') {
+        sb.append(line).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
+  public void testProcess() throws IOException, UnindexableDataException {
+    final File dir = FileUtils.createTempDir("parallelvcf", "test");
+    try {
+      final String header = "##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tSAMPLE\n";
+      final String records = records();
+      final File input = BgzipFileHelper.bytesToBgzipFile((header + records).getBytes(), new File(dir, "in.vcf.gz"));
+      assertFalse(ParallelVcfProcessor.canProcess(input));
+      new TabixIndexer(input, TabixIndexer.indexFileName(input)).saveVcfIndex();
+      assertTrue(ParallelVcfProcessor.canProcess(input));
+
+      final ParallelVcfProcessor processor = new ParallelVcfProcessor(input, 3, 1);
+      assertTrue(processor.regions().size() > 6);
+      final int[] tasks = new int[1];
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (VcfWriter writer = new VcfWriter(processor.getHeader(), out)) {
+        processor.process(new ParallelVcfProcessor.RegionTaskFactory() {
+          @Override
+          public ParallelVcfProcessor.RegionTask task() {
+            tasks[0]++;
+            return new ParallelVcfProcessor.RegionTask() {
+              @Override
+              public void process(VcfReader reader, VcfWriter writer) throws IOException {
+                while (reader.hasNext()) {
+                  writer.write(reader.next());
+                }
+              }
+            };
+          }
+        }, writer);
+      }
+      assertEquals(processor.regions().size(), tasks[0]);
+      assertEquals(recordLines(records), recordLines(out.toString()));
+
+      // Whole sequences
+      final ParallelVcfProcessor whole = new ParallelVcfProcessor(input, 2, false);
+      assertEquals(3, whole.regions().size());
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  public void testError() throws IOException, UnindexableDataException {
+    final File dir = FileUtils.createTempDir("parallelvcf", "test");
+    try {
+      final String header = "##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tSAMPLE\n";
+      final File input = BgzipFileHelper.bytesToBgzipFile((header + records()).getBytes(), new File(dir, "in.vcf.gz"));
+      new TabixIndexer(input, TabixIndexer.indexFileName(input)).saveVcfIndex();
+      final ParallelVcfProcessor processor = new ParallelVcfProcessor(input, 2, false);
+      try (VcfWriter writer = new VcfWriter(processor.getHeader(), new ByteArrayOutputStream())) {
+        processor.process(new ParallelVcfProcessor.RegionTaskFactory() {
+          @Override
+          public ParallelVcfProcessor.RegionTask task() {
+            return new ParallelVcfProcessor.RegionTask() {
+              @Override
+              public void process(VcfReader reader, VcfWriter writer) throws IOException {
+                throw new IOException("bad region");
+              }
+            };
+          }
+        }, writer);
+        fail();
+      } catch (final IOException e) {
+        assertEquals("bad region", e.getMessage());
+      }
+      try {
+        new ParallelVcfProcessor(input, 0, false);
+        fail();
+      } catch (final IllegalArgumentException e) {
+        assertEquals("Invalid number of threads: 0", e.getMessage());
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+}
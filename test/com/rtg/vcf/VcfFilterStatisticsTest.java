@@ -89,4 +89,28 @@ public class VcfFilterStatisticsTest extends TestCase {
         "Filtered due to exclude file",
         "Remaining records");
   }
+
+  public void testMerge() {
+    final VcfFilterStatistics stats = new VcfFilterStatistics();
+    stats.setFilterTags(Collections.singletonMap("Foo", 0));
+    stats.setInfoTags(Collections.singletonMap("Bar", 0));
+    final VcfFilterStatistics other = new VcfFilterStatistics();
+    other.setFilterTags(Collections.singletonMap("Foo", 0));
+    other.setInfoTags(Collections.singletonMap("Bar", 0));
+    stats.increment(Stat.TOTAL_COUNT);
+    other.increment(Stat.TOTAL_COUNT);
+    other.increment(Stat.WRITTEN_COUNT);
+    other.incrementFilterTag("Foo");
+    other.incrementInfoTag("Bar");
+    stats.merge(other);
+    final MemoryPrintStream stream = new MemoryPrintStream();
+    stats.printStatistics(stream.outputStream());
+    final String expected = "" + LS
+        + "Total records : 2" + LS
+        + "Filtered due to Foo : 1" + LS
+        + "Filtered due to Bar : 1" + LS
+        + "Remaining records : 1" + LS
+        ;
+    assertEquals(expected, stream.toString());
+  }
 }
@@ -150,7 +150,7 @@ public class VcfMergeTest extends TestCase {
       new TabixIndexer(f1, TabixIndexer.indexFileName(f1)).saveVcfIndex();
       new TabixIndexer(f2, TabixIndexer.indexFileName(f2)).saveVcfIndex();
       final File output = new File(dir, "out.vcf");
-      VcfMerge.mergeVcfFiles(null, output, false, false, null, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, f1, f2);
+      VcfMerge.mergeVcfFiles(null, output, false, false, null, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, 2, f1, f2);
       String actual = FileUtils.fileToString(output);
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       mNano.check("vcfmerge_testMerge.vcf", actual, false);
@@ -165,7 +165,7 @@ public class VcfMergeTest extends TestCase {
       new TabixIndexer(f2, TabixIndexer.indexFileName(f2)).saveVcfIndex();
       final File output = new File(dir, "out.vcf");
       final VariantStatistics stats = new VariantStatistics(null);
-      VcfMerge.mergeVcfFiles(null, output, true, true, stats, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, f1, f2);
+      VcfMerge.mergeVcfFiles(null, output, true, true, stats, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, 2, f1, f2);
       String actual = FileHelper.gzFileToString(new File(dir, "out.vcf.gz"));
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       assertTrue(new File(dir, "out.vcf.gz.tbi").isFile());
@@ -182,7 +182,7 @@ public class VcfMergeTest extends TestCase {
       final File f1 = BgzipFileHelper.bytesToBgzipFile(FILE3.getBytes(), new File(dir, "file1.vcf.gz"));
       new TabixIndexer(f1, TabixIndexer.indexFileName(f1)).saveVcfIndex();
       final File output = new File(dir, "out.vcf");
-      VcfMerge.mergeVcfFiles(null, output, false, false, null, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, f1);
+      VcfMerge.mergeVcfFiles(null, output, false, false, null, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, 2, f1);
       String actual = FileUtils.fileToString(output);
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       mNano.check("vcfmerge_testSingle.vcf", actual, false);
@@ -237,7 +237,7 @@ public class VcfMergeTest extends TestCase {
       final File f3 = BgzipFileHelper.bytesToBgzipFile(string3.getBytes(), new File(dir, "file3.vcf.gz"));
       new TabixIndexer(f3, TabixIndexer.indexFileName(f3)).saveVcfIndex();
       final File output = new File(dir, "out.vcf");
-      VcfMerge.mergeVcfFiles(null, output, false, false, null, new String[]{}, null, false, f1, f2, f3);
+      VcfMerge.mergeVcfFiles(null, output, false, false, null, new String[]{}, null, false, 2, f1, f2, f3);
       String actual = FileUtils.fileToString(output);
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       mNano.check("vcfmerge_testSamePosDiffRef.vcf", actual, false);
@@ -259,9 +259,9 @@ public class VcfMergeTest extends TestCase {
       final File f3 = BgzipFileHelper.bytesToBgzipFile(string3.getBytes(), new File(dir, "file3.vcf.gz"));
       new TabixIndexer(f3, TabixIndexer.indexFileName(f3)).saveVcfIndex();
       final File output = new File(dir, "out.vcf.gz");
-      VcfMerge.mergeVcfFiles(null, output, true, true, null, new String[]{}, null, false, f2, f3);
+      VcfMerge.mergeVcfFiles(null, output, true, true, null, new String[]{}, null, false, 2, f2, f3);
       final File output2 = new File(dir, "out2.vcf");
-      VcfMerge.mergeVcfFiles(null, output2, false, false, null, new String[]{}, null, false, f1, output);
+      VcfMerge.mergeVcfFiles(null, output2, false, false, null, new String[]{}, null, false, 2, f1, output);
       String actual = FileUtils.fileToString(output2);
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       mNano.check("vcfmerge_testSamePos.vcf", actual, false);
@@ -276,7 +276,7 @@ public class VcfMergeTest extends TestCase {
       final File snpsB = BgzipFileHelper.bytesToBgzipFile(FileHelper.resourceToString("com/rtg/vcf/resources/snpsB.vcf").getBytes(), new File(dir, "snpsB.vcf.gz"));
       new TabixIndexer(snpsB, TabixIndexer.indexFileName(snpsB)).saveVcfIndex();
       final File outFile = new File(dir, "test.vcf");
-      VcfMerge.mergeVcfFiles(null, outFile, false, false, null, new String[]{}, null, true, snpsA, snpsB);
+      VcfMerge.mergeVcfFiles(null, outFile, false, false, null, new String[]{}, null, true, 2, snpsA, snpsB);
       String actual = FileUtils.fileToString(outFile);
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       mNano.check("mergedAB.vcf", actual, false);
@@ -291,7 +291,7 @@ public class VcfMergeTest extends TestCase {
       new TabixIndexer(snpsB, TabixIndexer.indexFileName(snpsB)).saveVcfIndex();
       final File output = new File(dir, "out.vcf");
       final VariantStatistics stats = new VariantStatistics(null);
-      VcfMerge.mergeVcfFiles(null, output, true, true, stats, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, snpsA, snpsB);
+      VcfMerge.mergeVcfFiles(null, output, true, true, stats, new String[]{"##extraline=foo", "##extraline2=bar" }, null, false, 2, snpsA, snpsB);
       String actual = FileHelper.gzFileToString(new File(dir, "out.vcf.gz"));
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       assertTrue(new File(dir, "out.vcf.gz.tbi").isFile());
@@ -310,7 +310,7 @@ public class VcfMergeTest extends TestCase {
       new TabixIndexer(snpsB, TabixIndexer.indexFileName(snpsB)).saveVcfIndex();
       final File output = new File(dir, "out.vcf");
       final VariantStatistics stats = new VariantStatistics(null);
-      VcfMerge.mergeVcfFiles(null, output, true, true, stats, new String[]{"##extraline=foo", "##extraline2=bar" }, null, true, snpsA, snpsB);
+      VcfMerge.mergeVcfFiles(null, output, true, true, stats, new String[]{"##extraline=foo", "##extraline2=bar" }, null, true, 2, snpsA, snpsB);
       String actual = FileHelper.gzFileToString(new File(dir, "out.vcf.gz"));
       actual = StringUtils.grepMinusV(actual, "^##(RUN-ID)|(CL)").replaceAll("[\r\n]+", "\n");
       assertTrue(new File(dir, "out.vcf.gz.tbi").isFile());
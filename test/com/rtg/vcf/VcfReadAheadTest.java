@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.vcf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.rtg.tabix.TabixIndexReader;
+import com.rtg.tabix.TabixIndexer;
+import com.rtg.tabix.UnindexableDataException;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.intervals.RegionRestriction;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.BgzipFileHelper;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class VcfReadAheadTest extends TestCase {
+
+  @Override
+  public void setUp() {
+    Diagnostic.setLogStream();
+  }
+
+  @Override
+  public void tearDown() {
+    Diagnostic.setLogStream();
+  }
+
+  private static final String HEADER = "##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tSAMPLE\n";
+
+  private static String records(String sequence, int count) {
+    final StringBuilder sb = new StringBuilder();
+    for (int pos = 1; pos <= count; pos++) {
+      sb.append(sequence).append('\t').append(pos).append("\t.\tA\tG\t30\tPASS\tDP=").append(pos).append("\tGT\t0/1\n");
+    }
+    return sb.toString();
+  }
+
+  public void testRegions() throws IOException, UnindexableDataException {
+    checkRegions(null);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      checkRegions(executor);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void checkRegions(ExecutorService executor) throws IOException, UnindexableDataException {
+    final File dir = FileUtils.createTempDir("vcfreadahead", "test");
+    try {
+      final int count = 2 * VcfReadAhead.BATCH_SIZE + 3;
+      final File input = BgzipFileHelper.bytesToBgzipFile((HEADER + records("chr1", count) + records("chr2", count)).getBytes(), new File(dir, "in.vcf.gz"));
+      new TabixIndexer(input, TabixIndexer.indexFileName(input)).saveVcfIndex();
+      final TabixIndexReader index = new TabixIndexReader(TabixIndexer.indexFileName(input));
+      final RegionRestriction[] regions = {new RegionRestriction("chr1"), new RegionRestriction("chrX"), new RegionRestriction("chr2"), new RegionRestriction("chr1:10-12")};
+      try (VcfReadAhead reader = new VcfReadAhead(executor, input, index, VcfUtils.getHeader(input), regions)) {
+        checkRecords(reader, count);
+      }
+      try (VcfReadAhead reader = new VcfReadAhead(executor, input, index, VcfUtils.getHeader(input), regions)) {
+        // Closed part way through
+        assertTrue(reader.hasNext());
+      }
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  private void checkRecords(VcfReadAhead reader, int count) throws IOException {
+    for (int pos = 0; pos < count; pos++) {
+      assertTrue(reader.hasNext());
+      assertEquals(pos, reader.peek().getStart());
+      final VcfRecord rec = reader.next();
+      assertEquals("chr1", rec.getSequenceName());
+      assertEquals(String.valueOf(pos + 1), rec.getInfo().get("DP").get(0));
+    }
+    assertFalse(reader.hasNext());
+    reader.nextRegion();
+    assertFalse(reader.hasNext());
+    reader.nextRegion();
+    assertEquals("chr2", reader.next().getSequenceName());
+    // Remaining records of a region are skipped
+    reader.nextRegion();
+    int last = -1;
+    while (reader.hasNext()) {
+      final VcfRecord rec = reader.next();
+      assertEquals("chr1", rec.getSequenceName());
+      last = rec.getStart();
+    }
+    assertEquals(11, last);
+    reader.nextRegion();
+    assertFalse(reader.hasNext());
+    try {
+      reader.peek();
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("No more records", e.getMessage());
+    }
+  }
+
+  public void testError() throws IOException, UnindexableDataException {
+    final File dir = FileUtils.createTempDir("vcfreadahead", "test");
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final File input = BgzipFileHelper.bytesToBgzipFile((HEADER + records("chr1", 3) + "chr1\t4\t.\tA\n").getBytes(), new File(dir, "in.vcf.gz"));
+      new TabixIndexer(input, TabixIndexer.indexFileName(input)).saveVcfIndex();
+      final TabixIndexReader index = new TabixIndexReader(TabixIndexer.indexFileName(input));
+      try (VcfReadAhead reader = new VcfReadAhead(executor, input, index, VcfUtils.getHeader(input), new RegionRestriction[] {new RegionRestriction("chr1")})) {
+        reader.hasNext();
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains("expected at least 8 fields"));
+      }
+    } finally {
+      executor.shutdownNow();
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+}
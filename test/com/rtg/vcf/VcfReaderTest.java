@@ -142,4 +142,40 @@ public class VcfReaderTest extends TestCase {
     assertEquals(Collections.singletonList("0|0"), rec.getFormatAndSample().get("GT"));
     assertEquals(Collections.singletonList("7"), rec.getFormatAndSample().get("GQ"));
   }
+
+  public void testLazyDecode() {
+    final String line = "g1\t8\trs1\tA\tG,T\t12.5\tPASS\tDP=50;AF=0.5,0.25;DB\tGT:GQ:DP\t1/2:30:5\t0/0:.:7";
+    final VcfRecord rec = VcfReader.vcfLineToRecord(line);
+    assertEquals(2, rec.getNumberOfSamples());
+    assertEquals(line, rec.toString());
+    assertEquals("50", rec.getInfo().get("DP").get(0));
+    assertEquals(2, rec.getInfo().get("AF").size());
+    assertTrue(rec.getInfo().containsKey("DB"));
+    assertEquals("1/2", rec.getFormatAndSample().get("GT").get(0));
+    assertEquals(".", rec.getFormatAndSample().get("GQ").get(1));
+    assertEquals(line, rec.toString());
+  }
+
+  public void testLazyShortSample() {
+    // Trailing missing sample values are omitted when written
+    final VcfRecord rec = VcfReader.vcfLineToRecord("g1\t8\t.\tA\tG\t.\t.\tDP=1;DP=2\tGT:GQ\t1/1\t0/1:.");
+    assertEquals("g1\t8\t.\tA\tG\t.\t.\tDP=1,2\tGT:GQ\t1/1\t0/1", rec.toString());
+    assertEquals(".", rec.getFormatAndSample().get("GQ").get(0));
+  }
+
+  public void testLazyModified() {
+    final VcfRecord rec = VcfReader.vcfLineToRecord("g1\t8\t.\tA\tG\t.\t.\tDP=5\tGT\t1/1");
+    rec.addInfo("XX", "1");
+    rec.addFormatAndSample("DP", "3");
+    assertEquals("g1\t8\t.\tA\tG\t.\t.\tDP=5;XX=1\tGT:DP\t1/1:3", rec.toString());
+  }
+
+  public void testLazyBadSample() {
+    try {
+      VcfReader.vcfLineToRecord("g1\t8\t.\tA\tG\t.\t.\t.\tGT\t1/1\t0/1:3");
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Invalid VCF record, column 11 does not have the same number of values as specified in the format column. Field=0/1:3 record: g1\t8\t.\tA\tG\t.\t.\t.\tGT\t1/1\t0/1:3", e.getMessage());
+    }
+  }
 }